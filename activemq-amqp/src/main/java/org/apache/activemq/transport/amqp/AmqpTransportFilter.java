@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.security.cert.X509Certificate;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.activemq.broker.BatchedDispatchAware;
 import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.command.Command;
 import org.apache.activemq.transport.Transport;
@@ -38,7 +39,7 @@ import org.slf4j.LoggerFactory;
  * ActiveMQ commands. All of the conversion work is done by delegating to the
  * AMQPProtocolConverter
  */
-public class AmqpTransportFilter extends TransportFilter implements AmqpTransport {
+public class AmqpTransportFilter extends TransportFilter implements AmqpTransport, BatchedDispatchAware {
     private static final Logger LOG = LoggerFactory.getLogger(AmqpTransportFilter.class);
     static final Logger TRACE_BYTES = LoggerFactory.getLogger(AmqpTransportFilter.class.getPackage().getName() + ".BYTES");
     public static final Logger TRACE_FRAMES = LoggerFactory.getLogger(AmqpTransportFilter.class.getPackage().getName() + ".FRAMES");
@@ -47,6 +48,7 @@ public class AmqpTransportFilter extends TransportFilter implements AmqpTranspor
     private AmqpInactivityMonitor monitor;
 
     private boolean trace;
+    private boolean batchedDispatchEnabled = true;
     private final ReentrantLock lock = new ReentrantLock();
 
     public AmqpTransportFilter(Transport next, WireFormat wireFormat, BrokerService brokerService) {
@@ -246,4 +248,17 @@ public class AmqpTransportFilter extends TransportFilter implements AmqpTranspor
     public void setMaxFrameSize(long maxFrameSize) {
         wireFormat.setMaxFrameSize(maxFrameSize);
     }
+
+    /**
+     * @return true if the broker hands consecutive dispatches for one receiver over as a
+     *         single batch, which is then sent to the peer in one write.
+     */
+    @Override
+    public boolean isBatchedDispatchEnabled() {
+        return batchedDispatchEnabled;
+    }
+
+    public void setBatchedDispatchEnabled(boolean batchedDispatchEnabled) {
+        this.batchedDispatchEnabled = batchedDispatchEnabled;
+    }
 }
@@ -22,6 +22,7 @@ import jakarta.jms.BytesMessage;
 
 import org.apache.activemq.command.ActiveMQBytesMessage;
 import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.Message;
 
 public class AutoOutboundTransformer extends JMSMappingOutboundTransformer {
 
@@ -29,6 +30,11 @@ public class AutoOutboundTransformer extends JMSMappingOutboundTransformer {
 
     @Override
     public EncodedMessage transform(ActiveMQMessage message) throws Exception {
+        return transform(message, null);
+    }
+
+    @Override
+    public EncodedMessage transform(ActiveMQMessage message, Message shared) throws Exception {
         if (message == null) {
             return null;
         }
@@ -40,7 +46,7 @@ public class AutoOutboundTransformer extends JMSMappingOutboundTransformer {
                 return null;
             }
         } else {
-            return transformer.transform(message);
+            return transformer.transform(message, shared);
         }
     }
 }
@@ -50,6 +50,7 @@ import static org.apache.activemq.transport.amqp.message.AmqpMessageSupport.getM
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -106,6 +107,14 @@ public class JMSMappingOutboundTransformer implements OutboundTransformer {
     public static final byte TEMP_QUEUE_TYPE = 0x02;
     public static final byte TEMP_TOPIC_TYPE = 0x03;
 
+    /**
+     * Key of the sections cached on a topic message dispatched to several AMQP receivers.
+     */
+    private static final Object ENCODED_SECTIONS_KEY = JMSMappingOutboundTransformer.class;
+
+    // room for a header with every field set, so prepending it does not grow the buffer
+    private static final int HEADER_SECTION_SIZE = 32;
+
     private final UTF8BufferType utf8BufferEncoding;
 
     // For now Proton requires that we create a decoder to create an encoder
@@ -121,10 +130,74 @@ public class JMSMappingOutboundTransformer implements OutboundTransformer {
 
     @Override
     public EncodedMessage transform(ActiveMQMessage message) throws Exception {
+        return transform(message, null);
+    }
+
+    @Override
+    public EncodedMessage transform(ActiveMQMessage message, org.apache.activemq.command.Message shared) throws Exception {
         if (message == null) {
             return null;
         }
 
+        // Only a topic message fans out to several receivers at once. A queue message is
+        // normally encoded once, so caching its encoding would only keep a second copy of it
+        // in memory that the destination's memory usage does not account for.
+        final boolean cached = shared != null && shared.getDestination() != null && shared.getDestination().isTopic();
+
+        EncodedSections sections = null;
+        if (cached) {
+            sections = (EncodedSections) shared.getProtocolEncoding(ENCODED_SECTIONS_KEY);
+        }
+        if (sections == null) {
+            sections = encodeSections(message, cached);
+            if (cached) {
+                shared.setProtocolEncoding(ENCODED_SECTIONS_KEY, sections);
+            }
+        }
+
+        // The header holds the fields that change from one delivery of the message to the next.
+        Header header = sections.header != null ? copyHeader(sections.header) : null;
+
+        long expiration = message.getExpiration();
+        if (expiration != 0) {
+            long ttl = expiration - System.currentTimeMillis();
+            if (ttl < 0) {
+                ttl = 1;
+            }
+
+            if (header == null) {
+                header = new Header();
+            }
+            header.setTtl(new UnsignedInteger((int) ttl));
+        }
+
+        // JMSX Message Properties
+        int deliveryCount = message.getRedeliveryCounter();
+        if (deliveryCount > 0) {
+            if (header == null) {
+                header = new Header();
+            }
+            header.setDeliveryCount(UnsignedInteger.valueOf(deliveryCount));
+        }
+
+        if (header == null) {
+            return sections.encoded;
+        }
+
+        final AmqpWritableBuffer buffer = new AmqpWritableBuffer(sections.encoded.getLength() + HEADER_SECTION_SIZE);
+        encoder.setByteBuffer(buffer);
+        encoder.writeObject(header);
+        buffer.put(sections.encoded.getArray(), sections.encoded.getArrayOffset(), sections.encoded.getLength());
+
+        return new EncodedMessage(sections.encoded.getMessageFormat(), buffer.getArray(), 0, buffer.getArrayLength());
+    }
+
+    /**
+     * Encodes every section of the message except the parts of the header that depend on the
+     * delivery, which is everything the receivers of a fanned out message have in common.
+     * Sections that are retained on the message are trimmed to the size of their encoding.
+     */
+    private EncodedSections encodeSections(ActiveMQMessage message, boolean retained) throws Exception {
         long messageFormat = 0;
         Header header = null;
         Properties properties = null;
@@ -197,16 +270,6 @@ public class JMSMappingOutboundTransformer implements OutboundTransformer {
         }
         long expiration = message.getExpiration();
         if (expiration != 0) {
-            long ttl = expiration - System.currentTimeMillis();
-            if (ttl < 0) {
-                ttl = 1;
-            }
-
-            if (header == null) {
-                header = new Header();
-            }
-            header.setTtl(new UnsignedInteger((int) ttl));
-
             if (properties == null) {
                 properties = new Properties();
             }
@@ -221,13 +284,6 @@ public class JMSMappingOutboundTransformer implements OutboundTransformer {
         }
 
         // JMSX Message Properties
-        int deliveryCount = message.getRedeliveryCounter();
-        if (deliveryCount > 0) {
-            if (header == null) {
-                header = new Header();
-            }
-            header.setDeliveryCount(UnsignedInteger.valueOf(deliveryCount));
-        }
         String userId = message.getUserID();
         if (userId != null) {
             if (properties == null) {
@@ -352,9 +408,6 @@ public class JMSMappingOutboundTransformer implements OutboundTransformer {
         final AmqpWritableBuffer buffer = new AmqpWritableBuffer();
         encoder.setByteBuffer(buffer);
 
-        if (header != null) {
-            encoder.writeObject(header);
-        }
         if (daMap != null) {
             encoder.writeObject(new DeliveryAnnotations(daMap));
         }
@@ -374,7 +427,20 @@ public class JMSMappingOutboundTransformer implements OutboundTransformer {
             encoder.writeObject(new Footer(footerMap));
         }
 
-        return new EncodedMessage(messageFormat, buffer.getArray(), 0, buffer.getArrayLength());
+        byte[] encoded = buffer.getArray();
+        if (retained && encoded.length > buffer.getArrayLength()) {
+            encoded = Arrays.copyOf(encoded, buffer.getArrayLength());
+        }
+
+        return new EncodedSections(header, new EncodedMessage(messageFormat, encoded, 0, buffer.getArrayLength()));
+    }
+
+    private static Header copyHeader(Header template) {
+        Header header = new Header();
+        header.setDurable(template.getDurable());
+        header.setPriority(template.getPriority());
+        header.setFirstAcquirer(template.getFirstAcquirer());
+        return header;
     }
 
     private Section convertBody(ActiveMQMessage message) throws JMSException {
@@ -540,4 +606,19 @@ public class JMSMappingOutboundTransformer implements OutboundTransformer {
 
         return result;
     }
+
+    /**
+     * The sections of a message shared by all of its deliveries, along with the header fields
+     * that do not change between deliveries.
+     */
+    private static final class EncodedSections {
+
+        private final Header header;
+        private final EncodedMessage encoded;
+
+        EncodedSections(Header header, EncodedMessage encoded) {
+            this.header = header;
+            this.encoded = encoded;
+        }
+    }
 }
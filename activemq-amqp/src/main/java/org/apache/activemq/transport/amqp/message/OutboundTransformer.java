@@ -17,9 +17,27 @@
 package org.apache.activemq.transport.amqp.message;
 
 import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.Message;
 
 public interface OutboundTransformer {
 
     public abstract EncodedMessage transform(ActiveMQMessage message) throws Exception;
 
+    /**
+     * Transforms a copy of a broker message that may be delivered to many receivers. A
+     * transformer can cache the parts of the encoding that are the same for every delivery
+     * on the shared broker message, see {@link Message#setProtocolEncoding(Object, Object)}.
+     *
+     * @param message
+     *        the copy of the message that is being delivered.
+     * @param shared
+     *        the broker message the copy was taken from.
+     *
+     * @return the encoded message or null if the message cannot be transformed.
+     *
+     * @throws Exception if an error occurs while encoding the message.
+     */
+    public default EncodedMessage transform(ActiveMQMessage message, Message shared) throws Exception {
+        return transform(message);
+    }
 }
@@ -65,6 +65,7 @@ import org.apache.activemq.command.DestinationInfo;
 import org.apache.activemq.command.ExceptionResponse;
 import org.apache.activemq.command.LocalTransactionId;
 import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageDispatchBatch;
 import org.apache.activemq.command.RemoveInfo;
 import org.apache.activemq.command.Response;
 import org.apache.activemq.command.SessionId;
@@ -661,6 +662,13 @@ public class AmqpConnection implements AmqpProtocolConverter {
                     LOG.trace("Finished Dispatch of MessageId: {} to consumer", dispatch.getMessage().getMessageId());
                 }
             }
+        } else if (command.getDataStructureType() == MessageDispatchBatch.DATA_STRUCTURE_TYPE) {
+            MessageDispatchBatch batch = (MessageDispatchBatch) command;
+            AmqpSender sender = subscriptionsByConsumerId.get(batch.getConsumerId());
+            if (sender != null) {
+                LOG.trace("Dispatching batch of {} messages to consumer {}", batch.getDispatches().length, batch.getConsumerId());
+                sender.onMessageDispatchBatch(batch.getDispatches());
+            }
         } else if (command.getDataStructureType() == ConnectionError.DATA_STRUCTURE_TYPE) {
             // Pass down any unexpected async errors. Should this close the connection?
             Throwable exception = ((ConnectionError) command).getException();
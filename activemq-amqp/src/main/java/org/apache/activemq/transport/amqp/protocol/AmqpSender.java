@@ -74,6 +74,11 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
 
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[] {};
 
+    // Credit top ups smaller than this fraction of the link credit are held back while the
+    // subscription still has more than that fraction left, so that a peer granting credit
+    // back one message at a time does not update the subscription prefetch for each one.
+    private static final int CREDIT_REPLENISH_DIVISOR = 4;
+
     private final OutboundTransformer outboundTransformer = new AutoOutboundTransformer();
     private final AmqpTransferTagGenerator tagCache = new AmqpTransferTagGenerator();
     private final LinkedList<MessageDispatch> outbound = new LinkedList<>();
@@ -87,6 +92,7 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
     private final boolean presettle;
 
     private boolean draining;
+    private boolean creditPending;
     private long lastDeliveredSequenceId;
 
     private Buffer currentBuffer;
@@ -187,6 +193,7 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
 
             if (endpointCredit > 0) {
                 draining = true;
+                creditPending = false;
 
                 // Now request dispatch of the drain amount, we request immediate
                 // timeout and an completion message regardless so that we can know
@@ -216,27 +223,41 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
                 prefetchExtension.set(0);
                 currentCreditRequest = 0;
                 logicalDeliveryCount = 0;
+                creditPending = false;
                 LOG.trace("Flow: credit 0 for sub:" + subscription);
             } else {
-                int deltaToAdd = endpointCredit;
-                int logicalCredit = currentCreditRequest - logicalDeliveryCount;
-                if (logicalCredit > 0) {
-                    deltaToAdd -= logicalCredit;
-                } else {
-                    // reset delivery counter - dispatch from broker concurrent with credit=0
-                    // flow can go negative
-                    logicalDeliveryCount = 0;
-                }
+                replenishCredit(endpointCredit);
+            }
+        }
+    }
 
-                if (deltaToAdd > 0) {
-                    currentCreditRequest = prefetchExtension.addAndGet(deltaToAdd);
-                    subscription.wakeupDestinationsForDispatch();
-                    // force dispatch of matched/pending for topics (pending messages accumulate
-                    // in the sub and are dispatched on update of prefetch)
-                    subscription.setPrefetchSize(0);
-                    LOG.trace("Flow: credit addition of {} for sub {}", deltaToAdd, subscription);
-                }
+    private void replenishCredit(int endpointCredit) {
+        int deltaToAdd = endpointCredit;
+        int logicalCredit = currentCreditRequest - logicalDeliveryCount;
+        if (logicalCredit > 0) {
+            deltaToAdd -= logicalCredit;
+        } else {
+            // reset delivery counter - dispatch from broker concurrent with credit=0
+            // flow can go negative
+            logicalDeliveryCount = 0;
+        }
+
+        creditPending = false;
+        if (deltaToAdd > 0) {
+            int threshold = endpointCredit / CREDIT_REPLENISH_DIVISOR;
+            if (deltaToAdd < threshold && logicalCredit > threshold) {
+                // granted once enough has accumulated or the subscription runs low, see pumpOutbound
+                creditPending = true;
+                LOG.trace("Flow: credit addition of {} held back for sub {}", deltaToAdd, subscription);
+                return;
             }
+
+            currentCreditRequest = prefetchExtension.addAndGet(deltaToAdd);
+            subscription.wakeupDestinationsForDispatch();
+            // force dispatch of matched/pending for topics (pending messages accumulate
+            // in the sub and are dispatched on update of prefetch)
+            subscription.setPrefetchSize(0);
+            LOG.trace("Flow: credit addition of {} for sub {}", deltaToAdd, subscription);
         }
     }
 
@@ -379,6 +400,29 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
         }
     }
 
+    /**
+     * Event point for a batch of messages the broker dispatched back to back to this
+     * Sender's subscription.  All of them are handed to proton before its output is
+     * written to the socket, so the transfers go out in a single write.
+     *
+     * @param dispatches
+     *        the MessageDispatch commands to process and send across the link.
+     *
+     * @throws Exception if an error occurs while encoding the messages for send.
+     */
+    public void onMessageDispatchBatch(MessageDispatch[] dispatches) throws Exception {
+        if (!isClosed()) {
+            // Lock to prevent stepping on TX redelivery
+            synchronized (outbound) {
+                for (MessageDispatch dispatch : dispatches) {
+                    outbound.addLast(dispatch);
+                }
+            }
+            pumpOutbound();
+            session.pumpProtonToSocket();
+        }
+    }
+
     /**
      * Called when the Broker sends a ConsumerControl command to the Consumer that
      * this sender creates to obtain messages to dispatch via the sender for this
@@ -432,6 +476,10 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
                         currentBuffer = null;
                         currentDelivery = null;
                         logicalDeliveryCount++;
+
+                        if (creditPending && !draining) {
+                            replenishCredit(getEndpoint().getCredit());
+                        }
                     }
                 } else {
                     return;
@@ -475,7 +523,9 @@ public class AmqpSender extends AmqpAbstractLink<Sender> {
 
                     jms.setRedeliveryCounter(md.getRedeliveryCounter());
                     jms.setReadOnlyBody(true);
-                    final EncodedMessage amqp = outboundTransformer.transform(jms);
+                    // Pass the dispatched message along with the copy so the encoding can be shared
+                    // with the other receivers the same message is dispatched to.
+                    final EncodedMessage amqp = outboundTransformer.transform(jms, md.getMessage());
                     if (amqp != null && amqp.getLength() > 0) {
                         currentBuffer = new Buffer(amqp.getArray(), amqp.getArrayOffset(), amqp.getLength());
                         if (presettle) {
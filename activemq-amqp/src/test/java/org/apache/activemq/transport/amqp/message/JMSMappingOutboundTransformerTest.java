@@ -31,7 +31,9 @@ import static org.apache.activemq.transport.amqp.message.JMSMappingOutboundTrans
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -932,6 +934,85 @@ public class JMSMappingOutboundTransformerTest {
         doTestConvertMessageWithJMSReplyTo(createMockDestination(TEMP_TOPIC_TYPE), TEMP_TOPIC_TYPE);
     }
 
+    //----- Shared encoding tests --------------------------------------------//
+
+    @Test
+    public void testEncodingSharedBetweenDeliveriesOfSameMessage() throws Exception {
+        ActiveMQTextMessage shared = createTextMessage("fan-out");
+        shared.setJMSPriority(jakarta.jms.Message.DEFAULT_PRIORITY);
+        shared.setDestination(new ActiveMQTopic("test"));
+        shared.setStringProperty("property", "value");
+        shared.onSend();
+        shared.storeContent();
+
+        EncodedMessage first = new JMSMappingOutboundTransformer().transform((ActiveMQMessage) shared.copy(), shared);
+        EncodedMessage second = new JMSMappingOutboundTransformer().transform((ActiveMQMessage) shared.copy(), shared);
+
+        assertSame(first, second);
+
+        Message amqp = second.decode();
+        assertNull(amqp.getHeader());
+        assertEquals("fan-out", ((AmqpValue) amqp.getBody()).getValue());
+        assertEquals("value", amqp.getApplicationProperties().getValue().get("property"));
+    }
+
+    @Test
+    public void testSharedEncodingKeepsHeaderPerDelivery() throws Exception {
+        ActiveMQTextMessage shared = createTextMessage("fan-out");
+        shared.setPersistent(true);
+        shared.setDestination(new ActiveMQTopic("test"));
+        shared.onSend();
+        shared.storeContent();
+
+        JMSMappingOutboundTransformer transformer = new JMSMappingOutboundTransformer();
+
+        ActiveMQMessage firstDelivery = (ActiveMQMessage) shared.copy();
+        Message first = transformer.transform(firstDelivery, shared).decode();
+
+        ActiveMQMessage redelivery = (ActiveMQMessage) shared.copy();
+        redelivery.setRedeliveryCounter(2);
+        Message second = transformer.transform(redelivery, shared).decode();
+
+        assertTrue(first.getHeader().getDurable());
+        assertNull(first.getHeader().getDeliveryCount());
+        assertTrue(second.getHeader().getDurable());
+        assertEquals(2, second.getHeader().getDeliveryCount().intValue());
+        assertEquals("fan-out", ((AmqpValue) second.getBody()).getValue());
+    }
+
+    @Test
+    public void testSharedEncodingDroppedWhenPropertiesChange() throws Exception {
+        ActiveMQTextMessage shared = createTextMessage("fan-out");
+        shared.setDestination(new ActiveMQTopic("test"));
+        shared.setStringProperty("property", "first");
+        shared.onSend();
+        shared.storeContent();
+
+        JMSMappingOutboundTransformer transformer = new JMSMappingOutboundTransformer();
+        EncodedMessage first = transformer.transform((ActiveMQMessage) shared.copy(), shared);
+
+        shared.setProperty("property", "second");
+        EncodedMessage second = transformer.transform((ActiveMQMessage) shared.copy(), shared);
+
+        assertNotSame(first, second);
+        assertEquals("second", second.decode().getApplicationProperties().getValue().get("property"));
+    }
+
+    @Test
+    public void testEncodingNotCachedOnQueueMessage() throws Exception {
+        ActiveMQTextMessage shared = createTextMessage("single");
+        shared.setDestination(new ActiveMQQueue("test"));
+        shared.onSend();
+        shared.storeContent();
+
+        JMSMappingOutboundTransformer transformer = new JMSMappingOutboundTransformer();
+        EncodedMessage first = transformer.transform((ActiveMQMessage) shared.copy(), shared);
+        EncodedMessage second = transformer.transform((ActiveMQMessage) shared.copy(), shared);
+
+        assertNotSame(first, second);
+        assertEquals("single", ((AmqpValue) second.decode().getBody()).getValue());
+    }
+
     private void doTestConvertMessageWithJMSReplyTo(ActiveMQDestination jmsReplyTo, Object expectedAnnotationValue) throws Exception {
         ActiveMQTextMessage mockTextMessage = createMockTextMessage();
         Mockito.when(mockTextMessage.getText()).thenReturn("myTextMessageContent");
@@ -196,6 +196,7 @@ public class BrokerService implements Service {
     private final AtomicBoolean preShutdownHooksInvoked = new AtomicBoolean(false);
     private BrokerPlugin[] plugins;
     private boolean keepDurableSubsActive = true;
+    private boolean deferOfflineDurableSubscriptions;
     private boolean enableMessageExpirationOnActiveDurableSubs = false;
     private boolean useVirtualTopics = true;
     private boolean useMirroredQueues = false;
@@ -235,6 +236,7 @@ public class BrokerService implements Service {
     private IOExceptionHandler ioExceptionHandler;
     private boolean schedulerSupport = false;
     private int maxSchedulerRepeatAllowed = MAX_SCHEDULER_REPEAT_ALLOWED;
+    private int maxSchedulerBatchSize = 100;
     private File schedulerDirectoryFile;
     private Scheduler scheduler;
     private ThreadPoolExecutor executor;
@@ -1701,6 +1703,23 @@ public class BrokerService implements Service {
     public void setKeepDurableSubsActive(boolean keepDurableSubsActive) {
         this.keepDurableSubsActive = keepDurableSubsActive;
     }
+
+    public boolean isDeferOfflineDurableSubscriptions() {
+        return deferOfflineDurableSubscriptions;
+    }
+
+    /**
+     * Only recover the stored info of offline durable subscriptions on start and create the
+     * subscription when its client reconnects, instead of creating a subscription with its
+     * cursor for every stored durable subscription up front. Useful with many durable
+     * subscribers that are offline most of the time, such as MQTT clients that connect
+     * with clean session false.
+     *
+     * @param deferOfflineDurableSubscriptions
+     */
+    public void setDeferOfflineDurableSubscriptions(boolean deferOfflineDurableSubscriptions) {
+        this.deferOfflineDurableSubscriptions = deferOfflineDurableSubscriptions;
+    }
     
     public boolean isEnableMessageExpirationOnActiveDurableSubs() {
     	return enableMessageExpirationOnActiveDurableSubs;
@@ -2408,6 +2427,7 @@ public class BrokerService implements Service {
         }
         destinationFactory.setRegionBroker(regionBroker);
         regionBroker.setKeepDurableSubsActive(keepDurableSubsActive);
+        regionBroker.setDeferOfflineDurableSubscriptions(deferOfflineDurableSubscriptions);
         regionBroker.setBrokerName(getBrokerName());
         regionBroker.getDestinationStatistics().setEnabled(enableStatistics);
         regionBroker.setAllowTempAutoCreationOnSend(isAllowTempAutoCreationOnSend());
@@ -2452,6 +2472,7 @@ public class BrokerService implements Service {
         if (isSchedulerSupport()) {
             SchedulerBroker sb = new SchedulerBroker(this, broker, getJobSchedulerStore());
             sb.setMaxRepeatAllowed(maxSchedulerRepeatAllowed);
+            sb.setMaxBatchSize(maxSchedulerBatchSize);
             if (isUseJmx()) {
                 JobSchedulerViewMBean view = new JobSchedulerView(sb.getJobScheduler());
                 try {
@@ -3327,6 +3348,18 @@ public class BrokerService implements Service {
         this.maxSchedulerRepeatAllowed = maxSchedulerRepeatAllowed;
     }
 
+    public int getMaxSchedulerBatchSize() {
+        return maxSchedulerBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of scheduled messages for one destination that the scheduler
+     * sends in a single transaction when they fire together.
+     */
+    public void setMaxSchedulerBatchSize(int maxSchedulerBatchSize) {
+        this.maxSchedulerBatchSize = maxSchedulerBatchSize;
+    }
+
     public int getMaxUncommittedCount() {
         return maxUncommittedCount;
     }
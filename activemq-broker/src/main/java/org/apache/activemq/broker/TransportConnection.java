@@ -19,6 +19,7 @@ package org.apache.activemq.broker;
 import java.io.EOFException;
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -33,6 +34,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.transaction.xa.XAResource;
@@ -62,6 +64,7 @@ import org.apache.activemq.command.KeepAliveInfo;
 import org.apache.activemq.command.Message;
 import org.apache.activemq.command.MessageAck;
 import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageDispatchBatch;
 import org.apache.activemq.command.MessageDispatchNotification;
 import org.apache.activemq.command.MessagePull;
 import org.apache.activemq.command.ProducerAck;
@@ -110,6 +113,9 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     private static final Logger LOG = LoggerFactory.getLogger(TransportConnection.class);
     private static final Logger TRANSPORTLOG = LoggerFactory.getLogger(TransportConnection.class.getName() + ".Transport");
     private static final Logger SERVICELOG = LoggerFactory.getLogger(TransportConnection.class.getName() + ".Service");
+    // Upper bounds on the messages and bytes coalesced into one MessageDispatchBatch frame
+    private static final int MAX_DISPATCH_BATCH_MESSAGES = 64;
+    private static final long MAX_DISPATCH_BATCH_BYTES = 64 * 1024;
     // Keeps track of the broker and connector that created this connection.
     protected final Broker broker;
     protected final BrokerService brokerService;
@@ -121,12 +127,17 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     // The broker and wireformat info that was exchanged.
     protected BrokerInfo brokerInfo;
     protected final List<Command> dispatchQueue = new LinkedList<>();
+    // guards dispatchQueue; a j.u.c lock rather than a monitor so that contended
+    // producers do not pin the carrier when running on virtual threads
+    protected final ReentrantLock dispatchQueueLock = new ReentrantLock();
     protected TaskRunner taskRunner;
     protected final AtomicReference<Throwable> transportException = new AtomicReference<>();
     protected AtomicBoolean dispatchStopped = new AtomicBoolean(false);
     private final Transport transport;
     private MessageAuthorizationPolicy messageAuthorizationPolicy;
     private WireFormatInfo wireFormatInfo;
+    private volatile boolean batchedDispatchEnabled;
+    private long maxDispatchBatchBytes = MAX_DISPATCH_BATCH_BYTES;
     // Used to do async dispatch.. this should perhaps be pushed down into the
     // transport layer..
     private boolean inServiceException;
@@ -188,6 +199,10 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         if( this.transport instanceof BrokerServiceAware ) {
             ((BrokerServiceAware)this.transport).setBrokerService(brokerService);
         }
+        BatchedDispatchAware batchedDispatchAware = this.transport.narrow(BatchedDispatchAware.class);
+        if (batchedDispatchAware != null) {
+            this.batchedDispatchEnabled = batchedDispatchAware.isBatchedDispatchEnabled();
+        }
         this.transport.setTransportListener(new DefaultTransportListener() {
             @Override
             public void onCommand(Object o) {
@@ -231,8 +246,11 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
      */
     @Override
     public int getDispatchQueueSize() {
-        synchronized (dispatchQueue) {
+        dispatchQueueLock.lock();
+        try {
             return dispatchQueue.size();
+        } finally {
+            dispatchQueueLock.unlock();
         }
     }
 
@@ -433,6 +451,8 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     public Response processWireFormat(WireFormatInfo info) throws Exception {
         wireFormatInfo = info;
         protocolVersion.set(info.getVersion());
+        maxDispatchBatchBytes = Math.min(MAX_DISPATCH_BATCH_BYTES, info.getMaxFrameSize() / 2);
+        batchedDispatchEnabled = info.isBatchedDispatchEnabled();
         return null;
     }
 
@@ -951,8 +971,11 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
             if (taskRunner == null) {
                 dispatchSync(message);
             } else {
-                synchronized (dispatchQueue) {
+                dispatchQueueLock.lock();
+                try {
                     dispatchQueue.add(message);
+                } finally {
+                    dispatchQueueLock.unlock();
                 }
                 try {
                     taskRunner.wakeup();
@@ -1011,6 +1034,76 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         }
     }
 
+    /**
+     * Processes several message dispatches for the same consumer, writing them to
+     * the transport as one {@link MessageDispatchBatch} frame.
+     */
+    protected void processDispatchBatch(List<MessageDispatch> dispatches) throws IOException {
+        boolean failed = false;
+        try {
+            if (!stopping.get()) {
+                for (MessageDispatch messageDispatch : dispatches) {
+                    try {
+                        broker.preProcessDispatch(messageDispatch);
+                    } catch (RuntimeException convertToIO) {
+                        throw new IOException(convertToIO);
+                    }
+                }
+                MessageDispatch first = dispatches.get(0);
+                dispatch(new MessageDispatchBatch(first.getConsumerId(), dispatches.toArray(new MessageDispatch[dispatches.size()])));
+            }
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        } finally {
+            for (MessageDispatch messageDispatch : dispatches) {
+                TransmitCallback sub = messageDispatch.getTransmitCallback();
+                broker.postProcessDispatch(messageDispatch);
+                if (sub != null) {
+                    if (failed) {
+                        sub.onFailure();
+                    } else {
+                        sub.onSuccess();
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isBatchable(Command command) {
+        return command.isMessageDispatch() && ((MessageDispatch) command).getMessage() != null;
+    }
+
+    /**
+     * Removes the dispatches queued directly behind the given one that target the
+     * same consumer, within the batch bounds. Must be called holding the
+     * dispatchQueueLock.
+     *
+     * @return the batch, or null if nothing could be added to the first dispatch
+     */
+    private List<MessageDispatch> pollDispatchBatch(MessageDispatch first) {
+        List<MessageDispatch> batch = null;
+        long size = first.getMessage().getSize();
+        while (!dispatchQueue.isEmpty() && (batch == null || batch.size() < MAX_DISPATCH_BATCH_MESSAGES)) {
+            Command next = dispatchQueue.get(0);
+            if (!isBatchable(next)) {
+                break;
+            }
+            MessageDispatch md = (MessageDispatch) next;
+            size += md.getMessage().getSize();
+            if (!first.getConsumerId().equals(md.getConsumerId()) || size > maxDispatchBatchBytes) {
+                break;
+            }
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batch.add(first);
+            }
+            batch.add(md);
+            dispatchQueue.remove(0);
+        }
+        return batch;
+    }
+
     @Override
     public boolean iterate() {
         try {
@@ -1028,13 +1121,24 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
             }
             if (!dispatchStopped.get()) {
                 Command command = null;
-                synchronized (dispatchQueue) {
+                List<MessageDispatch> batch = null;
+                dispatchQueueLock.lock();
+                try {
                     if (dispatchQueue.isEmpty()) {
                         return false;
                     }
                     command = dispatchQueue.remove(0);
+                    if (batchedDispatchEnabled && !networkConnection && isBatchable(command)) {
+                        batch = pollDispatchBatch((MessageDispatch) command);
+                    }
+                } finally {
+                    dispatchQueueLock.unlock();
+                }
+                if (batch != null) {
+                    processDispatchBatch(batch);
+                } else {
+                    processDispatch(command);
                 }
-                processDispatch(command);
                 return true;
             }
             return false;
@@ -1213,7 +1317,8 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         active = false;
         // Run the MessageDispatch callbacks so that message references get
         // cleaned up.
-        synchronized (dispatchQueue) {
+        dispatchQueueLock.lock();
+        try {
             for (Command command : dispatchQueue) {
                 if (command.isMessageDispatch()) {
                     MessageDispatch md = (MessageDispatch) command;
@@ -1225,6 +1330,8 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
                 }
             }
             dispatchQueue.clear();
+        } finally {
+            dispatchQueueLock.unlock();
         }
         //
         // Remove all logical connection associated with this connection
@@ -1612,6 +1719,11 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         return null;
     }
 
+    @Override
+    public Response processMessageDispatchBatch(MessageDispatchBatch batch) throws Exception {
+        return null;
+    }
+
     @Override
     public Response processConnectionControl(ConnectionControl control) throws Exception {
         if (control != null) {
@@ -29,6 +29,7 @@ import java.util.regex.Pattern;
 
 import javax.management.ObjectName;
 
+import org.apache.activemq.annotation.Experimental;
 import org.apache.activemq.broker.jmx.ManagedTransportConnector;
 import org.apache.activemq.broker.jmx.ManagementContext;
 import org.apache.activemq.broker.region.ConnectorStatistics;
@@ -40,6 +41,7 @@ import org.apache.activemq.transport.Transport;
 import org.apache.activemq.transport.TransportAcceptListener;
 import org.apache.activemq.transport.TransportFactorySupport;
 import org.apache.activemq.transport.TransportServer;
+import org.apache.activemq.transport.TransportThreadSupport;
 import org.apache.activemq.transport.discovery.DiscoveryAgent;
 import org.apache.activemq.transport.discovery.DiscoveryAgentFactory;
 import org.apache.activemq.util.ServiceStopper;
@@ -81,6 +83,8 @@ public class TransportConnector implements Connector, BrokerServiceAware {
     private boolean warnOnRemoteClose = false;
     private boolean displayStackTrace = false;
     private boolean autoStart = true;
+    private boolean virtualThreadTaskRunner = false;
+    private TaskRunnerFactory virtualThreadTaskRunnerFactory;
 
     LinkedList<String> peerBrokers = new LinkedList<String>();
     private AtomicBoolean started = new AtomicBoolean(false);
@@ -133,6 +137,7 @@ public class TransportConnector implements Connector, BrokerServiceAware {
         rc.setAllowLinkStealing(allowLinkStealing);
         rc.setWarnOnRemoteClose(isWarnOnRemoteClose());
         rc.setAutoStart(isAutoStart());
+        rc.setVirtualThreadTaskRunner(isVirtualThreadTaskRunner());
         return rc;
     }
 
@@ -218,6 +223,10 @@ public class TransportConnector implements Connector, BrokerServiceAware {
     @Override
     public void start() throws Exception {
         broker = brokerService.getBroker();
+        if (isUseVirtualThreads() && (taskRunnerFactory == null || !taskRunnerFactory.isVirtualThreadTaskRunner())) {
+            virtualThreadTaskRunnerFactory = new TaskRunnerFactory("ActiveMQ Connector[" + getName() + "] Task",
+                    Thread.NORM_PRIORITY, true, 1000, false, true);
+        }
         brokerInfo.setBrokerName(broker.getBrokerName());
         brokerInfo.setBrokerId(broker.getBrokerId());
         brokerInfo.setPeerBrokerInfos(broker.getPeerBrokerInfos());
@@ -322,6 +331,10 @@ public class TransportConnector implements Connector, BrokerServiceAware {
             ss.stop(connection);
         }
         server = null;
+        if (virtualThreadTaskRunnerFactory != null) {
+            virtualThreadTaskRunnerFactory.shutdownNow();
+            virtualThreadTaskRunnerFactory = null;
+        }
         started.set(false);
         ss.throwFirstException();
         LOG.info("Connector {} stopped", getName());
@@ -332,8 +345,15 @@ public class TransportConnector implements Connector, BrokerServiceAware {
     protected Connection createConnection(Transport transport) throws IOException {
         // prefer to use task runner from broker service as stop task runner, as we can then
         // tie it to the lifecycle of the broker service
+        if (isUseVirtualThreads()) {
+            TransportThreadSupport readerSupport = transport.narrow(TransportThreadSupport.class);
+            if (readerSupport != null) {
+                readerSupport.setUseVirtualThread(true);
+            }
+        }
+        TaskRunnerFactory dispatchTaskRunnerFactory = virtualThreadTaskRunnerFactory != null ? virtualThreadTaskRunnerFactory : taskRunnerFactory;
         TransportConnection answer = new TransportConnection(this, transport, broker, disableAsyncDispatch ? null
-                : taskRunnerFactory, brokerService.getTaskRunnerFactory());
+                : dispatchTaskRunnerFactory, brokerService.getTaskRunnerFactory());
         boolean statEnabled = this.getStatistics().isEnabled();
         answer.getStatistics().setEnabled(statEnabled);
         answer.setMessageAuthorizationPolicy(messageAuthorizationPolicy);
@@ -707,4 +727,22 @@ public class TransportConnector implements Connector, BrokerServiceAware {
     public boolean isAutoStart() {
         return autoStart;
     }
+
+    public boolean isVirtualThreadTaskRunner() {
+        return virtualThreadTaskRunner;
+    }
+
+    /**
+     * Run the reading thread and the async dispatch task of each accepted connection
+     * on virtual threads. Enabled implicitly when the BrokerService is configured with
+     * virtualThreadTaskRunner. Requires JDK 21 or higher.
+     */
+    @Experimental("Tech Preview for Virtual Thread support")
+    public void setVirtualThreadTaskRunner(boolean virtualThreadTaskRunner) {
+        this.virtualThreadTaskRunner = virtualThreadTaskRunner;
+    }
+
+    private boolean isUseVirtualThreads() {
+        return virtualThreadTaskRunner || (brokerService != null && brokerService.isVirtualThreadTaskRunner());
+    }
 }
@@ -707,6 +707,14 @@ public class RegionBroker extends EmptyBroker {
         ((TopicRegion) topicRegion).setKeepDurableSubsActive(keepDurableSubsActive);
     }
 
+    public boolean isDeferOfflineDurableSubscriptions() {
+        return ((TopicRegion) topicRegion).isDeferOfflineDurableSubscriptions();
+    }
+
+    public void setDeferOfflineDurableSubscriptions(boolean deferOfflineDurableSubscriptions) {
+        ((TopicRegion) topicRegion).setDeferOfflineDurableSubscriptions(deferOfflineDurableSubscriptions);
+    }
+
     public DestinationInterceptor getDestinationInterceptor() {
         return destinationInterceptor;
     }
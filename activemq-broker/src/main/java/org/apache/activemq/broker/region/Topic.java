@@ -23,6 +23,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -85,6 +86,7 @@ public class Topic extends BaseDestination implements Task {
     private DispatchPolicy dispatchPolicy = new SimpleDispatchPolicy();
     private SubscriptionRecoveryPolicy subscriptionRecoveryPolicy;
     private final ConcurrentMap<SubscriptionKey, DurableTopicSubscription> durableSubscribers = new ConcurrentHashMap<SubscriptionKey, DurableTopicSubscription>();
+    private final Set<SubscriptionKey> offlineDurableSubscribers = ConcurrentHashMap.newKeySet();
     private final TaskRunner taskRunner;
     private final TaskRunnerFactory taskRunnerFactor;
     private final LinkedList<Runnable> messagesWaitingForSpace = new LinkedList<Runnable>();
@@ -219,6 +221,7 @@ public class Topic extends BaseDestination implements Task {
     public void deleteSubscription(ConnectionContext context, SubscriptionKey key) throws Exception {
         if (topicStore != null) {
             topicStore.deleteSubscription(key.clientId, key.subscriptionName);
+            offlineDurableSubscribers.remove(key);
             DurableTopicSubscription removed = durableSubscribers.remove(key);
             if (removed != null) {
                 destinationStatistics.getConsumers().decrement();
@@ -601,7 +604,24 @@ public class Topic extends BaseDestination implements Task {
     }
 
     private boolean canOptimizeOutPersistence() {
-        return durableSubscribers.size() == 0;
+        return durableSubscribers.size() == 0 && offlineDurableSubscribers.isEmpty();
+    }
+
+    /**
+     * Records a durable subscription held in the store of this topic for which no
+     * subscription has been created, messages are kept in the store for it until it is.
+     */
+    void addOfflineDurableSubscription(SubscriptionKey key) {
+        offlineDurableSubscribers.add(key);
+    }
+
+    boolean removeOfflineDurableSubscription(SubscriptionKey key) {
+        return offlineDurableSubscribers.remove(key);
+    }
+
+    @Override
+    public boolean canGC() {
+        return offlineDurableSubscribers.isEmpty() && super.canGC();
     }
 
     @Override
@@ -961,7 +981,7 @@ public class Topic extends BaseDestination implements Task {
     protected boolean isOptimizeStorage(){
         boolean result = false;
 
-        if (isDoOptimzeMessageStorage() && durableSubscribers.isEmpty()==false){
+        if (isDoOptimzeMessageStorage() && durableSubscribers.isEmpty()==false && offlineDurableSubscribers.isEmpty()){
                 result = true;
                 for (DurableTopicSubscription s : durableSubscribers.values()) {
                     if (s.isActive()== false){
@@ -18,6 +18,7 @@ package org.apache.activemq.broker.region;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -60,6 +61,8 @@ public class TopicRegion extends AbstractRegion {
     private final LongSequenceGenerator recoveredDurableSubIdGenerator = new LongSequenceGenerator();
     private final SessionId recoveredDurableSubSessionId = new SessionId(new ConnectionId("OFFLINE"), recoveredDurableSubIdGenerator.getNextSequenceId());
     private boolean keepDurableSubsActive;
+    protected final ConcurrentMap<SubscriptionKey, OfflineDurableSubscription> offlineDurableSubscriptions = new ConcurrentHashMap<SubscriptionKey, OfflineDurableSubscription>();
+    private boolean deferOfflineDurableSubscriptions;
 
     private Timer cleanupTimer;
     private TimerTask cleanupTask;
@@ -109,6 +112,22 @@ public class TopicRegion extends AbstractRegion {
                 }
             }
         }
+        for (Map.Entry<SubscriptionKey, OfflineDurableSubscription> entry : offlineDurableSubscriptions.entrySet()) {
+            if (now - entry.getValue().offlineTimestamp >= broker.getBrokerService().getOfflineDurableSubscriberTimeout()) {
+                LOG.info("Destroying deferred durable subscriber due to inactivity: {}", entry.getValue().info);
+                try {
+                    RemoveSubscriptionInfo info = new RemoveSubscriptionInfo();
+                    info.setClientId(entry.getKey().getClientId());
+                    info.setSubscriptionName(entry.getKey().getSubscriptionName());
+                    ConnectionContext context = new ConnectionContext();
+                    context.setBroker(broker);
+                    context.setClientId(entry.getKey().getClientId());
+                    removeSubscription(context, info);
+                } catch (Exception e) {
+                    LOG.error("Failed to remove inactive durable subscriber", e);
+                }
+            }
+        }
     }
 
     @Override
@@ -126,6 +145,9 @@ public class TopicRegion extends AbstractRegion {
             String subscriptionName = info.getSubscriptionName();
             SubscriptionKey key = new SubscriptionKey(clientId, subscriptionName);
             DurableTopicSubscription sub = durableSubscriptions.get(key);
+            if (sub == null && offlineDurableSubscriptions.containsKey(key)) {
+                sub = restoreOfflineSubscription(context, key);
+            }
             if (sub != null) {
                 // throw this exception only if link stealing is off
                 if (!context.isAllowLinkStealing() && sub.isActive()) {
@@ -211,6 +233,9 @@ public class TopicRegion extends AbstractRegion {
     public void removeSubscription(ConnectionContext context, RemoveSubscriptionInfo info) throws Exception {
         SubscriptionKey key = new SubscriptionKey(info.getClientId(), info.getSubscriptionName());
         DurableTopicSubscription sub = durableSubscriptions.get(key);
+        if (sub == null && offlineDurableSubscriptions.containsKey(key)) {
+            sub = restoreOfflineSubscription(context, key);
+        }
         if (sub == null) {
             throw new InvalidDestinationException("No durable subscription exists for clientID: " +
                                                   info.getClientId() + " and subscriptionName: " +
@@ -254,6 +279,7 @@ public class TopicRegion extends AbstractRegion {
     protected List<Subscription> addSubscriptionsForDestination(ConnectionContext context, Destination dest) throws Exception {
         List<Subscription> rc = super.addSubscriptionsForDestination(context, dest);
         Set<Subscription> dupChecker = new HashSet<Subscription>(rc);
+        Set<SubscriptionKey> deferred = new HashSet<SubscriptionKey>();
 
         TopicMessageStore store = (TopicMessageStore)dest.getMessageStore();
         // Eagerly recover the durable subscriptions
@@ -268,6 +294,15 @@ public class TopicRegion extends AbstractRegion {
                 // A single durable sub may be subscribing to multiple topics.
                 // so it might exist already.
                 DurableTopicSubscription sub = durableSubscriptions.get(key);
+                Topic topic = getTopic(dest);
+                if (sub == null && deferOfflineDurableSubscriptions && topic != null) {
+                    // only remember the subscription, it is restored when its client reconnects
+                    LOG.debug("Deferring durable subscription: {}", info);
+                    offlineDurableSubscriptions.putIfAbsent(key, new OfflineDurableSubscription(info));
+                    topic.addOfflineDurableSubscription(key);
+                    deferred.add(key);
+                    continue;
+                }
                 ConsumerInfo consumerInfo = createInactiveConsumerInfo(info);
                 if (sub == null) {
                     ConnectionContext c = new ConnectionContext();
@@ -300,10 +335,66 @@ public class TopicRegion extends AbstractRegion {
                     dest.addSubscription(context, sub);
                 }
             }
+
+            // a deferred wild card subscription that is not yet in the store of this
+            // destination has to be added to it, so it is restored now
+            for (Map.Entry<SubscriptionKey, OfflineDurableSubscription> entry : offlineDurableSubscriptions.entrySet()) {
+                ActiveMQDestination subscribed = entry.getValue().info.getSubscribedDestination();
+                if (!deferred.contains(entry.getKey()) && subscribed != null && subscribed.isPattern() &&
+                    org.apache.activemq.filter.DestinationFilter.parseFilter(subscribed).matches(dest.getActiveMQDestination())) {
+                    DurableTopicSubscription sub = restoreOfflineSubscription(context, entry.getKey());
+                    if (sub != null && dupChecker.add(sub)) {
+                        rc.add(sub);
+                        dest.addSubscription(context, sub);
+                    }
+                }
+            }
         }
         return rc;
     }
 
+    /**
+     * Creates the subscription for a durable subscription whose recovery was deferred and adds
+     * it to every topic that holds it.
+     */
+    private DurableTopicSubscription restoreOfflineSubscription(ConnectionContext context, SubscriptionKey key) throws Exception {
+        destinationsLock.readLock().lock();
+        try {
+            OfflineDurableSubscription offline = offlineDurableSubscriptions.remove(key);
+            if (offline == null) {
+                return durableSubscriptions.get(key);
+            }
+
+            LOG.debug("Restoring deferred durable subscription: {}", offline.info);
+            ConsumerInfo consumerInfo = createInactiveConsumerInfo(offline.info);
+            ConnectionContext c = new ConnectionContext();
+            c.setBroker(context.getBroker());
+            c.setClientId(key.getClientId());
+            c.setConnectionId(consumerInfo.getConsumerId().getParentId().getParentId());
+            DurableTopicSubscription sub = (DurableTopicSubscription) createSubscription(c, consumerInfo);
+            sub.setOfflineTimestamp(offline.offlineTimestamp);
+
+            for (Destination dest : destinations.values()) {
+                Topic topic = getTopic(dest);
+                if (topic != null && topic.removeOfflineDurableSubscription(key)) {
+                    dest.addSubscription(c, sub);
+                }
+            }
+            return sub;
+        } finally {
+            destinationsLock.readLock().unlock();
+        }
+    }
+
+    private static Topic getTopic(Destination dest) {
+        if (dest instanceof Topic) {
+            return (Topic) dest;
+        } else if (dest instanceof DestinationFilter) {
+            return ((DestinationFilter) dest).getAdaptor(Topic.class);
+        }
+        return null;
+    }
+
     public ConsumerInfo createInactiveConsumerInfo(SubscriptionInfo info) {
         ConsumerInfo rc = new ConsumerInfo();
         rc.setSelector(info.getSelector());
@@ -433,6 +524,34 @@ public class TopicRegion extends AbstractRegion {
         this.keepDurableSubsActive = keepDurableSubsActive;
     }
 
+    /**
+     * @return the stored subscriptions of the given client whose recovery was deferred.
+     */
+    public List<SubscriptionInfo> lookupOfflineSubscriptions(String clientId) {
+        List<SubscriptionInfo> result = new ArrayList<SubscriptionInfo>();
+
+        for (Map.Entry<SubscriptionKey, OfflineDurableSubscription> entry : offlineDurableSubscriptions.entrySet()) {
+            if (entry.getKey().getClientId().equals(clientId)) {
+                result.add(entry.getValue().info);
+            }
+        }
+
+        return result;
+    }
+
+    public boolean isDeferOfflineDurableSubscriptions() {
+        return deferOfflineDurableSubscriptions;
+    }
+
+    /**
+     * When true the durable subscriptions found in the store on start are not recovered
+     * into subscriptions, only their stored info is kept until the client reconnects, the
+     * messages pending for them stay in the store.
+     */
+    public void setDeferOfflineDurableSubscriptions(boolean deferOfflineDurableSubscriptions) {
+        this.deferOfflineDurableSubscriptions = deferOfflineDurableSubscriptions;
+    }
+
     public boolean durableSubscriptionExists(SubscriptionKey key) {
         return this.durableSubscriptions.containsKey(key);
     }
@@ -444,4 +563,26 @@ public class TopicRegion extends AbstractRegion {
     public Map<SubscriptionKey, DurableTopicSubscription> getDurableSubscriptions() {
         return durableSubscriptions;
     }
+
+    /**
+     * @return the stored info of the durable subscriptions whose recovery was deferred, these
+     *         are not part of {@link #getDurableSubscriptions()} until their client reconnects.
+     */
+    public Map<SubscriptionKey, SubscriptionInfo> getOfflineDurableSubscriptions() {
+        Map<SubscriptionKey, SubscriptionInfo> result = new HashMap<SubscriptionKey, SubscriptionInfo>();
+        for (Map.Entry<SubscriptionKey, OfflineDurableSubscription> entry : offlineDurableSubscriptions.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().info);
+        }
+        return result;
+    }
+
+    protected static class OfflineDurableSubscription {
+
+        private final SubscriptionInfo info;
+        private final long offlineTimestamp = System.currentTimeMillis();
+
+        OfflineDurableSubscription(SubscriptionInfo info) {
+            this.info = info;
+        }
+    }
 }
@@ -16,6 +16,8 @@
  */
 package org.apache.activemq.broker.scheduler;
 
+import java.util.Map;
+
 import org.apache.activemq.util.ByteSequence;
 
 /**
@@ -35,4 +37,17 @@ public interface JobListener {
      */
     public void scheduledJob(String id, ByteSequence job);
 
+    /**
+     * A number of Jobs that became ready together are now ready to be fired.  By default
+     * each Job is handed to {@link #scheduledJob(String, ByteSequence)} in turn.
+     *
+     * @param jobs
+     *        The Jobs that are now ready keyed by Job Id, in the order in which they fired.
+     */
+    default void scheduledJobs(Map<String, ByteSequence> jobs) {
+        for (Map.Entry<String, ByteSequence> job : jobs.entrySet()) {
+            scheduledJob(job.getKey(), job.getValue());
+        }
+    }
+
 }
@@ -17,7 +17,20 @@
 package org.apache.activemq.broker.scheduler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jakarta.jms.MessageFormatException;
 
@@ -34,16 +47,20 @@ import org.apache.activemq.broker.region.ConnectionStatistics;
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.Command;
 import org.apache.activemq.command.ConnectionControl;
+import org.apache.activemq.command.ConnectionId;
 import org.apache.activemq.command.ExceptionResponse;
 import org.apache.activemq.command.Message;
 import org.apache.activemq.command.MessageId;
 import org.apache.activemq.command.ProducerId;
 import org.apache.activemq.command.ProducerInfo;
+import org.apache.activemq.command.LocalTransactionId;
 import org.apache.activemq.command.Response;
+import org.apache.activemq.command.TransactionId;
 import org.apache.activemq.openwire.OpenWireFormat;
 import org.apache.activemq.security.SecurityContext;
 import org.apache.activemq.state.ProducerState;
 import org.apache.activemq.transaction.Synchronization;
+import org.apache.activemq.transaction.Transaction;
 import org.apache.activemq.usage.JobSchedulerUsage;
 import org.apache.activemq.usage.SystemUsage;
 import org.apache.activemq.util.ByteSequence;
@@ -67,11 +84,16 @@ public class SchedulerBroker extends BrokerFilter implements JobListener {
     private final WireFormat wireFormat = new OpenWireFormat();
     private final ConnectionContext context = new ConnectionContext();
     private final ProducerId producerId = new ProducerId();
+    private final ConnectionId transactionConnectionId = new ConnectionId(ID_GENERATOR.generateId());
+    private final AtomicLong transactionIdGenerator = new AtomicLong();
     private final SystemUsage systemUsage;
 
     private final JobSchedulerStore store;
     private JobScheduler scheduler;
     private int maxRepeatAllowed = MAX_REPEAT_ALLOWED;
+    private int dispatchThreads = Runtime.getRuntime().availableProcessors();
+    private int maxBatchSize = 100;
+    private ThreadPoolExecutor dispatchExecutor;
 
     public SchedulerBroker(BrokerService brokerService, Broker next, JobSchedulerStore store) throws Exception {
         super(next);
@@ -226,6 +248,12 @@ public class SchedulerBroker extends BrokerFilter implements JobListener {
                 this.scheduler.removeListener(this);
                 this.scheduler = null;
             }
+            synchronized (this) {
+                if (this.dispatchExecutor != null) {
+                    this.dispatchExecutor.shutdown();
+                    this.dispatchExecutor = null;
+                }
+            }
         }
         super.stop();
     }
@@ -366,70 +394,213 @@ public class SchedulerBroker extends BrokerFilter implements JobListener {
 
     @Override
     public void scheduledJob(String id, ByteSequence job) {
-        org.apache.activemq.util.ByteSequence packet = new org.apache.activemq.util.ByteSequence(job.getData(), job.getOffset(), job.getLength());
         try {
-            Message messageSend = (Message) wireFormat.unmarshal(packet);
-            messageSend.setOriginalTransactionId(null);
-            Object repeatValue = messageSend.getProperty(ScheduledMessage.AMQ_SCHEDULED_REPEAT);
-            Object cronValue = messageSend.getProperty(ScheduledMessage.AMQ_SCHEDULED_CRON);
-            String cronStr = cronValue != null ? cronValue.toString() : null;
-            int repeat = 0;
-            if (repeatValue != null) {
-                repeat = (Integer) TypeConversionSupport.convert(repeatValue, Integer.class);
-                if (repeat > maxRepeatAllowed) {
-                    throw new MessageFormatException("The scheduled repeat value is too large");
+            send(context, createScheduledMessage(id, job));
+        } catch (Exception e) {
+            LOG.error("Failed to send scheduled message {}", id, e);
+        }
+    }
+
+    /**
+     * Jobs that fire together are grouped by destination, the messages for each destination
+     * are stored in a single local transaction and different destinations are sent in
+     * parallel.  The call returns once every group has been sent so that messages for a
+     * destination stay in order across successive batches.
+     */
+    @Override
+    public void scheduledJobs(Map<String, ByteSequence> jobs) {
+        final Map<ActiveMQDestination, List<Message>> batches = new LinkedHashMap<>();
+        for (Map.Entry<String, ByteSequence> job : jobs.entrySet()) {
+            try {
+                Message messageSend = createScheduledMessage(job.getKey(), job.getValue());
+                List<Message> batch = batches.get(messageSend.getDestination());
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                    batches.put(messageSend.getDestination(), batch);
                 }
+                batch.add(messageSend);
+            } catch (Exception e) {
+                LOG.error("Failed to send scheduled message {}", job.getKey(), e);
             }
+        }
 
-            if (repeat != 0 || cronStr != null && cronStr.length() > 0) {
-                // create a unique id - the original message could be sent
-                // lots of times
-                messageSend.setMessageId(new MessageId(producerId, messageIdGenerator.getNextSequenceId()));
+        List<Future<?>> pending = new ArrayList<>(batches.size());
+        for (final List<Message> batch : batches.values()) {
+            ThreadPoolExecutor executor = batches.size() > 1 ? getDispatchExecutor() : null;
+            if (executor != null) {
+                try {
+                    pending.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            sendBatch(batch);
+                        }
+                    }));
+                    continue;
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("Scheduled message dispatch rejected, sending on the scheduler thread");
+                }
             }
+            sendBatch(batch);
+        }
 
-            // Add the jobId as a property
-            messageSend.setProperty("scheduledJobId", id);
-
-            // if this goes across a network - we don't want it rescheduled
-            messageSend.removeProperty(ScheduledMessage.AMQ_SCHEDULED_PERIOD);
-            messageSend.removeProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY);
-            messageSend.removeProperty(ScheduledMessage.AMQ_SCHEDULED_REPEAT);
-            messageSend.removeProperty(ScheduledMessage.AMQ_SCHEDULED_CRON);
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                LOG.error("Failed to send scheduled messages", e.getCause());
+            }
+        }
+    }
 
-            if (messageSend.getTimestamp() > 0 && messageSend.getExpiration() > 0) {
+    private void sendBatch(List<Message> messages) {
+        // each chunk gets its own transaction so a large group of messages firing together
+        // does not pin its whole size against the memory limits until a single commit.
+        final int chunkSize = Math.max(1, maxBatchSize);
+        for (int i = 0; i < messages.size(); i += chunkSize) {
+            sendChunk(messages.subList(i, Math.min(messages.size(), i + chunkSize)));
+        }
+    }
 
-                long oldExpiration = messageSend.getExpiration();
-                long newTimeStamp = System.currentTimeMillis();
-                long timeToLive = 0;
-                long oldTimestamp = messageSend.getTimestamp();
+    private void sendChunk(List<Message> batch) {
+        final ConnectionContext batchContext = context.copy();
+        if (batch.size() > 1) {
+            // one local transaction lets the store write the whole batch at once
+            final TransactionId transactionId = new LocalTransactionId(transactionConnectionId, transactionIdGenerator.incrementAndGet());
+            final Broker root = getRoot();
+            Transaction transaction = null;
+            try {
+                batchContext.setTransactions(new ConcurrentHashMap<TransactionId, Transaction>());
+                root.beginTransaction(batchContext, transactionId);
+                transaction = batchContext.getTransactions().get(transactionId);
+                batchContext.setTransaction(transaction);
+                for (Message messageSend : batch) {
+                    messageSend.setTransactionId(transactionId);
+                    send(batchContext, messageSend);
+                }
+            } catch (Exception e) {
+                LOG.warn("Failed to send {} scheduled messages to {} as a batch, sending them one at a time",
+                         batch.size(), batch.get(0).getDestination(), e);
+                if (transaction != null) {
+                    try {
+                        root.rollbackTransaction(batchContext, transactionId);
+                    } catch (Exception rollbackError) {
+                        LOG.debug("Failed to rollback scheduled message batch {}", transactionId, rollbackError);
+                    }
+                }
+                transaction = null;
+            }
 
-                if (oldExpiration > 0) {
-                    timeToLive = oldExpiration - oldTimestamp;
+            batchContext.setTransaction(null);
+            if (transaction != null) {
+                try {
+                    root.commitTransaction(batchContext, transactionId, true);
+                } catch (Exception e) {
+                    LOG.error("Failed to commit {} scheduled messages to {}", batch.size(), batch.get(0).getDestination(), e);
                 }
+                return;
+            }
 
-                long expiration = timeToLive + newTimeStamp;
+            for (Message messageSend : batch) {
+                messageSend.setTransactionId(null);
+            }
+        }
 
-                if (expiration > oldExpiration) {
-                    if (timeToLive > 0 && expiration > 0) {
-                        messageSend.setExpiration(expiration);
-                    }
-                    messageSend.setTimestamp(newTimeStamp);
-                    LOG.debug("Set message {} timestamp from {} to {}",
-                            messageSend.getMessageId(), oldTimestamp, newTimeStamp);
+        for (Message messageSend : batch) {
+            try {
+                send(batchContext, messageSend);
+            } catch (Exception e) {
+                LOG.error("Failed to send scheduled message {}", messageSend.getMessageId(), e);
+            }
+        }
+    }
+
+    private Message createScheduledMessage(String id, ByteSequence job) throws Exception {
+        org.apache.activemq.util.ByteSequence packet = new org.apache.activemq.util.ByteSequence(job.getData(), job.getOffset(), job.getLength());
+        Message messageSend = (Message) wireFormat.unmarshal(packet);
+        messageSend.setOriginalTransactionId(null);
+        Object repeatValue = messageSend.getProperty(ScheduledMessage.AMQ_SCHEDULED_REPEAT);
+        Object cronValue = messageSend.getProperty(ScheduledMessage.AMQ_SCHEDULED_CRON);
+        String cronStr = cronValue != null ? cronValue.toString() : null;
+        int repeat = 0;
+        if (repeatValue != null) {
+            repeat = (Integer) TypeConversionSupport.convert(repeatValue, Integer.class);
+            if (repeat > maxRepeatAllowed) {
+                throw new MessageFormatException("The scheduled repeat value is too large");
+            }
+        }
+
+        if (repeat != 0 || cronStr != null && cronStr.length() > 0) {
+            // create a unique id - the original message could be sent
+            // lots of times
+            messageSend.setMessageId(new MessageId(producerId, messageIdGenerator.getNextSequenceId()));
+        }
+
+        // Add the jobId as a property
+        messageSend.setProperty("scheduledJobId", id);
+
+        // if this goes across a network - we don't want it rescheduled
+        messageSend.removeProperty(ScheduledMessage.AMQ_SCHEDULED_PERIOD);
+        messageSend.removeProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY);
+        messageSend.removeProperty(ScheduledMessage.AMQ_SCHEDULED_REPEAT);
+        messageSend.removeProperty(ScheduledMessage.AMQ_SCHEDULED_CRON);
+
+        if (messageSend.getTimestamp() > 0 && messageSend.getExpiration() > 0) {
+
+            long oldExpiration = messageSend.getExpiration();
+            long newTimeStamp = System.currentTimeMillis();
+            long timeToLive = 0;
+            long oldTimestamp = messageSend.getTimestamp();
+
+            if (oldExpiration > 0) {
+                timeToLive = oldExpiration - oldTimestamp;
+            }
+
+            long expiration = timeToLive + newTimeStamp;
+
+            if (expiration > oldExpiration) {
+                if (timeToLive > 0 && expiration > 0) {
+                    messageSend.setExpiration(expiration);
                 }
+                messageSend.setTimestamp(newTimeStamp);
+                LOG.debug("Set message {} timestamp from {} to {}",
+                        messageSend.getMessageId(), oldTimestamp, newTimeStamp);
             }
+        }
 
-            // Repackage the message contents prior to send now that all updates are complete.
-            messageSend.beforeMarshall(wireFormat);
+        // Repackage the message contents prior to send now that all updates are complete.
+        messageSend.beforeMarshall(wireFormat);
 
-            final ProducerBrokerExchange producerExchange = new ProducerBrokerExchange();
-            producerExchange.setConnectionContext(context);
-            producerExchange.setMutable(true);
-            producerExchange.setProducerState(new ProducerState(new ProducerInfo()));
-            super.send(producerExchange, messageSend);
-        } catch (Exception e) {
-            LOG.error("Failed to send scheduled message {}", id, e);
+        return messageSend;
+    }
+
+    private void send(ConnectionContext context, Message messageSend) throws Exception {
+        final ProducerBrokerExchange producerExchange = new ProducerBrokerExchange();
+        producerExchange.setConnectionContext(context);
+        producerExchange.setMutable(true);
+        producerExchange.setProducerState(new ProducerState(new ProducerInfo()));
+        super.send(producerExchange, messageSend);
+    }
+
+    private synchronized ThreadPoolExecutor getDispatchExecutor() {
+        if (this.dispatchExecutor == null && this.started.get() && this.dispatchThreads > 1) {
+            this.dispatchExecutor = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                private long i = 0;
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    this.i++;
+                    Thread thread = new Thread(runnable, "ActiveMQ Scheduler Dispatch." + this.i);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.dispatchExecutor.allowCoreThreadTimeOut(true);
         }
+        return this.dispatchExecutor;
     }
 
     protected synchronized JobScheduler getInternalScheduler() throws Exception {
@@ -487,4 +658,28 @@ public class SchedulerBroker extends BrokerFilter implements JobListener {
     public void setMaxRepeatAllowed(int maxRepeatAllowed) {
         this.maxRepeatAllowed = maxRepeatAllowed;
     }
+
+    public int getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    /**
+     * Sets the number of destinations that scheduled messages which fire together are sent to
+     * in parallel, a value of one sends them all on the scheduler thread.
+     */
+    public void setDispatchThreads(int dispatchThreads) {
+        this.dispatchThreads = dispatchThreads;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of scheduled messages for one destination that are sent in a
+     * single local transaction, larger groups are split into several transactions.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
 }
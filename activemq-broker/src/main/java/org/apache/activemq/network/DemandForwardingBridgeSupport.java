@@ -19,11 +19,14 @@ package org.apache.activemq.network;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
@@ -171,6 +174,23 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
     private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor();
     private Transport duplexInboundLocalBroker = null;
     private ProducerInfo duplexInboundLocalProducerInfo;
+    private int shardIndex = 0;
+    private int shardCount = 1;
+    private NetworkBridgeSpool forwardSpool;
+    private final Map<ConsumerId, DataStructure> pendingDemandDeltas = new LinkedHashMap<>();
+    private final Object demandDeltaMutex = new Object();
+    private final AtomicBoolean demandFlushScheduled = new AtomicBoolean();
+    private final Runnable demandFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            demandFlushScheduled.set(false);
+            try {
+                flushDemandDeltas();
+            } catch (IOException e) {
+                serviceRemoteException(e);
+            }
+        }
+    };
 
     public DemandForwardingBridgeSupport(NetworkBridgeConfiguration configuration, Transport localBroker, Transport remoteBroker) {
         this.configuration = configuration;
@@ -279,6 +299,14 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
                 futureRemoteBrokerInfo.cancel(true);
                 futureLocalBrokerInfo.cancel(true);
 
+                if (forwardSpool != null) {
+                    forwardSpool.detach(remoteBrokerName, this);
+                }
+                brokerService.getScheduler().cancel(demandFlushTask);
+                synchronized (pendingDemandDeltas) {
+                    pendingDemandDeltas.clear();
+                }
+
                 NetworkBridgeListener l = this.networkBridgeListener;
                 if (l != null) {
                     l.onStop(this);
@@ -495,7 +523,7 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
 
                     localConnectionInfo = new ConnectionInfo();
                     localConnectionInfo.setConnectionId(new ConnectionId(idGenerator.generateId()));
-                    localClientId = configuration.getName() + configuration.getClientIdToken() + remoteBrokerName + configuration.getClientIdToken() + "inbound" + configuration.getClientIdToken() + configuration.getBrokerName();
+                    localClientId = getBridgeName() + configuration.getClientIdToken() + remoteBrokerName + configuration.getClientIdToken() + "inbound" + configuration.getClientIdToken() + configuration.getBrokerName();
                     localConnectionInfo.setClientId(localClientId);
                     localConnectionInfo.setUserName(configuration.getUserName());
                     localConnectionInfo.setPassword(configuration.getPassword());
@@ -523,7 +551,7 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
 
                         ConnectionInfo duplexLocalConnectionInfo = new ConnectionInfo();
                         duplexLocalConnectionInfo.setConnectionId(new ConnectionId(idGenerator.generateId()));
-                        duplexLocalConnectionInfo.setClientId(configuration.getName() + configuration.getClientIdToken() + remoteBrokerName + configuration.getClientIdToken() + "inbound" + configuration.getClientIdToken() + "duplex"
+                        duplexLocalConnectionInfo.setClientId(getBridgeName() + configuration.getClientIdToken() + remoteBrokerName + configuration.getClientIdToken() + "inbound" + configuration.getClientIdToken() + "duplex"
                                 + configuration.getClientIdToken() + configuration.getBrokerName());
                         duplexLocalConnectionInfo.setUserName(configuration.getUserName());
                         duplexLocalConnectionInfo.setPassword(configuration.getPassword());
@@ -547,6 +575,9 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
                     if (l != null) {
                         l.onStart(this);
                     }
+                    if (forwardSpool != null && shardIndex == 0) {
+                        forwardSpool.attach(remoteBrokerName, this);
+                    }
 
                     // Let the local broker know the remote broker's ID.
                     localBroker.oneway(remoteBrokerInfo);
@@ -610,7 +641,7 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
                 }
                 remoteConnectionInfo = new ConnectionInfo();
                 remoteConnectionInfo.setConnectionId(new ConnectionId(idGenerator.generateId()));
-                remoteConnectionInfo.setClientId(configuration.getName() + configuration.getClientIdToken() + configuration.getBrokerName() + configuration.getClientIdToken() + "outbound");
+                remoteConnectionInfo.setClientId(getBridgeName() + configuration.getClientIdToken() + configuration.getBrokerName() + configuration.getClientIdToken() + "outbound");
                 
                 if(configuration.getRemoteUserName() != null) {
                     remoteConnectionInfo.setUserName(configuration.getRemoteUserName());
@@ -728,7 +759,7 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
                 if (command.isMessageDispatch()) {
                     safeWaitUntilStarted();
                     MessageDispatch md = (MessageDispatch) command;
-                    serviceRemoteConsumerAdvisory(md.getMessage().getDataStructure());
+                    serviceRemoteDemandAdvisory(md.getMessage().getDataStructure());
                     ackAdvisory(md.getMessage());
                 } else if (command.isBrokerInfo()) {
                     futureRemoteBrokerInfo.set((BrokerInfo) command);
@@ -802,7 +833,7 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
                         if (command.isMessage()) {
                             final ActiveMQMessage message = (ActiveMQMessage) command;
                             if (NetworkBridgeFilter.isAdvisoryInterpretedByNetworkBridge(message)) {
-                                serviceRemoteConsumerAdvisory(message.getDataStructure());
+                                serviceRemoteDemandAdvisory(message.getDataStructure());
                                 ackAdvisory(message);
                             } else {
                                 if (!isPermissableDestination(message.getDestination(), true)) {
@@ -934,6 +965,80 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
         }
     }
 
+    /**
+     * Applies a remote advisory, or collects it for the next batch when demand aggregation is
+     * enabled. Advisories that cannot be aggregated flush the pending batch first so that all
+     * advisories are still applied in the order they were received.
+     */
+    private void serviceRemoteDemandAdvisory(DataStructure data) throws IOException {
+        final long window = configuration.getDemandAggregationWindow();
+        if (window <= 0) {
+            serviceRemoteConsumerAdvisory(data);
+            return;
+        }
+        synchronized (pendingDemandDeltas) {
+            if (aggregateDemandDelta(data)) {
+                if (demandFlushScheduled.compareAndSet(false, true)) {
+                    brokerService.getScheduler().executeAfterDelay(demandFlushTask, window);
+                }
+                return;
+            }
+        }
+        flushDemandDeltas();
+        synchronized (demandDeltaMutex) {
+            serviceRemoteConsumerAdvisory(data);
+        }
+    }
+
+    /**
+     * Merges a consumer add or remove into the pending batch, keyed by consumer id. A remove
+     * cancels a pending add of the same consumer.
+     *
+     * @return false if the advisory has to be applied directly
+     */
+    private boolean aggregateDemandDelta(DataStructure data) {
+        if (data.getClass() == ConsumerInfo.class) {
+            ConsumerInfo info = (ConsumerInfo) data;
+            if (pendingDemandDeltas.containsKey(info.getConsumerId())) {
+                return false;
+            }
+            pendingDemandDeltas.put(info.getConsumerId(), info);
+            return true;
+        } else if (data.getClass() == RemoveInfo.class && ((RemoveInfo) data).getObjectId() instanceof ConsumerId) {
+            ConsumerId id = (ConsumerId) ((RemoveInfo) data).getObjectId();
+            DataStructure pending = pendingDemandDeltas.get(id);
+            if (pending == null) {
+                pendingDemandDeltas.put(id, data);
+            } else if (pending.getClass() == ConsumerInfo.class) {
+                pendingDemandDeltas.remove(id);
+                LOG.trace("{} consumer {} on {} added and removed within one batch, no demand created",
+                        configuration.getBrokerName(), id, remoteBrokerName);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void flushDemandDeltas() throws IOException {
+        synchronized (demandDeltaMutex) {
+            List<DataStructure> batch;
+            synchronized (pendingDemandDeltas) {
+                if (pendingDemandDeltas.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pendingDemandDeltas.values());
+                pendingDemandDeltas.clear();
+            }
+            if (disposed.get()) {
+                return;
+            }
+            LOG.debug("{} applying {} aggregated demand changes from {}", configuration.getBrokerName(), batch.size(), remoteBrokerName);
+            for (DataStructure data : batch) {
+                serviceRemoteConsumerAdvisory(data);
+            }
+        }
+    }
+
     private void serviceRemoteConsumerAdvisory(DataStructure data) throws IOException {
         final int networkTTL = configuration.getConsumerTTL();
         if (data.getClass() == ConsumerInfo.class) {
@@ -1256,22 +1361,46 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
                             return;
                         }
                         if (isPermissableDestination(md.getDestination())) {
-                           if (message.isPersistent() || configuration.isAlwaysSyncSend()) {
+                           if (forwardSpool != null && forwardSpool.accepts(remoteBrokerName, message)) {
+
+                              // Store and forward: the spool takes over the message, which
+                              // reaches the remote broker when the spool is drained.
+                              try {
+                                 forwardSpool.add(remoteBrokerName, message);
+                                 localBroker.oneway(new MessageAck(md, MessageAck.INDIVIDUAL_ACK_TYPE, 1));
+                                 networkBridgeStatistics.getDequeues().increment();
+                              } finally {
+                                 sub.decrementOutstandingResponses();
+                              }
+                              return;
+                           } else if (message.isPersistent() || configuration.isAlwaysSyncSend()) {
 
                               // The message was not sent using async send, so we should only
                               // ack the local broker when we get confirmation that the remote
                               // broker has received the message.
+                              final int ackBatchSize = getForwardAckBatchSize(sub);
+                              final DemandSubscription.PendingForward forward = ackBatchSize > 0 ? sub.trackForward(md) : null;
                               remoteBroker.asyncRequest(message, new ResponseCallback() {
                                  @Override
                                  public void onCompletion(FutureResponse future) {
+                                    boolean success = false;
                                     try {
                                        Response response = future.getResult();
                                        if (response.isException()) {
                                           ExceptionResponse er = (ExceptionResponse) response;
                                           serviceLocalException(md, er.getException());
                                        } else {
-                                          localBroker.oneway(new MessageAck(md, MessageAck.INDIVIDUAL_ACK_TYPE, 1));
+                                          success = true;
                                           networkBridgeStatistics.getDequeues().increment();
+                                          if (forward == null) {
+                                             localBroker.oneway(new MessageAck(md, MessageAck.INDIVIDUAL_ACK_TYPE, 1));
+                                          }
+                                       }
+                                       if (forward != null) {
+                                          MessageAck ack = sub.completeForward(forward, success, ackBatchSize);
+                                          if (ack != null) {
+                                             localBroker.oneway(ack);
+                                          }
                                        }
                                     } catch (IOException e) {
                                        serviceLocalException(md, e);
@@ -1423,7 +1552,9 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
         ActiveMQDestination[] dests = staticallyIncludedDestinations;
         if (dests != null) {
             for (ActiveMQDestination dest : dests) {
-                if (isPermissableDestination(dest)) {
+                if (!isShardDestination(dest)) {
+                    LOG.debug("{}, static destination {} is bridged by another shard", configuration.getBrokerName(), dest);
+                } else if (isPermissableDestination(dest)) {
                     DemandSubscription sub = createDemandSubscription(dest, null, null);
                     if (sub != null) {
                         sub.setStaticallyIncluded(true);
@@ -1450,6 +1581,11 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
             return;
         }
 
+        // the parts of a composite consumer may belong to other shards
+        if (!isShardDestination(consumerInfo.getDestination())) {
+            return;
+        }
+
         ConsumerInfo info = consumerInfo.copy();
         addRemoteBrokerToBrokerPath(info);
         DemandSubscription sub = createDemandSubscription(info);
@@ -1798,6 +1934,109 @@ public abstract class DemandForwardingBridgeSupport implements NetworkBridge, Br
         this.networkBridgeListener = listener;
     }
 
+    /**
+     * @return the number of forwarded messages to acknowledge to the local broker with one
+     *         cumulative ack, capped at half the demand subscription's prefetch so the
+     *         in-flight window keeps moving, or 0 to ack every message individually
+     */
+    protected int getForwardAckBatchSize(DemandSubscription sub) {
+        int batchSize = configuration.getForwardAckBatchSize();
+        if (batchSize <= 1) {
+            return 0;
+        }
+        return Math.max(1, Math.min(batchSize, sub.getLocalInfo().getPrefetchSize() / 2));
+    }
+
+    /**
+     * Restricts this bridge to the destinations that hash to the given shard when it is
+     * one of several parallel bridges to the same peer, see
+     * {@link NetworkBridgeConfiguration#setParallelBridgeCount(int)}. Each destination is
+     * forwarded by exactly one shard, which preserves its message order.
+     */
+    public void setShard(int shardIndex, int shardCount) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Only plain queues are spread over the shards. Topics, wildcards and temporary
+     * destinations stay on the first shard, as conduit subscriptions can only merge
+     * overlapping topic demand within one bridge.
+     */
+    protected boolean isShardDestination(ActiveMQDestination destination) {
+        if (shardCount <= 1 || destination.isComposite()) {
+            return true;
+        }
+        if (destination.isQueue() && !destination.isTemporary() && !destination.isPattern()) {
+            return (destination.getPhysicalName().hashCode() & Integer.MAX_VALUE) % shardCount == shardIndex;
+        }
+        return shardIndex == 0;
+    }
+
+    public void setForwardSpool(NetworkBridgeSpool forwardSpool) {
+        this.forwardSpool = forwardSpool;
+    }
+
+    public NetworkBridgeSpool getForwardSpool() {
+        return forwardSpool;
+    }
+
+    /**
+     * Sends a batch of spooled messages to the remote broker and waits for all of them to be
+     * answered.
+     *
+     * @return for each message of the batch whether the remote broker accepted it, or null if
+     *         this bridge is no longer forwarding
+     */
+    protected boolean[] forwardSpooled(List<Message> messages) throws IOException {
+        if (disposed.get()) {
+            return null;
+        }
+        List<FutureResponse> futures = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            // the message was configured by an earlier bridge, send it as this bridge's producer
+            message.setProducerId(producerInfo.getProducerId());
+            futures.add(remoteBroker.asyncRequest(message, null));
+        }
+        boolean[] accepted = new boolean[messages.size()];
+        Throwable failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            Response response = futures.get(i).getResult();
+            if (response.isException()) {
+                LOG.warn("{} failed to forward spooled message {} to {}", configuration.getBrokerName(),
+                        messages.get(i).getMessageId(), remoteBrokerName);
+                if (failure == null) {
+                    failure = ((ExceptionResponse) response).getException();
+                }
+            } else {
+                accepted[i] = true;
+                serviceOutbound(messages.get(i));
+            }
+        }
+        if (failure != null) {
+            serviceLocalException(failure);
+        }
+        return accepted;
+    }
+
+    /**
+     * @return the network connector name, qualified by the shard index for the additional
+     *         shards of parallel bridges so that each shard gets unique client ids on both
+     *         brokers. The first shard keeps the plain name, so that the network durable
+     *         subscriptions created by a single bridge are still matched to it.
+     */
+    protected String getBridgeName() {
+        return shardIndex > 0 ? configuration.getName() + "-" + shardIndex : configuration.getName();
+    }
+
     private void fireBridgeFailed(Throwable reason) {
         LOG.trace("fire bridge failed, listener: {}", this.networkBridgeListener, reason);
         NetworkBridgeListener l = this.networkBridgeListener;
@@ -16,6 +16,7 @@
  */
 package org.apache.activemq.network;
 
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -26,6 +27,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.activemq.command.ConsumerId;
 import org.apache.activemq.command.ConsumerInfo;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageDispatch;
 import org.apache.activemq.command.NetworkBridgeFilter;
 import org.apache.activemq.command.SubscriptionInfo;
 import org.slf4j.Logger;
@@ -49,6 +52,12 @@ public class DemandSubscription {
     private NetworkBridgeFilter networkBridgeFilter;
     private boolean staticallyIncluded;
 
+    // forwards awaiting a response from the remote broker, in dispatch order
+    private final LinkedList<PendingForward> pendingForwards = new LinkedList<PendingForward>();
+    private MessageDispatch ackableFirst;
+    private MessageDispatch ackableLast;
+    private int ackableCount;
+
     DemandSubscription(ConsumerInfo info) {
         remoteInfo = info;
         localInfo = info.copy();
@@ -172,6 +181,66 @@ public class DemandSubscription {
         this.localDurableSubscriber = localDurableSubscriber;
     }
 
+    /**
+     * Registers a message forwarded to the remote broker whose local ack is deferred until
+     * the remote broker responds. Must be called in local dispatch order.
+     */
+    public PendingForward trackForward(MessageDispatch md) {
+        PendingForward forward = new PendingForward(md);
+        synchronized (pendingForwards) {
+            pendingForwards.add(forward);
+        }
+        return forward;
+    }
+
+    /**
+     * Completes a tracked forward and returns the cumulative ack that is now due, if any.
+     * Messages are acked as a range once they and every forward dispatched before them
+     * have completed, so responses arriving out of order never ack past a gap. The range
+     * is released once it holds batchSize messages, or when no forwards remain
+     * outstanding so that the prefetch window cannot stall on a partial batch.
+     *
+     * @param forward the forward returned by {@link #trackForward(MessageDispatch)}
+     * @param success false if the forward failed and must not be acked
+     * @param batchSize the number of messages to coalesce into one ack
+     * @return the standard ack to send to the local broker, or null
+     */
+    public MessageAck completeForward(PendingForward forward, boolean success, int batchSize) {
+        synchronized (pendingForwards) {
+            forward.completed = true;
+            forward.success = success;
+            while (!pendingForwards.isEmpty() && pendingForwards.getFirst().completed) {
+                PendingForward head = pendingForwards.removeFirst();
+                if (head.success) {
+                    if (ackableFirst == null) {
+                        ackableFirst = head.md;
+                    }
+                    ackableLast = head.md;
+                    ackableCount++;
+                }
+            }
+            if (ackableCount > 0 && (ackableCount >= batchSize || pendingForwards.isEmpty())) {
+                MessageAck ack = new MessageAck(ackableLast, MessageAck.STANDARD_ACK_TYPE, ackableCount);
+                ack.setFirstMessageId(ackableFirst.getMessage().getMessageId());
+                ackableFirst = null;
+                ackableLast = null;
+                ackableCount = 0;
+                return ack;
+            }
+            return null;
+        }
+    }
+
+    public static final class PendingForward {
+        private final MessageDispatch md;
+        private boolean completed;
+        private boolean success;
+
+        private PendingForward(MessageDispatch md) {
+            this.md = md;
+        }
+    }
+
     public boolean isStaticallyIncluded() {
         return staticallyIncluded;
     }
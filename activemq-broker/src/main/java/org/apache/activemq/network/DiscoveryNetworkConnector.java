@@ -19,7 +19,9 @@ package org.apache.activemq.network;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -119,8 +121,14 @@ public class DiscoveryNetworkConnector extends NetworkConnector implements Disco
 
             LOG.info("Establishing network connection from {} to {}", localURI, connectUri);
 
-            Transport remoteTransport;
-            Transport localTransport;
+            int bridgeCount = getParallelBridgeCount();
+            if (bridgeCount > 1 && isDuplex()) {
+                LOG.warn("parallelBridgeCount is not supported for duplex network connectors, using a single bridge to {}", connectUri);
+                bridgeCount = 1;
+            }
+
+            List<Transport> remoteTransports = new ArrayList<>(bridgeCount);
+            List<Transport> localTransports = new ArrayList<>(bridgeCount);
             try {
                 // Allows the transport to access the broker's ssl configuration.
                 if (getSslContext() != null) {
@@ -128,44 +136,51 @@ public class DiscoveryNetworkConnector extends NetworkConnector implements Disco
                 } else {
                     SslContext.setCurrentSslContext(getBrokerService().getSslContext());
                 }
-                try {
-                    remoteTransport = TransportFactory.connect(connectUri);
-                } catch (Exception e) {
-                    LOG.warn("Could not connect to remote URI: {}: {}", connectUri, e.getMessage());
-                    LOG.debug("Connection failure exception: ", e);
+                for (int i = 0; i < bridgeCount; i++) {
                     try {
-                        discoveryAgent.serviceFailed(event);
-                    } catch (IOException e1) {
-                        LOG.debug("Failure while handling create remote transport failure event: {}", e1.getMessage(), e1);
+                        remoteTransports.add(TransportFactory.connect(connectUri));
+                    } catch (Exception e) {
+                        disposeAll(localTransports, remoteTransports);
+                        LOG.warn("Could not connect to remote URI: {}: {}", connectUri, e.getMessage());
+                        LOG.debug("Connection failure exception: ", e);
+                        try {
+                            discoveryAgent.serviceFailed(event);
+                        } catch (IOException e1) {
+                            LOG.debug("Failure while handling create remote transport failure event: {}", e1.getMessage(), e1);
+                        }
+                        return;
                     }
-                    return;
-                }
-                try {
-                    localTransport = createLocalTransport();
-                } catch (Exception e) {
-                    ServiceSupport.dispose(remoteTransport);
-                    LOG.warn("Could not connect to local URI: {}: {}", localURI, e.getMessage());
-                    LOG.debug("Connection failure exception: ", e);
-
                     try {
-                        discoveryAgent.serviceFailed(event);
-                    } catch (IOException e1) {
-                        LOG.debug("Failure while handling create local transport failure event: {}", e1.getMessage(), e1);
+                        localTransports.add(createLocalTransport());
+                    } catch (Exception e) {
+                        disposeAll(localTransports, remoteTransports);
+                        LOG.warn("Could not connect to local URI: {}: {}", localURI, e.getMessage());
+                        LOG.debug("Connection failure exception: ", e);
+
+                        try {
+                            discoveryAgent.serviceFailed(event);
+                        } catch (IOException e1) {
+                            LOG.debug("Failure while handling create local transport failure event: {}", e1.getMessage(), e1);
+                        }
+                        return;
                     }
-                    return;
                 }
             } finally {
                 SslContext.setCurrentSslContext(null);
             }
-            NetworkBridge bridge = createBridge(localTransport, remoteTransport, event);
+            NetworkBridge bridge;
+            if (bridgeCount > 1) {
+                bridge = createParallelBridge(localTransports, remoteTransports, event);
+            } else {
+                bridge = createBridge(localTransports.get(0), remoteTransports.get(0), event);
+            }
             try {
                 synchronized (bridges) {
                     bridges.put(uri, bridge);
                 }
                 bridge.start();
             } catch (Exception e) {
-                ServiceSupport.dispose(localTransport);
-                ServiceSupport.dispose(remoteTransport);
+                disposeAll(localTransports, remoteTransports);
                 LOG.warn("Could not start network bridge between: {} and: {} due to: {}", localURI, uri, e.getMessage());
                 LOG.debug("Start failure exception: ", e);
                 try {
@@ -178,6 +193,15 @@ public class DiscoveryNetworkConnector extends NetworkConnector implements Disco
         }
     }
 
+    private static void disposeAll(List<Transport> localTransports, List<Transport> remoteTransports) {
+        for (Transport transport : localTransports) {
+            ServiceSupport.dispose(transport);
+        }
+        for (Transport transport : remoteTransports) {
+            ServiceSupport.dispose(transport);
+        }
+    }
+
     @Override
     public void onServiceRemove(DiscoveryEvent event) {
         String url = event.getServiceName();
@@ -241,6 +265,25 @@ public class DiscoveryNetworkConnector extends NetworkConnector implements Disco
     }
 
     protected NetworkBridge createBridge(Transport localTransport, Transport remoteTransport, final DiscoveryEvent event) {
+        DemandForwardingBridge result = getBridgeFactory().createNetworkBridge(this, localTransport, remoteTransport, createBridgeListener(event));
+        result.setBrokerService(getBrokerService());
+        return configureBridge(result);
+    }
+
+    protected NetworkBridge createParallelBridge(List<Transport> localTransports, List<Transport> remoteTransports, final DiscoveryEvent event) {
+        List<DemandForwardingBridgeSupport> shards = new ArrayList<>(localTransports.size());
+        for (int i = 0; i < localTransports.size(); i++) {
+            DemandForwardingBridge shard = getBridgeFactory().createNetworkBridge(this, localTransports.get(i), remoteTransports.get(i), null);
+            shard.setBrokerService(getBrokerService());
+            configureBridge(shard);
+            shards.add(shard);
+        }
+        ParallelNetworkBridge result = new ParallelNetworkBridge(getBrokerService(), shards);
+        result.setNetworkBridgeListener(createBridgeListener(event));
+        return result;
+    }
+
+    private NetworkBridgeListener createBridgeListener(final DiscoveryEvent event) {
         class DiscoverNetworkBridgeListener extends MBeanNetworkListener {
 
             public DiscoverNetworkBridgeListener(BrokerService brokerService, ObjectName connectorName) {
@@ -258,11 +301,7 @@ public class DiscoveryNetworkConnector extends NetworkConnector implements Disco
 
             }
         }
-        NetworkBridgeListener listener = new DiscoverNetworkBridgeListener(getBrokerService(), getObjectName());
-
-        DemandForwardingBridge result = getBridgeFactory().createNetworkBridge(this, localTransport, remoteTransport, listener);
-        result.setBrokerService(getBrokerService());
-        return configureBridge(result);
+        return new DiscoverNetworkBridgeListener(getBrokerService(), getObjectName());
     }
 
     @Override
@@ -17,6 +17,7 @@
 package org.apache.activemq.network;
 
 import java.io.IOException;
+import java.util.Map;
 
 import org.apache.activemq.broker.region.DurableTopicSubscription;
 import org.apache.activemq.broker.region.RegionBroker;
@@ -26,9 +27,11 @@ import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.ConsumerId;
 import org.apache.activemq.command.ConsumerInfo;
 import org.apache.activemq.command.RemoveSubscriptionInfo;
+import org.apache.activemq.command.SubscriptionInfo;
 import org.apache.activemq.filter.DestinationFilter;
 import org.apache.activemq.transport.Transport;
 import org.apache.activemq.util.NetworkBridgeUtils;
+import org.apache.activemq.util.SubscriptionKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,6 +68,9 @@ public class DurableConduitBridge extends ConduitBridge {
         ActiveMQDestination[] dests = configuration.isDynamicOnly() ? null : durableDestinations;
         if (dests != null) {
             for (ActiveMQDestination dest : dests) {
+                if (!isShardDestination(dest)) {
+                    continue;
+                }
                 if (isPermissableDestination(dest) && !doesConsumerExist(dest)) {
                     try {
                         //Filtering by non-empty subscriptions, see AMQ-5875
@@ -73,6 +79,7 @@ public class DurableConduitBridge extends ConduitBridge {
                             TopicRegion topicRegion = (TopicRegion) regionBroker.getTopicRegion();
 
                             String candidateSubName = getSubscriberName(dest);
+                            boolean added = false;
                             for (Subscription subscription : topicRegion.getDurableSubscriptions().values()) {
                                 ConsumerInfo subInfo = subscription.getConsumerInfo();
                                 String subName = subInfo.getSubscriptionName();
@@ -86,10 +93,27 @@ public class DurableConduitBridge extends ConduitBridge {
                                         sub.getLocalInfo().setSubscriptionName(getSubscriberName(dest));
                                         sub.setStaticallyIncluded(true);
                                         addSubscription(sub);
+                                        added = true;
                                         break;
                                     }
                                 }
                             }
+                            // a deferred durable subscription is offline, so there is no brokerPath to keep
+                            for (Map.Entry<SubscriptionKey, SubscriptionInfo> entry : topicRegion.getOfflineDurableSubscriptions().entrySet()) {
+                                if (added) {
+                                    break;
+                                }
+                                SubscriptionKey key = entry.getKey();
+                                if (candidateSubName.equals(key.getSubscriptionName()) && key.getClientId().startsWith(configuration.getName())) {
+                                    DemandSubscription sub = createDemandSubscription(dest, candidateSubName, null);
+                                    if (sub != null) {
+                                        sub.getLocalInfo().setSubscriptionName(candidateSubName);
+                                        sub.setStaticallyIncluded(true);
+                                        addSubscription(sub);
+                                        added = true;
+                                    }
+                                }
+                            }
                         }
                     } catch (IOException e) {
                         LOG.error("Failed to add static destination {}", dest, e);
@@ -123,6 +147,22 @@ public class DurableConduitBridge extends ConduitBridge {
                                 break;
                             }
                         }
+                        for (SubscriptionKey key : topicRegion.getOfflineDurableSubscriptions().keySet()) {
+                            if (candidateSubName.equals(key.getSubscriptionName()) && key.getClientId().equals(localClientId)) {
+                                // a deferred NC subscription is removed from the store the same way
+                                try {
+                                    RemoveSubscriptionInfo sending = new RemoveSubscriptionInfo();
+                                    sending.setClientId(localClientId);
+                                    sending.setSubscriptionName(candidateSubName);
+                                    sending.setConnectionId(this.localConnectionInfo.getConnectionId());
+                                    localBroker.oneway(sending);
+                                } catch (IOException e) {
+                                    LOG.debug("Exception removing NC durable subscription: {}", candidateSubName, e);
+                                    serviceRemoteException(e);
+                                }
+                                break;
+                            }
+                        }
                     }
                 }
             }
@@ -81,6 +81,12 @@ public class NetworkBridgeConfiguration {
     private long gcSweepTime = 60 * 1000;
     private boolean checkDuplicateMessagesOnDuplex = false;
     private boolean autoStart = true;
+    private int parallelBridgeCount = 1;
+    private int forwardAckBatchSize = 0;
+    private boolean spoolForwards = false;
+    private int spoolBatchSize = 500;
+    private int spoolMaxDeliveryAttempts = 5;
+    private long demandAggregationWindow = 0;
 
     /**
      * Bridge factory implementation - by default backed by static factory, which is default implementation and will rely change.
@@ -608,4 +614,99 @@ public class NetworkBridgeConfiguration {
     public boolean isAutoStart() {
         return autoStart;
     }
+
+    public int getParallelBridgeCount() {
+        return parallelBridgeCount;
+    }
+
+    /**
+     * The number of bridges, each with its own pair of transports, opened to every peer.
+     * Queues are spread over the bridges by a hash of their name, so each queue is still
+     * forwarded in order by one bridge; topics, wildcards and temporary destinations are
+     * forwarded by the first bridge. Useful when a single connection cannot fill a link
+     * with a high bandwidth-delay product. Not applicable to duplex bridges.
+     *
+     * @param parallelBridgeCount the number of bridges per peer, 1 by default
+     */
+    public void setParallelBridgeCount(int parallelBridgeCount) {
+        this.parallelBridgeCount = parallelBridgeCount;
+    }
+
+    public int getForwardAckBatchSize() {
+        return forwardAckBatchSize;
+    }
+
+    /**
+     * The number of synchronously forwarded messages acknowledged to the local broker with a
+     * single cumulative ack, once the remote broker has confirmed them and all messages
+     * dispatched before them. Forwards stay pipelined: the number in flight is bounded by
+     * the network consumer prefetch, so remote producer flow control, which delays the
+     * responses, throttles local dispatch to the bridge. The batch is capped at half the
+     * prefetch. The default of 0 acks each message individually as its response arrives.
+     *
+     * @param forwardAckBatchSize the number of forwards per cumulative ack
+     */
+    public void setForwardAckBatchSize(int forwardAckBatchSize) {
+        this.forwardAckBatchSize = forwardAckBatchSize;
+    }
+
+    public boolean isSpoolForwards() {
+        return spoolForwards;
+    }
+
+    /**
+     * Forward non persistent queue messages through a spool kept in the broker temp data
+     * store. A spooled message is acknowledged to the local broker as soon as it is written,
+     * so a slow or disconnected peer no longer holds messages in local queues; each peer has
+     * its own spool, drained in batches whenever a bridge to that peer is up. The spool
+     * survives bridge reconnects but not a broker restart, as the temp data store is cleared
+     * at startup, which is why persistent messages are always forwarded directly. Requires a
+     * persistent broker.
+     *
+     * @param spoolForwards true to spool forwarded queue messages, false by default
+     */
+    public void setSpoolForwards(boolean spoolForwards) {
+        this.spoolForwards = spoolForwards;
+    }
+
+    public int getSpoolBatchSize() {
+        return spoolBatchSize;
+    }
+
+    /**
+     * @param spoolBatchSize the maximum number of spooled messages sent to the peer before
+     *                       waiting for their responses, 500 by default
+     */
+    public void setSpoolBatchSize(int spoolBatchSize) {
+        this.spoolBatchSize = spoolBatchSize;
+    }
+
+    public int getSpoolMaxDeliveryAttempts() {
+        return spoolMaxDeliveryAttempts;
+    }
+
+    /**
+     * @param spoolMaxDeliveryAttempts the number of times a spooled message is sent to a peer
+     *                                 that rejects it before it is discarded with a warning,
+     *                                 5 by default, 0 or less to retry it for ever
+     */
+    public void setSpoolMaxDeliveryAttempts(int spoolMaxDeliveryAttempts) {
+        this.spoolMaxDeliveryAttempts = spoolMaxDeliveryAttempts;
+    }
+
+    public long getDemandAggregationWindow() {
+        return demandAggregationWindow;
+    }
+
+    /**
+     * The time in milliseconds for which remote consumer advisories are collected before the
+     * bridge applies them as one batch. Within a batch, a consumer that is added and removed
+     * again cancels out without creating local demand, which absorbs the advisory storms of
+     * restarts and reconnects. The default of 0 applies every advisory as it arrives.
+     *
+     * @param demandAggregationWindow the aggregation window in milliseconds
+     */
+    public void setDemandAggregationWindow(long demandAggregationWindow) {
+        this.demandAggregationWindow = demandAggregationWindow;
+    }
 }
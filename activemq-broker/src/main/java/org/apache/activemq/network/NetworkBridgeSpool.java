@@ -0,0 +1,308 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.network;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.activemq.Service;
+import org.apache.activemq.command.Message;
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.apache.activemq.store.PList;
+import org.apache.activemq.store.PListEntry;
+import org.apache.activemq.store.PListStore;
+import org.apache.activemq.thread.Task;
+import org.apache.activemq.thread.TaskRunner;
+import org.apache.activemq.thread.TaskRunnerFactory;
+import org.apache.activemq.usage.TempUsage;
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.wireformat.WireFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An outbound buffer for the bridges of a {@link NetworkConnector}. Forwarded messages are
+ * appended to a {@link PList} in the broker temp data store, one per remote broker, and sent
+ * to that broker, in batches, by the bridge attached for it. Entries are removed once the
+ * peer has confirmed them, so a bridge failure leaves them in place for the next bridge to
+ * the same peer. As the temp data store is cleared at startup only non persistent messages
+ * are spooled. A message the peer keeps rejecting is discarded with a warning after
+ * {@link NetworkBridgeConfiguration#getSpoolMaxDeliveryAttempts()} attempts, so that it does
+ * not block the messages behind it.
+ *
+ * @see NetworkBridgeConfiguration#setSpoolForwards(boolean)
+ */
+public class NetworkBridgeSpool implements Service {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NetworkBridgeSpool.class);
+
+    private final PListStore store;
+    private final String name;
+    private final TempUsage tempUsage;
+    private final TaskRunnerFactory taskRunnerFactory;
+    private final WireFormat wireFormat = new OpenWireFormat();
+    private final int batchSize;
+    private final int maxDeliveryAttempts;
+    private final ConcurrentMap<String, PeerSpool> peers = new ConcurrentHashMap<>();
+    private volatile boolean started;
+
+    public NetworkBridgeSpool(NetworkConnector connector, PListStore store) {
+        this.store = store;
+        this.name = "NetworkBridgeSpool:" + connector.getBrokerName() + ":" + connector.getName();
+        this.tempUsage = connector.getBrokerService().getSystemUsage().getTempUsage();
+        this.taskRunnerFactory = connector.getBrokerService().getTaskRunnerFactory();
+        this.batchSize = Math.max(1, connector.getSpoolBatchSize());
+        this.maxDeliveryAttempts = connector.getSpoolMaxDeliveryAttempts();
+        this.wireFormat.setVersion(connector.getBrokerService().getStoreOpenWireVersion());
+    }
+
+    @Override
+    public void start() throws Exception {
+        started = true;
+    }
+
+    @Override
+    public void stop() throws Exception {
+        started = false;
+        for (PeerSpool peer : peers.values()) {
+            peer.stop();
+        }
+    }
+
+    /**
+     * @return true if the message should be forwarded to the remote broker through the spool
+     *         rather than directly
+     */
+    public boolean accepts(String remoteBrokerName, Message message) {
+        if (!started || !message.getDestination().isQueue() || message.getDestination().isTemporary()) {
+            return false;
+        }
+        // the spool does not survive a restart, persistent messages must stay in the store
+        if (message.isPersistent()) {
+            return false;
+        }
+        // when the temp store is full fall back to forwarding directly, which flow controls,
+        // but not while older messages are still spooled as they would be overtaken
+        return !tempUsage.isFull() || getSize(remoteBrokerName) > 0;
+    }
+
+    /**
+     * Spool a message for the given remote broker.
+     */
+    public void add(String remoteBrokerName, Message message) throws Exception {
+        getPeerSpool(remoteBrokerName).add(message);
+    }
+
+    public long getSize() {
+        long size = 0;
+        for (PeerSpool peer : peers.values()) {
+            size += peer.getSize();
+        }
+        return size;
+    }
+
+    public long getSize(String remoteBrokerName) {
+        PeerSpool peer = peers.get(remoteBrokerName);
+        return peer != null ? peer.getSize() : 0;
+    }
+
+    /**
+     * Make the bridge drain the spool of its remote broker until it is detached.
+     */
+    public void attach(String remoteBrokerName, DemandForwardingBridgeSupport bridge) throws Exception {
+        getPeerSpool(remoteBrokerName).attach(bridge);
+    }
+
+    public void detach(String remoteBrokerName, DemandForwardingBridgeSupport bridge) {
+        PeerSpool peer = peers.get(remoteBrokerName);
+        if (peer != null) {
+            peer.detach(bridge);
+        }
+    }
+
+    private PeerSpool getPeerSpool(String remoteBrokerName) throws Exception {
+        PeerSpool peer = peers.get(remoteBrokerName);
+        if (peer == null) {
+            synchronized (peers) {
+                peer = peers.get(remoteBrokerName);
+                if (peer == null) {
+                    peer = new PeerSpool(name + ":" + remoteBrokerName);
+                    peers.put(remoteBrokerName, peer);
+                }
+            }
+        }
+        return peer;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * The spooled messages of one remote broker, drained by the bridge attached for it.
+     */
+    private final class PeerSpool implements Task {
+
+        private final String name;
+        private final PList spool;
+        // rejected delivery attempts of the spooled messages, by entry id
+        private final Map<String, Integer> failedAttempts = new HashMap<>();
+        private TaskRunner taskRunner;
+        private volatile DemandForwardingBridgeSupport bridge;
+
+        PeerSpool(String name) throws Exception {
+            this.name = name;
+            this.spool = store.getPList(name);
+        }
+
+        void add(Message message) throws IOException {
+            ByteSequence packet = wireFormat.marshal(message);
+            synchronized (this) {
+                spool.addLast(message.getMessageId().toString(), packet);
+            }
+            wakeup();
+        }
+
+        long getSize() {
+            return spool.size();
+        }
+
+        void attach(DemandForwardingBridgeSupport bridge) {
+            synchronized (this) {
+                if (taskRunner == null) {
+                    taskRunner = taskRunnerFactory.createTaskRunner(this, name);
+                }
+            }
+            this.bridge = bridge;
+            LOG.debug("{} draining through {}", name, bridge);
+            wakeup();
+        }
+
+        void detach(DemandForwardingBridgeSupport bridge) {
+            if (this.bridge == bridge) {
+                this.bridge = null;
+            }
+        }
+
+        void stop() throws InterruptedException {
+            bridge = null;
+            TaskRunner runner;
+            synchronized (this) {
+                runner = taskRunner;
+                taskRunner = null;
+            }
+            if (runner != null) {
+                runner.shutdown();
+            }
+        }
+
+        @Override
+        public boolean iterate() {
+            DemandForwardingBridgeSupport current = bridge;
+            if (current == null) {
+                return false;
+            }
+            List<PListEntry> entries = new ArrayList<>(batchSize);
+            List<Message> messages = new ArrayList<>(batchSize);
+            try {
+                synchronized (this) {
+                    if (spool.isEmpty()) {
+                        return false;
+                    }
+                    List<PListEntry> unreadable = new ArrayList<>();
+                    PList.PListIterator iterator = spool.iterator();
+                    try {
+                        while (iterator.hasNext() && entries.size() < batchSize) {
+                            PListEntry entry = iterator.next();
+                            try {
+                                messages.add((Message) wireFormat.unmarshal(entry.getByteSequence()));
+                                entries.add(entry);
+                            } catch (IOException e) {
+                                unreadable.add(entry);
+                                LOG.warn("{} discarding spooled message {} that can not be read", name, entry.getId(), e);
+                            }
+                        }
+                    } finally {
+                        iterator.release();
+                    }
+                    for (PListEntry entry : unreadable) {
+                        spool.remove(entry.getLocator());
+                    }
+                    if (entries.isEmpty()) {
+                        return !unreadable.isEmpty();
+                    }
+                }
+                boolean[] accepted = current.forwardSpooled(messages);
+                if (accepted == null) {
+                    return false;
+                }
+                boolean rejected = false;
+                synchronized (this) {
+                    for (int i = 0; i < entries.size(); i++) {
+                        PListEntry entry = entries.get(i);
+                        if (accepted[i]) {
+                            spool.remove(entry.getLocator());
+                            failedAttempts.remove(entry.getId());
+                            continue;
+                        }
+                        rejected = true;
+                        Integer attempts = failedAttempts.get(entry.getId());
+                        attempts = attempts == null ? 1 : attempts + 1;
+                        if (maxDeliveryAttempts > 0 && attempts >= maxDeliveryAttempts) {
+                            LOG.warn("{} discarding spooled message {} rejected by the peer {} times", name, entry.getId(), attempts);
+                            spool.remove(entry.getLocator());
+                            failedAttempts.remove(entry.getId());
+                        } else {
+                            failedAttempts.put(entry.getId(), attempts);
+                        }
+                    }
+                }
+                // a rejection fails the bridge, the next bridge to the peer retries
+                return !rejected;
+            } catch (IOException e) {
+                // fail the bridge rather than stall: the entries stay in the spool and the
+                // next bridge to the peer drains them
+                LOG.warn("{} failed to drain spooled messages through {}", name, current, e);
+                detach(current);
+                current.serviceLocalException(e);
+                return false;
+            }
+        }
+
+        private void wakeup() {
+            TaskRunner runner = taskRunner;
+            if (runner != null) {
+                try {
+                    runner.wakeup();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.activemq.broker.jmx.NetworkBridgeView;
 import org.apache.activemq.broker.jmx.NetworkBridgeViewMBean;
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.ConsumerId;
+import org.apache.activemq.store.PListStore;
 import org.apache.activemq.transport.Transport;
 import org.apache.activemq.util.ServiceStopper;
 import org.apache.activemq.util.ServiceSupport;
@@ -56,12 +57,16 @@ public abstract class NetworkConnector extends NetworkBridgeConfiguration implem
 
         @Override
         protected void doStart() throws Exception {
+            startForwardSpool();
             handleStart();
         }
 
         @Override
         protected void doStop(ServiceStopper stopper) throws Exception {
             handleStop(stopper);
+            if (forwardSpool != null) {
+                stopper.stop(forwardSpool);
+            }
         }
     };
 
@@ -69,6 +74,7 @@ public abstract class NetworkConnector extends NetworkBridgeConfiguration implem
 
     private BrokerService brokerService;
     private ObjectName objectName;
+    private NetworkBridgeSpool forwardSpool;
 
     public NetworkConnector() {
     }
@@ -135,9 +141,28 @@ public abstract class NetworkConnector extends NetworkBridgeConfiguration implem
         dests = destsList.toArray(new ActiveMQDestination[destsList.size()]);
         result.setStaticallyIncludedDestinations(dests);
         result.setDurableDestinations(getDurableTopicDestinations(durableDestinations));
+        result.setForwardSpool(forwardSpool);
         return result;
     }
 
+    protected void startForwardSpool() throws Exception {
+        if (isSpoolForwards() && forwardSpool == null) {
+            PListStore store = brokerService.getTempDataStore();
+            if (store == null) {
+                LOG.warn("Network Connector {} cannot spool forwards without a temp data store, forwarding directly", this);
+                return;
+            }
+            forwardSpool = new NetworkBridgeSpool(this, store);
+        }
+        if (forwardSpool != null) {
+            forwardSpool.start();
+        }
+    }
+
+    public NetworkBridgeSpool getForwardSpool() {
+        return forwardSpool;
+    }
+
     protected Transport createLocalTransport() throws Exception {
         return NetworkBridgeFactory.createLocalTransport(this, localURI);
     }
@@ -247,6 +272,11 @@ public abstract class NetworkConnector extends NetworkBridgeConfiguration implem
                     removeSucceeded = true;
                     break;
                 }
+            } else if (bridge instanceof ParallelNetworkBridge) {
+                if (((ParallelNetworkBridge) bridge).removeDemandSubscriptionByLocalId(consumerId)) {
+                    removeSucceeded = true;
+                    break;
+                }
             }
         }
         return removeSucceeded;
@@ -0,0 +1,238 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ConsumerId;
+import org.apache.activemq.command.Message;
+import org.apache.activemq.util.ServiceStopper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A network bridge to a single peer made of several {@link DemandForwardingBridgeSupport}
+ * shards, each with its own local and remote transport. The shards split the forwarded
+ * destinations between them, see {@link NetworkBridgeConfiguration#setParallelBridgeCount(int)}.
+ *
+ * The shards are managed as one bridge: it is started when all shards are started, the
+ * statistics are the sum of the shards, and the failure of any shard fails the whole bridge
+ * so that it is re-established as a unit.
+ */
+public class ParallelNetworkBridge implements NetworkBridge {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelNetworkBridge.class);
+
+    private final BrokerService brokerService;
+    private final List<DemandForwardingBridgeSupport> shards;
+    private final NetworkBridgeStatistics networkBridgeStatistics = new NetworkBridgeStatistics();
+    private final AtomicInteger startedShards = new AtomicInteger();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final AtomicBoolean failed = new AtomicBoolean();
+    private NetworkBridgeListener networkBridgeListener;
+    private ObjectName mbeanObjectName;
+
+    public ParallelNetworkBridge(BrokerService brokerService, List<DemandForwardingBridgeSupport> shards) {
+        this.brokerService = brokerService;
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        ShardListener shardListener = new ShardListener();
+        for (int i = 0; i < this.shards.size(); i++) {
+            DemandForwardingBridgeSupport shard = this.shards.get(i);
+            shard.setShard(i, this.shards.size());
+            shard.getNetworkBridgeStatistics().setParent(networkBridgeStatistics);
+            shard.setNetworkBridgeListener(shardListener);
+        }
+    }
+
+    public List<DemandForwardingBridgeSupport> getShards() {
+        return shards;
+    }
+
+    @Override
+    public void start() throws Exception {
+        networkBridgeStatistics.setEnabled(brokerService.isEnableStatistics());
+        for (DemandForwardingBridgeSupport shard : shards) {
+            shard.start();
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        ServiceStopper ss = new ServiceStopper();
+        for (DemandForwardingBridgeSupport shard : shards) {
+            ss.stop(shard);
+        }
+        ss.throwFirstException();
+    }
+
+    @Override
+    public void serviceRemoteException(Throwable error) {
+        for (DemandForwardingBridgeSupport shard : shards) {
+            shard.serviceRemoteException(error);
+        }
+    }
+
+    @Override
+    public void serviceLocalException(Throwable error) {
+        for (DemandForwardingBridgeSupport shard : shards) {
+            shard.serviceLocalException(error);
+        }
+    }
+
+    @Override
+    public void setNetworkBridgeListener(NetworkBridgeListener listener) {
+        this.networkBridgeListener = listener;
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return shards.get(0).getRemoteAddress();
+    }
+
+    @Override
+    public String getRemoteBrokerName() {
+        return shards.get(0).getRemoteBrokerName();
+    }
+
+    @Override
+    public String getRemoteBrokerId() {
+        return shards.get(0).getRemoteBrokerId();
+    }
+
+    @Override
+    public String getLocalAddress() {
+        return shards.get(0).getLocalAddress();
+    }
+
+    @Override
+    public String getLocalBrokerName() {
+        return shards.get(0).getLocalBrokerName();
+    }
+
+    @Override
+    public long getEnqueueCounter() {
+        return networkBridgeStatistics.getEnqueues().getCount();
+    }
+
+    @Override
+    public long getDequeueCounter() {
+        return networkBridgeStatistics.getDequeues().getCount();
+    }
+
+    @Override
+    public NetworkBridgeStatistics getNetworkBridgeStatistics() {
+        return networkBridgeStatistics;
+    }
+
+    @Override
+    public void setMbeanObjectName(ObjectName objectName) {
+        this.mbeanObjectName = objectName;
+    }
+
+    @Override
+    public ObjectName getMbeanObjectName() {
+        return mbeanObjectName;
+    }
+
+    @Override
+    public void resetStats() {
+        networkBridgeStatistics.reset();
+        for (DemandForwardingBridgeSupport shard : shards) {
+            shard.resetStats();
+        }
+    }
+
+    protected boolean removeDemandSubscriptionByLocalId(ConsumerId consumerId) {
+        for (DemandForwardingBridgeSupport shard : shards) {
+            if (shard.removeDemandSubscriptionByLocalId(consumerId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelNetworkBridge" + shards;
+    }
+
+    private class ShardListener implements NetworkBridgeListener {
+
+        @Override
+        public void bridgeFailed() {
+            if (failed.compareAndSet(false, true)) {
+                NetworkBridgeListener l = networkBridgeListener;
+                if (l != null) {
+                    l.bridgeFailed();
+                }
+                brokerService.getTaskRunnerFactory().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            ParallelNetworkBridge.this.stop();
+                        } catch (Exception e) {
+                            LOG.debug("Exception stopping shards of failed bridge {}", ParallelNetworkBridge.this, e);
+                        }
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onStart(NetworkBridge bridge) {
+            if (startedShards.incrementAndGet() == shards.size()) {
+                NetworkBridgeListener l = networkBridgeListener;
+                if (l != null) {
+                    l.onStart(ParallelNetworkBridge.this);
+                }
+            }
+        }
+
+        @Override
+        public void onStop(NetworkBridge bridge) {
+            if (stopped.compareAndSet(false, true)) {
+                NetworkBridgeListener l = networkBridgeListener;
+                if (l != null) {
+                    l.onStop(ParallelNetworkBridge.this);
+                }
+            }
+        }
+
+        @Override
+        public void onOutboundMessage(NetworkBridge bridge, Message message) {
+            NetworkBridgeListener l = networkBridgeListener;
+            if (l != null) {
+                l.onOutboundMessage(ParallelNetworkBridge.this, message);
+            }
+        }
+
+        @Override
+        public void onInboundMessage(NetworkBridge bridge, Message message) {
+            NetworkBridgeListener l = networkBridgeListener;
+            if (l != null) {
+                l.onInboundMessage(ParallelNetworkBridge.this, message);
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.apache.activemq.broker.region.TopicRegion;
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.BrokerSubscriptionInfo;
 import org.apache.activemq.command.ConsumerInfo;
+import org.apache.activemq.command.SubscriptionInfo;
 import org.apache.activemq.filter.DestinationFilter;
 import org.apache.activemq.network.NetworkBridgeConfiguration;
 import org.slf4j.Logger;
@@ -72,6 +73,18 @@ public class NetworkBridgeUtils {
             }
         }
 
+        // Durable subscriptions whose recovery was deferred are not in the map above but still need the demand
+        for (Map.Entry<SubscriptionKey, SubscriptionInfo> entry : topicRegion.getOfflineDurableSubscriptions().entrySet()) {
+            final SubscriptionKey key = entry.getKey();
+            final SubscriptionInfo info = entry.getValue();
+            if (NetworkBridgeUtils.matchesConfigForDurableSync(config, key.getClientId(),
+                key.getSubscriptionName(), info.getSubscribedDestination())) {
+                ConsumerInfo ci = topicRegion.createInactiveConsumerInfo(info);
+                ci.setClientId(key.getClientId());
+                subscriptionInfos.add(ci);
+            }
+        }
+
         // We also need to iterate over all normal subscriptions and check if they are part of
         // any dynamicallyIncludedDestination that is configured with forceDurable to be true
         // over the network bridge.  If forceDurable is true then we want to add the consumer to the set
@@ -78,6 +78,7 @@ import org.apache.activemq.command.DestinationInfo;
 import org.apache.activemq.command.ExceptionResponse;
 import org.apache.activemq.command.Message;
 import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageDispatchBatch;
 import org.apache.activemq.command.MessageId;
 import org.apache.activemq.command.ProducerAck;
 import org.apache.activemq.command.ProducerId;
@@ -149,6 +150,8 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
     private boolean optimizeAcknowledge;
     private long optimizeAcknowledgeTimeOut = 0;
     private long optimizedAckScheduledAckInterval = 0;
+    private int ackBatchSize = 0;
+    private long ackBatchMaxLatency = 0;
     private boolean nestedMapAndListEnabled = true;
     private boolean useRetroactiveConsumer;
     private boolean exclusiveConsumer;
@@ -1892,6 +1895,23 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
         return dispatchers.containsKey(consumerId);
     }
 
+    private void prepareDispatchedMessage(MessageDispatch md) {
+        // Copy in case a embedded broker is dispatching via
+        // vm://
+        // md.getMessage() == null to signal end of queue
+        // browse.
+        Message msg = md.getMessage();
+        if (msg != null) {
+            msg = msg.copy();
+            msg.setReadOnlyBody(true);
+            msg.setReadOnlyProperties(true);
+            msg.setRedeliveryCounter(md.getRedeliveryCounter());
+            msg.setConnection(this);
+            msg.setMemoryUsage(null);
+            md.setMessage(msg);
+        }
+    }
+
     /**
      * @param o - the command to consume
      */
@@ -1906,20 +1926,7 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
                         waitForTransportInterruptionProcessingToComplete();
                         ActiveMQDispatcher dispatcher = dispatchers.get(md.getConsumerId());
                         if (dispatcher != null) {
-                            // Copy in case a embedded broker is dispatching via
-                            // vm://
-                            // md.getMessage() == null to signal end of queue
-                            // browse.
-                            Message msg = md.getMessage();
-                            if (msg != null) {
-                                msg = msg.copy();
-                                msg.setReadOnlyBody(true);
-                                msg.setReadOnlyProperties(true);
-                                msg.setRedeliveryCounter(md.getRedeliveryCounter());
-                                msg.setConnection(ActiveMQConnection.this);
-                                msg.setMemoryUsage(null);
-                                md.setMessage(msg);
-                            }
+                            prepareDispatchedMessage(md);
                             dispatcher.dispatch(md);
                         } else {
                             LOG.debug("{} no dispatcher for {} in {}", this, md, dispatchers);
@@ -1927,6 +1934,23 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
                         return null;
                     }
 
+                    @Override
+                    public Response processMessageDispatchBatch(MessageDispatchBatch batch) throws Exception {
+                        waitForTransportInterruptionProcessingToComplete();
+                        ActiveMQDispatcher dispatcher = dispatchers.get(batch.getConsumerId());
+                        if (dispatcher != null && batch.getDispatches() != null) {
+                            List<MessageDispatch> dispatches = new ArrayList<MessageDispatch>(batch.getDispatches().length);
+                            for (MessageDispatch md : batch.getDispatches()) {
+                                prepareDispatchedMessage(md);
+                                dispatches.add(md);
+                            }
+                            dispatcher.dispatch(dispatches);
+                        } else {
+                            LOG.debug("{} no dispatcher for {} in {}", this, batch, dispatchers);
+                        }
+                        return null;
+                    }
+
                     @Override
                     public Response processProducerAck(ProducerAck pa) throws Exception {
                         if (pa != null && pa.getProducerId() != null) {
@@ -2628,6 +2652,38 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
         this.optimizedAckScheduledAckInterval = optimizedAckScheduledAckInterval;
     }
 
+    public int getAckBatchSize() {
+        return ackBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of messages a single coalesced acknowledgement may cover for
+     * consumers that defer their acks (optimizeAcknowledge, DUPS_OK_ACKNOWLEDGE and the delivered
+     * acks of client and transacted sessions). The prefetch derived thresholds still apply as an
+     * upper bound. When set, the coalesced acks are sent asynchronously. Zero, the default, keeps
+     * the prefetch derived thresholds only.
+     *
+     * @param ackBatchSize the maximum number of messages per coalesced ack
+     */
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = ackBatchSize;
+    }
+
+    public long getAckBatchMaxLatency() {
+        return ackBatchMaxLatency;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds a deferred acknowledgement may be held by a consumer
+     * before it is flushed to the broker, even if no further messages arrive. When set, the
+     * coalesced acks are sent asynchronously. Zero, the default, disables the time bound.
+     *
+     * @param ackBatchMaxLatency the maximum ack latency in milliseconds
+     */
+    public void setAckBatchMaxLatency(long ackBatchMaxLatency) {
+        this.ackBatchMaxLatency = ackBatchMaxLatency;
+    }
+
     /**
      * @return true if MessageConsumer instance will check for expired messages before dispatch.
      */
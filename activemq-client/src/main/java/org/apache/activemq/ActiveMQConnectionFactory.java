@@ -127,6 +127,8 @@ public class ActiveMQConnectionFactory extends JNDIBaseStorable implements Conne
     private boolean optimizedMessageDispatch = true;
     private long optimizeAcknowledgeTimeOut = 300;
     private long optimizedAckScheduledAckInterval = 0;
+    private int ackBatchSize = 0;
+    private long ackBatchMaxLatency = 0;
     private boolean copyMessageOnSend = true;
     private boolean useCompression;
     private boolean objectMessageSerializationDefered;
@@ -425,6 +427,8 @@ public class ActiveMQConnectionFactory extends JNDIBaseStorable implements Conne
         connection.setOptimizeAcknowledge(isOptimizeAcknowledge());
         connection.setOptimizeAcknowledgeTimeOut(getOptimizeAcknowledgeTimeOut());
         connection.setOptimizedAckScheduledAckInterval(getOptimizedAckScheduledAckInterval());
+        connection.setAckBatchSize(getAckBatchSize());
+        connection.setAckBatchMaxLatency(getAckBatchMaxLatency());
         connection.setUseRetroactiveConsumer(isUseRetroactiveConsumer());
         connection.setExclusiveConsumer(isExclusiveConsumer());
         connection.setRedeliveryPolicyMap(getRedeliveryPolicyMap());
@@ -1270,6 +1274,38 @@ public class ActiveMQConnectionFactory extends JNDIBaseStorable implements Conne
         this.optimizedAckScheduledAckInterval = optimizedAckScheduledAckInterval;
     }
 
+    public int getAckBatchSize() {
+        return ackBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of messages a single coalesced acknowledgement may cover for
+     * consumers that defer their acks (optimizeAcknowledge, DUPS_OK_ACKNOWLEDGE and the delivered
+     * acks of client and transacted sessions). The prefetch derived thresholds still apply as an
+     * upper bound. When set, the coalesced acks are sent asynchronously. Zero, the default, keeps
+     * the prefetch derived thresholds only.
+     *
+     * @param ackBatchSize the maximum number of messages per coalesced ack
+     */
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = ackBatchSize;
+    }
+
+    public long getAckBatchMaxLatency() {
+        return ackBatchMaxLatency;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds a deferred acknowledgement may be held by a consumer
+     * before it is flushed to the broker, even if no further messages arrive. When set, the
+     * coalesced acks are sent asynchronously. Zero, the default, disables the time bound.
+     *
+     * @param ackBatchMaxLatency the maximum ack latency in milliseconds
+     */
+    public void setAckBatchMaxLatency(long ackBatchMaxLatency) {
+        this.ackBatchMaxLatency = ackBatchMaxLatency;
+    }
+
 
     public boolean isRmIdFromConnectionId() {
         return rmIdFromConnectionId;
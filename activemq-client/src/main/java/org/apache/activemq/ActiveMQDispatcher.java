@@ -16,8 +16,19 @@
  */
 package org.apache.activemq;
 
+import java.util.List;
+
 import org.apache.activemq.command.MessageDispatch;
 
 public interface ActiveMQDispatcher {
     void dispatch(MessageDispatch messageDispatch);
+
+    /**
+     * Dispatches a batch of messages that arrived in a single frame, in order.
+     */
+    default void dispatch(List<MessageDispatch> messageDispatches) {
+        for (MessageDispatch messageDispatch : messageDispatches) {
+            dispatch(messageDispatch);
+        }
+    }
 }
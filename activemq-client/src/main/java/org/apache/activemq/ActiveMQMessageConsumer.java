@@ -167,6 +167,19 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
     private long optimizeAcknowledgeTimeOut = 0;
     private long optimizedAckScheduledAckInterval = 0;
     private Runnable optimizedAckTask;
+    private int ackBatchSize;
+    private long ackBatchMaxLatency;
+    private final AtomicBoolean ackFlushScheduled = new AtomicBoolean();
+    private final Runnable ackFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            ackFlushScheduled.set(false);
+            if (!unconsumedMessages.isClosed() && !deliverAcks()) {
+                // another thread holds the acks, check again later rather than leave them pending
+                scheduleAckFlush();
+            }
+        }
+    };
     private long failoverRedeliveryWaitPeriod = 0;
     private boolean transactedIndividualAck = false;
     private boolean nonBlockingRedelivery = false;
@@ -279,6 +292,9 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
             setOptimizedAckScheduledAckInterval(session.connection.getOptimizedAckScheduledAckInterval());
         }
 
+        this.ackBatchSize = session.connection.getAckBatchSize();
+        this.ackBatchMaxLatency = session.connection.getAckBatchMaxLatency();
+
         this.info.setOptimizedAcknowledge(this.optimizeAcknowledge);
         this.failoverRedeliveryWaitPeriod = session.connection.getConsumerFailoverRedeliveryWaitPeriod();
         this.nonBlockingRedelivery = session.connection.isNonBlockingRedelivery();
@@ -543,7 +559,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
         MessageAck poisonAck = new MessageAck(md, MessageAck.POISON_ACK_TYPE, 1);
         poisonAck.setFirstMessageId(md.getMessage().getMessageId());
         poisonAck.setPoisonCause(new Throwable(cause));
-        session.sendAck(poisonAck);
+        sendAck(poisonAck);
     }
 
     private boolean redeliveryExceeded(MessageDispatch md) {
@@ -787,7 +803,11 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
         }
     }
 
-    void deliverAcks() {
+    /**
+     * @return false if the acks could not be delivered because another thread was already
+     *         delivering acknowledgements for this consumer.
+     */
+    boolean deliverAcks() {
         MessageAck ack = null;
         if (deliveryingAcknowledgements.compareAndSet(false, true)) {
             synchronized(deliveredMessages) {
@@ -815,7 +835,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                     @Override
                     public void run() {
                         try {
-                            session.sendAck(ackToSend,true);
+                            sendAck(ackToSend,true);
                         } catch (JMSException e) {
                             LOG.error(getConsumerId() + " failed to deliver acknowledgements", e);
                         } finally {
@@ -826,7 +846,9 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
             } else {
                 deliveryingAcknowledgements.set(false);
             }
+            return true;
         }
+        return false;
     }
 
     public void dispose() throws JMSException {
@@ -848,6 +870,9 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                 this.session.connection.getScheduler().cancel(optimizedAckTask);
                 optimizedAckTask = null;
             }
+            if (ackFlushScheduled.compareAndSet(true, false)) {
+                this.session.connection.getScheduler().cancel(ackFlushTask);
+            }
 
             if (session.isClientAcknowledge() || session.isIndividualAcknowledge()) {
                 if (!this.info.isBrowser()) {
@@ -950,7 +975,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
         registerSync();
         MessageAck ack = new MessageAck(md, MessageAck.INDIVIDUAL_ACK_TYPE, 1);
         ack.setTransactionId(session.getTransactionContext().getTransactionId());
-        session.sendAck(ack);
+        sendAck(ack);
     }
 
     private void afterMessageIsConsumed(MessageDispatch md, boolean messageExpired) throws JMSException {
@@ -973,12 +998,12 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
 
                                 // AMQ-3956 evaluate both expired and normal msgs as
                                 // otherwise consumer may get stalled
-                                if (ackCounter + deliveredCounter >= (info.getPrefetchSize() * .65) || (optimizeAcknowledgeTimeOut > 0 && System.currentTimeMillis() >= (optimizeAckTimestamp + optimizeAcknowledgeTimeOut))) {
+                                if (ackCounter + deliveredCounter >= ackBatchThreshold(.65) || (optimizeAcknowledgeTimeOut > 0 && System.currentTimeMillis() >= (optimizeAckTimestamp + optimizeAcknowledgeTimeOut))) {
                                     MessageAck ack = makeAckForAllDeliveredMessages(MessageAck.STANDARD_ACK_TYPE);
                                     if (ack != null) {
                                         deliveredMessages.clear();
                                         ackCounter = 0;
-                                        session.sendAck(ack);
+                                        sendAck(ack, isAckPipelined());
                                         optimizeAckTimestamp = System.currentTimeMillis();
                                     }
                                     // AMQ-3956 - as further optimization send
@@ -988,16 +1013,18 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                                     // because the deliveredCounter just below
                                     // 0.5 * prefetch as used in ackLater()
                                     if (pendingAck != null && deliveredCounter > 0) {
-                                        session.sendAck(pendingAck);
+                                        sendAck(pendingAck, isAckPipelined());
                                         pendingAck = null;
                                         deliveredCounter = 0;
                                     }
+                                } else {
+                                    scheduleAckFlush();
                                 }
                             } else {
                                 MessageAck ack = makeAckForAllDeliveredMessages(MessageAck.STANDARD_ACK_TYPE);
                                 if (ack!=null) {
                                     deliveredMessages.clear();
-                                    session.sendAck(ack);
+                                    sendAck(ack);
                                 }
                             }
                         }
@@ -1064,23 +1091,65 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                 // ack and hence important, send it now so it is not lost.
                 if (!oldPendingAck.isDeliveredAck()) {
                     LOG.debug("Sending old pending ack {}, new pending: {}", oldPendingAck, pendingAck);
-                    session.sendAck(oldPendingAck);
+                    sendAck(oldPendingAck);
                 } else {
                     LOG.debug("dropping old pending ack {}, new pending: {}", oldPendingAck, pendingAck);
                 }
             }
             // AMQ-3956 evaluate both expired and normal msgs as
             // otherwise consumer may get stalled
-            if ((0.5 * info.getPrefetchSize()) <= (deliveredCounter + ackCounter - additionalWindowSize)) {
+            if (ackBatchThreshold(0.5) <= (deliveredCounter + ackCounter - additionalWindowSize)) {
                 LOG.debug("ackLater: sending: {}", pendingAck);
-                session.sendAck(pendingAck);
+                sendAck(pendingAck, isAckPipelined());
                 pendingAck=null;
                 deliveredCounter = 0;
                 additionalWindowSize = 0;
+            } else if (pendingAck.isStandardAck()) {
+                scheduleAckFlush();
             }
         }
     }
 
+    /**
+     * The number of deferred messages at which a coalesced ack is sent: the given
+     * fraction of the prefetch, capped by the configured ackBatchSize.
+     */
+    private double ackBatchThreshold(double prefetchFraction) {
+        double threshold = info.getPrefetchSize() * prefetchFraction;
+        if (ackBatchSize > 0) {
+            threshold = Math.min(threshold, ackBatchSize);
+        }
+        return threshold;
+    }
+
+    private boolean isAckPipelined() {
+        return ackBatchSize > 0 || ackBatchMaxLatency > 0;
+    }
+
+    /**
+     * Bounds the time a deferred standard ack is held when no further messages arrive
+     * to trigger it; at most one flush is pending per consumer.
+     */
+    private void scheduleAckFlush() {
+        if (ackBatchMaxLatency > 0 && ackFlushScheduled.compareAndSet(false, true)) {
+            try {
+                session.getScheduler().executeAfterDelay(ackFlushTask, ackBatchMaxLatency);
+            } catch (JMSException e) {
+                ackFlushScheduled.set(false);
+                LOG.debug("Caught exception while scheduling ack flush", e);
+            }
+        }
+    }
+
+    private void sendAck(MessageAck ack) throws JMSException {
+        sendAck(ack, false);
+    }
+
+    private void sendAck(MessageAck ack, boolean lazy) throws JMSException {
+        session.sendAck(ack, lazy);
+        stats.onAck(ack);
+    }
+
     private void registerSync() throws JMSException {
         session.doStartTransaction();
         if (!synchronizationRegistered) {
@@ -1138,7 +1207,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
             }
 
             pendingAck = null;
-            session.sendAck(ack);
+            sendAck(ack);
 
             // Adjust the counters
             deliveredCounter = Math.max(0, deliveredCounter - deliveredMessages.size());
@@ -1212,7 +1281,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
         if (ack.isExpiredAck()) {
             ack.setFirstMessageId(ack.getLastMessageId());
         }
-        session.sendAck(ack);
+        sendAck(ack);
         synchronized(deliveredMessages){
             deliveredMessages.remove(md);
         }
@@ -1267,7 +1336,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                     ack.setFirstMessageId(firstMsgId);
                     ack.setPoisonCause(new Throwable("Delivery[" + lastMd.getMessage().getRedeliveryCounter()  + "] exceeds redelivery policy limit:" + redeliveryPolicy
                             + ", cause:" + lastMd.getRollbackCause(), lastMd.getRollbackCause()));
-                    session.sendAck(ack,true);
+                    sendAck(ack,true);
                     // Adjust the window size.
                     additionalWindowSize = Math.max(0, additionalWindowSize - deliveredMessages.size());
 
@@ -1290,7 +1359,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                     if (currentRedeliveryCount > 0) {
                         MessageAck ack = new MessageAck(lastMd, MessageAck.REDELIVERED_ACK_TYPE, deliveredMessages.size());
                         ack.setFirstMessageId(firstMsgId);
-                        session.sendAck(ack,true);
+                        sendAck(ack,true);
                     }
 
                     final LinkedList<MessageDispatch> pendingSessionRedelivery =
@@ -1476,7 +1545,7 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                             if (transactedIndividualAck) {
                                 immediateIndividualTransactedAck(md);
                             } else {
-                                session.sendAck(new MessageAck(md, MessageAck.DELIVERED_ACK_TYPE, 1));
+                                sendAck(new MessageAck(md, MessageAck.DELIVERED_ACK_TYPE, 1));
                             }
                         } else if ((consumerWithPendingTransaction = redeliveryPendingInCompetingTransaction(md)) != null) {
                             LOG.warn("{} delivering duplicate {}, pending transaction completion on {} will rollback", getConsumerId(), md.getMessage(), consumerWithPendingTransaction);
@@ -16,7 +16,9 @@
  */
 package org.apache.activemq;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -292,6 +294,82 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
     public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive, boolean disableMessageID, boolean disableMessageTimestamp, AsyncCallback onComplete) throws JMSException {
 
         checkClosed();
+        ActiveMQDestination dest = resolveDestination(destination);
+        message = transform(message);
+
+        if (producerWindow != null) {
+            try {
+                producerWindow.waitForSpace();
+            } catch (InterruptedException e) {
+                throw new JMSException("Send aborted due to thread interrupt.");
+            }
+        }
+
+        this.session.send(this, dest, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, producerWindow, sendTimeout, onComplete);
+
+        stats.onMessage();
+    }
+
+    /**
+     * Sends a batch of messages to the producer's default destination using the
+     * default delivery mode, priority and time to live.
+     *
+     * @param messages the messages to send, in order
+     * @throws JMSException if the batch could not be sent, in which case none of
+     *                 its messages are delivered.
+     * @see #send(Destination, List, int, int, long)
+     */
+    public void send(List<Message> messages) throws JMSException {
+        this.send(this.getDestination(), messages, this.defaultDeliveryMode, this.defaultPriority, this.defaultTimeToLive);
+    }
+
+    /**
+     * Sends a batch of messages to the given destination using the default
+     * delivery mode, priority and time to live.
+     *
+     * @param destination the destination to send the messages to
+     * @param messages the messages to send, in order
+     * @throws JMSException if the batch could not be sent, in which case none of
+     *                 its messages are delivered.
+     * @see #send(Destination, List, int, int, long)
+     */
+    public void send(Destination destination, List<Message> messages) throws JMSException {
+        this.send(destination, messages, this.defaultDeliveryMode, this.defaultPriority, this.defaultTimeToLive);
+    }
+
+    /**
+     * Sends a batch of messages that the broker processes as a single unit.
+     * <P>
+     * Outside of a transacted session the whole batch is acknowledged by a single
+     * response from the broker, so persistent messages cost one round trip and one
+     * store write per batch rather than per message.  Inside a transacted session
+     * the messages are added to the current transaction.
+     *
+     * @param destination the destination to send the messages to
+     * @param messages the messages to send, in order
+     * @param deliveryMode the delivery mode to use
+     * @param priority the priority for the messages
+     * @param timeToLive the messages' lifetime (in milliseconds)
+     * @throws JMSException if the batch could not be sent, in which case none of
+     *                 its messages are delivered.
+     */
+    public void send(Destination destination, List<Message> messages, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        checkClosed();
+        ActiveMQDestination dest = resolveDestination(destination);
+
+        List<Message> batch = new ArrayList<Message>(messages.size());
+        for (Message message : messages) {
+            batch.add(transform(message));
+        }
+
+        this.session.send(this, dest, batch, deliveryMode, priority, timeToLive, getDisableMessageID(), getDisableMessageTimestamp(), producerWindow, sendTimeout);
+
+        for (int i = 0; i < batch.size(); i++) {
+            stats.onMessage();
+        }
+    }
+
+    private ActiveMQDestination resolveDestination(Destination destination) throws JMSException {
         if (destination == null) {
             if (info.getDestination() == null) {
                 throw new UnsupportedOperationException("A destination must be specified.");
@@ -310,25 +388,17 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
         if (dest == null) {
             throw new JMSException("No destination specified");
         }
+        return dest;
+    }
 
+    private Message transform(Message message) throws JMSException {
         if (transformer != null) {
             Message transformedMessage = transformer.producerTransform(session, this, message);
             if (transformedMessage != null) {
-                message = transformedMessage;
+                return transformedMessage;
             }
         }
-
-        if (producerWindow != null) {
-            try {
-                producerWindow.waitForSpace();
-            } catch (InterruptedException e) {
-                throw new JMSException("Send aborted due to thread interrupt.");
-            }
-        }
-
-        this.session.send(this, dest, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, producerWindow, sendTimeout, onComplete);
-
-        stats.onMessage();
+        return message;
     }
 
     public MessageTransformer getTransformer() {
@@ -77,6 +77,7 @@ import org.apache.activemq.command.ActiveMQTopic;
 import org.apache.activemq.command.Command;
 import org.apache.activemq.command.CommandTypes;
 import org.apache.activemq.command.ConsumerId;
+import org.apache.activemq.command.LocalTransactionId;
 import org.apache.activemq.command.MessageAck;
 import org.apache.activemq.command.MessageDispatch;
 import org.apache.activemq.command.MessageId;
@@ -86,6 +87,7 @@ import org.apache.activemq.command.Response;
 import org.apache.activemq.command.SessionId;
 import org.apache.activemq.command.SessionInfo;
 import org.apache.activemq.command.TransactionId;
+import org.apache.activemq.command.TransactionInfo;
 import org.apache.activemq.management.JMSSessionStatsImpl;
 import org.apache.activemq.management.StatsCapable;
 import org.apache.activemq.management.StatsImpl;
@@ -1791,6 +1793,16 @@ public class ActiveMQSession implements Session, QueueSession, TopicSession, Sta
         }
     }
 
+    @Override
+    public void dispatch(List<MessageDispatch> messageDispatches) {
+        try {
+            executor.execute(messageDispatches);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            connection.onClientInternalException(e);
+        }
+    }
+
     /**
      * Acknowledges all consumed messages of the session of this consumed
      * message.
@@ -1975,77 +1987,164 @@ public class ActiveMQSession implements Session, QueueSession, TopicSession, Sta
                 throw new IllegalStateException("transaction marked rollback only");
             }
             TransactionId txid = transactionContext.getTransactionId();
-            long sequenceNumber = producer.getMessageSequence();
-
-            //Set the "JMS" header fields on the original message, see 1.1 spec section 3.4.11
-            message.setJMSDeliveryMode(deliveryMode);
-            long expiration = 0L;
-            long timeStamp = System.currentTimeMillis();
-            if (timeToLive > 0) {
-                expiration = timeToLive + timeStamp;
-            }
+            doSend(producer, destination, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, txid, producerWindow, sendTimeout, onComplete);
+        }
+    }
 
-            // TODO: AMQ-8500 - update this when openwire supports JMSDeliveryTime
-            // ref: ActiveMQMessageTransformation#copyProperties
-            if(!(message instanceof ActiveMQMessage)) {
-                setForeignMessageDeliveryTime(message, timeStamp);
-            } else {
-                message.setJMSDeliveryTime(timeStamp);
-            }
-            if (!disableMessageTimestamp && !producer.getDisableMessageTimestamp()) {
-                message.setJMSTimestamp(timeStamp);
-            } else {
-                message.setJMSTimestamp(0l);
-            }
-            message.setJMSExpiration(expiration);
-            message.setJMSPriority(priority);
-            message.setJMSRedelivered(false);
-
-            // transform to our own message format here
-            ActiveMQMessage msg = ActiveMQMessageTransformation.transformMessage(message, connection);
-            msg.setDestination(destination);
-            msg.setMessageId(new MessageId(producer.getProducerInfo().getProducerId(), sequenceNumber));
-
-            // Set the message id.
-            if (msg != message) {
-                message.setJMSMessageID(msg.getMessageId().toString());
-                // Make sure the JMS destination is set on the foreign messages too.
-                message.setJMSDestination(destination);
-            }
-            //clear the brokerPath in case we are re-sending this message
-            msg.setBrokerPath(null);
+    /**
+     * Sends a batch of messages for dispatch by the broker as a single unit of work.
+     * <P>
+     * If the session is transacted the messages simply join the current transaction.
+     * Otherwise they are sent asynchronously inside a private local transaction whose
+     * commit is the only synchronous request, so the whole batch costs the producer a
+     * single round trip and is written by the broker's store as one batch.  If any
+     * message of the batch is rejected by the broker none of them are delivered.
+     *
+     * @param producer - message producer.
+     * @param destination - message destination.
+     * @param messages - messages to be sent, in order.
+     * @param deliveryMode - JMS message delivery mode.
+     * @param priority - message priority.
+     * @param timeToLive - message expiration.
+     * @param disableMessageID - optionally, disable messageID.
+     * @param disableMessageTimestamp - disable timestamp.
+     * @param producerWindow
+     * @param sendTimeout
+     * @throws JMSException
+     */
+    protected void send(ActiveMQMessageProducer producer, ActiveMQDestination destination, List<Message> messages, int deliveryMode, int priority, long timeToLive,
+                        boolean disableMessageID, boolean disableMessageTimestamp, MemoryUsage producerWindow, int sendTimeout) throws JMSException {
 
-            msg.setTransactionId(txid);
-            if (connection.isCopyMessageOnSend()) {
-                msg = (ActiveMQMessage)msg.copy();
+        checkClosed();
+        if (destination.isTemporary() && connection.isDeleted(destination)) {
+            throw new InvalidDestinationException("Cannot publish to a deleted Destination: " + destination);
+        }
+        synchronized (sendMutex) {
+            if (isTransacted()) {
+                for (Message message : messages) {
+                    waitForSpace(producerWindow);
+                    send(producer, destination, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, producerWindow, 0, null);
+                }
+                return;
             }
-            msg.setConnection(connection);
-            msg.onSend();
-            msg.setProducerId(msg.getMessageId().getProducerId());
-            if (LOG.isTraceEnabled()) {
-                LOG.trace(getSessionId() + " sending message: " + msg);
+
+            if (messages.isEmpty()) {
+                return;
             }
-            if (onComplete==null && sendTimeout <= 0 && !msg.isResponseRequired() && !connection.isAlwaysSyncSend() && (!msg.isPersistent() || connection.isUseAsyncSend() || txid != null)) {
-                this.connection.asyncSendPacket(msg);
-                if (producerWindow != null) {
-                    // Since we defer lots of the marshaling till we hit the
-                    // wire, this might not
-                    // provide and accurate size. We may change over to doing
-                    // more aggressive marshaling,
-                    // to get more accurate sizes.. this is more important once
-                    // users start using producer window
-                    // flow control.
-                    int size = msg.getSize();
-                    producerWindow.increaseUsage(size);
+
+            LocalTransactionId txid = new LocalTransactionId(connection.getConnectionInfo().getConnectionId(),
+                                                             connection.getLocalTransactionIdGenerator().getNextSequenceId());
+            connection.ensureConnectionInfoSent();
+            connection.asyncSendPacket(new TransactionInfo(txid.getConnectionId(), txid, TransactionInfo.BEGIN));
+
+            boolean commitSent = false;
+            try {
+                for (Message message : messages) {
+                    waitForSpace(producerWindow);
+                    doSend(producer, destination, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, txid, producerWindow, 0, null);
                 }
-            } else {
-                if (sendTimeout > 0 && onComplete==null) {
-                    this.connection.syncSendPacket(msg,sendTimeout);
-                }else {
-                    this.connection.syncSendPacket(msg, onComplete);
+
+                TransactionInfo commit = new TransactionInfo(txid.getConnectionId(), txid, TransactionInfo.COMMIT_ONE_PHASE);
+                commitSent = true;
+                if (sendTimeout > 0) {
+                    connection.syncSendPacket(commit, sendTimeout);
+                } else {
+                    connection.syncSendPacket(commit);
+                }
+            } finally {
+                if (!commitSent) {
+                    try {
+                        connection.asyncSendPacket(new TransactionInfo(txid.getConnectionId(), txid, TransactionInfo.ROLLBACK));
+                    } catch (JMSException e) {
+                        LOG.debug("Failed to roll back the batch send transaction {}", txid, e);
+                    }
                 }
             }
+        }
+    }
+
+    private void waitForSpace(MemoryUsage producerWindow) throws JMSException {
+        if (producerWindow != null) {
+            try {
+                producerWindow.waitForSpace();
+            } catch (InterruptedException e) {
+                throw new JMSException("Send aborted due to thread interrupt.");
+            }
+        }
+    }
+
+    private void doSend(ActiveMQMessageProducer producer, ActiveMQDestination destination, Message message, int deliveryMode, int priority, long timeToLive,
+                        boolean disableMessageID, boolean disableMessageTimestamp, TransactionId txid, MemoryUsage producerWindow, int sendTimeout,
+                        AsyncCallback onComplete) throws JMSException {
+        long sequenceNumber = producer.getMessageSequence();
+
+        //Set the "JMS" header fields on the original message, see 1.1 spec section 3.4.11
+        message.setJMSDeliveryMode(deliveryMode);
+        long expiration = 0L;
+        long timeStamp = System.currentTimeMillis();
+        if (timeToLive > 0) {
+            expiration = timeToLive + timeStamp;
+        }
+
+        // TODO: AMQ-8500 - update this when openwire supports JMSDeliveryTime
+        // ref: ActiveMQMessageTransformation#copyProperties
+        if(!(message instanceof ActiveMQMessage)) {
+            setForeignMessageDeliveryTime(message, timeStamp);
+        } else {
+            message.setJMSDeliveryTime(timeStamp);
+        }
+        if (!disableMessageTimestamp && !producer.getDisableMessageTimestamp()) {
+            message.setJMSTimestamp(timeStamp);
+        } else {
+            message.setJMSTimestamp(0l);
+        }
+        message.setJMSExpiration(expiration);
+        message.setJMSPriority(priority);
+        message.setJMSRedelivered(false);
+
+        // transform to our own message format here
+        ActiveMQMessage msg = ActiveMQMessageTransformation.transformMessage(message, connection);
+        msg.setDestination(destination);
+        msg.setMessageId(new MessageId(producer.getProducerInfo().getProducerId(), sequenceNumber));
+
+        // Set the message id.
+        if (msg != message) {
+            message.setJMSMessageID(msg.getMessageId().toString());
+            // Make sure the JMS destination is set on the foreign messages too.
+            message.setJMSDestination(destination);
+        }
+        //clear the brokerPath in case we are re-sending this message
+        msg.setBrokerPath(null);
 
+        msg.setTransactionId(txid);
+        if (connection.isCopyMessageOnSend()) {
+            msg = (ActiveMQMessage)msg.copy();
+        }
+        msg.setConnection(connection);
+        msg.onSend();
+        msg.setProducerId(msg.getMessageId().getProducerId());
+        if (LOG.isTraceEnabled()) {
+            LOG.trace(getSessionId() + " sending message: " + msg);
+        }
+        if (onComplete==null && sendTimeout <= 0 && !msg.isResponseRequired() && !connection.isAlwaysSyncSend() && (!msg.isPersistent() || connection.isUseAsyncSend() || txid != null)) {
+            this.connection.asyncSendPacket(msg);
+            if (producerWindow != null) {
+                // Since we defer lots of the marshaling till we hit the
+                // wire, this might not
+                // provide and accurate size. We may change over to doing
+                // more aggressive marshaling,
+                // to get more accurate sizes.. this is more important once
+                // users start using producer window
+                // flow control.
+                int size = msg.getSize();
+                producerWindow.increaseUsage(size);
+            }
+        } else {
+            if (sendTimeout > 0 && onComplete==null) {
+                this.connection.syncSendPacket(msg,sendTimeout);
+            }else {
+                this.connection.syncSendPacket(msg, onComplete);
+            }
         }
     }
 
@@ -57,7 +57,33 @@ public class ActiveMQSessionExecutor implements Task {
     }
 
     void execute(MessageDispatch message) throws InterruptedException {
+        checkConnectionStarted(message);
 
+        if (!session.isSessionAsyncDispatch() && !dispatchedBySessionPool) {
+            dispatch(message);
+        } else {
+            messageQueue.enqueue(message);
+            wakeup();
+        }
+    }
+
+    void execute(List<MessageDispatch> messages) throws InterruptedException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        checkConnectionStarted(messages.get(0));
+
+        if (!session.isSessionAsyncDispatch() && !dispatchedBySessionPool) {
+            for (MessageDispatch message : messages) {
+                dispatch(message);
+            }
+        } else {
+            messageQueue.enqueueAll(messages);
+            wakeup();
+        }
+    }
+
+    private void checkConnectionStarted(MessageDispatch message) {
         if (!startedOrWarnedThatNotStarted) {
 
             ActiveMQConnection connection = session.connection;
@@ -76,13 +102,6 @@ public class ActiveMQSessionExecutor implements Task {
                 }
             }
         }
-
-        if (!session.isSessionAsyncDispatch() && !dispatchedBySessionPool) {
-            dispatch(message);
-        } else {
-            messageQueue.enqueue(message);
-            wakeup();
-        }
     }
 
     public void wakeup() {
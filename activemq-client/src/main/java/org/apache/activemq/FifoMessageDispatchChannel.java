@@ -42,6 +42,14 @@ public class FifoMessageDispatchChannel implements MessageDispatchChannel {
         }
     }
 
+    @Override
+    public void enqueueAll(List<MessageDispatch> messages) {
+        synchronized (mutex) {
+            list.addAll(messages);
+            mutex.notifyAll();
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.apache.activemq.MessageDispatchChannelI#enqueueFirst(org.apache.activemq.command.MessageDispatch)
      */
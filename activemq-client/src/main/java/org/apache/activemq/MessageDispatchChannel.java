@@ -26,6 +26,12 @@ public interface MessageDispatchChannel {
 
     public abstract void enqueueFirst(MessageDispatch message);
 
+    /**
+     * Enqueues all of the given messages, in order, while holding the channel
+     * mutex only once.
+     */
+    public abstract void enqueueAll(List<MessageDispatch> messages);
+
     public abstract boolean isEmpty();
 
     /**
@@ -52,6 +52,22 @@ public class SimplePriorityMessageDispatchChannel implements MessageDispatchChan
         }
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.activemq.MessageDispatchChannelI#enqueueAll(java.util.List)
+     */
+    @Override
+    public void enqueueAll(List<MessageDispatch> messages) {
+        synchronized (mutex) {
+            for (MessageDispatch message : messages) {
+                getList(message).addLast(message);
+            }
+            this.size += messages.size();
+            mutex.notifyAll();
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -115,6 +115,25 @@ public class ActiveMQBytesMessage extends ActiveMQMessage implements BytesMessag
         copy.dataIn = null;
     }
 
+    @Override
+    public ByteSequence getBodyBytes() throws JMSException {
+        ByteSequence content = getContent();
+        if (content != null && dataOut == null && !isCompressed()) {
+            return new ByteSequence(content.data, content.offset, content.length);
+        }
+
+        ByteSequence body = getCachedBodyBytes();
+        if (body == null) {
+            // Read through a copy so that the read position of this message is left alone
+            ActiveMQBytesMessage copy = (ActiveMQBytesMessage) copy();
+            copy.setReadOnlyBody(true);
+            byte[] data = new byte[(int) copy.getBodyLength()];
+            copy.readBytes(data);
+            body = cacheBodyBytes(data);
+        }
+        return body;
+    }
+
     @Override
     public void onSend() throws JMSException {
         super.onSend();
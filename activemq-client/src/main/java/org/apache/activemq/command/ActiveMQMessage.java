@@ -35,6 +35,7 @@ import org.apache.activemq.ScheduledMessage;
 import org.apache.activemq.broker.scheduler.CronParser;
 import org.apache.activemq.filter.PropertyExpression;
 import org.apache.activemq.state.CommandVisitor;
+import org.apache.activemq.util.ByteSequence;
 import org.apache.activemq.util.Callback;
 import org.apache.activemq.util.JMSExceptionSupport;
 import org.apache.activemq.util.TypeConversionSupport;
@@ -50,6 +51,7 @@ public class ActiveMQMessage extends Message implements org.apache.activemq.Mess
     public static final String BROKER_PATH_PROPERTY = "JMSActiveMQBrokerPath";
 
     private static final Map<String, PropertySetter> JMS_PROPERTY_SETERS = new HashMap<String, PropertySetter>();
+    private static final Object BODY_BYTES_KEY = new Object();
 
     protected transient Callback acknowledgeCallback;
 
@@ -114,6 +116,37 @@ public class ActiveMQMessage extends Message implements org.apache.activemq.Mess
         readOnlyBody = false;
     }
 
+    /**
+     * Returns the body of this message as the plain bytes that the other wire protocols
+     * carry: the raw bytes of a BytesMessage or the UTF-8 encoded text of a TextMessage.
+     * When the stored content already holds those bytes the result is a view of it,
+     * otherwise the body is converted. The conversion of a topic message is cached on the
+     * message so that the converters of every subscriber it fans out to slice the same
+     * buffer, a queue message is normally converted once so its conversion is not kept.
+     * The returned bytes may be shared and must not be modified.
+     *
+     * @return the body, or null if this message type has no such representation or
+     *         the message carries no body.
+     *
+     * @throws JMSException if the content of the message cannot be decoded.
+     */
+    public ByteSequence getBodyBytes() throws JMSException {
+        return null;
+    }
+
+    protected ByteSequence getCachedBodyBytes() {
+        ByteSequence body = (ByteSequence) getProtocolEncoding(BODY_BYTES_KEY);
+        return body != null ? new ByteSequence(body.data, body.offset, body.length) : null;
+    }
+
+    protected ByteSequence cacheBodyBytes(byte[] body) {
+        // the cached copy is not accounted for by the memory usage of the destination
+        if (getDestination() != null && getDestination().isTopic()) {
+            setProtocolEncoding(BODY_BYTES_KEY, new ByteSequence(body));
+        }
+        return new ByteSequence(body);
+    }
+
     @Override
     public String getJMSMessageID() {
         MessageId messageId = this.getMessageId();
@@ -21,6 +21,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterInputStream;
@@ -88,6 +89,48 @@ public class ActiveMQTextMessage extends ActiveMQMessage implements TextMessage
         return text;
     }
 
+    @Override
+    public ByteSequence getBodyBytes() throws JMSException {
+        ByteSequence content = getContent();
+        if (content != null && !isCompressed() && content.length >= 4) {
+            byte[] data = content.data;
+            int offset = content.offset;
+            int size = ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16) |
+                       ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+            if (size < 0) {
+                return null;
+            }
+            // The content holds the text after a four byte size prefix in modified UTF-8,
+            // which is plain UTF-8 unless the text has null or supplementary characters
+            if (size <= content.length - 4 && isPlainUTF8(data, offset + 4, size)) {
+                return new ByteSequence(data, offset + 4, size);
+            }
+        }
+
+        ByteSequence body = getCachedBodyBytes();
+        if (body == null) {
+            String text = this.text;
+            if (text == null && content != null) {
+                text = decodeContent(content);
+            }
+            if (text == null) {
+                return null;
+            }
+            body = cacheBodyBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return body;
+    }
+
+    private static boolean isPlainUTF8(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            // 0xC0 starts the two byte form of null, 0xED the encoded surrogates
+            if (data[i] == (byte) 0xC0 || data[i] == (byte) 0xED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private String decodeContent(ByteSequence bodyAsBytes) throws JMSException {
         String text = null;
         if (bodyAsBytes != null) {
@@ -35,6 +35,9 @@ public interface CommandTypes {
     // What is the first version that BROKER_SUBSCRIPTION_INFO is supported
     byte PROTOCOL_VERSION_DURABLE_SYNC = 12;
 
+    // What is the first version that MESSAGE_DISPATCH_BATCH is supported
+    byte PROTOCOL_VERSION_DISPATCH_BATCH = 12;
+
     // A marshaling layer can use this type to specify a null object.
     byte NULL = 0;
 
@@ -72,6 +75,7 @@ public interface CommandTypes {
     byte MESSAGE_PULL = 20;
     byte MESSAGE_DISPATCH = 21;
     byte MESSAGE_ACK = 22;
+    byte MESSAGE_DISPATCH_BATCH = 35;
 
     byte ACTIVEMQ_MESSAGE = 23;
     byte ACTIVEMQ_BYTES_MESSAGE = 24;
@@ -25,6 +25,8 @@ import java.io.OutputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.DeflaterOutputStream;
 
@@ -98,6 +100,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
     transient MessageDestination regionDestination;
     transient MemoryUsage memoryUsage;
     transient AtomicBoolean processAsExpired = new AtomicBoolean(false);
+    private transient volatile ConcurrentMap<Object, Object> protocolEncodings;
 
     private BrokerId[] brokerPath;
     private BrokerId[] cluster;
@@ -218,6 +221,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
     public void clearProperties() {
         marshalledProperties = null;
         properties = null;
+        clearProtocolEncodings();
     }
 
     public void setProperty(String name, Object value) throws IOException {
@@ -231,6 +235,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
     }
 
     protected void lazyCreateProperties() throws IOException {
+        clearProtocolEncodings();
         if (properties == null) {
             if (marshalledProperties == null) {
                 properties = new HashMap<String, Object>();
@@ -243,6 +248,43 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
         }
     }
 
+    /**
+     * Returns an encoding of this message that a protocol converter cached with
+     * {@link #setProtocolEncoding(Object, Object)}, so that a message dispatched to
+     * many consumers of the same protocol is only converted once.
+     *
+     * @param key
+     *        identifies the converter that created the encoding.
+     *
+     * @return the cached encoding or null if there is none.
+     */
+    public Object getProtocolEncoding(Object key) {
+        ConcurrentMap<Object, Object> encodings = protocolEncodings;
+        return encodings != null ? encodings.get(key) : null;
+    }
+
+    /**
+     * Caches an encoding of this message for the converter identified by the key. The
+     * encodings are transient, are not copied with the message and are dropped when
+     * its properties, content or destination change.
+     */
+    public void setProtocolEncoding(Object key, Object encoding) {
+        ConcurrentMap<Object, Object> encodings = protocolEncodings;
+        if (encodings == null) {
+            synchronized (this) {
+                encodings = protocolEncodings;
+                if (encodings == null) {
+                    protocolEncodings = encodings = new ConcurrentHashMap<Object, Object>(2);
+                }
+            }
+        }
+        encodings.put(key, encoding);
+    }
+
+    public void clearProtocolEncodings() {
+        protocolEncodings = null;
+    }
+
     private Map<String, Object> unmarsallProperties(ByteSequence marshalledProperties) throws IOException {
         return MarshallingSupport.unmarshalPrimitiveMap(new DataInputStream(new ByteArrayInputStream(marshalledProperties)));
     }
@@ -297,6 +339,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setDestination(ActiveMQDestination destination) {
         this.destination = destination;
+        clearProtocolEncodings();
     }
 
     /**
@@ -466,6 +509,7 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 
     public void setContent(ByteSequence content) {
         this.content = content;
+        clearProtocolEncodings();
     }
 
     /**
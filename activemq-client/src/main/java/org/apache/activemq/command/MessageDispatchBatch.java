@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.command;
+
+import org.apache.activemq.state.CommandVisitor;
+
+/**
+ * Carries several {@link MessageDispatch}es for the same consumer in a single
+ * frame. The broker only sends it to clients that negotiated batched dispatch
+ * through their {@link WireFormatInfo}.
+ *
+ * @openwire:marshaller code="35"
+ *
+ */
+public class MessageDispatchBatch extends BaseCommand {
+
+    public static final byte DATA_STRUCTURE_TYPE = CommandTypes.MESSAGE_DISPATCH_BATCH;
+
+    protected ConsumerId consumerId;
+    protected MessageDispatch[] dispatches;
+
+    public MessageDispatchBatch() {
+    }
+
+    public MessageDispatchBatch(ConsumerId consumerId, MessageDispatch[] dispatches) {
+        this.consumerId = consumerId;
+        this.dispatches = dispatches;
+    }
+
+    @Override
+    public byte getDataStructureType() {
+        return DATA_STRUCTURE_TYPE;
+    }
+
+    /**
+     * @openwire:property version=12 cache=true
+     */
+    public ConsumerId getConsumerId() {
+        return consumerId;
+    }
+
+    public void setConsumerId(ConsumerId consumerId) {
+        this.consumerId = consumerId;
+    }
+
+    /**
+     * @openwire:property version=12
+     */
+    public MessageDispatch[] getDispatches() {
+        return dispatches;
+    }
+
+    public void setDispatches(MessageDispatch[] dispatches) {
+        this.dispatches = dispatches;
+    }
+
+    @Override
+    public Response visit(CommandVisitor visitor) throws Exception {
+        return visitor.processMessageDispatchBatch(this);
+    }
+}
@@ -354,6 +354,17 @@ public class WireFormatInfo implements Command, MarshallAware {
         setProperty("PlatformDetails", platformDetails);
     }
 
+    /**
+     * @throws IOException
+     */
+    public boolean isBatchedDispatchEnabled() throws IOException {
+        return Boolean.TRUE == getProperty("BatchedDispatchEnabled");
+    }
+
+    public void setBatchedDispatchEnabled(boolean batchedDispatchEnabled) throws IOException {
+        setProperty("BatchedDispatchEnabled", batchedDispatchEnabled ? Boolean.TRUE : Boolean.FALSE);
+    }
+
     public boolean isMaxFrameSizeEnabled() throws IOException {
         return Boolean.TRUE == getProperty("MaxFrameSizeEnabled");
     }
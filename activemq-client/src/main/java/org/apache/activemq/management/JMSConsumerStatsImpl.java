@@ -16,8 +16,11 @@
  */
 package org.apache.activemq.management;
 
+import java.util.Set;
+
 import jakarta.jms.Destination;
 
+import org.apache.activemq.command.MessageAck;
 import org.apache.activemq.util.IndentPrinter;
 
 /**
@@ -27,24 +30,63 @@ import org.apache.activemq.util.IndentPrinter;
  */
 public class JMSConsumerStatsImpl extends JMSEndpointStatsImpl {
     private String origin;
+    private final CountStatisticImpl ackCount = new CountStatisticImpl("ackCount", "Number of acknowledgement commands sent");
+    private final CountStatisticImpl acknowledgedMessageCount = new CountStatisticImpl("acknowledgedMessageCount", "Number of messages covered by the acknowledgements sent");
 
     public JMSConsumerStatsImpl(JMSSessionStatsImpl sessionStats, Destination destination) {
         super(sessionStats);
         if (destination != null) {
             this.origin = destination.toString();
         }
+        addStatistics(Set.of(ackCount, acknowledgedMessageCount));
     }
 
     public JMSConsumerStatsImpl(CountStatisticImpl messageCount, CountStatisticImpl pendingMessageCount, CountStatisticImpl expiredMessageCount, TimeStatisticImpl messageWaitTime,
                                 TimeStatisticImpl messageRateTime, String origin) {
         super(messageCount, pendingMessageCount, expiredMessageCount, messageWaitTime, messageRateTime);
         this.origin = origin;
+        addStatistics(Set.of(ackCount, acknowledgedMessageCount));
     }
 
     public String getOrigin() {
         return origin;
     }
 
+    public CountStatisticImpl getAckCount() {
+        return ackCount;
+    }
+
+    public CountStatisticImpl getAcknowledgedMessageCount() {
+        return acknowledgedMessageCount;
+    }
+
+    /**
+     * Records an acknowledgement sent by the consumer. Delivered acks only open up the
+     * prefetch window, so they are not counted as acknowledged messages.
+     */
+    public void onAck(MessageAck ack) {
+        if (isEnabled()) {
+            ackCount.increment();
+            if (!ack.isDeliveredAck()) {
+                acknowledgedMessageCount.add(ack.getMessageCount());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void reset() {
+        super.reset();
+        ackCount.reset();
+        acknowledgedMessageCount.reset();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        ackCount.setEnabled(enabled);
+        acknowledgedMessageCount.setEnabled(enabled);
+    }
+
     public String toString() {
         return "consumer " +
                 origin +
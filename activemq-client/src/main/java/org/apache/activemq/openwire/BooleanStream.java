@@ -20,6 +20,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public final class BooleanStream {
 
@@ -109,6 +110,16 @@ public final class BooleanStream {
         bytePos = 0;
     }
 
+    /**
+     * Returns the stream to its freshly constructed state so that the instance
+     * (and its backing array) can be reused to marshal another command.
+     */
+    public void reset() {
+        Arrays.fill(data, 0, Math.min(arrayLimit, data.length), (byte)0);
+        arrayLimit = 0;
+        clear();
+    }
+
     public int marshalledSize() {
         if (arrayLimit < 64) {
             return 1 + arrayLimit;
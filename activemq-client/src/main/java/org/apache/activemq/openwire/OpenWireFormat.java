@@ -56,6 +56,7 @@ public final class OpenWireFormat implements WireFormat {
     private boolean tightEncodingEnabled;
     private boolean sizePrefixDisabled;
     private boolean maxFrameSizeEnabled = true;
+    private boolean batchedDispatchEnabled;
     private long maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
 
     // The following fields are used for value caching
@@ -66,6 +67,10 @@ public final class OpenWireFormat implements WireFormat {
     private DataStructure unmarshallCache[] = null;
     private final DataByteArrayOutputStream bytesOut = new DataByteArrayOutputStream();
     private final DataByteArrayInputStream bytesIn = new DataByteArrayInputStream();
+    // Only used from the synchronized marshal and unmarshal methods so a single instance of
+    // each can be reused, unmarshal(DataInput) is not synchronized and allocates its own
+    private final BooleanStream marshalBooleanStream = new BooleanStream();
+    private final BooleanStream unmarshalBooleanStream = new BooleanStream();
     private WireFormatInfo preferedWireFormatInfo;
 
     // Used to track the currentFrameSize for validation during unmarshalling
@@ -151,7 +156,8 @@ public final class OpenWireFormat implements WireFormat {
             }
             if (tightEncodingEnabled) {
 
-                BooleanStream bs = new BooleanStream();
+                BooleanStream bs = marshalBooleanStream;
+                bs.reset();
                 size += dsm.tightMarshal1(this, c, bs);
                 size += bs.marshalledSize();
 
@@ -212,7 +218,7 @@ public final class OpenWireFormat implements WireFormat {
                 }
                 context.setFrameSize(size);
             }
-            return doUnmarshal(bytesIn);
+            return doUnmarshal(bytesIn, unmarshalBooleanStream);
         } finally {
             // After we unmarshal we can clear the context
             marshallingContext.remove();
@@ -236,7 +242,8 @@ public final class OpenWireFormat implements WireFormat {
                 throw new IOException("Unknown data type: " + type);
             }
             if (tightEncodingEnabled) {
-                BooleanStream bs = new BooleanStream();
+                BooleanStream bs = marshalBooleanStream;
+                bs.reset();
                 size += dsm.tightMarshal1(this, c, bs);
                 size += bs.marshalledSize();
 
@@ -292,7 +299,7 @@ public final class OpenWireFormat implements WireFormat {
                 }
                 context.setFrameSize(size);
             }
-            return doUnmarshal(dis);
+            return doUnmarshal(dis, null);
         } finally {
             // After we unmarshal we can clear
             marshallingContext.remove();
@@ -372,7 +379,7 @@ public final class OpenWireFormat implements WireFormat {
         this.version = version;
     }
 
-    private Object doUnmarshal(DataInput dis) throws IOException {
+    private Object doUnmarshal(DataInput dis, BooleanStream reusable) throws IOException {
         byte dataType = dis.readByte();
         if (dataType != NULL_TYPE) {
             DataStreamMarshaller dsm = dataMarshallers[dataType & 0xFF];
@@ -381,7 +388,7 @@ public final class OpenWireFormat implements WireFormat {
             }
             Object data = dsm.createObject();
             if (this.tightEncodingEnabled) {
-                BooleanStream bs = new BooleanStream();
+                BooleanStream bs = reusable != null ? reusable : new BooleanStream();
                 bs.unmarshal(dis);
                 dsm.tightUnmarshal(this, data, dis, bs);
             } else {
@@ -640,6 +647,13 @@ public final class OpenWireFormat implements WireFormat {
         this.maxFrameSizeEnabled = maxFrameSizeEnabled;
     }
 
+    /**
+     * @return true if the peer negotiated support for MessageDispatchBatch frames
+     */
+    public boolean isBatchedDispatchEnabled() {
+        return batchedDispatchEnabled;
+    }
+
     public void renegotiateWireFormat(WireFormatInfo info) throws IOException {
 
         if (preferedWireFormatInfo == null) {
@@ -670,6 +684,10 @@ public final class OpenWireFormat implements WireFormat {
                                   && preferedWireFormatInfo.isSizePrefixDisabled();
         info.setSizePrefixDisabled(this.sizePrefixDisabled);
 
+        this.batchedDispatchEnabled = info.isBatchedDispatchEnabled() && preferedWireFormatInfo.isBatchedDispatchEnabled()
+                                      && version >= CommandTypes.PROTOCOL_VERSION_DISPATCH_BATCH;
+        info.setBatchedDispatchEnabled(this.batchedDispatchEnabled);
+
         if (cacheEnabled) {
 
             int size = Math.min(preferedWireFormatInfo.getCacheSize(), info.getCacheSize());
@@ -42,6 +42,7 @@ public class OpenWireFormatFactory implements WireFormatFactory {
     private int cacheSize = 1024;
     private long maxFrameSize = OpenWireFormat.DEFAULT_MAX_FRAME_SIZE;
     private boolean maxFrameSizeEnabled = true;
+    private boolean batchedDispatchEnabled;
     private String host=null;
     private String providerName = ActiveMQConnectionMetaData.PROVIDER_NAME;
     private String providerVersion = ActiveMQConnectionMetaData.PROVIDER_VERSION;
@@ -64,6 +65,7 @@ public class OpenWireFormatFactory implements WireFormatFactory {
             info.setCacheSize(cacheSize);
             info.setMaxFrameSize(maxFrameSize);
             info.setMaxFrameSizeEnabled(maxFrameSizeEnabled);
+            info.setBatchedDispatchEnabled(batchedDispatchEnabled);
             if( host!=null ) {
                 info.setHost(host);
             }
@@ -220,4 +222,17 @@ public class OpenWireFormatFactory implements WireFormatFactory {
     public boolean isMaxFrameSizeEnabled() {
         return this.maxFrameSizeEnabled;
     }
+
+    public boolean isBatchedDispatchEnabled() {
+        return batchedDispatchEnabled;
+    }
+
+    /**
+     * Allows the broker to deliver several messages for the same consumer in a
+     * single MessageDispatchBatch frame. Only takes effect when both sides of the
+     * connection enable it.
+     */
+    public void setBatchedDispatchEnabled(boolean batchedDispatchEnabled) {
+        this.batchedDispatchEnabled = batchedDispatchEnabled;
+    }
 }
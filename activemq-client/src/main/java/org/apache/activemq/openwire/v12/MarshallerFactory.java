@@ -78,6 +78,7 @@ public class MarshallerFactory {
         add(new LocalTransactionIdMarshaller());
         add(new MessageAckMarshaller());
         add(new MessageDispatchMarshaller());
+        add(new MessageDispatchBatchMarshaller());
         add(new MessageDispatchNotificationMarshaller());
         add(new MessageIdMarshaller());
         add(new MessagePullMarshaller());
@@ -32,6 +32,7 @@ import org.apache.activemq.command.KeepAliveInfo;
 import org.apache.activemq.command.Message;
 import org.apache.activemq.command.MessageAck;
 import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageDispatchBatch;
 import org.apache.activemq.command.MessageDispatchNotification;
 import org.apache.activemq.command.MessagePull;
 import org.apache.activemq.command.ProducerAck;
@@ -109,6 +110,8 @@ public interface CommandVisitor {
 
     Response processMessageDispatch(MessageDispatch dispatch) throws Exception;
 
+    Response processMessageDispatchBatch(MessageDispatchBatch batch) throws Exception;
+
     Response processControlCommand(ControlCommand command) throws Exception;
 
     Response processConnectionError(ConnectionError error) throws Exception;
@@ -32,6 +32,7 @@ import org.apache.activemq.command.KeepAliveInfo;
 import org.apache.activemq.command.Message;
 import org.apache.activemq.command.MessageAck;
 import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageDispatchBatch;
 import org.apache.activemq.command.MessageDispatchNotification;
 import org.apache.activemq.command.MessagePull;
 import org.apache.activemq.command.ProducerAck;
@@ -198,6 +199,11 @@ public class CommandVisitorAdapter implements CommandVisitor {
         return null;
     }
 
+    @Override
+    public Response processMessageDispatchBatch(MessageDispatchBatch batch) throws Exception {
+        return null;
+    }
+
     @Override
     public Response processControlCommand(ControlCommand command) throws Exception {
         return null;
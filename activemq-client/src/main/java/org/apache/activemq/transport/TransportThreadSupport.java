@@ -16,6 +16,12 @@
  */
 package org.apache.activemq.transport;
 
+import java.lang.reflect.Method;
+
+import org.apache.activemq.annotation.Experimental;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * A useful base class for a transport implementation which has a background
  * reading thread.
@@ -24,7 +30,10 @@ package org.apache.activemq.transport;
  */
 public abstract class TransportThreadSupport extends TransportSupport implements Runnable {
 
+    private static final Logger LOG = LoggerFactory.getLogger(TransportThreadSupport.class);
+
     private boolean daemon;
+    private boolean useVirtualThread = "true".equalsIgnoreCase(System.getProperty("org.apache.activemq.UseVirtualThreadTransport"));
     private Thread runner;
     // should be a multiple of 128k
     private long stackSize;
@@ -38,11 +47,52 @@ public abstract class TransportThreadSupport extends TransportSupport implements
     }
 
     protected void doStart() throws Exception {
-        runner = new Thread(null, this, "ActiveMQ Transport: " + toString(), stackSize);
-        runner.setDaemon(daemon);
+        final String name = "ActiveMQ Transport: " + toString();
+        if (useVirtualThread) {
+            runner = createVirtualThread(name);
+        } else {
+            runner = new Thread(null, this, name, stackSize);
+            runner.setDaemon(daemon);
+        }
         runner.start();
     }
 
+    /**
+     * @return true if the reading thread is a virtual thread
+     */
+    public boolean isUseVirtualThread() {
+        return useVirtualThread;
+    }
+
+    /**
+     * Run the reading loop on a virtual thread rather than a platform thread, so that
+     * a large number of mostly idle blocking connections do not each hold an OS thread
+     * and its stack. Requires JDK 21 or higher; the daemon and stackSize settings do
+     * not apply to virtual threads.
+     *
+     * @param useVirtualThread
+     */
+    @Experimental("Tech Preview for Virtual Thread support")
+    public void setUseVirtualThread(boolean useVirtualThread) {
+        this.useVirtualThread = useVirtualThread;
+    }
+
+    private Thread createVirtualThread(String name) {
+        if (!(Runtime.version().feature() >= 21)) {
+            LOG.error("Virtual Thread support requires JDK 21 or higher");
+            throw new IllegalStateException("Virtual Thread support requires JDK 21 or higher");
+        }
+
+        try {
+            Class<?> virtualThreadExecutorClass = Class.forName("org.apache.activemq.thread.VirtualThreadExecutor", false, getClass().getClassLoader());
+            Method method = virtualThreadExecutorClass.getMethod("createVirtualThread", String.class, Runnable.class, Logger.class);
+            return Thread.class.cast(method.invoke(null, name, this, LOG));
+        } catch (ReflectiveOperationException | SecurityException e) {
+            LOG.error("VirtualThreadExecutor class failed to load", e);
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * @return the stackSize
      */
@@ -77,4 +77,16 @@ public class VirtualThreadExecutor {
 
         return Executors.newThreadPerTaskExecutor(atomicThreadFactory); // [AMQ-9394] Same as newVirtualThreadPerTaskExecutor
     }
+
+    public static Thread createVirtualThread(final String name, final Runnable task, final Logger LOG) {
+        return Thread.ofVirtual()
+                .name(name)
+                .uncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                @Override
+                    public void uncaughtException(final Thread t, final Throwable e) {
+                        LOG.error("Error in thread '{}'", t.getName(), e);
+                    }
+                })
+                .unstarted(task);
+    }
 }
@@ -17,20 +17,26 @@
 package org.apache.activemq.transport.http;
 
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.*;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.activemq.command.ShutdownInfo;
+import org.apache.activemq.openwire.OpenWireFormat;
 import org.apache.activemq.transport.FutureResponse;
 import org.apache.activemq.transport.util.TextWireFormat;
 import org.apache.activemq.util.ByteArrayOutputStream;
+import org.apache.activemq.util.ByteSequence;
 import org.apache.activemq.util.IOExceptionSupport;
 import org.apache.activemq.util.IdGenerator;
 import org.apache.activemq.util.ServiceStopper;
@@ -55,6 +61,7 @@ import org.apache.http.client.methods.HttpOptions;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -74,6 +81,8 @@ import org.slf4j.LoggerFactory;
 public class HttpClientTransport extends HttpTransportSupport {
 
     public static final int MAX_CLIENT_TIMEOUT = 90000;
+    private static final int MAX_PENDING_SENDS = 1024;
+    private static final int MAX_SEND_BATCH = 256;
     private static final Logger LOG = LoggerFactory.getLogger(HttpClientTransport.class);
     private static final IdGenerator CLIENT_ID_GENERATOR = new IdGenerator();
 
@@ -91,6 +100,11 @@ public class HttpClientTransport extends HttpTransportSupport {
     protected boolean canSendCompressed = false;
     private int minSendAsCompressedSize = 0;
 
+    private boolean streaming = false;
+    private OpenWireFormat streamWireFormat;
+    private final LinkedBlockingQueue<PendingSend> pendingSends = new LinkedBlockingQueue<PendingSend>(MAX_PENDING_SENDS);
+    private Thread sendThread;
+
     public HttpClientTransport(TextWireFormat wireFormat, URI remoteUrl) {
         super(wireFormat, remoteUrl);
     }
@@ -105,6 +119,10 @@ public class HttpClientTransport extends HttpTransportSupport {
         if (isStopped()) {
             throw new IOException("stopped.");
         }
+        if (streamWireFormat != null) {
+            queueSend(command);
+            return;
+        }
         HttpPost httpMethod = new HttpPost(getRemoteUrl().toString());
         configureMethod(httpMethod);
         String data = getTextWireFormat().marshalText(command);
@@ -153,6 +171,99 @@ public class HttpClientTransport extends HttpTransportSupport {
         return null;
     }
 
+    private void queueSend(Object command) throws IOException {
+        PendingSend send = new PendingSend(streamWireFormat.marshal(command), command instanceof ShutdownInfo);
+        try {
+            while (!pendingSends.offer(send, 1, TimeUnit.SECONDS)) {
+                if (isStopped() || isStopping()) {
+                    throw new IOException("stopped.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Sends the commands queued by {@link #oneway(Object)} while the streaming mode is in
+     * use. Senders do not wait for the POST of the commands queued before theirs, and all
+     * the commands queued while a POST is in flight go out together in the next one.
+     */
+    private void runSender() {
+        HttpClient client = getSendHttpClient();
+        List<PendingSend> batch = new ArrayList<PendingSend>();
+
+        while (true) {
+            try {
+                PendingSend first = pendingSends.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    if (isStopped() || isStopping()) {
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                pendingSends.drainTo(batch, MAX_SEND_BATCH - 1);
+
+                boolean shutdown = postBatch(client, batch);
+                batch.clear();
+                if (shutdown) {
+                    try {
+                        stop();
+                    } catch (Exception e) {
+                        LOG.warn("Error trying to stop HTTP client: "+ e, e);
+                    }
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                if (isStopped() || isStopping()) {
+                    LOG.debug("While stopping/stopped failed to post commands to: " + getRemoteUrl());
+                } else {
+                    onException(IOExceptionSupport.create("Could not post commands due to: " + e, e));
+                }
+                break;
+            }
+        }
+    }
+
+    private boolean postBatch(HttpClient client, List<PendingSend> batch) throws IOException {
+        int size = 0;
+        boolean shutdown = false;
+        for (PendingSend send : batch) {
+            size += send.data.getLength();
+            shutdown |= send.shutdown;
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (PendingSend send : batch) {
+            System.arraycopy(send.data.getData(), send.data.getOffset(), bytes, offset, send.data.getLength());
+            offset += send.data.getLength();
+        }
+
+        HttpPost httpMethod = new HttpPost(getRemoteUrl().toString());
+        configureMethod(httpMethod);
+        httpMethod.setHeader(STREAM_VERSION_HEADER, Integer.toString(streamWireFormat.getVersion()));
+        httpMethod.setEntity(new ByteArrayEntity(bytes, ContentType.create(STREAM_CONTENT_TYPE)));
+
+        HttpResponse answer = null;
+        try {
+            answer = client.execute(httpMethod);
+            int status = answer.getStatusLine().getStatusCode();
+            if (status != HttpStatus.SC_OK) {
+                throw new IOException("Failed to post " + batch.size() + " commands as response was: " + answer);
+            }
+        } finally {
+            if (answer != null) {
+                EntityUtils.consume(answer.getEntity());
+            }
+        }
+        return shutdown;
+    }
+
     private DataInputStream createDataInputStream(HttpResponse answer) throws IOException {
         Header encoding = answer.getEntity().getContentEncoding();
         if (encoding != null && "gzip".equalsIgnoreCase(encoding.getValue())) {
@@ -175,6 +286,10 @@ public class HttpClientTransport extends HttpTransportSupport {
 
             httpMethod = new HttpGet(remoteUrl.toString());
             configureMethod(httpMethod);
+            if (streamWireFormat != null) {
+                httpMethod.setHeader("Accept", STREAM_CONTENT_TYPE);
+                httpMethod.setHeader(STREAM_VERSION_HEADER, Integer.toString(streamWireFormat.getVersion()));
+            }
             HttpResponse answer = null;
 
             try {
@@ -194,6 +309,10 @@ public class HttpClientTransport extends HttpTransportSupport {
                         onException(new IOException("Failed to perform GET on: " + remoteUrl + " as response was: " + answer));
                         break;
                     }
+                } else if (streamWireFormat != null) {
+                    DataInputStream stream = createDataInputStream(answer);
+                    consumeStream(stream);
+                    stream.close();
                 } else {
                     receiveCounter++;
                     DataInputStream stream = createDataInputStream(answer);
@@ -223,6 +342,23 @@ public class HttpClientTransport extends HttpTransportSupport {
         }
     }
 
+    /**
+     * Consumes the commands the broker writes to a streamed GET response until the broker
+     * ends the response.
+     */
+    private void consumeStream(DataInputStream stream) throws IOException {
+        while (!isStopped() && !isStopping()) {
+            Object command;
+            try {
+                command = streamWireFormat.unmarshal(stream);
+            } catch (EOFException e) {
+                return;
+            }
+            receiveCounter++;
+            doConsume(command);
+        }
+    }
+
     // Properties
     // -------------------------------------------------------------------------
     public HttpClient getSendHttpClient() {
@@ -274,7 +410,9 @@ public class HttpClientTransport extends HttpTransportSupport {
                     if (header.getName().equals("Accepts-Encoding") && header.getValue().contains("gzip")) {
                         LOG.info("Broker Servlet supports GZip compression.");
                         canSendCompressed = true;
-                        break;
+                    } else if (streaming && header.getName().equals(STREAM_VERSION_HEADER)) {
+                        LOG.info("Broker Servlet supports streaming.");
+                        streamWireFormat = createStreamWireFormat(Integer.parseInt(header.getValue()));
                     }
                 }
 
@@ -290,11 +428,31 @@ public class HttpClientTransport extends HttpTransportSupport {
             throw new IOException("Failed to perform GET on: " + remoteUrl + " as response was: " + e.getMessage());
         }
 
+        if (streaming && streamWireFormat == null) {
+            LOG.info("Broker Servlet does not support streaming, polling for commands instead.");
+        }
+        if (streamWireFormat != null) {
+            sendThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runSender();
+                }
+            }, "ActiveMQ HTTP Sender: " + remoteUrl);
+            sendThread.setDaemon(isDaemon());
+            sendThread.start();
+        }
+
         super.doStart();
     }
 
     @Override
     protected void doStop(ServiceStopper stopper) throws Exception {
+        // Give the sender the chance to post the commands queued before the stop, such as
+        // the ShutdownInfo of a closing connection.
+        Thread sender = sendThread;
+        if (sender != null && sender != Thread.currentThread()) {
+            sender.join(soTimeout);
+        }
         if (httpMethod != null) {
             // In some versions of the JVM a race between the httpMethod and the completion
             // of the method when using HTTPS can lead to a deadlock.  This hack attempts to
@@ -409,6 +567,31 @@ public class HttpClientTransport extends HttpTransportSupport {
         return this.useCompression;
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Sets whether the commands are streamed in binary OpenWire, the broker writing them to
+     * one long lived GET response and the client posting the ones it sends in batches without
+     * waiting for the previous POST to complete. Falls back to polling when the broker does
+     * not support streaming.
+     *
+     * Default value is false.
+     *
+     * @param streaming
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * @return true when the broker supports the streaming mode requested by {@link #setStreaming(boolean)}.
+     */
+    boolean isStreamingActive() {
+        return streamWireFormat != null;
+    }
+
     public int getMinSendAsCompressedSize() {
         return minSendAsCompressedSize;
     }
@@ -445,4 +628,14 @@ public class HttpClientTransport extends HttpTransportSupport {
         return "http.";
     }
 
+    private static final class PendingSend {
+        private final ByteSequence data;
+        private final boolean shutdown;
+
+        PendingSend(ByteSequence data, boolean shutdown) {
+            this.data = data;
+            this.shutdown = shutdown;
+        }
+    }
+
 }
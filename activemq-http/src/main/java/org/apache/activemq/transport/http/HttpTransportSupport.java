@@ -18,6 +18,7 @@ package org.apache.activemq.transport.http;
 
 import java.net.URI;
 
+import org.apache.activemq.openwire.OpenWireFormat;
 import org.apache.activemq.transport.TransportThreadSupport;
 import org.apache.activemq.transport.util.TextWireFormat;
 
@@ -27,6 +28,19 @@ import org.apache.activemq.transport.util.TextWireFormat;
  *
  */
 public abstract class HttpTransportSupport extends TransportThreadSupport {
+
+    /**
+     * Content type of the requests and responses of the streaming mode, which carry any
+     * number of size prefixed OpenWire commands rather than one text encoded command.
+     */
+    public static final String STREAM_CONTENT_TYPE = "application/x-activemq-openwire-stream";
+
+    /**
+     * Header holding the OpenWire version of a streaming request. The broker answers an
+     * OPTIONS request with the highest version it can stream under the same name.
+     */
+    public static final String STREAM_VERSION_HEADER = "Accepts-Streaming";
+
     private static final int DEFAULT_PROXY_PORT = 8080;
     private static final String PROPERTY_PROXY_HOST = "proxyHost";
     private static final String PROPERTY_NON_PROXY_HOST = "nonProxyHosts";
@@ -51,6 +65,18 @@ public abstract class HttpTransportSupport extends TransportThreadSupport {
         return "HTTP Reader " + getRemoteUrl();
     }
 
+    /**
+     * Creates the wire format used to encode or decode one stream of commands. Every
+     * request is decoded independently of the others, so the marshalling cache is off.
+     */
+    public static OpenWireFormat createStreamWireFormat(int version) {
+        OpenWireFormat format = new OpenWireFormat(Math.min(version, OpenWireFormat.DEFAULT_WIRE_VERSION));
+        format.setCacheEnabled(false);
+        format.setTightEncodingEnabled(true);
+        format.setSizePrefixDisabled(false);
+        return format;
+    }
+
     // Properties
     // -------------------------------------------------------------------------
     public String getRemoteAddress() {
@@ -18,6 +18,7 @@ package org.apache.activemq.transport.http;
 
 import java.io.*;
 import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -34,6 +35,7 @@ import org.apache.activemq.command.Command;
 import org.apache.activemq.command.ConnectionInfo;
 import org.apache.activemq.command.ShutdownInfo;
 import org.apache.activemq.command.WireFormatInfo;
+import org.apache.activemq.openwire.OpenWireFormat;
 import org.apache.activemq.transport.Transport;
 import org.apache.activemq.transport.TransportAcceptListener;
 import org.apache.activemq.transport.util.TextWireFormat;
@@ -84,6 +86,7 @@ public class HttpTunnelServlet extends HttpServlet {
     @Override
     protected void doOptions(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         response.addHeader("Accepts-Encoding", "gzip");
+        response.addHeader(HttpTransportSupport.STREAM_VERSION_HEADER, Integer.toString(OpenWireFormat.DEFAULT_WIRE_VERSION));
         super.doOptions(request, response);
     }
 
@@ -103,6 +106,11 @@ public class HttpTunnelServlet extends HttpServlet {
                 return;
             }
 
+            if (isStreamRequest(request.getHeader("Accept"))) {
+                streamCommands(transportChannel, request, response);
+                return;
+            }
+
             packet = (Command)transportChannel.getQueue().poll(requestTimeout, TimeUnit.MILLISECONDS);
 
             // If the packet is ShutDownInfo then we are shutting down so return.
@@ -121,9 +129,40 @@ public class HttpTunnelServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Writes the commands queued for the client to the response as they arrive, ending the
+     * response once no command was queued for the request timeout.
+     */
+    private void streamCommands(BlockingQueueTransport transportChannel, HttpServletRequest request, HttpServletResponse response) throws IOException, InterruptedException {
+        OpenWireFormat format = createStreamWireFormat(request);
+        response.setContentType(HttpTransportSupport.STREAM_CONTENT_TYPE);
+        response.flushBuffer();
+
+        DataOutputStream stream = new DataOutputStream(response.getOutputStream());
+        BlockingQueue<Object> queue = transportChannel.getQueue();
+        Object packet;
+        while ((packet = queue.poll(requestTimeout, TimeUnit.MILLISECONDS)) != null) {
+            // Write everything queued so far before flushing.
+            do {
+                // If the packet is ShutDownInfo then we are shutting down so return.
+                if (packet instanceof ShutdownInfo) {
+                    stream.flush();
+                    return;
+                }
+                format.marshal(packet, stream);
+            } while ((packet = queue.poll()) != null);
+            stream.flush();
+        }
+    }
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         try {
+            if (isStreamRequest(request.getContentType())) {
+                consumeStream(request, response);
+                return;
+            }
+
             if (wireFormatOptions.get("maxFrameSize") != null && request.getContentLength() > Integer.parseInt(wireFormatOptions.get("maxFrameSize").toString())) {
                 response.setStatus(405);
                 response.setContentType("plain/text");
@@ -173,6 +212,48 @@ public class HttpTunnelServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Hands each of the commands posted in one streamed request to the client's transport.
+     */
+    private void consumeStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BlockingQueueTransport transport = getTransportChannel(request, response);
+        if (transport == null) {
+            return;
+        }
+
+        OpenWireFormat format = createStreamWireFormat(request);
+        if (wireFormatOptions.get("maxFrameSize") != null) {
+            format.setMaxFrameSize(Long.parseLong(wireFormatOptions.get("maxFrameSize").toString()));
+        }
+
+        DataInputStream stream = new DataInputStream(request.getInputStream());
+        while (true) {
+            Command command;
+            try {
+                command = (Command) format.unmarshal(stream);
+            } catch (EOFException e) {
+                return;
+            }
+            if (command instanceof ConnectionInfo) {
+                ((ConnectionInfo) command).setTransportContext(request.getAttribute("jakarta.servlet.request.X509Certificate"));
+            }
+            transport.doConsume(command);
+        }
+    }
+
+    private boolean isStreamRequest(String contentType) {
+        return contentType != null && contentType.contains(HttpTransportSupport.STREAM_CONTENT_TYPE);
+    }
+
+    private OpenWireFormat createStreamWireFormat(HttpServletRequest request) throws IOException {
+        String version = request.getHeader(HttpTransportSupport.STREAM_VERSION_HEADER);
+        try {
+            return HttpTransportSupport.createStreamWireFormat(version != null ? Integer.parseInt(version) : OpenWireFormat.DEFAULT_WIRE_VERSION);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid " + HttpTransportSupport.STREAM_VERSION_HEADER + " header: " + version);
+        }
+    }
+
     private boolean canProcessWireFormatVersion(int version) {
         return true;
     }
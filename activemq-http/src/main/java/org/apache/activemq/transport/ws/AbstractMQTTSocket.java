@@ -22,9 +22,12 @@ import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.activemq.broker.BatchedDispatchAware;
 import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.broker.BrokerServiceAware;
 import org.apache.activemq.command.Command;
+import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageDispatchBatch;
 import org.apache.activemq.jms.pool.IntrospectionSupport;
 import org.apache.activemq.transport.TransportSupport;
 import org.apache.activemq.transport.mqtt.MQTTInactivityMonitor;
@@ -35,7 +38,7 @@ import org.apache.activemq.util.IOExceptionSupport;
 import org.apache.activemq.util.ServiceStopper;
 import org.fusesource.mqtt.codec.MQTTFrame;
 
-public abstract class AbstractMQTTSocket extends TransportSupport implements MQTTTransport, BrokerServiceAware {
+public abstract class AbstractMQTTSocket extends TransportSupport implements MQTTTransport, BrokerServiceAware, BatchedDispatchAware {
 
     protected ReentrantLock protocolLock = new ReentrantLock();
     protected volatile MQTTProtocolConverter protocolConverter = null;
@@ -47,6 +50,7 @@ public abstract class AbstractMQTTSocket extends TransportSupport implements MQT
     protected final String remoteAddress;
     protected X509Certificate[] peerCertificates;
     private Map<String, Object> transportOptions;
+    private boolean batchedDispatchEnabled = true;
 
     public AbstractMQTTSocket(String remoteAddress) {
         super();
@@ -57,7 +61,11 @@ public abstract class AbstractMQTTSocket extends TransportSupport implements MQT
     public void oneway(Object command) throws IOException {
         protocolLock.lock();
         try {
-            getProtocolConverter().onActiveMQCommand((Command)command);
+            if (command instanceof MessageDispatchBatch) {
+                onMessageDispatchBatch((MessageDispatchBatch) command);
+            } else {
+                getProtocolConverter().onActiveMQCommand((Command)command);
+            }
         } catch (Exception e) {
             onException(IOExceptionSupport.create(e));
         } finally {
@@ -101,6 +109,21 @@ public abstract class AbstractMQTTSocket extends TransportSupport implements MQT
      */
     public abstract void handleStopped() throws IOException;
 
+    /**
+     * Called before the frames of a batch of message dispatches are sent, allowing the
+     * derived classes to hold them back and write them out together.
+     */
+    protected void beginBatch() {
+    }
+
+    /**
+     * Called once all frames of a batch of message dispatches were sent.
+     *
+     * @throws IOException if an error occurs while writing out the held back frames.
+     */
+    protected void endBatch() throws IOException {
+    }
+
     //----- Accessor methods -------------------------------------------------//
 
     @Override
@@ -138,6 +161,19 @@ public abstract class AbstractMQTTSocket extends TransportSupport implements MQT
         this.brokerService = brokerService;
     }
 
+    @Override
+    public boolean isBatchedDispatchEnabled() {
+        return batchedDispatchEnabled;
+    }
+
+    /**
+     * Sets whether the broker may hand queued message dispatches to this socket in batches
+     * that are written to the WebSocket together.
+     */
+    public void setBatchedDispatchEnabled(boolean batchedDispatchEnabled) {
+        this.batchedDispatchEnabled = batchedDispatchEnabled;
+    }
+
     //----- Internal support methods -----------------------------------------//
 
     protected MQTTProtocolConverter getProtocolConverter() {
@@ -153,6 +189,17 @@ public abstract class AbstractMQTTSocket extends TransportSupport implements MQT
         return protocolConverter;
     }
 
+    private void onMessageDispatchBatch(MessageDispatchBatch batch) throws Exception {
+        beginBatch();
+        try {
+            for (MessageDispatch dispatch : batch.getDispatches()) {
+                getProtocolConverter().onActiveMQCommand(dispatch);
+            }
+        } finally {
+            endBatch();
+        }
+    }
+
     protected boolean transportStartedAtLeastOnce() {
         return socketTransportStarted.getCount() == 0;
     }
@@ -21,8 +21,11 @@ import java.security.cert.X509Certificate;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.activemq.broker.BatchedDispatchAware;
 import org.apache.activemq.command.Command;
 import org.apache.activemq.command.KeepAliveInfo;
+import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageDispatchBatch;
 import org.apache.activemq.transport.TransportSupport;
 import org.apache.activemq.transport.stomp.ProtocolConverter;
 import org.apache.activemq.transport.stomp.StompFrame;
@@ -38,7 +41,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Base implementation of a STOMP based WebSocket handler.
  */
-public abstract class AbstractStompSocket extends TransportSupport implements StompTransport {
+public abstract class AbstractStompSocket extends TransportSupport implements StompTransport, BatchedDispatchAware {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractStompSocket.class);
 
@@ -50,6 +53,7 @@ public abstract class AbstractStompSocket extends TransportSupport implements St
     protected volatile int receiveCounter;
     protected final String remoteAddress;
     protected X509Certificate[] certificates;
+    private boolean batchedDispatchEnabled = true;
 
     public AbstractStompSocket(String remoteAddress) {
         super();
@@ -60,7 +64,11 @@ public abstract class AbstractStompSocket extends TransportSupport implements St
     public void oneway(Object command) throws IOException {
         protocolLock.lock();
         try {
-            protocolConverter.onActiveMQCommand((Command)command);
+            if (command instanceof MessageDispatchBatch) {
+                onMessageDispatchBatch((MessageDispatchBatch) command);
+            } else {
+                protocolConverter.onActiveMQCommand((Command)command);
+            }
         } catch (Exception e) {
             onException(IOExceptionSupport.create(e));
         } finally {
@@ -104,6 +112,21 @@ public abstract class AbstractStompSocket extends TransportSupport implements St
      */
     public abstract void handleStopped() throws IOException;
 
+    /**
+     * Called before the frames of a batch of message dispatches are sent, allowing the
+     * derived classes to hold them back and write them out together.
+     */
+    protected void beginBatch() {
+    }
+
+    /**
+     * Called once all frames of a batch of message dispatches were sent.
+     *
+     * @throws IOException if an error occurs while writing out the held back frames.
+     */
+    protected void endBatch() throws IOException {
+    }
+
     //----- Accessor methods -------------------------------------------------//
 
     @Override
@@ -126,6 +149,19 @@ public abstract class AbstractStompSocket extends TransportSupport implements St
         return receiveCounter;
     }
 
+    @Override
+    public boolean isBatchedDispatchEnabled() {
+        return batchedDispatchEnabled;
+    }
+
+    /**
+     * Sets whether the broker may hand queued message dispatches to this socket in batches
+     * that are written to the WebSocket together.
+     */
+    public void setBatchedDispatchEnabled(boolean batchedDispatchEnabled) {
+        this.batchedDispatchEnabled = batchedDispatchEnabled;
+    }
+
     //----- Internal implementation ------------------------------------------//
 
     protected void processStompFrame(String data) {
@@ -158,6 +194,17 @@ public abstract class AbstractStompSocket extends TransportSupport implements St
         }
     }
 
+    private void onMessageDispatchBatch(MessageDispatchBatch batch) throws Exception {
+        beginBatch();
+        try {
+            for (MessageDispatch dispatch : batch.getDispatches()) {
+                protocolConverter.onActiveMQCommand(dispatch);
+            }
+        } finally {
+            endBatch();
+        }
+    }
+
     private boolean transportStartedAtLeastOnce() {
         return socketTransportStarted.getCount() == 0;
     }
@@ -35,15 +35,16 @@ import org.apache.activemq.util.IntrospectionSupport;
 import org.apache.activemq.util.ServiceStopper;
 import org.apache.activemq.wireformat.WireFormat;
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WebSocketPartialListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A proxy class that manages sending WebSocket events to the wrapped protocol level
- * WebSocket Transport.
+ * WebSocket Transport. Binary data is handed on as Jetty delivers it, the protocol
+ * transports parse it as a stream and do not need complete WebSocket messages.
  */
-public final class WSTransportProxy extends TransportSupport implements Transport, WebSocketListener, BrokerServiceAware, WSTransportSink {
+public final class WSTransportProxy extends TransportSupport implements Transport, WebSocketPartialListener, BrokerServiceAware, WSTransportSink {
 
     private static final Logger LOG = LoggerFactory.getLogger(WSTransportProxy.class);
 
@@ -56,6 +57,7 @@ public final class WSTransportProxy extends TransportSupport implements Transpor
     private final Transport transport;
     private final WSTransport wsTransport;
     private Session session;
+    private StringBuilder partialText;
 
     /**
      * Create a WebSocket Transport Proxy instance that will pass
@@ -115,6 +117,12 @@ public final class WSTransportProxy extends TransportSupport implements Transpor
         }
     }
 
+    @Override
+    public <T> T narrow(Class<T> target) {
+        T result = super.narrow(target);
+        return result != null ? result : transport.narrow(target);
+    }
+
     @Override
     public X509Certificate[] getPeerCertificates() {
         return transport.getPeerCertificates();
@@ -159,7 +167,7 @@ public final class WSTransportProxy extends TransportSupport implements Transpor
     //----- WebSocket methods being proxied to the WS Transport --------------//
 
     @Override
-    public void onWebSocketBinary(byte[] payload, int offset, int length) {
+    public void onWebSocketPartialBinary(ByteBuffer payload, boolean fin) {
         if (!transportStartedAtLeastOnce()) {
             LOG.debug("Waiting for WebSocket to be properly started...");
             try {
@@ -171,7 +179,7 @@ public final class WSTransportProxy extends TransportSupport implements Transpor
 
         protocolLock.lock();
         try {
-            wsTransport.onWebSocketBinary(ByteBuffer.wrap(payload, offset, length));
+            wsTransport.onWebSocketBinary(payload);
         } catch (Exception e) {
             onException(IOExceptionSupport.create(e));
         } finally {
@@ -180,7 +188,20 @@ public final class WSTransportProxy extends TransportSupport implements Transpor
     }
 
     @Override
-    public void onWebSocketText(String data) {
+    public void onWebSocketPartialText(String payload, boolean fin) {
+        String data = payload;
+        if (!fin || partialText != null) {
+            if (partialText == null) {
+                partialText = new StringBuilder();
+            }
+            partialText.append(payload);
+            if (!fin) {
+                return;
+            }
+            data = partialText.toString();
+            partialText = null;
+        }
+
         if (!transportStartedAtLeastOnce()) {
             LOG.debug("Waiting for WebSocket to be properly started...");
             try {
@@ -26,8 +26,10 @@ import org.apache.activemq.transport.mqtt.MQTTCodec;
 import org.apache.activemq.transport.ws.AbstractMQTTSocket;
 import org.apache.activemq.util.ByteSequence;
 import org.apache.activemq.util.IOExceptionSupport;
+import org.eclipse.jetty.websocket.api.BatchMode;
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WebSocketPartialListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.fusesource.hawtbuf.Buffer;
 import org.fusesource.hawtbuf.DataByteArrayInputStream;
 import org.fusesource.mqtt.codec.DISCONNECT;
@@ -35,15 +37,34 @@ import org.fusesource.mqtt.codec.MQTTFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class MQTTSocket extends AbstractMQTTSocket implements MQTTCodec.MQTTFrameSink, WebSocketListener {
+/**
+ * MQTT over WebSocket handler. Binary frames are parsed as Jetty delivers them, so MQTT
+ * packets never need to be reassembled into complete WebSocket messages first.
+ */
+public class MQTTSocket extends AbstractMQTTSocket implements MQTTCodec.MQTTFrameSink, WebSocketPartialListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(MQTTSocket.class);
 
     private final int ORDERLY_CLOSE_TIMEOUT = 10;
+    private final int MAX_RETAINED_READ_BUFFER = 64 * 1024;
     private Session session;
     private final AtomicBoolean receivedDisconnect = new AtomicBoolean();
 
     private final MQTTCodec codec;
+    private byte[] readBuffer = new byte[0];
+    private boolean batching;
+
+    private final WriteCallback batchedWriteCallback = new WriteCallback() {
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            onException(IOExceptionSupport.create(cause));
+        }
+
+        @Override
+        public void writeSuccess() {
+        }
+    };
 
     public MQTTSocket(String remoteAddress) {
         super(remoteAddress);
@@ -57,7 +78,12 @@ public class MQTTSocket extends AbstractMQTTSocket implements MQTTCodec.MQTTFram
         try {
             //timeout after a period of time so we don't wait forever and hold the protocol lock
             // FIXME: convert to async .get(getDefaultSendTimeOut(), TimeUnit.SECONDS)
-            session.getRemote().sendBytes(ByteBuffer.wrap(bytes.getData(), 0, bytes.getLength()));
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.getData(), 0, bytes.getLength());
+            if (batching) {
+                session.getRemote().sendBytes(buffer, batchedWriteCallback);
+            } else {
+                session.getRemote().sendBytes(buffer);
+            }
         } catch (Exception e) {
             throw IOExceptionSupport.create(e);
         }
@@ -70,10 +96,27 @@ public class MQTTSocket extends AbstractMQTTSocket implements MQTTCodec.MQTTFram
         }
     }
 
-    //----- WebSocket.OnTextMessage callback handlers ------------------------//
+    @Override
+    protected void beginBatch() {
+        // Frames queued while in batch mode are written out together on flush
+        session.getRemote().setBatchMode(BatchMode.ON);
+        batching = true;
+    }
 
     @Override
-    public void onWebSocketBinary(byte[] bytes, int offset, int length) {
+    protected void endBatch() throws IOException {
+        batching = false;
+        try {
+            session.getRemote().flush();
+        } finally {
+            session.getRemote().setBatchMode(BatchMode.AUTO);
+        }
+    }
+
+    //----- WebSocket callback handlers --------------------------------------//
+
+    @Override
+    public void onWebSocketPartialBinary(ByteBuffer payload, boolean fin) {
         if (!transportStartedAtLeastOnce()) {
             LOG.debug("Waiting for MQTTSocket to be properly started...");
             try {
@@ -85,8 +128,27 @@ public class MQTTSocket extends AbstractMQTTSocket implements MQTTCodec.MQTTFram
 
         protocolLock.lock();
         try {
+            int length = payload.remaining();
             receiveCounter += length;
-            codec.parse(new DataByteArrayInputStream(new Buffer(bytes, offset, length)), length);
+
+            // The payload is only valid for the duration of this call, the codec copies
+            // whatever it needs to keep of a packet that is not yet complete.
+            Buffer buffer;
+            if (payload.hasArray()) {
+                buffer = new Buffer(payload.array(), payload.arrayOffset() + payload.position(), length);
+            } else {
+                if (readBuffer.length < length) {
+                    readBuffer = new byte[length];
+                }
+                payload.get(readBuffer, 0, length);
+                buffer = new Buffer(readBuffer, 0, length);
+            }
+
+            codec.parse(new DataByteArrayInputStream(buffer), length);
+
+            if (readBuffer.length > MAX_RETAINED_READ_BUFFER) {
+                readBuffer = new byte[0];
+            }
         } catch (Exception e) {
             onException(IOExceptionSupport.create(e));
         } finally {
@@ -126,7 +188,7 @@ public class MQTTSocket extends AbstractMQTTSocket implements MQTTCodec.MQTTFram
     }
 
     @Override
-    public void onWebSocketText(String arg0) {
+    public void onWebSocketPartialText(String payload, boolean fin) {
     }
 
     private static int getDefaultSendTimeOut() {
@@ -24,8 +24,10 @@ import org.apache.activemq.transport.stomp.Stomp;
 import org.apache.activemq.transport.stomp.StompFrame;
 import org.apache.activemq.transport.ws.AbstractStompSocket;
 import org.apache.activemq.util.IOExceptionSupport;
+import org.eclipse.jetty.websocket.api.BatchMode;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +41,19 @@ public class StompSocket extends AbstractStompSocket implements WebSocketListene
     private final int ORDERLY_CLOSE_TIMEOUT = 10;
 
     private Session session;
+    private boolean batching;
+
+    private final WriteCallback batchedWriteCallback = new WriteCallback() {
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            onException(IOExceptionSupport.create(cause));
+        }
+
+        @Override
+        public void writeSuccess() {
+        }
+    };
 
     public StompSocket(String remoteAddress) {
         super(remoteAddress);
@@ -49,7 +64,11 @@ public class StompSocket extends AbstractStompSocket implements WebSocketListene
         try {
             //timeout after a period of time so we don't wait forever and hold the protocol lock
             // FIXME: convert to timeout async get(getDefaultSendTimeOut(), TimeUnit.SECONDS)
-            session.getRemote().sendString(getWireFormat().marshalToString(command));
+            if (batching) {
+                session.getRemote().sendString(getWireFormat().marshalToString(command), batchedWriteCallback);
+            } else {
+                session.getRemote().sendString(getWireFormat().marshalToString(command));
+            }
         } catch (Exception e) {
             throw IOExceptionSupport.create(e);
         }
@@ -62,6 +81,23 @@ public class StompSocket extends AbstractStompSocket implements WebSocketListene
         }
     }
 
+    @Override
+    protected void beginBatch() {
+        // Frames queued while in batch mode are written out together on flush
+        session.getRemote().setBatchMode(BatchMode.ON);
+        batching = true;
+    }
+
+    @Override
+    protected void endBatch() throws IOException {
+        batching = false;
+        try {
+            session.getRemote().flush();
+        } finally {
+            session.getRemote().setBatchMode(BatchMode.AUTO);
+        }
+    }
+
     //----- WebSocketListener event callbacks --------------------------------//
 
     @Override
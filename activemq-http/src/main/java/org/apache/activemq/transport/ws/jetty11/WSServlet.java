@@ -38,7 +38,8 @@ import org.apache.activemq.transport.TransportAcceptListener;
 import org.apache.activemq.transport.TransportFactory;
 import org.apache.activemq.transport.util.HttpTransportUtils;
 import org.apache.activemq.transport.ws.WSTransportProxy;
-import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.ExtensionConfig;
+import org.eclipse.jetty.websocket.api.WebSocketConnectionListener;
 import org.eclipse.jetty.websocket.server.JettyServerUpgradeRequest;
 import org.eclipse.jetty.websocket.server.JettyServerUpgradeResponse;
 import org.eclipse.jetty.websocket.server.JettyWebSocketCreator;
@@ -52,6 +53,8 @@ public class WSServlet extends JettyWebSocketServlet implements BrokerServiceAwa
 
     private static final long serialVersionUID = -4716657876092884139L;
 
+    private static final String PER_MESSAGE_DEFLATE = "permessage-deflate";
+
     private TransportAcceptListener listener;
 
     private final static Map<String, Integer> stompProtocols = new ConcurrentHashMap<>();
@@ -59,6 +62,7 @@ public class WSServlet extends JettyWebSocketServlet implements BrokerServiceAwa
 
     private Map<String, Object> transportOptions;
     private BrokerService brokerService;
+    private boolean perMessageDeflate = true;
 
     private enum Protocol {
         MQTT, STOMP, UNKNOWN
@@ -90,10 +94,17 @@ public class WSServlet extends JettyWebSocketServlet implements BrokerServiceAwa
 
     @Override
     public void configure(JettyWebSocketServletFactory factory) {
+        // Jetty accepts permessage-deflate, with context takeover unless the client asks
+        // otherwise, when offered; websocket.perMessageDeflate=false turns that off.
+        String deflate = getInitParameter("perMessageDeflate");
+        if (deflate != null) {
+            perMessageDeflate = Boolean.parseBoolean(deflate);
+        }
+
         factory.setCreator(new JettyWebSocketCreator() {
             @Override
             public Object createWebSocket(JettyServerUpgradeRequest req, JettyServerUpgradeResponse resp) {
-                WebSocketListener socket;
+                WebSocketConnectionListener socket;
                 Protocol requestedProtocol = Protocol.UNKNOWN;
 
                 // When no sub-protocol is requested we default to STOMP for legacy reasons.
@@ -133,6 +144,9 @@ public class WSServlet extends JettyWebSocketServlet implements BrokerServiceAwa
                 }
 
                 if (socket != null) {
+                    if (!perMessageDeflate) {
+                        disablePerMessageDeflate(resp);
+                    }
                     listener.onAccept((Transport) socket);
                 }
 
@@ -141,7 +155,7 @@ public class WSServlet extends JettyWebSocketServlet implements BrokerServiceAwa
         });
     }
 
-    private WebSocketListener findWSTransport(JettyServerUpgradeRequest request, JettyServerUpgradeResponse response) {
+    private WSTransportProxy findWSTransport(JettyServerUpgradeRequest request, JettyServerUpgradeResponse response) {
         WSTransportProxy proxy = null;
 
         for (String subProtocol : request.getSubProtocols()) {
@@ -173,6 +187,15 @@ public class WSServlet extends JettyWebSocketServlet implements BrokerServiceAwa
         return proxy;
     }
 
+    private void disablePerMessageDeflate(JettyServerUpgradeResponse response) {
+        List<ExtensionConfig> extensions = response.getExtensions();
+        if (extensions != null && !extensions.isEmpty()) {
+            List<ExtensionConfig> negotiated = new ArrayList<>(extensions);
+            negotiated.removeIf(extension -> PER_MESSAGE_DEFLATE.equals(extension.getName()));
+            response.setExtensions(negotiated);
+        }
+    }
+
     private String getAcceptedSubProtocol(final Map<String, Integer> protocols, List<String> subProtocols, String defaultProtocol) {
         List<SubProtocol> matchedProtocols = new ArrayList<>();
         if (subProtocols != null && subProtocols.size() > 0) {
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.ws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.websocket.api.ExtensionConfig;
+import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.fusesource.hawtbuf.Buffer;
+import org.fusesource.hawtbuf.UTF8Buffer;
+import org.fusesource.mqtt.client.QoS;
+import org.fusesource.mqtt.client.Topic;
+import org.fusesource.mqtt.codec.MQTTFrame;
+import org.fusesource.mqtt.codec.PUBLISH;
+import org.fusesource.mqtt.codec.SUBSCRIBE;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test that MQTT over WebSockets works with and without permessage-deflate negotiated
+ * and that a backlog of messages is delivered intact.
+ */
+@RunWith(Parameterized.class)
+public class MQTTWSPerMessageDeflateTest extends WSTransportTestSupport {
+
+    private static final int MESSAGE_COUNT = 200;
+
+    protected WebSocketClient wsClient;
+    protected MQTTWSConnection wsMQTTConnection;
+
+    private final boolean perMessageDeflate;
+
+    @Parameters(name="{0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] {
+            {"deflate", true},
+            {"no-deflate", false}
+        });
+    }
+
+    public MQTTWSPerMessageDeflateTest(String testName, boolean perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+    }
+
+    @Override
+    protected String getWSConnectorURI() {
+        return super.getWSConnectorURI() + "&websocket.perMessageDeflate=" + perMessageDeflate;
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+
+        wsClient = new WebSocketClient(new HttpClient());
+        wsClient.start();
+
+        ClientUpgradeRequest request = new ClientUpgradeRequest();
+        request.setSubProtocols("mqttv3.1");
+        request.addExtensions("permessage-deflate");
+
+        wsMQTTConnection = new MQTTWSConnection();
+
+        wsClient.connect(wsMQTTConnection, wsConnectUri, request);
+        if (!wsMQTTConnection.awaitConnection(30, TimeUnit.SECONDS)) {
+            throw new IOException("Could not connect to MQTT WS endpoint");
+        }
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        if (wsMQTTConnection != null) {
+            wsMQTTConnection.close();
+            wsMQTTConnection = null;
+        }
+        if (wsClient != null) {
+            wsClient.stop();
+            wsClient = null;
+        }
+
+        super.tearDown();
+    }
+
+    @Test(timeout = 60000)
+    public void testNegotiatedExtension() throws Exception {
+        boolean negotiated = false;
+        for (ExtensionConfig extension : wsMQTTConnection.getConnection().getUpgradeResponse().getExtensions()) {
+            if ("permessage-deflate".equals(extension.getName())) {
+                negotiated = true;
+            }
+        }
+
+        assertEquals(perMessageDeflate, negotiated);
+    }
+
+    @Test(timeout = 60000)
+    public void testBacklogDeliveredInOrder() throws Exception {
+        wsMQTTConnection.connect();
+
+        SUBSCRIBE subscribe = new SUBSCRIBE();
+        subscribe.topics(new Topic[] {new Topic("deflate", QoS.AT_MOST_ONCE) });
+        wsMQTTConnection.sendFrame(subscribe.encode());
+        assertNotNull(wsMQTTConnection.receive(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < MESSAGE_COUNT; ++i) {
+            PUBLISH publish = new PUBLISH();
+            publish.qos(QoS.AT_MOST_ONCE);
+            publish.topicName(new UTF8Buffer("deflate"));
+            publish.payload(new Buffer(("message:" + i).getBytes("UTF-8")));
+            wsMQTTConnection.sendFrame(publish.encode());
+        }
+
+        for (int i = 0; i < MESSAGE_COUNT; ++i) {
+            MQTTFrame frame = wsMQTTConnection.receive(10, TimeUnit.SECONDS);
+            assertNotNull("Should have received message " + i, frame);
+
+            PUBLISH publish = new PUBLISH().decode(frame);
+            assertEquals("message:" + i, new String(publish.payload().toByteArray(), "UTF-8"));
+        }
+
+        wsMQTTConnection.disconnect();
+    }
+}
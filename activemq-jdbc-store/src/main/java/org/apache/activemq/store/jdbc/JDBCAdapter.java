@@ -75,6 +75,14 @@ public interface JDBCAdapter {
 
     void doDeleteOldMessages(TransactionContext c) throws SQLException, IOException;
 
+    /**
+     * Truncates a partition of the message table if it holds no messages, must be called
+     * within a transaction.
+     *
+     * @return true if the partition was truncated
+     */
+    boolean doTruncateDrainedPartition(TransactionContext c, int partition) throws SQLException, IOException;
+
     long doGetLastMessageStoreSequenceId(TransactionContext c) throws SQLException, IOException;
 
     Set<ActiveMQDestination> doGetDestinations(TransactionContext c) throws SQLException, IOException;
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.jdbc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.activemq.util.IOExceptionSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Commits the non transactional writes of concurrent producers and consumers together.
+ * Callers queue their statements and block; a single writer thread runs everything queued
+ * while the previous commit was in progress in one {@link TransactionContext}, so statement
+ * batching applies across callers and they share one database commit. This is the batching
+ * that the KahaDB DataFileAppender does for journal writes.
+ *
+ * If a group fails, its operations are retried one by one so that a single bad write only
+ * fails its own caller. Only the failures of these individual retries reach the broker's
+ * IOException handler.
+ */
+public class JDBCGroupCommitWriter implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JDBCGroupCommitWriter.class);
+
+    /**
+     * A write executed within the shared transaction context.
+     */
+    public interface Operation {
+        void execute(TransactionContext c) throws SQLException, IOException;
+    }
+
+    private static final class WriteRequest {
+        private final Operation operation;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Exception error;
+
+        WriteRequest(Operation operation) {
+            this.operation = operation;
+        }
+
+        void complete(Exception error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
+
+    private final JDBCPersistenceAdapter persistenceAdapter;
+    private final int maxBatchSize;
+    private final Object mutex = new Object();
+    private List<WriteRequest> pending = new ArrayList<>();
+    private boolean running;
+    private Thread thread;
+
+    public JDBCGroupCommitWriter(JDBCPersistenceAdapter persistenceAdapter, int maxBatchSize) {
+        this.persistenceAdapter = persistenceAdapter;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    public void start() {
+        synchronized (mutex) {
+            if (running) {
+                return;
+            }
+            running = true;
+            thread = new Thread(this, "ActiveMQ JDBC Group Commit Writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        Thread toJoin;
+        synchronized (mutex) {
+            running = false;
+            mutex.notifyAll();
+            toJoin = thread;
+            thread = null;
+        }
+        if (toJoin != null) {
+            toJoin.join();
+        }
+    }
+
+    /**
+     * Queues the operation and waits until the group containing it has been committed.
+     */
+    public void write(Operation operation) throws SQLException, IOException {
+        WriteRequest request = new WriteRequest(operation);
+        synchronized (mutex) {
+            if (!running) {
+                throw new IOException("JDBC group commit writer is stopped");
+            }
+            pending.add(request);
+            mutex.notifyAll();
+        }
+        try {
+            request.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for group commit");
+        }
+        if (request.error instanceof SQLException) {
+            throw (SQLException) request.error;
+        } else if (request.error instanceof IOException) {
+            throw (IOException) request.error;
+        } else if (request.error != null) {
+            throw IOExceptionSupport.create(request.error);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            List<WriteRequest> batch;
+            synchronized (mutex) {
+                while (running && pending.isEmpty()) {
+                    try {
+                        mutex.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        running = false;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                if (pending.size() <= maxBatchSize) {
+                    batch = pending;
+                    pending = new ArrayList<>();
+                } else {
+                    batch = new ArrayList<>(pending.subList(0, maxBatchSize));
+                    pending.subList(0, maxBatchSize).clear();
+                }
+            }
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<WriteRequest> batch) {
+        if (batch.size() > 1) {
+            try {
+                TransactionContext c = persistenceAdapter.getTransactionContext();
+                c.begin();
+                try {
+                    for (WriteRequest request : batch) {
+                        request.operation.execute(c);
+                    }
+                } catch (SQLException | IOException | RuntimeException e) {
+                    c.rollback();
+                    throw e;
+                }
+                // a failed group is retried below, only a write that fails on its own is
+                // handed to the broker's IOException handler
+                c.commit(false);
+                LOG.trace("Group committed {} writes", batch.size());
+                for (WriteRequest request : batch) {
+                    request.complete(null);
+                }
+                return;
+            } catch (Exception e) {
+                LOG.debug("Group commit of {} writes failed, retrying them individually", batch.size(), e);
+            }
+        }
+        for (WriteRequest request : batch) {
+            Exception error = null;
+            try {
+                TransactionContext c = persistenceAdapter.getTransactionContext();
+                try {
+                    request.operation.execute(c);
+                } finally {
+                    c.close();
+                }
+            } catch (Exception e) {
+                error = e;
+            }
+            request.complete(error);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.jdbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.Message;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.apache.activemq.store.kahadb.disk.journal.Journal;
+import org.apache.activemq.store.kahadb.disk.journal.Location;
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.IOExceptionSupport;
+import org.apache.activemq.util.IOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local write ahead journal in front of the database. Queue messages added outside of
+ * transactions are synced to a KahaDB {@link Journal} and checkpointed to the database
+ * periodically, so a message that is acknowledged before the next checkpoint never reaches
+ * the database.
+ *
+ * A checkpoint rolls the journal to a new data file, inserts every pending message in one
+ * database transaction and journals a checkpoint record naming the new data file; recovery
+ * skips the add records of the files before it, as their messages are database resident and
+ * may have been consumed from there. The checkpoint then deletes the messages acked while
+ * they were being inserted and only after that deletes the rolled data files, so until that
+ * delete commits the remove records stay in the journal. Acks of messages that are pending
+ * or being checkpointed are journaled as well, so that recovery, which replays the remaining
+ * data files into the database on start, can tell which messages were consumed. Recovery is
+ * idempotent: adds already in the database and removes of absent messages are skipped.
+ */
+public class JDBCJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JDBCJournal.class);
+
+    private static final byte ADD_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+    private static final byte CHECKPOINT_RECORD = 3;
+
+    private static final class Entry {
+        private final JDBCMessageStore store;
+        private final MessageId messageId;
+        private final long sequenceId;
+        private final long expiration;
+        private final byte priority;
+        private final byte[] data;
+        private boolean checkpointing;
+        private boolean acked;
+
+        Entry(JDBCMessageStore store, Message message, long sequenceId, byte priority, byte[] data) {
+            this.store = store;
+            this.messageId = message.getMessageId();
+            this.sequenceId = sequenceId;
+            this.expiration = message.getExpiration();
+            this.priority = priority;
+            this.data = data;
+        }
+    }
+
+    private final JDBCPersistenceAdapter persistenceAdapter;
+    private final OpenWireFormat wireFormat = new OpenWireFormat();
+    private final Map<MessageId, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock rollLock = new ReentrantReadWriteLock();
+    private final Object checkpointMutex = new Object();
+    private final File directory;
+    private final int maxFileLength;
+    private final long checkpointInterval;
+    private Journal journal;
+    private ScheduledFuture<?> checkpointTicket;
+    // checkpointed messages acked during their checkpoint whose database delete has not
+    // committed yet, the journal keeps their remove records until it does.
+    private final List<Entry> uncommittedRemoves = new ArrayList<>();
+
+    public JDBCJournal(JDBCPersistenceAdapter persistenceAdapter, File directory, int maxFileLength, long checkpointInterval) {
+        this.persistenceAdapter = persistenceAdapter;
+        this.directory = directory;
+        this.maxFileLength = maxFileLength;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public void start(int wireFormatVersion) throws IOException {
+        wireFormat.setVersion(wireFormatVersion);
+        IOHelper.mkdirs(directory);
+        journal = new Journal();
+        journal.setDirectory(directory);
+        journal.setMaxFileLength(maxFileLength);
+        journal.start();
+        recover();
+        if (checkpointInterval > 0) {
+            checkpointTicket = persistenceAdapter.getScheduledThreadPoolExecutor().scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        checkpoint();
+                    } catch (IOException e) {
+                        LOG.warn("JDBC journal checkpoint failed, will retry: {}", e.toString());
+                        LOG.debug("Checkpoint failure details", e);
+                    }
+                }
+            }, checkpointInterval, checkpointInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void stop() throws IOException {
+        if (checkpointTicket != null) {
+            checkpointTicket.cancel(false);
+            checkpointTicket = null;
+        }
+        if (journal != null) {
+            try {
+                checkpoint();
+            } finally {
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Syncs the message to the journal, it is inserted into the database by a later checkpoint.
+     */
+    public void add(JDBCMessageStore store, Message message, long sequenceId, byte priority, byte[] data) throws IOException {
+        Entry entry = new Entry(store, message, sequenceId, priority, data);
+        byte[] record = new byte[data.length + 2];
+        record[0] = ADD_RECORD;
+        record[1] = priority;
+        System.arraycopy(data, 0, record, 2, data.length);
+        rollLock.readLock().lock();
+        try {
+            journal.write(new ByteSequence(record), true);
+            entries.put(entry.messageId, entry);
+        } finally {
+            rollLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Acknowledges a message that is still in the journal.
+     *
+     * @return false if the message is in the database and has to be removed from there
+     */
+    public boolean remove(MessageAck ack) throws IOException {
+        Entry entry = entries.get(ack.getLastMessageId());
+        if (entry == null) {
+            return false;
+        }
+        MessageAck record = new MessageAck();
+        record.setDestination(entry.store.getDestination());
+        record.setLastMessageId(entry.messageId);
+        rollLock.readLock().lock();
+        try {
+            synchronized (entry) {
+                if (entries.get(entry.messageId) != entry) {
+                    // checkpoint completed in the meantime
+                    return false;
+                }
+                writeRecord(REMOVE_RECORD, record);
+                entry.acked = true;
+                if (!entry.checkpointing) {
+                    entries.remove(entry.messageId);
+                    entry.store.journalPendingSequences.remove(entry.sequenceId);
+                }
+            }
+        } finally {
+            rollLock.readLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Inserts all pending messages into the database and releases the journal data files
+     * that contain them.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointMutex) {
+            if (journal == null) {
+                return;
+            }
+            List<Entry> batch = new ArrayList<>();
+            Set<Integer> obsoleteFiles = new HashSet<>();
+            int checkpointFileId;
+            rollLock.writeLock().lock();
+            try {
+                if (entries.isEmpty() && uncommittedRemoves.isEmpty() && journal.getFileMap().size() <= 1) {
+                    return;
+                }
+                for (Entry entry : entries.values()) {
+                    synchronized (entry) {
+                        if (!entry.acked) {
+                            entry.checkpointing = true;
+                            batch.add(entry);
+                        }
+                    }
+                }
+                obsoleteFiles.addAll(journal.getFileMap().keySet());
+                journal.rotateWriteFile();
+                checkpointFileId = journal.getCurrentDataFileId();
+            } finally {
+                rollLock.writeLock().unlock();
+            }
+
+            batch.sort(Comparator.comparingLong(e -> e.sequenceId));
+            try {
+                TransactionContext c = persistenceAdapter.getTransactionContext();
+                c.begin();
+                try {
+                    for (Entry entry : batch) {
+                        persistenceAdapter.getAdapter().doAddMessage(c, entry.sequenceId, entry.messageId, entry.store.getDestination(),
+                                entry.data, entry.expiration, entry.priority, null);
+                    }
+                } catch (SQLException | IOException | RuntimeException e) {
+                    c.rollback();
+                    throw e;
+                }
+                c.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                for (Entry entry : batch) {
+                    synchronized (entry) {
+                        entry.checkpointing = false;
+                    }
+                }
+                if (e instanceof SQLException) {
+                    JDBCPersistenceAdapter.log("JDBC Failure: ", (SQLException) e);
+                }
+                throw IOExceptionSupport.create("Failed to checkpoint the JDBC journal: " + e, e);
+            }
+
+            // Once the entries are dropped their acks go straight to the database, without a
+            // remove record. Mark every add record before the rotation as inserted first, so
+            // that recovery does not insert a consumed message again while the rolled files
+            // are still there.
+            writeCheckpointRecord(checkpointFileId);
+
+            List<Entry> acked = new ArrayList<>();
+            for (Entry entry : batch) {
+                synchronized (entry) {
+                    entry.checkpointing = false;
+                    entries.remove(entry.messageId);
+                    entry.store.journalPendingSequences.remove(entry.sequenceId);
+                    if (entry.acked) {
+                        acked.add(entry);
+                    }
+                }
+            }
+            uncommittedRemoves.addAll(acked);
+            if (!uncommittedRemoves.isEmpty()) {
+                try {
+                    TransactionContext c = persistenceAdapter.getTransactionContext();
+                    c.begin();
+                    try {
+                        JDBCAdapter adapter = persistenceAdapter.getAdapter();
+                        for (Entry entry : uncommittedRemoves) {
+                            // the message may be gone already when retrying, e.g. purged
+                            if (adapter.getStoreSequenceId(c, entry.store.getDestination(), entry.messageId)[0] > 0) {
+                                adapter.doRemoveMessage(c, entry.sequenceId, null);
+                            }
+                        }
+                    } catch (SQLException | IOException | RuntimeException e) {
+                        c.rollback();
+                        throw e;
+                    }
+                    c.commit();
+                } catch (SQLException | IOException | RuntimeException e) {
+                    if (e instanceof SQLException) {
+                        JDBCPersistenceAdapter.log("JDBC Failure: ", (SQLException) e);
+                    }
+                    // keep every journal file so the remove records are replayed on recovery,
+                    // the next checkpoint retries the deletes
+                    throw IOExceptionSupport.create("Failed to remove messages acked during checkpoint: " + e, e);
+                }
+                uncommittedRemoves.clear();
+            }
+
+            // the messages are in the database and the acks received while they were being
+            // inserted are applied, the records before the checkpoint are no longer needed
+            journal.removeDataFiles(obsoleteFiles);
+
+            LOG.debug("JDBC journal checkpointed {} messages, {} acked during the checkpoint", batch.size(), acked.size());
+        }
+    }
+
+    public boolean isPending(MessageId messageId) {
+        return entries.containsKey(messageId);
+    }
+
+    public long getPendingCount() {
+        return entries.size();
+    }
+
+    private void writeRecord(byte type, Object command) throws IOException {
+        ByteSequence packet = wireFormat.marshal(command);
+        byte[] record = new byte[packet.getLength() + 2];
+        record[0] = type;
+        System.arraycopy(packet.getData(), packet.getOffset(), record, 2, packet.getLength());
+        journal.write(new ByteSequence(record), true);
+    }
+
+    private void writeCheckpointRecord(int checkpointFileId) throws IOException {
+        byte[] record = new byte[6];
+        record[0] = CHECKPOINT_RECORD;
+        record[2] = (byte) (checkpointFileId >>> 24);
+        record[3] = (byte) (checkpointFileId >>> 16);
+        record[4] = (byte) (checkpointFileId >>> 8);
+        record[5] = (byte) checkpointFileId;
+        rollLock.readLock().lock();
+        try {
+            journal.write(new ByteSequence(record), true);
+        } finally {
+            rollLock.readLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        Map<MessageId, byte[]> adds = new LinkedHashMap<>();
+        Map<MessageId, Byte> priorities = new LinkedHashMap<>();
+        Map<MessageId, Integer> addFiles = new HashMap<>();
+        List<MessageAck> removes = new ArrayList<>();
+        int checkpointFileId = Integer.MIN_VALUE;
+        for (Location location = journal.getNextLocation(null); location != null; location = journal.getNextLocation(location)) {
+            ByteSequence record = journal.read(location);
+            byte[] bytes = record.getData();
+            int offset = record.getOffset();
+            byte type = bytes[offset];
+            ByteSequence payload = new ByteSequence(bytes, offset + 2, record.getLength() - 2);
+            if (type == ADD_RECORD) {
+                Message message = (Message) wireFormat.unmarshal(payload);
+                byte[] data = new byte[payload.getLength()];
+                System.arraycopy(payload.getData(), payload.getOffset(), data, 0, data.length);
+                adds.put(message.getMessageId(), data);
+                priorities.put(message.getMessageId(), bytes[offset + 1]);
+                addFiles.put(message.getMessageId(), location.getDataFileId());
+            } else if (type == REMOVE_RECORD) {
+                MessageAck ack = (MessageAck) wireFormat.unmarshal(payload);
+                // the add may be inserted already when a later checkpoint record covers it
+                adds.remove(ack.getLastMessageId());
+                removes.add(ack);
+            } else if (type == CHECKPOINT_RECORD) {
+                checkpointFileId = ((bytes[offset + 2] & 0xFF) << 24) | ((bytes[offset + 3] & 0xFF) << 16) |
+                                   ((bytes[offset + 4] & 0xFF) << 8) | (bytes[offset + 5] & 0xFF);
+            }
+        }
+
+        // the adds written before the last completed checkpoint are in the database already,
+        // or were consumed from there since
+        final int insertedBefore = checkpointFileId;
+        adds.keySet().removeIf(messageId -> addFiles.get(messageId) < insertedBefore);
+
+        if (!adds.isEmpty() || !removes.isEmpty()) {
+            JDBCAdapter adapter = persistenceAdapter.getAdapter();
+            TransactionContext c = persistenceAdapter.getTransactionContext();
+            c.begin();
+            int added = 0;
+            int removed = 0;
+            try {
+                persistenceAdapter.sequenceGenerator.setLastSequenceId(adapter.doGetLastMessageStoreSequenceId(c));
+                for (Map.Entry<MessageId, byte[]> add : adds.entrySet()) {
+                    if (adapter.doGetMessage(c, add.getKey()) == null) {
+                        Message message = (Message) wireFormat.unmarshal(new ByteSequence(add.getValue()));
+                        adapter.doAddMessage(c, persistenceAdapter.getNextSequenceId(), add.getKey(), message.getDestination(),
+                                add.getValue(), message.getExpiration(), priorities.get(add.getKey()), null);
+                        added++;
+                    }
+                }
+                for (MessageAck remove : removes) {
+                    ActiveMQDestination destination = remove.getDestination();
+                    long sequenceId = adapter.getStoreSequenceId(c, destination, remove.getLastMessageId())[0];
+                    if (sequenceId > 0) {
+                        adapter.doRemoveMessage(c, sequenceId, null);
+                        removed++;
+                    }
+                }
+            } catch (SQLException | IOException | RuntimeException e) {
+                c.rollback();
+                throw IOExceptionSupport.create("Failed to recover the JDBC journal: " + e, e);
+            }
+            c.commit();
+            LOG.info("Recovered JDBC journal {}: {} messages added, {} removed", directory, added, removed);
+        }
+
+        Set<Integer> recovered = new HashSet<>(journal.getFileMap().keySet());
+        journal.rotateWriteFile();
+        journal.removeDataFiles(recovered);
+    }
+}
@@ -37,9 +37,18 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.List;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -72,8 +81,26 @@ public class JDBCMessageStore extends AbstractMessageStore {
     protected ActiveMQMessageAudit audit;
     protected final LinkedList<Long> pendingAdditions = new LinkedList<Long>();
     protected final TreeMap<Long, Message> rolledBackAcks = new TreeMap<Long, Message>();
+    final ConcurrentSkipListSet<Long> journalPendingSequences = new ConcurrentSkipListSet<Long>();
     final long[] perPriorityLastRecovered = new long[10];
 
+    // the next batch of recoverNextMessages, fetched while the current one is dispatched
+    private final AtomicLong recoveryGeneration = new AtomicLong();
+    private Future<List<RecoveredRow>> fetchAhead;
+    private long[] fetchAheadFrom;
+    private long fetchAheadGeneration;
+    private AtomicBoolean fetchAheadStarted;
+
+    private static final class RecoveredRow {
+        final long sequenceId;
+        final byte[] data;
+
+        RecoveredRow(long sequenceId, byte[] data) {
+            this.sequenceId = sequenceId;
+            this.data = data;
+        }
+    }
+
     public JDBCMessageStore(JDBCPersistenceAdapter persistenceAdapter, JDBCAdapter adapter, WireFormat wireFormat, ActiveMQDestination destination, ActiveMQMessageAudit audit) throws IOException {
         super(destination);
         this.persistenceAdapter = persistenceAdapter;
@@ -125,9 +152,13 @@ public class JDBCMessageStore extends AbstractMessageStore {
             throw IOExceptionSupport.create("Failed to broker message: " + messageId + " in container: " + e, e);
         }
 
-        // Get a connection and insert the message into the DB.
-        TransactionContext c = persistenceAdapter.getTransactionContext(context);
-        long sequenceId;
+        // Get a connection and insert the message into the DB, or hand the insert to the
+        // group commit writer when it is not part of a transaction
+        final JDBCJournal journal = xaXid == null && destination.isQueue() ? persistenceAdapter.getJournal(context) : null;
+        final JDBCGroupCommitWriter groupCommitWriter = xaXid == null && journal == null ? persistenceAdapter.getGroupCommitWriter(context) : null;
+        final TransactionContext c = groupCommitWriter == null && journal == null ? persistenceAdapter.getTransactionContext(context) : null;
+        final long sequenceId;
+        Runnable onCommit = null;
         synchronized (pendingAdditions) {
             sequenceId = persistenceAdapter.getNextSequenceId();
             final long sequence = sequenceId;
@@ -136,14 +167,21 @@ public class JDBCMessageStore extends AbstractMessageStore {
             if (xaXid == null) {
                 pendingAdditions.add(sequence);
 
-                c.onCompletion(new Runnable() {
+                onCommit = new Runnable() {
                     @Override
                     public void run() {
                         // jdbc close or jms commit - while futureOrSequenceLong==null ordered
                         // work will remain pending on the Queue
                         message.getMessageId().setFutureOrSequenceLong(sequence);
                     }
-                });
+                };
+                if (c != null) {
+                    c.onCompletion(onCommit);
+                }
+                if (journal != null) {
+                    // not in the database until checkpointed, keep recovery from scanning past it
+                    journalPendingSequences.add(sequence);
+                }
 
                 if (indexListener != null) {
                     indexListener.onAdd(new IndexListener.MessageContext(context, message, new Runnable() {
@@ -158,14 +196,39 @@ public class JDBCMessageStore extends AbstractMessageStore {
                 }
             }
         }
+        if (journal != null) {
+            try {
+                journal.add(this, message, sequenceId, this.isPrioritizedMessages() ? message.getPriority() : 0, data);
+            } catch (IOException e) {
+                journalPendingSequences.remove(sequenceId);
+                throw IOExceptionSupport.create("Failed to journal message: " + messageId + " in container: " + e, e);
+            }
+            onCommit.run();
+            onAdd(message, sequenceId, message.getPriority());
+            return;
+        }
         try {
-            adapter.doAddMessage(c, sequenceId, messageId, destination, data, message.getExpiration(),
-                    this.isPrioritizedMessages() ? message.getPriority() : 0, xaXid);
+            if (groupCommitWriter != null) {
+                final Runnable completion = onCommit;
+                groupCommitWriter.write(new JDBCGroupCommitWriter.Operation() {
+                    @Override
+                    public void execute(TransactionContext groupContext) throws SQLException, IOException {
+                        groupContext.onCompletion(completion);
+                        adapter.doAddMessage(groupContext, sequenceId, messageId, destination, data, message.getExpiration(),
+                                isPrioritizedMessages() ? message.getPriority() : 0, null);
+                    }
+                });
+            } else {
+                adapter.doAddMessage(c, sequenceId, messageId, destination, data, message.getExpiration(),
+                        this.isPrioritizedMessages() ? message.getPriority() : 0, xaXid);
+            }
         } catch (SQLException e) {
             JDBCPersistenceAdapter.log("JDBC Failure: ", e);
             throw IOExceptionSupport.create("Failed to broker message: " + messageId + " in container: " + e, e);
         } finally {
-            c.close();
+            if (c != null) {
+                c.close();
+            }
         }
         if (xaXid == null) {
             onAdd(message, sequenceId, message.getPriority());
@@ -174,18 +237,34 @@ public class JDBCMessageStore extends AbstractMessageStore {
 
     // jdbc commit order is random with concurrent connections - limit scan to lowest pending
     private long minPendingSequeunceId() {
+        long minPending;
         synchronized (pendingAdditions) {
             if (!pendingAdditions.isEmpty()) {
-                return pendingAdditions.get(0);
+                minPending = pendingAdditions.get(0);
             } else {
                 // nothing pending, ensure scan is limited to current state
-                return persistenceAdapter.sequenceGenerator.getLastSequenceId() + 1;
+                minPending = persistenceAdapter.sequenceGenerator.getLastSequenceId() + 1;
             }
         }
+        // journaled messages only become visible to the scan once checkpointed
+        Long minJournaled = journalPendingSequences.isEmpty() ? null : journalPendingSequences.ceiling(Long.MIN_VALUE);
+        return minJournaled != null ? Math.min(minPending, minJournaled) : minPending;
+    }
+
+    /**
+     * Checkpoints the journal if it holds messages of this store, for operations that need
+     * to see every message in the database.
+     */
+    private void checkpointJournal() throws IOException {
+        JDBCJournal journal = persistenceAdapter.getJournal();
+        if (journal != null && !journalPendingSequences.isEmpty()) {
+            journal.checkpoint();
+        }
     }
 
     @Override
     public void updateMessage(Message message) throws IOException {
+        checkpointJournal();
         TransactionContext c = persistenceAdapter.getTransactionContext();
         try {
             adapter.doUpdateMessage(c, destination, message.getMessageId(), ByteSequenceData.toByteArray(wireFormat.marshal(message)));
@@ -214,6 +293,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
 
     @Override
     public Message getMessage(MessageId messageId) throws IOException {
+        checkpointJournal();
         // Get a connection and pull the message out of the DB
         TransactionContext c = persistenceAdapter.getTransactionContext();
         try {
@@ -253,15 +333,43 @@ public class JDBCMessageStore extends AbstractMessageStore {
 
     @Override
     public void removeMessage(ConnectionContext context, MessageAck ack) throws IOException {
+        final XATransactionId xid = context != null ? context.getXid() : null;
+        final JDBCJournal journal = destination.isQueue() ? persistenceAdapter.getJournal() : null;
+        if (journal != null && journal.isPending(ack.getLastMessageId())) {
+            if (xid == null && persistenceAdapter.getJournal(context) != null) {
+                if (journal.remove(ack)) {
+                    return;
+                }
+            } else {
+                // a transactional ack has to find the message in the database
+                journal.checkpoint();
+            }
+        }
 
     	long seq = (ack.getLastMessageId().getFutureOrSequenceLong() != null && ((Long) ack.getLastMessageId().getFutureOrSequenceLong() != 0)) ?
                 (Long) ack.getLastMessageId().getFutureOrSequenceLong() :
                 persistenceAdapter.getStoreSequenceIdForMessageId(context, ack.getLastMessageId(), destination)[0];
 
+        final JDBCGroupCommitWriter groupCommitWriter = xid == null ? persistenceAdapter.getGroupCommitWriter(context) : null;
+        if (groupCommitWriter != null) {
+            try {
+                groupCommitWriter.write(new JDBCGroupCommitWriter.Operation() {
+                    @Override
+                    public void execute(TransactionContext groupContext) throws SQLException, IOException {
+                        adapter.doRemoveMessage(groupContext, seq, null);
+                    }
+                });
+            } catch (SQLException e) {
+                JDBCPersistenceAdapter.log("JDBC Failure: ", e);
+                throw IOExceptionSupport.create("Failed to broker message: " + ack.getLastMessageId() + " in container: " + e, e);
+            }
+            return;
+        }
+
         // Get a connection and remove the message from the DB
         TransactionContext c = persistenceAdapter.getTransactionContext(context);
         try {
-            adapter.doRemoveMessage(c, seq, context != null ? context.getXid() : null);
+            adapter.doRemoveMessage(c, seq, xid);
         } catch (SQLException e) {
             JDBCPersistenceAdapter.log("JDBC Failure: ", e);
             throw IOExceptionSupport.create("Failed to broker message: " + ack.getLastMessageId() + " in container: " + e, e);
@@ -272,6 +380,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
 
     @Override
     public void recover(final MessageRecoveryListener listener) throws Exception {
+        checkpointJournal();
 
         // Get all the Message ids out of the database.
         TransactionContext c = persistenceAdapter.getTransactionContext();
@@ -316,6 +425,8 @@ public class JDBCMessageStore extends AbstractMessageStore {
      */
     @Override
     public void removeAllMessages(ConnectionContext context) throws IOException {
+        checkpointJournal();
+        invalidateFetchAhead();
         // Get a connection and remove the message from the DB
         TransactionContext c = persistenceAdapter.getTransactionContext(context);
         try {
@@ -334,7 +445,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
         TransactionContext c = persistenceAdapter.getTransactionContext();
         try {
 
-            result = adapter.doGetMessageCount(c, destination);
+            result = adapter.doGetMessageCount(c, destination) + journalPendingSequences.size();
 
         } catch (SQLException e) {
             JDBCPersistenceAdapter.log("JDBC Failure: ", e);
@@ -354,6 +465,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
      */
     @Override
     public void recoverNextMessages(int maxReturned, final MessageRecoveryListener listener) throws Exception {
+        List<RecoveredRow> fetchedAhead = takeFetchAhead();
         TransactionContext c = persistenceAdapter.getTransactionContext();
         try {
             if (LOG.isTraceEnabled()) {
@@ -362,43 +474,158 @@ public class JDBCMessageStore extends AbstractMessageStore {
 
             maxReturned -= recoverRolledBackAcks(maxReturned, listener);
 
-            adapter.doRecoverNextMessages(c, destination, perPriorityLastRecovered, minPendingSequeunceId(),
-                    maxReturned, isPrioritizedMessages(), new JDBCMessageRecoveryListener() {
-
-                @Override
-                public boolean recoverMessage(long sequenceId, byte[] data) throws Exception {
-                    if (listener.canRecoveryNextMessage()) {
-                        Message msg = (Message) wireFormat.unmarshal(new ByteSequence(data));
-                        msg.getMessageId().setBrokerSequenceId(sequenceId);
-                        msg.getMessageId().setFutureOrSequenceLong(sequenceId);
-                        msg.getMessageId().setEntryLocator(sequenceId);
-                        listener.recoverMessage(msg);
-                        trackLastRecovered(sequenceId, msg.getPriority());
-                        return true;
-                    } else {
-                        return false;
+            CursorRecoveryListener recoveryListener = new CursorRecoveryListener(listener);
+            if (fetchedAhead != null) {
+                for (RecoveredRow row : fetchedAhead) {
+                    if (recoveryListener.recovered == maxReturned || !recoveryListener.recoverMessage(row.sequenceId, row.data)) {
+                        break;
                     }
                 }
+            } else {
+                adapter.doRecoverNextMessages(c, destination, perPriorityLastRecovered, minPendingSequeunceId(),
+                        maxReturned, isPrioritizedMessages(), recoveryListener);
+            }
+            if (maxReturned > 0 && recoveryListener.recovered == maxReturned) {
+                // a full batch, more is likely to follow
+                fetchAhead(maxReturned);
+            }
+        } catch (SQLException e) {
+            JDBCPersistenceAdapter.log("JDBC Failure: ", e);
+        } finally {
+            c.close();
+        }
+
+    }
+
+    private class CursorRecoveryListener implements JDBCMessageRecoveryListener {
+        private final MessageRecoveryListener listener;
+        private int recovered;
+
+        CursorRecoveryListener(MessageRecoveryListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean recoverMessage(long sequenceId, byte[] data) throws Exception {
+            if (listener.canRecoveryNextMessage()) {
+                Message msg = (Message) wireFormat.unmarshal(new ByteSequence(data));
+                msg.getMessageId().setBrokerSequenceId(sequenceId);
+                msg.getMessageId().setFutureOrSequenceLong(sequenceId);
+                msg.getMessageId().setEntryLocator(sequenceId);
+                listener.recoverMessage(msg);
+                trackLastRecovered(sequenceId, msg.getPriority());
+                recovered++;
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean recoverMessageReference(String reference) throws Exception {
+            if (listener.hasSpace()) {
+                listener.recoverMessageReference(new MessageId(reference));
+                recovered++;
+                return true;
+            }
+            return false;
+        }
+    }
 
+    /**
+     * Starts fetching the batch that follows the last recovered message, so that the next
+     * recoverNextMessages does not wait on the database.
+     */
+    private void fetchAhead(final int maxReturned) {
+        final ThreadPoolExecutor executor = persistenceAdapter.getRecoveryFetchAheadExecutor();
+        if (executor == null || persistenceAdapter.getStatements().isUseExternalMessageReferences()) {
+            return;
+        }
+        final long[] from = perPriorityLastRecovered.clone();
+        final long maxSeq = minPendingSequeunceId();
+        final long generation = recoveryGeneration.get();
+        final AtomicBoolean started = new AtomicBoolean();
+        Future<List<RecoveredRow>> future;
+        try {
+            future = executor.submit(new Callable<List<RecoveredRow>>() {
                 @Override
-                public boolean recoverMessageReference(String reference) throws Exception {
-                    if (listener.hasSpace()) {
-                        listener.recoverMessageReference(new MessageId(reference));
-                        return true;
+                public List<RecoveredRow> call() throws Exception {
+                    if (!started.compareAndSet(false, true)) {
+                        return Collections.emptyList();
                     }
-                    return false;
+                    final List<RecoveredRow> rows = new ArrayList<RecoveredRow>(maxReturned);
+                    TransactionContext c = persistenceAdapter.getTransactionContext();
+                    try {
+                        adapter.doRecoverNextMessages(c, destination, from, maxSeq, maxReturned, isPrioritizedMessages(), new JDBCMessageRecoveryListener() {
+                            @Override
+                            public boolean recoverMessage(long sequenceId, byte[] data) {
+                                rows.add(new RecoveredRow(sequenceId, data));
+                                return true;
+                            }
+
+                            @Override
+                            public boolean recoverMessageReference(String reference) {
+                                return false;
+                            }
+                        });
+                    } finally {
+                        c.close();
+                    }
+                    return rows;
                 }
-
             });
-        } catch (SQLException e) {
-            JDBCPersistenceAdapter.log("JDBC Failure: ", e);
-        } finally {
-            c.close();
+        } catch (RejectedExecutionException busyOrStopping) {
+            // the next batch is recovered directly instead
+            return;
+        }
+        synchronized (recoveryGeneration) {
+            fetchAhead = future;
+            fetchAheadFrom = from;
+            fetchAheadGeneration = generation;
+            fetchAheadStarted = started;
         }
+    }
 
+    /**
+     * @return the rows fetched ahead if they still continue from the last recovered message,
+     *         otherwise null
+     */
+    private List<RecoveredRow> takeFetchAhead() {
+        Future<List<RecoveredRow>> future;
+        synchronized (recoveryGeneration) {
+            future = fetchAhead;
+            fetchAhead = null;
+            if (future == null || fetchAheadGeneration != recoveryGeneration.get() || !Arrays.equals(fetchAheadFrom, perPriorityLastRecovered)) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return null;
+            }
+            if (fetchAheadStarted.compareAndSet(false, true)) {
+                // still queued behind other destinations, querying directly is quicker
+                future.cancel(false);
+                return null;
+            }
+        }
+        try {
+            List<RecoveredRow> rows = future.get();
+            // an empty result may be a failed query, have the caller look for itself
+            return rows.isEmpty() ? null : rows;
+        } catch (Exception e) {
+            LOG.debug("{} fetch ahead failed, recovering directly: {}", this, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Discards the batch fetched ahead, for changes that a fresh recovery query would see.
+     */
+    private void invalidateFetchAhead() {
+        recoveryGeneration.incrementAndGet();
     }
 
     public void trackRollbackAck(Message message) {
+        invalidateFetchAhead();
         synchronized (rolledBackAcks) {
             rolledBackAcks.put((Long)message.getMessageId().getEntryLocator(), message);
         }
@@ -442,6 +669,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
      */
     @Override
     public void resetBatching() {
+        invalidateFetchAhead();
         if (LOG.isTraceEnabled()) {
             LOG.trace(this + " resetBatching. last recovered: " + Arrays.toString(perPriorityLastRecovered));
         }
@@ -457,6 +685,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
 
     @Override
     public void setBatch(MessageId messageId) {
+        invalidateFetchAhead();
         if (LOG.isTraceEnabled()) {
             LOG.trace(this + " setBatch: last recovered: " + Arrays.toString(perPriorityLastRecovered));
         }
@@ -24,9 +24,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
@@ -54,6 +56,7 @@ import org.apache.activemq.usage.SystemUsage;
 import org.apache.activemq.util.ByteSequence;
 import org.apache.activemq.util.FactoryFinder;
 import org.apache.activemq.util.IOExceptionSupport;
+import org.apache.activemq.util.IOHelper;
 import org.apache.activemq.util.LongSequenceGenerator;
 import org.apache.activemq.util.ServiceStopper;
 import org.apache.activemq.util.ThreadPoolUtils;
@@ -96,6 +99,17 @@ public class JDBCPersistenceAdapter extends DataSourceServiceSupport implements
     private boolean changeAutoCommitAllowed = true;
     private int queryTimeout = -1;
     private int networkTimeout = -1;
+    private boolean groupCommit;
+    private int groupCommitMaxBatchSize = 1000;
+    private JDBCGroupCommitWriter groupCommitWriter;
+    private boolean journaled;
+    private File journalDirectory;
+    private int journalMaxFileLength = 1024 * 1024 * 4;
+    private long journalCheckpointInterval = 1000;
+    private JDBCJournal journal;
+    private boolean recoveryFetchAhead;
+    private int recoveryFetchAheadThreads = 2;
+    private ThreadPoolExecutor recoveryFetchAheadExecutor;
 
     protected int maxProducersToAudit=1024;
     protected int maxAuditDepth=1000;
@@ -343,6 +357,27 @@ public class JDBCPersistenceAdapter extends DataSourceServiceSupport implements
             }, 0, cleanupPeriod, TimeUnit.MILLISECONDS);
         }
         createMessageAudit();
+        if (journaled) {
+            journal = new JDBCJournal(this, getJournalDirectoryFile(), journalMaxFileLength, journalCheckpointInterval);
+            journal.start(wireFormat.getVersion());
+        }
+        if (groupCommit) {
+            groupCommitWriter = new JDBCGroupCommitWriter(this, groupCommitMaxBatchSize);
+            groupCommitWriter.start();
+        }
+        if (recoveryFetchAhead) {
+            // kept apart from the scheduler that runs the lock keep alive and cleanup
+            recoveryFetchAheadExecutor = new ThreadPoolExecutor(recoveryFetchAheadThreads, recoveryFetchAheadThreads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(recoveryFetchAheadThreads), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "ActiveMQ JDBC PA Recovery Fetch Ahead");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            recoveryFetchAheadExecutor.allowCoreThreadTimeOut(true);
+        }
     }
 
     @Override
@@ -351,6 +386,22 @@ public class JDBCPersistenceAdapter extends DataSourceServiceSupport implements
             cleanupTicket.cancel(true);
             cleanupTicket = null;
         }
+        if (groupCommitWriter != null) {
+            groupCommitWriter.stop();
+            groupCommitWriter = null;
+        }
+        if (recoveryFetchAheadExecutor != null) {
+            ThreadPoolUtils.shutdownNow(recoveryFetchAheadExecutor);
+            recoveryFetchAheadExecutor = null;
+        }
+        if (journal != null) {
+            try {
+                journal.stop();
+            } catch (IOException e) {
+                stopper.onException(this, e);
+            }
+            journal = null;
+        }
         closeDataSource(getDataSource());
     }
 
@@ -375,6 +426,32 @@ public class JDBCPersistenceAdapter extends DataSourceServiceSupport implements
             }
             LOG.debug("Cleanup done.");
         }
+        if (getStatements().isPartitioned()) {
+            truncateDrainedPartitions();
+        }
+    }
+
+    private void truncateDrainedPartitions() {
+        for (int partition = 0; partition < getStatements().getPartitionCount(); partition++) {
+            TransactionContext c = null;
+            try {
+                c = getTransactionContext();
+                c.begin();
+                if (getAdapter().doTruncateDrainedPartition(c, partition)) {
+                    LOG.debug("Truncated drained message partition {}", partition);
+                }
+                c.commit();
+            } catch (IOException | SQLException e) {
+                // busy partitions are skipped until the next cleanup
+                LOG.debug("Message partition {} not truncated: {}", partition, e.toString());
+                if (c != null) {
+                    try {
+                        c.rollback();
+                    } catch (Throwable ignored) {
+                    }
+                }
+            }
+        }
     }
 
     @Override
@@ -514,6 +591,40 @@ public class JDBCPersistenceAdapter extends DataSourceServiceSupport implements
         return context.getSecurityContext() != null && context.getSecurityContext().isBrokerContext();
     }
 
+    /**
+     * @return the group commit writer when the write for the given context is not part of
+     *         a transaction and can be committed together with other writes, otherwise null
+     */
+    JDBCGroupCommitWriter getGroupCommitWriter(ConnectionContext context) {
+        JDBCGroupCommitWriter writer = groupCommitWriter;
+        return writer != null && isOutsideTransaction(context) ? writer : null;
+    }
+
+    /**
+     * @return the journal when the write for the given context is not part of a transaction
+     *         and can go through the journal, otherwise null
+     */
+    JDBCJournal getJournal(ConnectionContext context) {
+        JDBCJournal current = journal;
+        return current != null && isOutsideTransaction(context) ? current : null;
+    }
+
+    JDBCJournal getJournal() {
+        return journal;
+    }
+
+    private File getJournalDirectoryFile() {
+        return journalDirectory != null ? journalDirectory : new File(getDirectory(), "jdbc-journal");
+    }
+
+    private boolean isOutsideTransaction(ConnectionContext context) {
+        if (context == null || isBrokerContext(context)) {
+            return true;
+        }
+        TransactionContext transactionContext = (TransactionContext) context.getLongTermStoreContext();
+        return transactionContext == null || !transactionContext.isInTransaction();
+    }
+
     public TransactionContext getTransactionContext() throws IOException {
         TransactionContext answer = new TransactionContext(this, networkTimeout, queryTimeout);
         if (transactionIsolation > 0) {
@@ -579,6 +690,115 @@ public class JDBCPersistenceAdapter extends DataSourceServiceSupport implements
         this.networkTimeout = networkTimeout;
     }
 
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Commit the writes done outside of transactions by concurrent producers and consumers
+     * together, as one statement batch and one database commit per group, instead of one
+     * commit per write. Each caller still waits for its write to be committed.
+     *
+     * @param groupCommit true to enable group commit, false by default
+     */
+    public void setGroupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    public int getGroupCommitMaxBatchSize() {
+        return groupCommitMaxBatchSize;
+    }
+
+    /**
+     * @param groupCommitMaxBatchSize the maximum number of writes committed together, 1000 by default
+     */
+    public void setGroupCommitMaxBatchSize(int groupCommitMaxBatchSize) {
+        this.groupCommitMaxBatchSize = groupCommitMaxBatchSize;
+    }
+
+    public boolean isRecoveryFetchAhead() {
+        return recoveryFetchAhead;
+    }
+
+    /**
+     * When a queue cursor fills a full batch from the database, start the query for the next
+     * batch in the background so that it overlaps with the dispatch of the current one. This
+     * takes the database round trip out of the drain of a large backlog. The batch fetched ahead
+     * is discarded if the cursor is reset or repositioned before asking for it.
+     *
+     * @param recoveryFetchAhead true to fetch the next batch ahead, false by default
+     */
+    public void setRecoveryFetchAhead(boolean recoveryFetchAhead) {
+        this.recoveryFetchAhead = recoveryFetchAhead;
+    }
+
+    public int getRecoveryFetchAheadThreads() {
+        return recoveryFetchAheadThreads;
+    }
+
+    /**
+     * @param recoveryFetchAheadThreads the number of batches fetched ahead at the same time, 2 by default.
+     *        Further fetch ahead requests are skipped while that many are running or queued.
+     */
+    public void setRecoveryFetchAheadThreads(int recoveryFetchAheadThreads) {
+        this.recoveryFetchAheadThreads = recoveryFetchAheadThreads;
+    }
+
+    /**
+     * @return the executor that runs the recovery fetch ahead queries, null unless recovery fetch ahead is enabled
+     */
+    ThreadPoolExecutor getRecoveryFetchAheadExecutor() {
+        return recoveryFetchAheadExecutor;
+    }
+
+    public boolean isJournaled() {
+        return journaled;
+    }
+
+    /**
+     * Write queue messages sent outside of transactions to a local KahaDB journal first and
+     * insert them into the database on the next checkpoint. The producer is acknowledged once
+     * the journal is synced, and a message consumed before the checkpoint never reaches the
+     * database. Messages still in the journal are recovered into the database on start, so the
+     * journal directory has to survive a restart of the broker. Requires activemq-kahadb-store.
+     *
+     * @param journaled true to put the journal in front of the database, false by default
+     */
+    public void setJournaled(boolean journaled) {
+        this.journaled = journaled;
+    }
+
+    public File getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    /**
+     * @param journalDirectory the journal directory, jdbc-journal in the broker data directory by default
+     */
+    public void setJournalDirectory(File journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    public int getJournalMaxFileLength() {
+        return journalMaxFileLength;
+    }
+
+    public void setJournalMaxFileLength(int journalMaxFileLength) {
+        this.journalMaxFileLength = journalMaxFileLength;
+    }
+
+    public long getJournalCheckpointInterval() {
+        return journalCheckpointInterval;
+    }
+
+    /**
+     * @param journalCheckpointInterval the time in milliseconds between checkpoints of the journal
+     *                                  to the database, 1000 by default
+     */
+    public void setJournalCheckpointInterval(long journalCheckpointInterval) {
+        this.journalCheckpointInterval = journalCheckpointInterval;
+    }
+
     public int getQueryTimeout() {
         return queryTimeout;
     }
@@ -594,6 +814,11 @@ public class JDBCPersistenceAdapter extends DataSourceServiceSupport implements
 
     @Override
     public void deleteAllMessages() throws IOException {
+        if (journal != null) {
+            journal.checkpoint();
+        } else if (journaled) {
+            IOHelper.deleteChildren(getJournalDirectoryFile());
+        }
         TransactionContext c = getTransactionContext();
         c.getExclusiveConnection();
         try {
@@ -16,6 +16,10 @@
  */
 package org.apache.activemq.store.jdbc;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * 
  * 
@@ -34,6 +38,12 @@ public class Statements {
     protected String longDataType = "BIGINT";
     protected String stringIdDataType = "VARCHAR(250)";
     protected boolean useExternalMessageReferences;
+    protected int partitionCount;
+    protected String partitionIdDataType = "INTEGER";
+    protected String messageTablePartitionClause = "";
+    protected String createPartitionStatement;
+    protected String lockPartitionStatement;
+    protected String truncatePartitionStatement;
 
     private String tablePrefix = "";
     private String addMessageStatement;
@@ -90,6 +100,7 @@ public class Statements {
     private String currentDateTimeStatement;
     private String leaseUpdateStatement;
     private String leaseOwnerStatement;
+    private String partitionHasMessagesStatement;
 
     public String[] getCreateSchemaStatements() {
         if (createSchemaStatements == null) {
@@ -98,7 +109,9 @@ public class Statements {
                     + ", CONTAINER " + containerNameDataType + " NOT NULL, MSGID_PROD " + msgIdDataType + ", MSGID_SEQ "
                     + sequenceDataType + ", EXPIRATION " + longDataType + ", MSG "
                     + (useExternalMessageReferences ? stringIdDataType : binaryDataType)
-                    + ", PRIMARY KEY ( ID ) )",
+                    + (isPartitioned()
+                        ? ", PARTITION_ID " + partitionIdDataType + " NOT NULL, PRIMARY KEY ( ID, PARTITION_ID ) )" + messageTablePartitionClause
+                        : ", PRIMARY KEY ( ID ) )"),
                 "CREATE INDEX " + getFullMessageTableName() + "_MIDX ON " + getFullMessageTableName() + " (MSGID_PROD,MSGID_SEQ)",
                 "CREATE INDEX " + getFullMessageTableName() + "_CIDX ON " + getFullMessageTableName() + " (CONTAINER)",
                 "CREATE INDEX " + getFullMessageTableName() + "_EIDX ON " + getFullMessageTableName() + " (EXPIRATION)",
@@ -118,6 +131,9 @@ public class Statements {
                 "CREATE INDEX " + getFullAckTableName() + "_XIDX ON " + getFullAckTableName() + " (XID)",
                 "CREATE INDEX " + getFullMessageTableName() + "_IIDX ON " + getFullMessageTableName() + " (ID ASC, XID, CONTAINER)"
             };
+            if (isPartitioned()) {
+                createSchemaStatements = addPartitionSchemaStatements(createSchemaStatements);
+            }
         }
         getCreateLockSchemaStatements();
         String[] allCreateStatements = new String[createSchemaStatements.length + createLockSchemaStatements.length];
@@ -127,6 +143,20 @@ public class Statements {
         return allCreateStatements;
     }
 
+    private String[] addPartitionSchemaStatements(String[] statements) {
+        List<String> result = new ArrayList<String>(Arrays.asList(statements));
+        // the partitions have to exist before the indexes of the message table are created
+        int index = 1;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            String createPartition = getCreatePartitionStatement(partition);
+            if (createPartition != null) {
+                result.add(index++, createPartition);
+            }
+        }
+        result.add("CREATE INDEX " + getFullMessageTableName() + "_PCIDX ON " + getFullMessageTableName() + " (PARTITION_ID, CONTAINER, ID)");
+        return result.toArray(new String[result.size()]);
+    }
+
     public String[] getCreateLockSchemaStatements() {
         if (createLockSchemaStatements == null) {
             createLockSchemaStatements = new String[] {
@@ -163,7 +193,8 @@ public class Statements {
         if (addMessageStatement == null) {
             addMessageStatement = "INSERT INTO "
                                   + getFullMessageTableName()
-                                  + "(ID, MSGID_PROD, MSGID_SEQ, CONTAINER, EXPIRATION, PRIORITY, MSG, XID) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+                                  + "(ID, MSGID_PROD, MSGID_SEQ, CONTAINER, EXPIRATION, PRIORITY, MSG, XID" + (isPartitioned() ? ", PARTITION_ID" : "")
+                                  + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?" + (isPartitioned() ? ", ?" : "") + ")";
         }
         return addMessageStatement;
     }
@@ -214,7 +245,7 @@ public class Statements {
     public String getFindAllMessagesStatement() {
         if (findAllMessagesStatement == null) {
             findAllMessagesStatement = "SELECT ID, MSG FROM " + getFullMessageTableName()
-                                       + " WHERE CONTAINER=? ORDER BY ID";
+                                       + " WHERE CONTAINER=?" + getPartitionPredicate() + " ORDER BY ID";
         }
         return findAllMessagesStatement;
     }
@@ -398,7 +429,7 @@ public class Statements {
 
     public String getRemoveAllMessagesStatement() {
         if (removeAllMessagesStatement == null) {
-            removeAllMessagesStatement = "DELETE FROM " + getFullMessageTableName() + " WHERE CONTAINER=?";
+            removeAllMessagesStatement = "DELETE FROM " + getFullMessageTableName() + " WHERE CONTAINER=?" + getPartitionPredicate();
         }
         return removeAllMessagesStatement;
     }
@@ -419,7 +450,7 @@ public class Statements {
                                          +          getFullAckTableName() + ".CONTAINER="
                                          +          getFullMessageTableName() + ".CONTAINER"
                                          + "        AND " + getFullAckTableName() + ".PRIORITY=?)"
-                                         + "   )";
+                                         + "   )" + getPartitionPredicate();
         }
         return deleteOldMessagesStatementWithPriority;
     }
@@ -481,7 +512,7 @@ public class Statements {
     public String getDestinationMessageCountStatement() {
         if (destinationMessageCountStatement == null) {
             destinationMessageCountStatement = "SELECT COUNT(*) FROM " + getFullMessageTableName()
-                                               + " WHERE CONTAINER=? AND XID IS NULL";
+                                               + " WHERE CONTAINER=? AND XID IS NULL" + getPartitionPredicate();
         }
         return destinationMessageCountStatement;
     }
@@ -492,7 +523,7 @@ public class Statements {
     public String getFindNextMessagesStatement() {
         if (findNextMessagesStatement == null) {
             findNextMessagesStatement = "SELECT ID, MSG FROM " + getFullMessageTableName()
-                                        + " WHERE CONTAINER=? AND ID < ? AND ID > ? AND XID IS NULL ORDER BY ID";
+                                        + " WHERE CONTAINER=? AND ID < ? AND ID > ? AND XID IS NULL" + getPartitionPredicate() + " ORDER BY ID";
         }
         return findNextMessagesStatement;
     }
@@ -516,6 +547,7 @@ public class Statements {
                                         + "    OR (ID > ? AND PRIORITY = 2) "
                                         + "    OR (ID > ? AND PRIORITY = 1) "
                                         + "    OR (ID > ? AND PRIORITY = 0) )"
+                                        + getPartitionPredicate()
                                         + " ORDER BY PRIORITY DESC, ID";
         }
         return findNextMessagesByPriorityStatement;
@@ -630,6 +662,120 @@ public class Statements {
         return clearXidFlagStatement;
     }
 
+    /**
+     * @return the predicate that restricts a destination scoped statement to the partition of
+     *         the destination, its parameter follows all others
+     */
+    protected String getPartitionPredicate() {
+        return isPartitioned() ? " AND PARTITION_ID=?" : "";
+    }
+
+    /**
+     * @return a query that has a row as long as the partition holds a message, run with a
+     *         max rows of 1 so that it stops at the first one
+     */
+    public String getPartitionHasMessagesStatement() {
+        if (partitionHasMessagesStatement == null) {
+            partitionHasMessagesStatement = "SELECT ID FROM " + getFullMessageTableName() + " WHERE PARTITION_ID=?";
+        }
+        return partitionHasMessagesStatement;
+    }
+
+    public String getCreatePartitionStatement(int partition) {
+        return formatPartitionStatement(createPartitionStatement, partition);
+    }
+
+    public String getLockPartitionStatement(int partition) {
+        return formatPartitionStatement(lockPartitionStatement, partition);
+    }
+
+    public String getTruncatePartitionStatement(int partition) {
+        return formatPartitionStatement(truncatePartitionStatement, partition);
+    }
+
+    private String formatPartitionStatement(String template, int partition) {
+        return template != null ? String.format(template, getFullMessageTableName(), partition) : null;
+    }
+
+    public boolean isPartitioned() {
+        return partitionCount > 0;
+    }
+
+    /**
+     * @return the partition of the message table that holds the messages of the container
+     */
+    public int getPartition(String containerName) {
+        return (containerName.hashCode() & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * Spreads the message table over the given number of partitions by a hash of the destination.
+     * Every row carries its PARTITION_ID and the destination scoped queries (recovery, counts and
+     * removal) are restricted to the partition of the destination, so a database that partitions
+     * the table on that column only touches one partition. Old message cleanup runs partition
+     * by partition, and partitions that have been drained are truncated where the adapter
+     * provides a truncate statement. As every partition is shared by all the destinations that
+     * hash to it, a partition only drains completely when all of those are empty at once, so on
+     * a busy broker truncation is rare and the cleanup deletes do the work. The layout is fixed
+     * when the tables are created, so it has to be enabled on a new store.
+     *
+     * @param partitionCount the number of partitions, 0 (the default) for a single table
+     */
+    public void setPartitionCount(int partitionCount) {
+        this.partitionCount = partitionCount;
+    }
+
+    public String getPartitionIdDataType() {
+        return partitionIdDataType;
+    }
+
+    public void setPartitionIdDataType(String partitionIdDataType) {
+        this.partitionIdDataType = partitionIdDataType;
+    }
+
+    public String getMessageTablePartitionClause() {
+        return messageTablePartitionClause;
+    }
+
+    /**
+     * @param messageTablePartitionClause appended to the create statement of a partitioned message
+     *                                    table, for databases that partition it natively
+     */
+    public void setMessageTablePartitionClause(String messageTablePartitionClause) {
+        this.messageTablePartitionClause = messageTablePartitionClause;
+    }
+
+    /**
+     * @param createPartitionStatement format of the statement that creates one partition of the
+     *                                 message table, with the table name and partition number as arguments
+     */
+    public void setCreatePartitionStatement(String createPartitionStatement) {
+        this.createPartitionStatement = createPartitionStatement;
+    }
+
+    /**
+     * @param lockPartitionStatement format of the statement that locks one partition against writes
+     *                               until the end of the transaction, the table name and partition
+     *                               number are the arguments
+     */
+    public void setLockPartitionStatement(String lockPartitionStatement) {
+        this.lockPartitionStatement = lockPartitionStatement;
+    }
+
+    /**
+     * @param truncatePartitionStatement format of the statement that truncates one partition of the
+     *                                   message table, the table name and partition number are the
+     *                                   arguments. It must not commit the transaction holding the
+     *                                   partition lock.
+     */
+    public void setTruncatePartitionStatement(String truncatePartitionStatement) {
+        this.truncatePartitionStatement = truncatePartitionStatement;
+    }
+
     public String getFullMessageTableName() {
         return getTablePrefix() + getMessageTableName();
     }
@@ -186,6 +186,10 @@ public class TransactionContext {
         }
     }
 
+    public boolean isInTransaction() {
+        return inTx;
+    }
+
     public void begin() throws IOException {
         if (inTx) {
             throw new IOException("Already started.");
@@ -195,6 +199,15 @@ public class TransactionContext {
     }
 
     public void commit() throws IOException {
+        commit(true);
+    }
+
+    /**
+     * @param handleFailure
+     *        false to only throw a failed commit, for callers that retry the work themselves
+     *        and must not have the broker's IOException handler act on the first failure.
+     */
+    void commit(boolean handleFailure) throws IOException {
         if (!inTx) {
             throw new IOException("Not started.");
         }
@@ -210,7 +223,9 @@ public class TransactionContext {
                 doRollback();
             } catch (Exception ignored) {}
             IOException ioe = IOExceptionSupport.create(e);
-            persistenceAdapter.getBrokerService().handleIOException(ioe);
+            if (handleFailure) {
+                persistenceAdapter.getBrokerService().handleIOException(ioe);
+            }
             throw ioe;
         } finally {
             inTx = false;
@@ -55,7 +55,8 @@ public class BlobJDBCAdapter extends DefaultJDBCAdapter {
 
         String addMessageStatement = "INSERT INTO "
             + statements.getFullMessageTableName()
-            + "(ID, MSGID_PROD, MSGID_SEQ, CONTAINER, EXPIRATION, PRIORITY, MSG, XID) VALUES (?, ?, ?, ?, ?, ?, empty_blob(), empty_blob())";
+            + "(ID, MSGID_PROD, MSGID_SEQ, CONTAINER, EXPIRATION, PRIORITY, MSG, XID" + (statements.isPartitioned() ? ", PARTITION_ID" : "")
+            + ") VALUES (?, ?, ?, ?, ?, ?, empty_blob(), empty_blob()" + (statements.isPartitioned() ? ", ?" : "") + ")";
         statements.setAddMessageStatement(addMessageStatement);
 
         String findMessageByIdStatement = "SELECT MSG FROM " +
@@ -78,6 +79,7 @@ public class BlobJDBCAdapter extends DefaultJDBCAdapter {
             s.setString(4, destination.getQualifiedName());
             s.setLong(5, expiration);
             s.setLong(6, priority);
+            setPartition(s, 7, destination);
 
             if (s.executeUpdate() != 1) {
                 throw new IOException("Failed to add broker message: " + messageID + " in container.");
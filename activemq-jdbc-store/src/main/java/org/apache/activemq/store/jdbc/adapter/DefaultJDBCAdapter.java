@@ -242,6 +242,7 @@ public class DefaultJDBCAdapter implements JDBCAdapter {
             } else {
                 s.setString(8, null);
             }
+            setPartition(s, 9, destination);
             if (this.batchStatements) {
                 s.addBatch();
             } else if (s.executeUpdate() != 1) {
@@ -291,6 +292,7 @@ public class DefaultJDBCAdapter implements JDBCAdapter {
             s.setString(4, destination.getQualifiedName());
             s.setLong(5, expirationTime);
             s.setString(6, messageRef);
+            setPartition(s, 9, destination);
             if (this.batchStatements) {
                 s.addBatch();
             } else if (s.executeUpdate() != 1) {
@@ -403,6 +405,7 @@ public class DefaultJDBCAdapter implements JDBCAdapter {
         try {
             s = c.getConnection().prepareStatement(this.statements.getFindAllMessagesStatement());
             s.setString(1, destination.getQualifiedName());
+            setPartition(s, 2, destination);
             rs = s.executeQuery();
             if (this.statements.isUseExternalMessageReferences()) {
                 while (rs.next()) {
@@ -792,6 +795,7 @@ public class DefaultJDBCAdapter implements JDBCAdapter {
         try {
             s = c.getConnection().prepareStatement(this.statements.getRemoveAllMessagesStatement());
             s.setString(1, destinationName.getQualifiedName());
+            setPartition(s, 2, destinationName);
             s.executeUpdate();
             s.close();
             s = c.getConnection().prepareStatement(this.statements.getRemoveAllSubscriptionsStatement());
@@ -827,13 +831,76 @@ public class DefaultJDBCAdapter implements JDBCAdapter {
             int priority = priorityIterator++%10;
             s.setInt(1, priority);
             s.setInt(2, priority);
-            int i = s.executeUpdate();
-            LOG.debug("Deleted " + i + " old message(s) at priority: " + priority);
+            if (this.statements.isPartitioned()) {
+                // one delete per partition keeps each statement within a single partition
+                int i = 0;
+                for (int partition = 0; partition < this.statements.getPartitionCount(); partition++) {
+                    s.setInt(3, partition);
+                    i += s.executeUpdate();
+                }
+                LOG.debug("Deleted " + i + " old message(s) at priority: " + priority + " across " + this.statements.getPartitionCount() + " partitions");
+            } else {
+                int i = s.executeUpdate();
+                LOG.debug("Deleted " + i + " old message(s) at priority: " + priority);
+            }
+        } finally {
+            close(s);
+        }
+    }
+
+    @Override
+    public boolean doTruncateDrainedPartition(TransactionContext c, int partition) throws SQLException, IOException {
+        String truncateStatement = this.statements.getTruncatePartitionStatement(partition);
+        if (!this.statements.isPartitioned() || truncateStatement == null) {
+            return false;
+        }
+        // cheap look without the lock first, most partitions are not empty
+        if (doPartitionHasMessages(c, partition)) {
+            return false;
+        }
+        Statement statement = null;
+        try {
+            statement = c.getConnection().createStatement();
+            String lockStatement = this.statements.getLockPartitionStatement(partition);
+            if (lockStatement != null) {
+                // keeps producers out of the partition between the check and the truncate
+                statement.execute(lockStatement);
+                if (doPartitionHasMessages(c, partition)) {
+                    return false;
+                }
+            }
+            LOG.debug("Executing SQL: " + truncateStatement);
+            statement.execute(truncateStatement);
+            return true;
         } finally {
+            closeStatement(statement);
+        }
+    }
+
+    private boolean doPartitionHasMessages(TransactionContext c, int partition) throws SQLException, IOException {
+        PreparedStatement s = null;
+        ResultSet rs = null;
+        try {
+            s = c.getConnection().prepareStatement(this.statements.getPartitionHasMessagesStatement());
+            s.setMaxRows(1);
+            s.setInt(1, partition);
+            rs = s.executeQuery();
+            return rs.next();
+        } finally {
+            close(rs);
             close(s);
         }
     }
 
+    /**
+     * Binds the partition of the destination for statements that are restricted to it.
+     */
+    protected void setPartition(PreparedStatement s, int index, ActiveMQDestination destination) throws SQLException {
+        if (this.statements.isPartitioned()) {
+            s.setInt(index, this.statements.getPartition(destination.getQualifiedName()));
+        }
+    }
+
     @Override
     public long doGetLastAckedDurableSubscriberMessageId(TransactionContext c, ActiveMQDestination destination,
             String clientId, String subscriberName) throws SQLException, IOException {
@@ -1043,6 +1110,7 @@ public class DefaultJDBCAdapter implements JDBCAdapter {
         try {
             s = c.getConnection().prepareStatement(this.statements.getDestinationMessageCountStatement());
             s.setString(1, destination.getQualifiedName());
+            setPartition(s, 2, destination);
             rs = s.executeQuery();
             if (rs.next()) {
                 result = rs.getInt(1);
@@ -1074,8 +1142,9 @@ public class DefaultJDBCAdapter implements JDBCAdapter {
                     s.setLong(paramId++, lastRecoveredEntries[i]);
                 }
             } else {
-                s.setLong(paramId, lastRecoveredEntries[0]);
+                s.setLong(paramId++, lastRecoveredEntries[0]);
             }
+            setPartition(s, paramId, destination);
             rs = s.executeQuery();
             int count = 0;
             if (this.statements.isUseExternalMessageReferences()) {
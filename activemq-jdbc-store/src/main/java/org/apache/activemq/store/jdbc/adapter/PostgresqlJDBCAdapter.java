@@ -44,6 +44,11 @@ public class PostgresqlJDBCAdapter extends BytesJDBCAdapter {
     public void setStatements(Statements statements) {
         statements.setBinaryDataType("BYTEA");
         statements.setDropAckPKAlterStatementEnd("DROP CONSTRAINT \"" + getAcksPkName() + "\"");
+        // native list partitions for the partitioned layout, drained ones are truncated by cleanup
+        statements.setMessageTablePartitionClause(" PARTITION BY LIST (PARTITION_ID)");
+        statements.setCreatePartitionStatement("CREATE TABLE %1$s_P%2$d PARTITION OF %1$s FOR VALUES IN (%2$d)");
+        statements.setLockPartitionStatement("LOCK TABLE %1$s_P%2$d IN ACCESS EXCLUSIVE MODE NOWAIT");
+        statements.setTruncatePartitionStatement("TRUNCATE TABLE %1$s_P%2$d");
         super.setStatements(statements);
     }
 
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -34,6 +35,7 @@ import org.apache.activemq.broker.scheduler.Job;
 import org.apache.activemq.broker.scheduler.JobListener;
 import org.apache.activemq.broker.scheduler.JobScheduler;
 import org.apache.activemq.protobuf.Buffer;
+import org.apache.activemq.store.kahadb.JournalCommand;
 import org.apache.activemq.store.kahadb.data.KahaAddScheduledJobCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveScheduledJobCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveScheduledJobsCommand;
@@ -61,6 +63,7 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
     private final List<JobListener> jobListeners = new CopyOnWriteArrayList<>();
     private static final IdGenerator ID_GENERATOR = new IdGenerator();
     private final ScheduleTime scheduleTime = new ScheduleTime();
+    private final JobTimeWheel timeWheel = new JobTimeWheel(System.currentTimeMillis());
 
     JobSchedulerImpl(JobSchedulerStoreImpl store) {
         this.store = store;
@@ -252,34 +255,26 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
         this.store.store(newJob);
     }
 
-    private void doReschedule(List<Closure> toReschedule) throws IOException {
-        for (Closure closure : toReschedule) {
-            closure.run();
-        }
-    }
-
-    private void doReschedule(final String jobId, long executionTime, long nextExecutionTime, int rescheduledCount) throws IOException {
+    private KahaRescheduleJobCommand createReschedule(final String jobId, long executionTime, long nextExecutionTime, int rescheduledCount) {
         KahaRescheduleJobCommand update = new KahaRescheduleJobCommand();
         update.setScheduler(name);
         update.setJobId(jobId);
         update.setExecutionTime(executionTime);
         update.setNextExecutionTime(nextExecutionTime);
         update.setRescheduledCount(rescheduledCount);
-        this.store.store(update);
+        return update;
     }
 
-    private void doRemove(final List<Closure> toRemove) throws IOException {
-        for (Closure closure : toRemove) {
-            closure.run();
-        }
-    }
-
-    private void doRemove(long executionTime, final String jobId) throws IOException {
+    private KahaRemoveScheduledJobCommand createRemove(long executionTime, final String jobId) {
         KahaRemoveScheduledJobCommand remove = new KahaRemoveScheduledJobCommand();
         remove.setScheduler(name);
         remove.setJobId(jobId);
         remove.setNextExecutionTime(executionTime);
-        this.store.store(remove);
+        return remove;
+    }
+
+    private void doRemove(long executionTime, final String jobId) throws IOException {
+        this.store.store(createRemove(executionTime, jobId));
     }
 
     private void doRemoveRange(long start, long end) throws IOException {
@@ -335,6 +330,7 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
             // Reference the log file where the add command is stored to prevent GC.
             this.store.incrementJournalCount(tx, location);
             this.index.put(tx, nextExecutionTime, values);
+            this.timeWheel.add(nextExecutionTime);
             this.scheduleTime.newJob();
         } else {
             this.index.put(tx, nextExecutionTime, values);
@@ -413,6 +409,7 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
             }
 
             this.index.put(tx, command.getNextExecutionTime(), target);
+            this.timeWheel.add(command.getNextExecutionTime());
             this.scheduleTime.newJob();
         } else {
             LOG.debug("Process reschedule command for non-scheduled job {} at executime time {}.",
@@ -607,6 +604,11 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
         if (decrementJournalCount.size() > 0) {
             this.store.decrementJournalCount(tx, decrementJournalCount);
         }
+
+        // Any other range leaves its times on the wheel, they are dropped when they come due.
+        if (start == 0 && finish == Long.MAX_VALUE) {
+            this.timeWheel.clear();
+        }
     }
 
     /**
@@ -723,87 +725,103 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
             try {
                 long currentTime = System.currentTimeMillis();
 
-                // Read the list of scheduled events and fire the jobs, reschedule repeating jobs as
-                // needed before firing the job event.
-                List<Closure> toRemove = new ArrayList<>();
-                List<Closure> toReschedule = new ArrayList<>();
+                // Take the execution times that are due from the wheel and fire the jobs stored at
+                // each of them, reschedule repeating jobs as needed before firing the job event.
+                // The resulting index updates are stored as a single batch.
+                List<Long> dueTimes = this.timeWheel.advance(currentTime);
+                List<JournalCommand<?>> updates = new ArrayList<>();
+                List<JobLocation> toSchedule = new ArrayList<>();
+                Map<String, ByteSequence> toFire = new LinkedHashMap<>();
+                final int maxFireBatchSize = Math.max(1, this.store.getMaxFireBatchSize());
+                int fired = 0;
                 try {
                     this.store.readLockIndex();
 
-                    Iterator<Map.Entry<Long, List<JobLocation>>> iterator = this.index.iterator(this.store.getPageFile().tx());
-                    while (iterator.hasNext()) {
-                        Map.Entry<Long, List<JobLocation>> next = iterator.next();
-                        if (next != null) {
-                            List<JobLocation> list = new ArrayList<>(next.getValue());
-                            final long executionTime = next.getKey();
-                            long nextExecutionTime = 0;
+                    Transaction tx = this.store.getPageFile().tx();
+                    for (; fired < dueTimes.size() && running.get(); fired++) {
+                        final long executionTime = dueTimes.get(fired);
+                        List<JobLocation> jobs = this.index.get(tx, executionTime);
+                        if (jobs == null) {
+                            // all jobs at this time were removed since it was added to the wheel
+                            continue;
+                        }
 
-                            if (executionTime <= currentTime) {
-                                for (final JobLocation job : list) {
+                        for (final JobLocation job : new ArrayList<>(jobs)) {
 
-                                    if (!running.get()) {
-                                        break;
-                                    }
+                            if (!running.get()) {
+                                break;
+                            }
 
-                                    int repeat = job.getRepeat();
-                                    nextExecutionTime = calculateNextExecutionTime(job, currentTime, repeat);
-                                    long waitTime = nextExecutionTime - currentTime;
-                                    this.scheduleTime.setWaitTime(waitTime);
-                                    if (!job.isCron()) {
-                                        fireJob(job);
-                                        if (repeat != 0) {
-                                            // Reschedule for the next time, the scheduler will take care of
-                                            // updating the repeat counter on the update.
-                                            final long finalNextExecutionTime = nextExecutionTime;
-                                            toReschedule.add(() -> doReschedule(job.getJobId(), executionTime, finalNextExecutionTime, job.getRescheduledCount() + 1));
-                                        } else {
-                                            toRemove.add(() -> doRemove(executionTime, job.getJobId()));
-                                        }
-                                    } else {
-                                        if (repeat == 0) {
-                                            // This is a non-repeating Cron entry so we can fire and forget it.
-                                            fireJob(job);
-                                        }
-
-                                        if (nextExecutionTime > currentTime) {
-                                            // Reschedule the cron job as a new event, if the cron entry signals
-                                            // a repeat then it will be stored separately and fired as a normal
-                                            // event with decrementing repeat.
-                                            final long finalNextExecutionTime = nextExecutionTime;
-                                            toReschedule.add(() -> doReschedule(job.getJobId(), executionTime, finalNextExecutionTime, job.getRescheduledCount() + 1));
-
-                                            if (repeat != 0) {
-                                                // we have a separate schedule to run at this time
-                                                // so the cron job is used to set of a separate schedule
-                                                // hence we won't fire the original cron job to the
-                                                // listeners but we do need to start a separate schedule
-                                                String jobId = ID_GENERATOR.generateId();
-                                                ByteSequence payload = getPayload(job.getLocation());
-                                                schedule(jobId, payload, "", job.getDelay(), job.getPeriod(), job.getRepeat());
-                                                waitTime = job.getDelay() != 0 ? job.getDelay() : job.getPeriod();
-                                                this.scheduleTime.setWaitTime(waitTime);
-                                            }
-                                        } else {
-                                            toRemove.add(() -> doRemove(executionTime, job.getJobId()));
-                                        }
-                                    }
+                            int repeat = job.getRepeat();
+                            long nextExecutionTime = calculateNextExecutionTime(job, currentTime, repeat);
+                            if (toFire.size() >= maxFireBatchSize) {
+                                // hand over what has been read so far rather than holding the
+                                // payloads of every due job in memory at once.
+                                fireJobs(toFire);
+                                toFire = new LinkedHashMap<>();
+                            }
+
+                            if (!job.isCron()) {
+                                toFire.put(job.getJobId(), getPayload(job.getLocation()));
+                                if (repeat != 0) {
+                                    // Reschedule for the next time, the scheduler will take care of
+                                    // updating the repeat counter on the update.
+                                    updates.add(createReschedule(job.getJobId(), executionTime, nextExecutionTime, job.getRescheduledCount() + 1));
+                                } else {
+                                    updates.add(createRemove(executionTime, job.getJobId()));
                                 }
                             } else {
-                                this.scheduleTime.setWaitTime(executionTime - currentTime);
-                                break;
+                                if (repeat == 0) {
+                                    // This is a non-repeating Cron entry so we can fire and forget it.
+                                    toFire.put(job.getJobId(), getPayload(job.getLocation()));
+                                }
+
+                                if (nextExecutionTime > currentTime) {
+                                    // Reschedule the cron job as a new event, if the cron entry signals
+                                    // a repeat then it will be stored separately and fired as a normal
+                                    // event with decrementing repeat.
+                                    updates.add(createReschedule(job.getJobId(), executionTime, nextExecutionTime, job.getRescheduledCount() + 1));
+
+                                    if (repeat != 0) {
+                                        // we have a separate schedule to run at this time
+                                        // so the cron job is used to set of a separate schedule
+                                        // hence we won't fire the original cron job to the
+                                        // listeners but we do need to start a separate schedule
+                                        toSchedule.add(job);
+                                    }
+                                } else {
+                                    updates.add(createRemove(executionTime, job.getJobId()));
+                                }
                             }
                         }
                     }
                 } finally {
                     this.store.readUnlockIndex();
 
-                    doReschedule(toReschedule);
+                    // hand the listeners the remaining jobs that fired in this pass at
+                    // once so they can deliver them as a batch.
+                    fireJobs(toFire);
+
+                    // times that were not reached are put back for the next pass
+                    for (int i = fired; i < dueTimes.size(); i++) {
+                        this.timeWheel.add(dueTimes.get(i));
+                    }
+
+                    // now reschedule the repeating jobs and remove all others, if there are
+                    // no more entries at a time it will be removed.
+                    this.store.store(this, updates);
+                }
 
-                    // now remove all jobs that have not been rescheduled,
-                    // if there are no more entries in that time it will be removed.
-                    doRemove(toRemove);
+                // Separate schedules are started outside the index read lock as storing the
+                // new job needs the write lock.
+                for (JobLocation job : toSchedule) {
+                    String jobId = ID_GENERATOR.generateId();
+                    ByteSequence payload = getPayload(job.getLocation());
+                    schedule(jobId, payload, "", job.getDelay(), job.getPeriod(), job.getRepeat());
                 }
 
+                long nextTime = this.timeWheel.nextTime();
+                this.scheduleTime.setWaitTime(nextTime < 0 ? 0 : Math.max(1, nextTime - System.currentTimeMillis()));
                 this.scheduleTime.pause();
             } catch (Exception ioe) {
                 LOG.error("{} Failed to schedule job", this.name, ioe);
@@ -816,11 +834,14 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
         }
     }
 
-    void fireJob(JobLocation job) throws IllegalStateException, IOException {
-        LOG.debug("Firing: {}", job);
-        ByteSequence bs = this.store.getPayload(job.getLocation());
+    void fireJobs(Map<String, ByteSequence> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+
+        LOG.debug("Firing {} jobs", jobs.size());
         for (JobListener l : jobListeners) {
-            l.scheduledJob(job.getJobId(), bs);
+            l.scheduledJobs(jobs);
         }
     }
 
@@ -883,6 +904,11 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
         this.index.setKeyMarshaller(LongMarshaller.INSTANCE);
         this.index.setValueMarshaller(JobLocationsMarshaller.INSTANCE);
         this.index.load(tx);
+
+        this.timeWheel.clear();
+        for (Iterator<Map.Entry<Long, List<JobLocation>>> i = this.index.iterator(tx); i.hasNext();) {
+            this.timeWheel.add(i.next().getKey());
+        }
     }
 
     void read(DataInput in) throws IOException {
@@ -897,10 +923,6 @@ public class JobSchedulerImpl extends ServiceSupport implements Runnable, JobSch
         out.writeLong(this.index.getPageId());
     }
 
-    private interface Closure {
-        void run() throws IOException;
-    }
-
     static class ScheduleTime {
         private final int DEFAULT_WAIT = 500;
         private final int DEFAULT_NEW_JOB_WAIT = 100;
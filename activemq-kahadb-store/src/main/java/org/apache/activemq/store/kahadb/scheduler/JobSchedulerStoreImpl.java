@@ -71,6 +71,7 @@ public class JobSchedulerStoreImpl extends AbstractKahaDBStore implements JobSch
     private final MetaDataMarshaller metaDataMarshaller = new MetaDataMarshaller(this);
     private final Map<String, JobSchedulerImpl> schedulers = new HashMap<String, JobSchedulerImpl>();
     private File legacyStoreArchiveDirectory;
+    private int maxFireBatchSize = 500;
 
     /**
      * The Scheduler Token is used to identify base revisions of the Scheduler store.  A store
@@ -166,6 +167,25 @@ public class JobSchedulerStoreImpl extends AbstractKahaDBStore implements JobSch
         return this.legacyStoreArchiveDirectory.getAbsoluteFile();
     }
 
+    /**
+     * Sets the maximum number of job payloads a scheduler reads into memory before handing
+     * them to its listeners, jobs that become due together beyond this are fired in
+     * several batches.
+     *
+     * @param maxFireBatchSize
+     *      The maximum number of jobs fired to the listeners at once.
+     */
+    public void setMaxFireBatchSize(int maxFireBatchSize) {
+        this.maxFireBatchSize = maxFireBatchSize;
+    }
+
+    /**
+     * @return the maximum number of jobs fired to the scheduler listeners at once.
+     */
+    public int getMaxFireBatchSize() {
+        return this.maxFireBatchSize;
+    }
+
     @Override
     public void load() throws IOException {
         if (opened.compareAndSet(false, true)) {
@@ -593,6 +613,88 @@ public class JobSchedulerStoreImpl extends AbstractKahaDBStore implements JobSch
         return new ByteSequence(payload.getData(), payload.getOffset(), payload.getLength());
     }
 
+    /**
+     * Stores the commands issued by a scheduler for the jobs fired in one pass of its dispatch
+     * loop.  The commands are appended to the Journal with a single sync on the last of them and
+     * then applied to the index in one transaction instead of one per command, on recovery they
+     * are replayed one at a time like any other command.
+     *
+     * @param scheduler
+     *      The scheduler that issued the commands.
+     * @param commands
+     *      The remove and reschedule commands to store, in the order they are to be applied.
+     *
+     * @return the Location of the last command in the Journal or null if there were none.
+     *
+     * @throws IOException if an error occurs storing or processing the commands.
+     */
+    Location store(final JobSchedulerImpl scheduler, final List<JournalCommand<?>> commands) throws IOException {
+        if (commands.isEmpty()) {
+            return null;
+        }
+
+        try {
+            final List<Location> locations = new ArrayList<>(commands.size());
+            checkpointLock.readLock().lock();
+            try {
+                for (int i = 0; i < commands.size(); i++) {
+                    boolean sync = i == commands.size() - 1 && isEnableIndexDiskSyncs();
+                    locations.add(journal.write(toByteSequence(commands.get(i)), sync));
+                }
+
+                indexLock.writeLock().lock();
+                try {
+                    getPageFile().tx().execute(new Transaction.Closure<IOException>() {
+                        @Override
+                        public void execute(final Transaction tx) throws IOException {
+                            for (int i = 0; i < commands.size(); i++) {
+                                final Location location = locations.get(i);
+                                commands.get(i).visit(new Visitor() {
+                                    @Override
+                                    public void visit(KahaAddScheduledJobCommand command) throws IOException {
+                                        scheduler.process(tx, command, location);
+                                    }
+
+                                    @Override
+                                    public void visit(KahaRescheduleJobCommand command) throws IOException {
+                                        scheduler.process(tx, command, location);
+                                    }
+
+                                    @Override
+                                    public void visit(KahaRemoveScheduledJobCommand command) throws IOException {
+                                        scheduler.process(tx, command, location);
+                                    }
+
+                                    @Override
+                                    public void visit(KahaRemoveScheduledJobsCommand command) throws IOException {
+                                        scheduler.process(tx, command, location);
+                                    }
+                                });
+                            }
+                        }
+                    });
+
+                    processLocation(locations.get(locations.size() - 1));
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+            } finally {
+                checkpointLock.readLock().unlock();
+            }
+
+            if (checkpointThread != null && !checkpointThread.isAlive()) {
+                startCheckpoint();
+            }
+            return locations.get(locations.size() - 1);
+        } catch (IOException ioe) {
+            LOG.error("KahaDB failed to store to Journal", ioe);
+            if (brokerService != null) {
+                brokerService.handleIOException(ioe);
+            }
+            throw ioe;
+        }
+    }
+
     public void readLockIndex() {
         this.indexLock.readLock().lock();
     }
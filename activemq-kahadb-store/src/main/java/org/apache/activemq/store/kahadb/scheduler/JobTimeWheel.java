@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An in memory hierarchical timing wheel over the execution times held in the scheduler
+ * index, so that the scheduler finds the times that are due without walking the BTree.
+ *
+ * Each level has a fixed number of slots, a slot of level n spans the whole of level n - 1.
+ * An execution time is kept in the lowest level whose range covers it and moves down a level
+ * each time the wheel below completes a turn, until it lands in the due set. Times are only
+ * ever added, a time whose jobs have all been removed stays until it becomes due and the
+ * index lookup for it comes back empty.
+ */
+class JobTimeWheel {
+
+    static final long DEFAULT_TICK = 10;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int LEVELS = 4;
+
+    private final long tick;
+    private final int wheelSize;
+    private final TreeSet<Long>[][] slots;
+    private final int[] counts = new int[LEVELS];
+    private final long[] spans = new long[LEVELS + 1];
+    private final TreeSet<Long> due = new TreeSet<>();
+    private final TreeSet<Long> overflow = new TreeSet<>();
+    private long currentTick;
+
+    JobTimeWheel(long now) {
+        this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE, now);
+    }
+
+    @SuppressWarnings("unchecked")
+    JobTimeWheel(long tick, int wheelSize, long now) {
+        this.tick = tick;
+        this.wheelSize = wheelSize;
+        this.slots = new TreeSet[LEVELS][wheelSize];
+        this.spans[0] = 1;
+        for (int level = 1; level <= LEVELS; level++) {
+            this.spans[level] = this.spans[level - 1] * wheelSize;
+        }
+        this.currentTick = now / tick;
+    }
+
+    /**
+     * Adds an execution time, adding one that is already in the wheel has no effect.
+     */
+    synchronized void add(long time) {
+        // round up so that a time never becomes due before it is reached
+        long timeTick = (time + tick - 1) / tick;
+        long delta = timeTick - currentTick;
+        if (delta <= 0) {
+            due.add(time);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < spans[level + 1]) {
+                int slot = (int) ((timeTick / spans[level]) % wheelSize);
+                TreeSet<Long> times = slots[level][slot];
+                if (times == null) {
+                    times = new TreeSet<>();
+                    slots[level][slot] = times;
+                }
+                if (times.add(time)) {
+                    counts[level]++;
+                }
+                return;
+            }
+        }
+        overflow.add(time);
+    }
+
+    /**
+     * Turns the wheel to the given time.
+     *
+     * @return all execution times that are due at the given time, in ascending order
+     */
+    synchronized List<Long> advance(long now) {
+        long nowTick = now / tick;
+        while (currentTick < nowTick) {
+            int lowest = lowestOccupiedLevel();
+            if (lowest < 0) {
+                currentTick = nowTick;
+                break;
+            }
+            if (lowest > 0) {
+                // nothing to collect before the next turn of the lowest occupied level
+                long skipTo = (currentTick / spans[lowest] + 1) * spans[lowest] - 1;
+                if (skipTo >= nowTick) {
+                    currentTick = nowTick;
+                    break;
+                }
+                currentTick = Math.max(currentTick, skipTo);
+            }
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if (currentTick % spans[level] == 0) {
+                    cascade(level, (int) ((currentTick / spans[level]) % wheelSize));
+                }
+            }
+            if (currentTick % spans[LEVELS - 1] == 0 && !overflow.isEmpty()) {
+                List<Long> times = new ArrayList<>(overflow);
+                overflow.clear();
+                for (Long time : times) {
+                    add(time);
+                }
+            }
+            int slot = (int) (currentTick % wheelSize);
+            TreeSet<Long> times = slots[0][slot];
+            if (times != null && !times.isEmpty()) {
+                counts[0] -= times.size();
+                due.addAll(times);
+                slots[0][slot] = null;
+            }
+        }
+        List<Long> result = new ArrayList<>(due);
+        due.clear();
+        return result;
+    }
+
+    /**
+     * @return the earliest time at which {@link #advance(long)} may return times, or -1 if the
+     *         wheel is empty
+     */
+    synchronized long nextTime() {
+        if (!due.isEmpty()) {
+            return due.first();
+        }
+        if (counts[0] > 0) {
+            for (long t = currentTick + 1; t <= currentTick + wheelSize; t++) {
+                TreeSet<Long> times = slots[0][(int) (t % wheelSize)];
+                if (times != null && !times.isEmpty()) {
+                    return t * tick;
+                }
+            }
+        }
+        int lowest = lowestOccupiedLevel();
+        if (lowest > 0) {
+            return (currentTick / spans[lowest] + 1) * spans[lowest] * tick;
+        }
+        return overflow.isEmpty() ? -1 : overflow.first();
+    }
+
+    synchronized int size() {
+        int size = due.size() + overflow.size();
+        for (int count : counts) {
+            size += count;
+        }
+        return size;
+    }
+
+    synchronized void clear() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < wheelSize; slot++) {
+                slots[level][slot] = null;
+            }
+            counts[level] = 0;
+        }
+        due.clear();
+        overflow.clear();
+    }
+
+    private int lowestOccupiedLevel() {
+        for (int level = 0; level < LEVELS; level++) {
+            if (counts[level] > 0) {
+                return level;
+            }
+        }
+        return overflow.isEmpty() ? -1 : LEVELS - 1;
+    }
+
+    private void cascade(int level, int slot) {
+        TreeSet<Long> times = slots[level][slot];
+        if (times != null && !times.isEmpty()) {
+            slots[level][slot] = null;
+            counts[level] -= times.size();
+            for (Long time : times) {
+                add(time);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.mqtt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds the state of the QoS 1 and 2 exchanges of a connection that are in flight, indexed
+ * directly by their 16 bit packet id.
+ *
+ * The id space is split in pages that are only allocated once an id in their range is used,
+ * since packet ids are handed out in sequence a connection usually touches only a few of
+ * them. A page is dropped again once its last slot is cleared, so a long lived connection
+ * cycling through the id space does not keep all of them. All operations are lock free.
+ */
+class MQTTInFlightWindow<T> {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGES = (1 << 16) / PAGE_SIZE;
+
+    private final AtomicReferenceArray<Page<T>> pages = new AtomicReferenceArray<Page<T>>(PAGES);
+
+    /**
+     * Stores the state of a packet id, replacing any state stored for it before.
+     *
+     * @return the state previously stored for the packet id or null.
+     */
+    T put(short packetId, T value) {
+        int index = packetId & 0xFFFF;
+        Page<T> page;
+        do {
+            page = pages.get(index >>> PAGE_BITS);
+            if (page == null) {
+                page = new Page<T>();
+                if (!pages.compareAndSet(index >>> PAGE_BITS, null, page)) {
+                    page = pages.get(index >>> PAGE_BITS);
+                }
+            }
+            // a page that was just dropped can not take the value, retry with a new one
+        } while (page == null || !page.reserve());
+        T previous = page.getAndSet(index & PAGE_MASK, value);
+        if (previous != null) {
+            page.release();
+        }
+        return previous;
+    }
+
+    /**
+     * @return the state stored for the packet id or null.
+     */
+    T get(short packetId) {
+        int index = packetId & 0xFFFF;
+        Page<T> page = pages.get(index >>> PAGE_BITS);
+        return page != null ? page.get(index & PAGE_MASK) : null;
+    }
+
+    /**
+     * Removes the state of a packet id.
+     *
+     * @return the state that was stored for the packet id or null.
+     */
+    T remove(short packetId) {
+        int index = packetId & 0xFFFF;
+        Page<T> page = pages.get(index >>> PAGE_BITS);
+        if (page == null) {
+            return null;
+        }
+        T previous = page.getAndSet(index & PAGE_MASK, null);
+        if (previous != null && page.release()) {
+            pages.compareAndSet(index >>> PAGE_BITS, page, null);
+        }
+        return previous;
+    }
+
+    /**
+     * @return the number of pages currently allocated.
+     */
+    int getAllocatedPages() {
+        int count = 0;
+        for (int i = 0; i < PAGES; i++) {
+            if (pages.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A page of slots with the count of the slots in use, a count of -1 marks a dropped page.
+     */
+    private static final class Page<T> extends AtomicReferenceArray<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicInteger used = new AtomicInteger();
+
+        Page() {
+            super(PAGE_SIZE);
+        }
+
+        boolean reserve() {
+            int count;
+            do {
+                count = used.get();
+                if (count < 0) {
+                    return false;
+                }
+            } while (!used.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * @return true if this cleared the last slot and dropped the page.
+         */
+        boolean release() {
+            return used.decrementAndGet() == 0 && used.compareAndSet(0, -1);
+        }
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.activemq.transport.mqtt;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -86,6 +88,27 @@ public class MQTTPacketIdGenerator extends ServiceSupport {
         }
     }
 
+    /**
+     * Remembers a QoS 1 or 2 retained message sent from the retained message store until its
+     * packet id is acknowledged, so that it can be sent again when the client resumes its
+     * session. These messages have no broker side subscription that would redeliver them.
+     */
+    public void trackRetainedPublish(String clientId, PUBLISH publish) {
+        final PacketIdMaps idMaps = clientIdMap.get(clientId);
+        if (idMaps != null) {
+            idMaps.pendingRetained.put(publish.messageId(), publish);
+        }
+    }
+
+    /**
+     * @return the retained messages sent from the retained message store to the client that
+     *         have not been acknowledged yet.
+     */
+    public List<PUBLISH> getPendingRetainedPublishes(String clientId) {
+        final PacketIdMaps idMaps = clientIdMap.get(clientId);
+        return idMaps != null ? new ArrayList<PUBLISH>(idMaps.pendingRetained.values()) : new ArrayList<PUBLISH>();
+    }
+
     public short getNextSequenceId(String clientId) {
         final PacketIdMaps idMaps = clientIdMap.get(clientId);
         return idMaps != null ? idMaps.getNextSequenceId(): messageIdGenerator.getNextSequenceId();
@@ -124,6 +147,7 @@ public class MQTTPacketIdGenerator extends ServiceSupport {
         private final NonZeroSequenceGenerator messageIdGenerator = new NonZeroSequenceGenerator();
         final Map<String, Short> activemqToPacketIds = new LRUCache<String, Short>(MQTTProtocolConverter.DEFAULT_CACHE_SIZE);
         final Map<Short, String> packetIdsToActivemq = new LRUCache<Short, String>(MQTTProtocolConverter.DEFAULT_CACHE_SIZE);
+        final Map<Short, PUBLISH> pendingRetained = new ConcurrentHashMap<Short, PUBLISH>();
 
         short setPacketId(MQTTSubscription subscription, ActiveMQMessage message, PUBLISH publish) {
             // subscription key
@@ -148,6 +172,7 @@ public class MQTTPacketIdGenerator extends ServiceSupport {
         }
 
         void ackPacketId(short packetId) {
+            pendingRetained.remove(packetId);
             synchronized (activemqToPacketIds) {
                 final String subscriptionKey = packetIdsToActivemq.remove(packetId);
                 if (subscriptionKey != null) {
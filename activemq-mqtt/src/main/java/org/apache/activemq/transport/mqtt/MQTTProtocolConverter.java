@@ -17,6 +17,7 @@
 package org.apache.activemq.transport.mqtt;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -51,6 +52,7 @@ import org.apache.activemq.command.Response;
 import org.apache.activemq.command.SessionId;
 import org.apache.activemq.command.SessionInfo;
 import org.apache.activemq.command.ShutdownInfo;
+import org.apache.activemq.transport.mqtt.MQTTRetainedMessageStore.RetainedMessage;
 import org.apache.activemq.transport.mqtt.strategy.MQTTSubscriptionStrategy;
 import org.apache.activemq.util.ByteArrayOutputStream;
 import org.apache.activemq.util.ByteSequence;
@@ -58,7 +60,6 @@ import org.apache.activemq.util.FactoryFinder;
 import org.apache.activemq.util.IOExceptionSupport;
 import org.apache.activemq.util.IdGenerator;
 import org.apache.activemq.util.JMSExceptionSupport;
-import org.apache.activemq.util.LRUCache;
 import org.apache.activemq.util.LongSequenceGenerator;
 import org.fusesource.hawtbuf.Buffer;
 import org.fusesource.hawtbuf.UTF8Buffer;
@@ -104,11 +105,9 @@ public class MQTTProtocolConverter {
     private final LongSequenceGenerator publisherIdGenerator = new LongSequenceGenerator();
 
     private final ConcurrentMap<Integer, ResponseHandler> resposeHandlers = new ConcurrentHashMap<Integer, ResponseHandler>();
-    private final Map<String, ActiveMQDestination> activeMQDestinationMap = new LRUCache<String, ActiveMQDestination>(DEFAULT_CACHE_SIZE);
-    private final Map<ActiveMQDestination, String> mqttTopicMap = new LRUCache<ActiveMQDestination, String>(DEFAULT_CACHE_SIZE);
-
-    private final Map<Short, MessageAck> consumerAcks = new LRUCache<Short, MessageAck>(DEFAULT_CACHE_SIZE);
-    private final Map<Short, PUBREC> publisherRecs = new LRUCache<Short, PUBREC>(DEFAULT_CACHE_SIZE);
+    private final MQTTInFlightWindow<MessageAck> consumerAcks = new MQTTInFlightWindow<MessageAck>();
+    private final MQTTInFlightWindow<PUBREC> publisherRecs = new MQTTInFlightWindow<PUBREC>();
+    private MQTTTopicNameCache topicNameCache;
 
     private final MQTTTransport mqttTransport;
     private final BrokerService brokerService;
@@ -123,6 +122,7 @@ public class MQTTProtocolConverter {
     private int activeMQSubscriptionPrefetch = -1;
     private final MQTTPacketIdGenerator packetIdGenerator;
     private boolean publishDollarTopics;
+    private MQTTRetainedMessageStore retainedMessageStore;
 
     public int version;
 
@@ -359,6 +359,13 @@ public class MQTTProtocolConverter {
                         }
 
                         findSubscriptionStrategy().onConnect(connect);
+
+                        // retained messages from the store that the client had not acknowledged
+                        // before it went away, the broker redelivers all other messages
+                        for (PUBLISH pending : packetIdGenerator.getPendingRetainedPublishes(getClientId())) {
+                            pending.dup(true);
+                            getMQTTTransport().sendToMQTT(pending.encode());
+                        }
                     }
                 });
             }
@@ -396,12 +403,59 @@ public class MQTTProtocolConverter {
             } catch (IOException e) {
                 LOG.warn("Couldn't send SUBACK for " + command, e);
             }
+            if (retainedMessageStore != null) {
+                for (int i = 0; i < topics.length; i++) {
+                    if (qos[i] >= 0 && qos[i] <= QoS.EXACTLY_ONCE.ordinal()) {
+                        sendRetainedMessages(topics[i].name().toString(), QoS.values()[qos[i]]);
+                    }
+                }
+            }
         } else {
             LOG.warn("No topics defined for Subscription " + command);
             throw new MQTTProtocolException("SUBSCRIBE command received with no topic filter");
         }
     }
 
+    /**
+     * Sends the retained messages matching a new subscription's topic filter straight from the
+     * retained message store, at the lower of the QoS they were published with and the QoS granted.
+     */
+    private void sendRetainedMessages(final String topicFilter, final QoS grantedQoS) throws MQTTProtocolException {
+        try {
+            retainedMessageStore.match(topicFilter, MQTTRetainedMessageStore.DEFAULT_BATCH_SIZE, new MQTTRetainedMessageStore.BatchListener() {
+                @Override
+                public void onBatch(List<RetainedMessage> batch) throws IOException {
+                    for (RetainedMessage retained : batch) {
+                        PUBLISH publish = new PUBLISH();
+                        publish.topicName(new UTF8Buffer(retained.getTopic()));
+                        publish.payload(new Buffer(retained.getPayload()));
+                        publish.retain(true);
+                        QoS qos = QoS.values()[Math.min(retained.getQoS(), grantedQoS.ordinal())];
+                        publish.qos(qos);
+                        if (qos != QoS.AT_MOST_ONCE) {
+                            publish.messageId(packetIdGenerator.getNextSequenceId(getClientId()));
+                            packetIdGenerator.trackRetainedPublish(getClientId(), publish);
+                        }
+                        LOG.trace("MQTT Snd retained PUBLISH message:{} client:{} connection:{}",
+                                  publish.messageId(), clientId, connectionInfo.getConnectionId());
+                        getMQTTTransport().sendToMQTT(publish.encode());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new MQTTProtocolException("Failed to send retained messages for " + topicFilter, true, e);
+        }
+    }
+
+    private void retain(PUBLISH command) throws IOException {
+        String topic = command.topicName().toString();
+        if (!publishDollarTopics && topic.startsWith("$")) {
+            return;
+        }
+        Buffer payload = command.payload();
+        retainedMessageStore.retain(topic, command.qos().ordinal(), payload != null ? payload.toByteArray() : null);
+    }
+
     public void onUnSubscribe(UNSUBSCRIBE command) throws MQTTProtocolException {
         checkConnected();
         if (command.qos() != QoS.AT_LEAST_ONCE && (version != V3_1 || publishDollarTopics != true)) {
@@ -448,6 +502,18 @@ public class MQTTProtocolConverter {
             if (sub != null) {
                 MessageAck ack = sub.createMessageAck(md);
                 PUBLISH publish = sub.createPublish((ActiveMQMessage) md.getMessage());
+                if (publish.retain() && retainedMessageStore != null &&
+                    retainedMessageStore.get(publish.topicName().toString()) != null) {
+                    // replayed by a retained message recovery policy, but the retained message
+                    // store already sent its own copy of the topic's retained message
+                    if (publish.qos() != QoS.AT_MOST_ONCE) {
+                        packetIdGenerator.ackPacketId(getClientId(), publish.messageId());
+                    }
+                    if (ack != null) {
+                        getMQTTTransport().sendToActiveMQ(ack);
+                    }
+                    return;
+                }
                 switch (publish.qos()) {
                     case AT_LEAST_ONCE:
                     case EXACTLY_ONCE:
@@ -455,9 +521,7 @@ public class MQTTProtocolConverter {
                     case AT_MOST_ONCE:
                 }
                 if (ack != null && sub.expectAck(publish)) {
-                    synchronized (consumerAcks) {
-                        consumerAcks.put(publish.messageId(), ack);
-                    }
+                    consumerAcks.put(publish.messageId(), ack);
                 }
                 LOG.trace("MQTT Snd PUBLISH message:{} client:{} connection:{}",
                           publish.messageId(), clientId, connectionInfo.getConnectionId());
@@ -498,10 +562,7 @@ public class MQTTProtocolConverter {
         LOG.trace("MQTT Rcv PUBACK message:{} client:{} connection:{}",
                   messageId, clientId, connectionInfo.getConnectionId());
         packetIdGenerator.ackPacketId(getClientId(), messageId);
-        MessageAck ack;
-        synchronized (consumerAcks) {
-            ack = consumerAcks.remove(messageId);
-        }
+        MessageAck ack = consumerAcks.remove(messageId);
         if (ack != null) {
             getMQTTTransport().sendToActiveMQ(ack);
         }
@@ -515,10 +576,7 @@ public class MQTTProtocolConverter {
     }
 
     void onMQTTPubRel(PUBREL command) {
-        PUBREC ack;
-        synchronized (publisherRecs) {
-            ack = publisherRecs.remove(command.messageId());
-        }
+        PUBREC ack = publisherRecs.remove(command.messageId());
         if (ack == null) {
             LOG.warn("Unknown PUBREL: {} received", command.messageId());
         }
@@ -530,10 +588,7 @@ public class MQTTProtocolConverter {
     void onMQTTPubComp(PUBCOMP command) {
         short messageId = command.messageId();
         packetIdGenerator.ackPacketId(getClientId(), messageId);
-        MessageAck ack;
-        synchronized (consumerAcks) {
-            ack = consumerAcks.remove(messageId);
-        }
+        MessageAck ack = consumerAcks.remove(messageId);
         if (ack != null) {
             getMQTTTransport().sendToActiveMQ(ack);
         }
@@ -551,23 +606,21 @@ public class MQTTProtocolConverter {
         msg.setPriority((byte) Message.DEFAULT_PRIORITY);
         msg.setPersistent(command.qos() != QoS.AT_MOST_ONCE);
         msg.setIntProperty(QOS_PROPERTY_NAME, command.qos().ordinal());
-        if (command.retain()) {
+        if (command.retain() && retainedMessageStore == null) {
             msg.setBooleanProperty(RetainedMessageSubscriptionRecoveryPolicy.RETAIN_PROPERTY, true);
         }
 
-        ActiveMQDestination destination;
-        synchronized (activeMQDestinationMap) {
-            destination = activeMQDestinationMap.get(command.topicName().toString());
-            if (destination == null) {
-                String topicName = MQTTProtocolSupport.convertMQTTToActiveMQ(command.topicName().toString());
-                try {
-                    destination = findSubscriptionStrategy().onSend(topicName);
-                } catch (IOException e) {
-                    throw JMSExceptionSupport.create(e);
-                }
-
-                activeMQDestinationMap.put(command.topicName().toString(), destination);
+        MQTTTopicNameCache cache = getTopicNameCache();
+        ActiveMQDestination destination = cache.getDestination(command.topicName().toString());
+        if (destination == null) {
+            String topicName = MQTTProtocolSupport.convertMQTTToActiveMQ(command.topicName().toString());
+            try {
+                destination = findSubscriptionStrategy().onSend(topicName);
+            } catch (IOException e) {
+                throw JMSExceptionSupport.create(e);
             }
+
+            cache.putDestination(command.topicName().toString(), destination);
         }
 
         msg.setJMSDestination(destination);
@@ -591,34 +644,27 @@ public class MQTTProtocolConverter {
             result.retain(true);
         }
 
-        String topicName;
-        synchronized (mqttTopicMap) {
-            ActiveMQDestination destination = message.getDestination();
-            if (destination.isPattern() && message.getOriginalDestination() != null) {
-                destination = message.getOriginalDestination();
-            }
-            topicName = mqttTopicMap.get(destination);
-            if (topicName == null) {
-                String amqTopicName = findSubscriptionStrategy().onSend(destination);
-                topicName = MQTTProtocolSupport.convertActiveMQToMQTT(amqTopicName);
-                mqttTopicMap.put(destination, topicName);
-            }
+        MQTTTopicNameCache cache = getTopicNameCache();
+        ActiveMQDestination destination = message.getDestination();
+        if (destination.isPattern() && message.getOriginalDestination() != null) {
+            destination = message.getOriginalDestination();
+        }
+        String topicName = cache.getTopicName(destination);
+        if (topicName == null) {
+            String amqTopicName = findSubscriptionStrategy().onSend(destination);
+            topicName = MQTTProtocolSupport.convertActiveMQToMQTT(amqTopicName);
+            cache.putTopicName(destination, topicName);
         }
         result.topicName(new UTF8Buffer(topicName));
 
-        if (message.getDataStructureType() == ActiveMQTextMessage.DATA_STRUCTURE_TYPE) {
-            ActiveMQTextMessage msg = (ActiveMQTextMessage) message.copy();
-            msg.setReadOnlyBody(true);
-            String messageText = msg.getText();
-            if (messageText != null) {
-                result.payload(new Buffer(messageText.getBytes("UTF-8")));
+        if (message.getDataStructureType() == ActiveMQTextMessage.DATA_STRUCTURE_TYPE ||
+            message.getDataStructureType() == ActiveMQBytesMessage.DATA_STRUCTURE_TYPE) {
+            // The payload is a view of the body shared with the message and its other
+            // subscribers, the encoder only ever reads from it
+            ByteSequence body = message.getBodyBytes();
+            if (body != null) {
+                result.payload(new Buffer(body.data, body.offset, body.length));
             }
-        } else if (message.getDataStructureType() == ActiveMQBytesMessage.DATA_STRUCTURE_TYPE) {
-            ActiveMQBytesMessage msg = (ActiveMQBytesMessage) message.copy();
-            msg.setReadOnlyBody(true);
-            byte[] data = new byte[(int) msg.getBodyLength()];
-            msg.readBytes(data);
-            result.payload(new Buffer(data));
         } else if (message.getDataStructureType() == ActiveMQMapMessage.DATA_STRUCTURE_TYPE) {
             ActiveMQMapMessage msg = (ActiveMQMapMessage) message.copy();
             msg.setReadOnlyBody(true);
@@ -660,7 +706,7 @@ public class MQTTProtocolConverter {
                 if (connected.get()) {
                     if (connect.willTopic() != null && connect.willMessage() != null) {
                         try {
-                            PUBLISH publish = new PUBLISH();
+                            final PUBLISH publish = new PUBLISH();
                             publish.topicName(connect.willTopic());
                             publish.qos(connect.willQos());
                             publish.messageId(packetIdGenerator.getNextSequenceId(getClientId()));
@@ -670,7 +716,18 @@ public class MQTTProtocolConverter {
                             message.setProducerId(producerId);
                             message.onSend();
 
-                            sendToActiveMQ(message, null);
+                            ResponseHandler handler = null;
+                            if (publish.retain() && retainedMessageStore != null) {
+                                handler = new ResponseHandler() {
+                                    @Override
+                                    public void onResponse(MQTTProtocolConverter converter, Response response) throws IOException {
+                                        if (!response.isException()) {
+                                            retain(publish);
+                                        }
+                                    }
+                                };
+                            }
+                            sendToActiveMQ(message, handler);
                         } catch (Exception e) {
                             LOG.warn("Failed to publish Will Message " + connect.willMessage());
                         }
@@ -754,6 +811,8 @@ public class MQTTProtocolConverter {
                         Throwable error = ((ExceptionResponse) response).getException();
                         LOG.warn("Failed to send MQTT Publish: {}: {}", command, error.getMessage());
                         LOG.trace("Error trace: {}", (Object)error);
+                    } else if (command.retain() && retainedMessageStore != null) {
+                        retain(command);
                     }
 
                     switch (command.qos()) {
@@ -767,9 +826,7 @@ public class MQTTProtocolConverter {
                         case EXACTLY_ONCE:
                             PUBREC req = new PUBREC();
                             req.messageId(command.messageId());
-                            synchronized (publisherRecs) {
-                                publisherRecs.put(command.messageId(), req);
-                            }
+                            publisherRecs.put(command.messageId(), req);
                             LOG.trace("MQTT Snd PUBREC message:{} client:{} connection:{}",
                                       command.messageId(), clientId, connectionInfo.getConnectionId());
                             converter.getMQTTTransport().sendToMQTT(req.encode());
@@ -823,6 +880,23 @@ public class MQTTProtocolConverter {
         return publishDollarTopics;
     }
 
+    /**
+     * Keep retained messages in the broker wide MQTT retained message store instead of on the
+     * destination they were published to, a topic filter with wildcards is then matched against
+     * the store rather than against every topic destination in the broker.
+     *
+     * @param useRetainedMessageStore
+     *        true to use the MQTT retained message store.
+     */
+    public void setUseRetainedMessageStore(boolean useRetainedMessageStore) {
+        this.retainedMessageStore = useRetainedMessageStore ?
+            MQTTRetainedMessageStore.getMQTTRetainedMessageStore(brokerService) : null;
+    }
+
+    public boolean isUseRetainedMessageStore() {
+        return retainedMessageStore != null;
+    }
+
     public ConnectionId getConnectionId() {
         return connectionId;
     }
@@ -854,6 +928,13 @@ public class MQTTProtocolConverter {
         return clientId;
     }
 
+    private MQTTTopicNameCache getTopicNameCache() {
+        if (topicNameCache == null) {
+            topicNameCache = MQTTTopicNameCache.getCache(String.valueOf(subscriptionStrategyName));
+        }
+        return topicNameCache;
+    }
+
     protected boolean containsMqttWildcard(String value) {
         return value != null && (value.contains(SINGLE_LEVEL_WILDCARD) ||
                 value.contains(MULTI_LEVEL_WILDCARD));
@@ -0,0 +1,554 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.mqtt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.activemq.Service;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.util.IOHelper;
+import org.apache.activemq.util.ServiceStopper;
+import org.apache.activemq.util.ServiceSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the last retained message of every MQTT topic in a trie keyed by topic level, so a
+ * subscription can find the retained messages that match its topic filter without a broker
+ * destination being kept for each retained topic.
+ *
+ * When the broker is persistent every change is appended to a log in the broker data directory
+ * which is replayed and compacted on start. Changes published with QoS 1 or 2 are forced to disk
+ * before they are acknowledged, publishers that wait for the disk at the same time share one
+ * force. Once the log holds mostly replaced records it is rewritten by a background thread.
+ */
+public class MQTTRetainedMessageStore extends ServiceSupport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MQTTRetainedMessageStore.class);
+    private static final Object LOCK = new Object();
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final String LOG_FILE_NAME = "retained.log";
+    private static final byte PUT_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+    private static final int MIN_COMPACTION_RECORDS = 10000;
+
+    private final BrokerService brokerService;
+    private final Node root = new Node(null, null);
+    private final AtomicInteger size = new AtomicInteger();
+    private File directory;
+    private DataOutputStream log;
+    private volatile FileChannel logChannel;
+    private volatile long written;
+    private int obsoleteRecords;
+    private boolean closed;
+    private List<byte[]> compactionTail;
+
+    private final Object syncMutex = new Object();
+    private long synced;
+
+    private MQTTRetainedMessageStore(BrokerService brokerService) {
+        this.brokerService = brokerService;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        synchronized (this) {
+            closed = false;
+        }
+        if (brokerService.isPersistent()) {
+            directory = new File(brokerService.getBrokerDataDirectory(), "mqtt-retained");
+            IOHelper.mkdirs(directory);
+            File logFile = new File(directory, LOG_FILE_NAME);
+            if (brokerService.isDeleteAllMessagesOnStartup()) {
+                IOHelper.deleteFile(logFile);
+            }
+            recover(logFile);
+            compact(startCompaction());
+        }
+    }
+
+    @Override
+    protected void doStop(ServiceStopper stopper) throws Exception {
+        synchronized (this) {
+            closed = true;
+            synchronized (syncMutex) {
+                closeLog();
+            }
+        }
+    }
+
+    /**
+     * Replaces the retained message of a topic, an empty payload clears it. A change with
+     * QoS 1 or 2 is on disk when this returns.
+     *
+     * @param topic
+     *        the MQTT topic name the message was published to.
+     * @param qos
+     *        the QoS the message was published with.
+     * @param payload
+     *        the message payload.
+     *
+     * @throws IOException if the change could not be written to the log or forced to disk.
+     */
+    public void retain(String topic, int qos, byte[] payload) throws IOException {
+        long position;
+        synchronized (this) {
+            if (payload == null || payload.length == 0) {
+                if (remove(topic) && log != null) {
+                    ByteArrayOutputStream record = new ByteArrayOutputStream();
+                    DataOutputStream out = new DataOutputStream(record);
+                    out.writeByte(REMOVE_RECORD);
+                    out.writeUTF(topic);
+                    append(record.toByteArray());
+                    obsoleteRecords += 2;
+                }
+            } else {
+                if (put(new RetainedMessage(topic, qos, payload)) && log != null) {
+                    obsoleteRecords++;
+                }
+                if (log != null) {
+                    ByteArrayOutputStream record = new ByteArrayOutputStream(payload.length + topic.length() + 16);
+                    writePut(new DataOutputStream(record), topic, qos, payload);
+                    append(record.toByteArray());
+                }
+            }
+
+            if (log != null && compactionTail == null && obsoleteRecords > MIN_COMPACTION_RECORDS && obsoleteRecords > size.get()) {
+                final List<RetainedMessage> snapshot = startCompaction();
+                Thread compaction = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            compact(snapshot);
+                        } catch (IOException e) {
+                            LOG.warn("Failed to compact the MQTT retained message log", e);
+                        }
+                    }
+                }, "ActiveMQ MQTT Retained Message Compaction");
+                compaction.setDaemon(true);
+                compaction.start();
+            }
+            position = written;
+        }
+
+        if (qos > 0) {
+            sync(position);
+        }
+    }
+
+    private void append(byte[] record) throws IOException {
+        log.write(record);
+        log.flush();
+        written += record.length;
+        if (compactionTail != null) {
+            compactionTail.add(record);
+        }
+    }
+
+    /**
+     * Forces the log to disk up to the given position, unless a force by another publisher
+     * that started later already covered it.
+     */
+    private void sync(long position) throws IOException {
+        synchronized (syncMutex) {
+            if (synced >= position) {
+                return;
+            }
+            long target = written;
+            FileChannel channel = logChannel;
+            if (channel != null) {
+                channel.force(false);
+            }
+            synced = target;
+        }
+    }
+
+    /**
+     * @return the retained message of the given topic or null if there is none.
+     */
+    public RetainedMessage get(String topic) {
+        Node node = root;
+        for (String level : topic.split("/", -1)) {
+            node = node.children.get(level);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node.message;
+    }
+
+    /**
+     * @return the number of topics that have a retained message.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Finds the retained messages whose topic matches a subscription's topic filter and hands
+     * them to the listener in batches as the trie is walked, no lock is held while the listener
+     * runs so a slow client does not hold up publishers.
+     *
+     * @param topicFilter
+     *        the MQTT topic filter, which may contain wildcards.
+     * @param batchSize
+     *        the maximum number of messages passed to the listener at once.
+     * @param listener
+     *        receives the matching messages.
+     *
+     * @throws IOException if the listener fails to process a batch.
+     */
+    public void match(String topicFilter, int batchSize, BatchListener listener) throws IOException {
+        Batch batch = new Batch(batchSize, listener);
+        match(root, topicFilter.split("/", -1), 0, batch);
+        batch.flush();
+    }
+
+    private void match(Node node, String[] levels, int index, Batch batch) throws IOException {
+        if (index == levels.length) {
+            batch.add(node.message);
+            return;
+        }
+
+        String level = levels[index];
+        if (MQTTProtocolConverter.MULTI_LEVEL_WILDCARD.equals(level)) {
+            // the multi level wildcard also matches the parent level
+            if (node != root) {
+                batch.add(node.message);
+            }
+            for (Node child : node.children.values()) {
+                if (node != root || !child.isSystemTopic()) {
+                    matchAll(child, batch);
+                }
+            }
+        } else if (MQTTProtocolConverter.SINGLE_LEVEL_WILDCARD.equals(level)) {
+            for (Node child : node.children.values()) {
+                if (node != root || !child.isSystemTopic()) {
+                    match(child, levels, index + 1, batch);
+                }
+            }
+        } else {
+            Node child = node.children.get(level);
+            if (child != null) {
+                match(child, levels, index + 1, batch);
+            }
+        }
+    }
+
+    private void matchAll(Node node, Batch batch) throws IOException {
+        batch.add(node.message);
+        for (Node child : node.children.values()) {
+            matchAll(child, batch);
+        }
+    }
+
+    private boolean put(RetainedMessage message) {
+        Node node = root;
+        for (String level : message.getTopic().split("/", -1)) {
+            Node child = node.children.get(level);
+            if (child == null) {
+                child = new Node(node, level);
+                node.children.put(level, child);
+            }
+            node = child;
+        }
+        boolean replaced = node.message != null;
+        node.message = message;
+        if (!replaced) {
+            size.incrementAndGet();
+        }
+        return replaced;
+    }
+
+    private boolean remove(String topic) {
+        Node node = root;
+        for (String level : topic.split("/", -1)) {
+            node = node.children.get(level);
+            if (node == null) {
+                return false;
+            }
+        }
+        if (node.message == null) {
+            return false;
+        }
+
+        node.message = null;
+        size.decrementAndGet();
+
+        // prune the branch that no longer leads to a retained message
+        while (node != root && node.message == null && node.children.isEmpty()) {
+            node.parent.children.remove(node.level);
+            node = node.parent;
+        }
+        return true;
+    }
+
+    private void recover(File logFile) throws IOException {
+        if (!logFile.exists()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
+        try {
+            while (true) {
+                byte type = in.readByte();
+                String topic = in.readUTF();
+                if (type == PUT_RECORD) {
+                    int qos = in.readByte();
+                    byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    put(new RetainedMessage(topic, qos, payload));
+                } else if (type == REMOVE_RECORD) {
+                    remove(topic);
+                } else {
+                    throw new IOException("Unknown record type " + type + " in " + logFile);
+                }
+            }
+        } catch (EOFException e) {
+            // end of the log, or a partly written last record that is dropped
+        } finally {
+            in.close();
+        }
+        LOG.info("Recovered {} MQTT retained messages in {} ms", size.get(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Takes the messages the compacted log starts with, changes made after this are kept
+     * aside to be appended to it.
+     */
+    private synchronized List<RetainedMessage> startCompaction() {
+        List<RetainedMessage> snapshot = new ArrayList<>(size.get());
+        collect(root, snapshot);
+        compactionTail = new ArrayList<>();
+        return snapshot;
+    }
+
+    /**
+     * Rewrites the log with only the current retained messages. The snapshot is written
+     * without holding the lock, only the changes made meanwhile and the switch of the
+     * files hold up publishers.
+     */
+    private void compact(List<RetainedMessage> snapshot) throws IOException {
+        File logFile = new File(directory, LOG_FILE_NAME);
+        File compacted = new File(directory, LOG_FILE_NAME + ".tmp");
+        FileOutputStream file = new FileOutputStream(compacted);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+        try {
+            for (RetainedMessage message : snapshot) {
+                writePut(out, message.getTopic(), message.getQoS(), message.getPayload());
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                for (byte[] record : compactionTail) {
+                    out.write(record);
+                }
+                out.flush();
+                file.getChannel().force(false);
+                out.close();
+
+                synchronized (syncMutex) {
+                    closeLog();
+                    try {
+                        if (!compacted.renameTo(logFile)) {
+                            // platforms that do not rename over an existing file
+                            IOHelper.deleteFile(logFile);
+                            if (!compacted.renameTo(logFile)) {
+                                throw new IOException("Failed to rename " + compacted + " to " + logFile);
+                            }
+                        }
+                    } finally {
+                        openLog(logFile);
+                    }
+                    synced = written;
+                }
+                obsoleteRecords = 0;
+            }
+        } finally {
+            out.close();
+            synchronized (this) {
+                compactionTail = null;
+            }
+            if (compacted.exists()) {
+                IOHelper.deleteFile(compacted);
+            }
+        }
+    }
+
+    private void openLog(File logFile) throws IOException {
+        FileOutputStream file = new FileOutputStream(logFile, true);
+        logChannel = file.getChannel();
+        log = new DataOutputStream(new BufferedOutputStream(file));
+    }
+
+    private void closeLog() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+            logChannel = null;
+        }
+    }
+
+    private void collect(Node node, List<RetainedMessage> messages) {
+        RetainedMessage message = node.message;
+        if (message != null) {
+            messages.add(message);
+        }
+        for (Node child : node.children.values()) {
+            collect(child, messages);
+        }
+    }
+
+    private static void writePut(DataOutputStream out, String topic, int qos, byte[] payload) throws IOException {
+        out.writeByte(PUT_RECORD);
+        out.writeUTF(topic);
+        out.writeByte(qos);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    public static MQTTRetainedMessageStore getMQTTRetainedMessageStore(BrokerService broker) {
+        MQTTRetainedMessageStore result = null;
+        if (broker != null) {
+            synchronized (LOCK) {
+                Service[] services = broker.getServices();
+                if (services != null) {
+                    for (Service service : services) {
+                        if (service instanceof MQTTRetainedMessageStore) {
+                            return (MQTTRetainedMessageStore) service;
+                        }
+                    }
+                }
+                result = new MQTTRetainedMessageStore(broker);
+                broker.addService(result);
+                if (broker.isStarted()) {
+                    try {
+                        result.start();
+                    } catch (Exception e) {
+                        LOG.warn("Couldn't start MQTTRetainedMessageStore", e);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Receives the retained messages found by {@link MQTTRetainedMessageStore#match}.
+     */
+    public interface BatchListener {
+
+        void onBatch(List<RetainedMessage> batch) throws IOException;
+
+    }
+
+    /**
+     * The last retained message published to a topic.
+     */
+    public static class RetainedMessage {
+
+        private final String topic;
+        private final int qos;
+        private final byte[] payload;
+
+        RetainedMessage(String topic, int qos, byte[] payload) {
+            this.topic = topic;
+            this.qos = qos;
+            this.payload = payload;
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public int getQoS() {
+            return qos;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+
+    private static class Node {
+
+        private final Node parent;
+        private final String level;
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private volatile RetainedMessage message;
+
+        Node(Node parent, String level) {
+            this.parent = parent;
+            this.level = level;
+        }
+
+        boolean isSystemTopic() {
+            return level.startsWith("$");
+        }
+    }
+
+    private static class Batch {
+
+        private final int size;
+        private final BatchListener listener;
+        private List<RetainedMessage> messages;
+
+        Batch(int size, BatchListener listener) {
+            this.size = Math.max(1, size);
+            this.listener = listener;
+            this.messages = new ArrayList<>(this.size);
+        }
+
+        void add(RetainedMessage message) throws IOException {
+            if (message != null) {
+                messages.add(message);
+                if (messages.size() >= size) {
+                    flush();
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (!messages.isEmpty()) {
+                List<RetainedMessage> batch = messages;
+                messages = new ArrayList<>(size);
+                listener.onBatch(batch);
+            }
+        }
+    }
+}
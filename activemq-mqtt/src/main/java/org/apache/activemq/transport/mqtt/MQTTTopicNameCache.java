@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.mqtt;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.activemq.command.ActiveMQDestination;
+
+/**
+ * Caches the translation between MQTT topic names and ActiveMQ destinations. The translation
+ * only depends on the subscription strategy, so one cache per strategy is shared by all
+ * connections instead of each connection translating the same topics again.
+ *
+ * Each map is simply cleared once it reaches its maximum size.
+ */
+class MQTTTopicNameCache {
+
+    private static final int DEFAULT_MAX_SIZE = MQTTProtocolConverter.DEFAULT_CACHE_SIZE * 10;
+    private static final ConcurrentMap<String, MQTTTopicNameCache> CACHES = new ConcurrentHashMap<String, MQTTTopicNameCache>();
+
+    private final int maxSize;
+    private final ConcurrentMap<String, ActiveMQDestination> destinations = new ConcurrentHashMap<String, ActiveMQDestination>();
+    private final ConcurrentMap<ActiveMQDestination, String> topicNames = new ConcurrentHashMap<ActiveMQDestination, String>();
+
+    MQTTTopicNameCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cache shared by the connections that use the given subscription strategy.
+     */
+    static MQTTTopicNameCache getCache(String subscriptionStrategyName) {
+        MQTTTopicNameCache cache = CACHES.get(subscriptionStrategyName);
+        if (cache == null) {
+            cache = new MQTTTopicNameCache(DEFAULT_MAX_SIZE);
+            MQTTTopicNameCache existing = CACHES.putIfAbsent(subscriptionStrategyName, cache);
+            if (existing != null) {
+                cache = existing;
+            }
+        }
+        return cache;
+    }
+
+    ActiveMQDestination getDestination(String topicName) {
+        return destinations.get(topicName);
+    }
+
+    void putDestination(String topicName, ActiveMQDestination destination) {
+        if (destinations.size() >= maxSize) {
+            destinations.clear();
+        }
+        destinations.put(topicName, destination);
+    }
+
+    String getTopicName(ActiveMQDestination destination) {
+        return topicNames.get(destination);
+    }
+
+    void putTopicName(ActiveMQDestination destination, String topicName) {
+        if (topicNames.size() >= maxSize) {
+            topicNames.clear();
+        }
+        topicNames.put(destination, topicName);
+    }
+}
@@ -241,6 +241,14 @@ public class MQTTTransportFilter extends TransportFilter implements MQTTTranspor
         protocolConverter.setPublishDollarTopics(publishDollarTopics);
     }
 
+    public boolean isUseRetainedMessageStore() {
+        return protocolConverter != null && protocolConverter.isUseRetainedMessageStore();
+    }
+
+    public void setUseRetainedMessageStore(boolean useRetainedMessageStore) {
+        protocolConverter.setUseRetainedMessageStore(useRetainedMessageStore);
+    }
+
     public String getSubscriptionStrategy() {
         return protocolConverter != null ? protocolConverter.getSubscriptionStrategy() : "default";
     }
@@ -314,6 +314,12 @@ public abstract class AbstractMQTTSubscriptionStrategy implements MQTTSubscripti
             }
         }
 
+        // subscriptions the broker has not restored yet, they are restored by the subscribe
+        for (SubscriptionInfo info : topicRegion.lookupOfflineSubscriptions(clientId)) {
+            LOG.debug("Recovered deferred durable sub:{} on connect", info);
+            result.add(info);
+        }
+
         return result;
     }
 }
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.mqtt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.RegionBroker;
+import org.apache.activemq.broker.region.TopicRegion;
+import org.fusesource.mqtt.client.BlockingConnection;
+import org.fusesource.mqtt.client.Message;
+import org.fusesource.mqtt.client.QoS;
+import org.fusesource.mqtt.client.Topic;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MQTTDeferredSessionRecoveryTest extends MQTTTestSupport {
+
+    private static final int SESSIONS = 50;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        persistent = true;
+        super.setUp();
+    }
+
+    @Override
+    protected void configureBroker(BrokerService brokerService) throws Exception {
+        super.configureBroker(brokerService);
+        brokerService.setDeferOfflineDurableSubscriptions(true);
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testOfflineSessionsRestoredOnReconnect() throws Exception {
+        for (int i = 0; i < SESSIONS; i++) {
+            BlockingConnection connection = createMQTTConnection("device-" + i, false).blockingConnection();
+            connection.connect();
+            connection.subscribe(new Topic[] {new Topic("devices/" + i + "/commands", QoS.AT_LEAST_ONCE)});
+            connection.disconnect();
+        }
+
+        restartBroker();
+
+        TopicRegion topicRegion = getTopicRegion();
+        assertEquals(0, topicRegion.getDurableSubscriptions().size());
+        assertEquals(1, topicRegion.lookupOfflineSubscriptions("device-0").size());
+
+        BlockingConnection publisher = createMQTTConnection("publisher", true).blockingConnection();
+        publisher.connect();
+        for (int i = 0; i < SESSIONS; i++) {
+            publisher.publish("devices/" + i + "/commands", ("command-" + i).getBytes(), QoS.AT_LEAST_ONCE, false);
+        }
+        publisher.disconnect();
+
+        BlockingConnection connection = createMQTTConnection("device-7", false).blockingConnection();
+        connection.connect();
+        Message message = connection.receive(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("command-7", new String(message.getPayload()));
+        message.ack();
+        assertNull(connection.receive(500, TimeUnit.MILLISECONDS));
+        connection.disconnect();
+
+        assertEquals(1, topicRegion.getDurableSubscriptions().size());
+        assertEquals(0, topicRegion.lookupOfflineSubscriptions("device-7").size());
+        assertEquals(1, topicRegion.lookupOfflineSubscriptions("device-8").size());
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testCleanSessionRemovesOfflineSession() throws Exception {
+        BlockingConnection connection = createMQTTConnection("device", false).blockingConnection();
+        connection.connect();
+        connection.subscribe(new Topic[] {new Topic("devices/commands", QoS.AT_LEAST_ONCE)});
+        connection.disconnect();
+
+        restartBroker();
+
+        final TopicRegion topicRegion = getTopicRegion();
+        assertEquals(1, topicRegion.lookupOfflineSubscriptions("device").size());
+
+        connection = createMQTTConnection("device", true).blockingConnection();
+        connection.connect();
+        connection.disconnect();
+
+        assertEquals(0, topicRegion.lookupOfflineSubscriptions("device").size());
+        assertEquals(0, topicRegion.getDurableSubscriptions().size());
+    }
+
+    private TopicRegion getTopicRegion() throws Exception {
+        RegionBroker regionBroker = (RegionBroker) brokerService.getBroker().getAdaptor(RegionBroker.class);
+        return (TopicRegion) regionBroker.getTopicRegion();
+    }
+}
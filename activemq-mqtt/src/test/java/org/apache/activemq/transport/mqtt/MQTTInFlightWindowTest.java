@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.mqtt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for the packet id indexed in flight window
+ */
+public class MQTTInFlightWindowTest {
+
+    @Test
+    public void testCoversWholePacketIdRange() {
+        MQTTInFlightWindow<String> window = new MQTTInFlightWindow<String>();
+        for (int i = 0; i <= 0xFFFF; i++) {
+            assertNull(window.put((short) i, "id-" + i));
+        }
+        assertEquals("id-65535", window.get((short) -1));
+        assertEquals("id-0", window.put((short) 0, "replaced"));
+        for (int i = 0; i <= 0xFFFF; i++) {
+            assertEquals(i == 0 ? "replaced" : "id-" + i, window.remove((short) i));
+            assertNull(window.get((short) i));
+        }
+        assertNull(window.remove((short) 10));
+        assertEquals(0, window.getAllocatedPages());
+    }
+
+    @Test
+    public void testPagesDroppedOnceCleared() {
+        MQTTInFlightWindow<String> window = new MQTTInFlightWindow<String>();
+        // a connection cycling through the id space keeps at most two pages at a time
+        for (int i = 0; i < 0x20000; i++) {
+            window.put((short) i, "id-" + i);
+            if (i >= 16) {
+                assertEquals("id-" + (i - 16), window.remove((short) (i - 16)));
+            }
+            assertTrue(window.getAllocatedPages() <= 2);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentPutAndRemoveWithinPage() throws Exception {
+        final MQTTInFlightWindow<Integer> window = new MQTTInFlightWindow<Integer>();
+        final AtomicInteger removed = new AtomicInteger();
+        final int threads = 4;
+        final int rounds = 10000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int slot = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    // all threads share the first page, so it is dropped and allocated again
+                    for (int i = 0; i < rounds; i++) {
+                        window.put((short) slot, i);
+                        if (window.remove((short) slot) != null) {
+                            removed.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        assertEquals(threads * rounds, removed.get());
+        assertEquals(0, window.getAllocatedPages());
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentPutAndRemove() throws Exception {
+        final MQTTInFlightWindow<Integer> window = new MQTTInFlightWindow<Integer>();
+        final AtomicInteger removed = new AtomicInteger();
+        final int threads = 4;
+        final int idsPerThread = 0x10000 / threads;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int base = t * idsPerThread;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = base; i < base + idsPerThread; i++) {
+                        window.put((short) i, i);
+                    }
+                    for (int i = base; i < base + idsPerThread; i++) {
+                        if (window.remove((short) i) != null) {
+                            removed.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        assertEquals(0x10000, removed.get());
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.mqtt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.util.Wait;
+import org.fusesource.mqtt.client.BlockingConnection;
+import org.fusesource.mqtt.client.MQTT;
+import org.fusesource.mqtt.client.Message;
+import org.fusesource.mqtt.client.QoS;
+import org.fusesource.mqtt.client.Topic;
+import org.fusesource.mqtt.client.Tracer;
+import org.fusesource.mqtt.codec.MQTTFrame;
+import org.fusesource.mqtt.codec.PUBLISH;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MQTTRetainedMessageStoreTest extends MQTTTestSupport {
+
+    private static final int TOPICS = 1000;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        protocolConfig = "transport.useRetainedMessageStore=true";
+        persistent = true;
+        super.setUp();
+    }
+
+    @Override
+    protected void configureBroker(BrokerService brokerService) throws Exception {
+        super.configureBroker(brokerService);
+        brokerService.setDataDirectoryFile(new File("target/activemq-data/" + getTestName()));
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testWildcardSubscriptionReceivesRetainedMessages() throws Exception {
+        BlockingConnection publisher = createMQTTConnection("publisher", true).blockingConnection();
+        publisher.connect();
+        for (int i = 0; i < TOPICS; i++) {
+            publisher.publish("sensors/" + (i % 10) + "/device-" + i, ("value-" + i).getBytes(), QoS.AT_LEAST_ONCE, true);
+        }
+        publisher.publish("other/device", "other".getBytes(), QoS.AT_LEAST_ONCE, true);
+        publisher.disconnect();
+
+        MQTT mqtt = createMQTTConnection("subscriber", true);
+        final AtomicInteger retained = new AtomicInteger();
+        mqtt.setTracer(new Tracer() {
+            @Override
+            public void onReceive(MQTTFrame frame) {
+                if (frame.messageType() == PUBLISH.TYPE && frame.retain()) {
+                    retained.incrementAndGet();
+                }
+            }
+        });
+        BlockingConnection subscriber = mqtt.blockingConnection();
+        subscriber.connect();
+        subscriber.subscribe(new Topic[] {new Topic("sensors/+/#", QoS.AT_LEAST_ONCE)});
+
+        Set<String> received = new HashSet<>();
+        for (int i = 0; i < TOPICS; i++) {
+            Message message = subscriber.receive(5, TimeUnit.SECONDS);
+            assertNotNull("message " + i, message);
+            String topic = message.getTopic();
+            assertEquals("value-" + topic.substring(topic.indexOf("device-") + 7), new String(message.getPayload()));
+            received.add(topic);
+            message.ack();
+        }
+        assertEquals(TOPICS, received.size());
+        assertEquals(TOPICS, retained.get());
+        assertNull(subscriber.receive(500, TimeUnit.MILLISECONDS));
+        subscriber.disconnect();
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testEmptyPayloadClearsRetainedMessage() throws Exception {
+        BlockingConnection connection = createMQTTConnection("client", true).blockingConnection();
+        connection.connect();
+        connection.publish("foo/bar", "retained".getBytes(), QoS.AT_LEAST_ONCE, true);
+        connection.publish("foo/bar", new byte[0], QoS.AT_LEAST_ONCE, true);
+
+        connection.subscribe(new Topic[] {new Topic("foo/#", QoS.AT_LEAST_ONCE)});
+        assertNull(connection.receive(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, MQTTRetainedMessageStore.getMQTTRetainedMessageStore(brokerService).size());
+        connection.disconnect();
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testRetainedMessagesSurviveRestart() throws Exception {
+        BlockingConnection connection = createMQTTConnection("client", true).blockingConnection();
+        connection.connect();
+        connection.publish("foo/a", "a".getBytes(), QoS.AT_LEAST_ONCE, true);
+        connection.publish("foo/b", "b".getBytes(), QoS.AT_MOST_ONCE, true);
+        connection.publish("foo/b", "b2".getBytes(), QoS.AT_MOST_ONCE, true);
+        connection.publish("foo/c", "c".getBytes(), QoS.AT_LEAST_ONCE, true);
+        connection.publish("foo/c", new byte[0], QoS.AT_LEAST_ONCE, true);
+        connection.disconnect();
+
+        restartBroker();
+
+        MQTT mqtt = createMQTTConnection("client", true);
+        connection = mqtt.blockingConnection();
+        connection.connect();
+        connection.subscribe(new Topic[] {new Topic("foo/+", QoS.AT_LEAST_ONCE)});
+
+        Set<String> received = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            Message message = connection.receive(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            received.add(message.getTopic() + "=" + new String(message.getPayload()));
+            message.ack();
+        }
+        assertTrue(received.contains("foo/a=a"));
+        assertTrue(received.contains("foo/b=b2"));
+        assertNull(connection.receive(500, TimeUnit.MILLISECONDS));
+        connection.disconnect();
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testUnacknowledgedRetainedMessageResentOnReconnect() throws Exception {
+        BlockingConnection publisher = createMQTTConnection("publisher", true).blockingConnection();
+        publisher.connect();
+        publisher.publish("foo/bar", "retained".getBytes(), QoS.AT_LEAST_ONCE, true);
+        publisher.disconnect();
+
+        BlockingConnection subscriber = createMQTTConnection("subscriber", false).blockingConnection();
+        subscriber.connect();
+        subscriber.subscribe(new Topic[] {new Topic("foo/#", QoS.AT_LEAST_ONCE)});
+        Message message = subscriber.receive(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        // no PUBACK before the connection goes away
+        subscriber.disconnect();
+
+        MQTT mqtt = createMQTTConnection("subscriber", false);
+        final AtomicInteger duplicates = new AtomicInteger();
+        mqtt.setTracer(new Tracer() {
+            @Override
+            public void onReceive(MQTTFrame frame) {
+                if (frame.messageType() == PUBLISH.TYPE && frame.dup()) {
+                    duplicates.incrementAndGet();
+                }
+            }
+        });
+        subscriber = mqtt.blockingConnection();
+        subscriber.connect();
+        message = subscriber.receive(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("retained", new String(message.getPayload()));
+        assertEquals(1, duplicates.get());
+        message.ack();
+        subscriber.disconnect();
+
+        subscriber = createMQTTConnection("subscriber", false).blockingConnection();
+        subscriber.connect();
+        assertNull(subscriber.receive(500, TimeUnit.MILLISECONDS));
+        subscriber.disconnect();
+    }
+
+    @Test(timeout = 120 * 1000)
+    public void testLogCompactedInBackground() throws Exception {
+        BlockingConnection connection = createMQTTConnection("client", true).blockingConnection();
+        connection.connect();
+        for (int i = 0; i < 12000; i++) {
+            connection.publish("foo/" + (i % 10), ("value-" + i).getBytes(), QoS.AT_MOST_ONCE, true);
+        }
+        connection.publish("foo/0", "last".getBytes(), QoS.AT_LEAST_ONCE, true);
+        connection.disconnect();
+
+        final File log = new File(brokerService.getBrokerDataDirectory(), "mqtt-retained/retained.log");
+        assertTrue("log compacted", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return log.length() < 10000 * 10;
+            }
+        }));
+
+        restartBroker();
+
+        connection = createMQTTConnection("client", true).blockingConnection();
+        connection.connect();
+        connection.subscribe(new Topic[] {new Topic("foo/0", QoS.AT_LEAST_ONCE)});
+        Message message = connection.receive(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("last", new String(message.getPayload()));
+        message.ack();
+        assertEquals(10, MQTTRetainedMessageStore.getMQTTRetainedMessageStore(brokerService).size());
+        connection.disconnect();
+    }
+}
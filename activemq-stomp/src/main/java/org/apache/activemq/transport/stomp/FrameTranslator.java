@@ -17,6 +17,7 @@
 package org.apache.activemq.transport.stomp;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,6 +26,7 @@ import jakarta.jms.JMSException;
 
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.util.ByteSequence;
 
 /**
  * Implementations of this interface are used to map back and forth from STOMP
@@ -157,5 +159,31 @@ public interface FrameTranslator {
             // now the general headers
             msg.setProperties(headers);
         }
+
+        /**
+         * Returns the body of a text or bytes message as the exact array a frame holds. For a
+         * topic message the array is cached on the message, so the frames sent to every STOMP
+         * subscriber of the message share it and must not modify it. A queue message is
+         * normally sent once, so its copy is not kept beyond the frame.
+         */
+        public static byte[] getFrameContent(ActiveMQMessage message) throws JMSException {
+            final boolean cached = message.getDestination() != null && message.getDestination().isTopic();
+            byte[] content = cached ? (byte[]) message.getProtocolEncoding(StompFrame.class) : null;
+            if (content == null) {
+                ByteSequence body = message.getBodyBytes();
+                if (body == null) {
+                    return null;
+                }
+                if (body.offset == 0 && body.length == body.data.length) {
+                    content = body.data;
+                } else {
+                    content = Arrays.copyOfRange(body.data, body.offset, body.offset + body.length);
+                }
+                if (cached) {
+                    message.setProtocolEncoding(StompFrame.class, content);
+                }
+            }
+            return content;
+        }
     }
 }
@@ -18,7 +18,6 @@ package org.apache.activemq.transport.stomp;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -98,22 +97,16 @@ public class LegacyFrameTranslator implements FrameTranslator {
         FrameTranslator.Helper.copyStandardHeadersFromMessageToFrame(converter, message, command, this);
 
         if (message.getDataStructureType() == ActiveMQTextMessage.DATA_STRUCTURE_TYPE) {
-            ActiveMQTextMessage msg = (ActiveMQTextMessage)message.copy();
-            // AMQ-8398 - get the original text back so we decode from modified UTF-8
-            // and then we can re-encode using the standard JDK encoding
-            String messageText = msg.getText();
-            if (messageText != null) {
-                command.setContent(msg.getText().getBytes(StandardCharsets.UTF_8));
+            // AMQ-8398 - the body is sent in standard UTF-8 rather than the modified UTF-8
+            // of the stored content, see ActiveMQTextMessage#getBodyBytes
+            byte[] content = FrameTranslator.Helper.getFrameContent(message);
+            if (content != null) {
+                command.setContent(content);
             }
         } else if (message.getDataStructureType() == ActiveMQBytesMessage.DATA_STRUCTURE_TYPE) {
-
-            ActiveMQBytesMessage msg = (ActiveMQBytesMessage)message.copy();
-            msg.setReadOnlyBody(true);
-            byte[] data = new byte[(int)msg.getBodyLength()];
-            msg.readBytes(data);
-
-            headers.put(Stomp.Headers.CONTENT_LENGTH, Integer.toString(data.length));
-            command.setContent(data);
+            byte[] content = FrameTranslator.Helper.getFrameContent(message);
+            headers.put(Stomp.Headers.CONTENT_LENGTH, Integer.toString(content.length));
+            command.setContent(content);
         }
 
         return command;
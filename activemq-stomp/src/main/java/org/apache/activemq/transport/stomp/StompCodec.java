@@ -17,6 +17,9 @@
 package org.apache.activemq.transport.stomp;
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,17 +28,27 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.activemq.transport.tcp.TcpTransport;
-import org.apache.activemq.util.ByteArrayOutputStream;
 import org.apache.activemq.util.DataByteArrayInputStream;
 
+/**
+ * Incrementally decodes STOMP frames from the buffers filled by the NIO transports.
+ *
+ * Frames are parsed straight out of the transport's read buffer. Only the header section is
+ * accumulated until it is complete, it is then parsed by the {@link StompWireFormat}. A body is
+ * copied directly into the array handed to the {@link StompFrame}; when the frame carries a
+ * content-length header that array grows as the body arrives up to the announced length, so a
+ * frame header alone cannot make the broker allocate the body. Only a body without
+ * content-length that spans several reads goes through an intermediate buffer.
+ */
 public class StompCodec {
 
-    final static byte[] crlfcrlf = new byte[]{'\r','\n','\r','\n'};
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
     TcpTransport transport;
     StompWireFormat wireFormat;
 
-    AtomicLong frameSize = new AtomicLong(); 
-    ByteArrayOutputStream currentCommand = new ByteArrayOutputStream();
+    AtomicLong frameSize = new AtomicLong();
     boolean processedHeaders = false;
     String action;
     HashMap<String, String> headers;
@@ -45,97 +58,229 @@ public class StompCodec {
     boolean awaitingCommandStart = true;
     String version = Stomp.DEFAULT_VERSION;
 
+    // header section of the current frame, until its terminating empty line is seen.
+    private byte[] headerBuffer = new byte[INITIAL_BUFFER_SIZE];
+    private int headerSize;
+
+    // body of the current frame, grown up to the content-length as it is read.
+    private byte[] content;
+    // accumulates a body without content-length that spans several reads.
+    private byte[] contentBuffer;
+    private int contentSize;
+
     public StompCodec(TcpTransport transport) {
         this.transport = transport;
         this.wireFormat = (StompWireFormat) transport.getWireFormat();
     }
 
+    /**
+     * @deprecated use {@link #parse(ByteBuffer)} or {@link #parse(byte[], int, int)}, which read
+     *             the transport buffer without an intermediate stream.
+     */
+    @Deprecated
     public void parse(ByteArrayInputStream input, int readSize) throws Exception {
-       int i = 0;
-       int b;
-       while(i++ < readSize) {
-           b = input.read();
-           // skip repeating nulls
-           if (!processedHeaders && previousByte == 0 && b == 0) {
-               continue;
-           }
-
-           if (!processedHeaders) {
-
-               // skip heart beat commands.
-               if (awaitingCommandStart && b == '\n') {
-                   continue;
-               } else {
-                   awaitingCommandStart = false;   // non-newline indicates next frame.
-               }
-
-               currentCommand.write(b);
-               // end of headers section, parse action and header
-               if (b == '\n' && (previousByte == '\n' || currentCommand.endsWith(crlfcrlf))) {
-                   DataByteArrayInputStream data = new DataByteArrayInputStream(currentCommand.toByteArray());
-
-                   try {
-                       action = wireFormat.parseAction(data, frameSize);
-                       headers = wireFormat.parseHeaders(data, frameSize);
-                       
-                       String contentLengthHeader = headers.get(Stomp.Headers.CONTENT_LENGTH);
-                       if ((action.equals(Stomp.Commands.SEND) || action.equals(Stomp.Responses.MESSAGE)) && contentLengthHeader != null) {
-                           contentLength = wireFormat.parseContentLength(contentLengthHeader, frameSize);
-                       } else {
-                           contentLength = -1;
-                       }
-                   } catch (ProtocolException e) {
-                       transport.doConsume(new StompFrameError(e));
-                       return;
-                   }
-                   processedHeaders = true;
-                   currentCommand.reset();
-               }
-
-           } else {
-
-               if (contentLength == -1) {
-                   // end of command reached, unmarshal
-                   if (b == 0) {
-                       processCommand();
-                   } else {
-                       currentCommand.write(b);
-                       if (currentCommand.size() > wireFormat.getMaxDataLength()) {
-                           StompFrameError errorFrame = new StompFrameError(new ProtocolException("The maximum data length was exceeded", true));
-                           errorFrame.setAction(this.action);
-                           transport.doConsume(errorFrame);
-                           return;
-                       }
-                       if (frameSize.incrementAndGet() > wireFormat.getMaxFrameSize()) {
-                           StompFrameError errorFrame = new StompFrameError(new ProtocolException("The maximum frame size was exceeded", true));
-                           errorFrame.setAction(this.action);
-                           transport.doConsume(errorFrame);
-                           return;
-                       }
-                   }
-               } else {
-                   // read desired content length
-                   if (readLength++ == contentLength) {
-                       processCommand();
-                       readLength = 0;
-                   } else {
-                       currentCommand.write(b);
-                   }
-               }
-           }
-
-           previousByte = b;
-       }
+        byte[] data = new byte[readSize];
+        int read = input.read(data, 0, readSize);
+        parse(data, 0, Math.max(read, 0));
+    }
+
+    /**
+     * Parses the remaining bytes of the given buffer, leaving its position at its limit.
+     */
+    public void parse(ByteBuffer buffer) throws Exception {
+        if (buffer.hasArray()) {
+            int length = buffer.remaining();
+            int offset = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.limit());
+            parse(buffer.array(), offset, length);
+        } else {
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            parse(data, 0, data.length);
+        }
+    }
+
+    public void parse(byte[] data, int offset, int length) throws Exception {
+        int position = offset;
+        int end = offset + length;
+
+        while (position < end) {
+            if (!processedHeaders) {
+                int b = data[position++];
+
+                // skip repeating nulls
+                if (previousByte == 0 && b == 0) {
+                    continue;
+                }
+
+                // skip heart beat commands.
+                if (awaitingCommandStart && b == '\n') {
+                    continue;
+                } else {
+                    awaitingCommandStart = false;   // non-newline indicates next frame.
+                }
+
+                appendHeader(b);
+                // end of headers section, parse action and header
+                if (b == '\n' && (previousByte == '\n' || headerEndsWithCrlfCrlf())) {
+                    try {
+                        processHeaders();
+                    } catch (ProtocolException e) {
+                        transport.doConsume(new StompFrameError(e));
+                        return;
+                    }
+                    processedHeaders = true;
+                    headerSize = 0;
+                }
+                previousByte = b;
+
+            } else if (contentLength == -1) {
+                // the body ends at the first null byte
+                int start = position;
+                while (position < end && data[position] != 0) {
+                    position++;
+                }
+
+                int read = position - start;
+                if (read > 0) {
+                    if (!appendContent(data, start, read, position < end)) {
+                        return;
+                    }
+                    previousByte = data[position - 1];
+                }
+
+                // end of command reached, unmarshal
+                if (position < end) {
+                    previousByte = data[position++];
+                    processCommand();
+                }
+
+            } else {
+                // read desired content length
+                int read = Math.min(end - position, contentLength - readLength);
+                if (read > 0) {
+                    if (content == null || readLength + read > content.length) {
+                        growContent(readLength + read);
+                    }
+                    System.arraycopy(data, position, content, readLength, read);
+                    readLength += read;
+                    position += read;
+                    previousByte = data[position - 1];
+                }
+
+                // the byte following the content terminates the frame
+                if (readLength == contentLength && position < end) {
+                    previousByte = data[position++];
+                    processCommand();
+                }
+            }
+        }
     }
 
     protected void processCommand() throws Exception {
-        StompFrame frame = new StompFrame(action, headers, currentCommand.toByteArray());
+        byte[] data;
+        if (content != null) {
+            data = content;
+        } else if (contentSize == 0) {
+            data = StompFrame.NO_DATA;
+        } else {
+            data = Arrays.copyOf(contentBuffer, contentSize);
+        }
+
+        StompFrame frame = new StompFrame(action, headers, data);
         transport.doConsume(frame);
         processedHeaders = false;
         awaitingCommandStart = true;
-        currentCommand.reset();
         contentLength = -1;
+        readLength = 0;
         frameSize.set(0);
+
+        content = null;
+        contentSize = 0;
+
+        // keep the buffers sized for ordinary frames, drop the ones grown by large frames
+        if (contentBuffer != null && contentBuffer.length > MAX_RETAINED_BUFFER_SIZE) {
+            contentBuffer = null;
+        }
+        if (headerBuffer.length > MAX_RETAINED_BUFFER_SIZE) {
+            headerBuffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    private void appendHeader(int b) {
+        if (headerSize == headerBuffer.length) {
+            headerBuffer = Arrays.copyOf(headerBuffer, headerSize * 2);
+        }
+        headerBuffer[headerSize++] = (byte) b;
+    }
+
+    private void growContent(int required) {
+        int size = content == null ? INITIAL_BUFFER_SIZE : content.length * 2;
+        size = Math.min(contentLength, Math.max(size, required));
+        content = content == null ? new byte[size] : Arrays.copyOf(content, size);
+    }
+
+    private boolean headerEndsWithCrlfCrlf() {
+        return headerSize >= 4 &&
+               headerBuffer[headerSize - 4] == '\r' && headerBuffer[headerSize - 3] == '\n' &&
+               headerBuffer[headerSize - 2] == '\r' && headerBuffer[headerSize - 1] == '\n';
+    }
+
+    /**
+     * Appends body bytes of a frame without a content-length header.
+     *
+     * @return false when a size limit was exceeded and an error frame was dispatched instead.
+     */
+    private boolean appendContent(byte[] data, int offset, int length, boolean complete) {
+        if (contentSize + length > wireFormat.getMaxDataLength()) {
+            consumeError("The maximum data length was exceeded");
+            return false;
+        }
+        if (frameSize.addAndGet(length) > wireFormat.getMaxFrameSize()) {
+            consumeError("The maximum frame size was exceeded");
+            return false;
+        }
+
+        if (contentSize == 0 && complete) {
+            // the whole body is in this buffer, copy it straight into the frame.
+            content = Arrays.copyOfRange(data, offset, offset + length);
+        } else {
+            if (contentBuffer == null) {
+                contentBuffer = new byte[Math.max(INITIAL_BUFFER_SIZE, length)];
+            } else if (contentSize + length > contentBuffer.length) {
+                contentBuffer = Arrays.copyOf(contentBuffer, Math.max(contentBuffer.length * 2, contentSize + length));
+            }
+            System.arraycopy(data, offset, contentBuffer, contentSize, length);
+        }
+        contentSize += length;
+        return true;
+    }
+
+    private void consumeError(String message) {
+        StompFrameError errorFrame = new StompFrameError(new ProtocolException(message, true));
+        errorFrame.setAction(this.action);
+        transport.doConsume(errorFrame);
+    }
+
+    private void processHeaders() throws IOException {
+        DataByteArrayInputStream data = new DataByteArrayInputStream(Arrays.copyOf(headerBuffer, headerSize));
+        try {
+            action = wireFormat.parseAction(data, frameSize);
+        } catch (EOFException e) {
+            // only blank lines before the end of the header section
+            throw new ProtocolException("The frame did not contain a command", true);
+        }
+        headers = wireFormat.parseHeaders(data, frameSize);
+
+        String contentLengthHeader = headers.get(Stomp.Headers.CONTENT_LENGTH);
+        if ((action.equals(Stomp.Commands.SEND) || action.equals(Stomp.Responses.MESSAGE)) && contentLengthHeader != null) {
+            contentLength = wireFormat.parseContentLength(contentLengthHeader, frameSize);
+        } else {
+            contentLength = -1;
+        }
+        content = contentLength == 0 ? StompFrame.NO_DATA : null;
+        readLength = 0;
+        contentSize = 0;
     }
 
     public static String detectVersion(Map<String, String> headers) throws ProtocolException {
@@ -16,7 +16,6 @@
  */
 package org.apache.activemq.transport.stomp;
 
-import java.io.ByteArrayInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
@@ -132,8 +131,7 @@ public class StompNIOTransport extends TcpTransport {
 
         buffer.flip();
 
-        ByteArrayInputStream input = new ByteArrayInputStream(buffer.array());
-        codec.parse(input, readSize);
+        codec.parse(buffer.array(), buffer.arrayOffset(), readSize);
 
         // clear the buffer
         buffer.clear();
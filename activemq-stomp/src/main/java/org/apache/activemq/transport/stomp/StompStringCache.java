@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.stomp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps the UTF-8 bytes of STOMP commands, header names and frequently repeated header values
+ * to String instances, so that parsing a frame does not create a new String for each of them.
+ *
+ * The cache is direct mapped: each byte sequence hashes to one slot and a miss simply replaces
+ * the entry held in that slot. Entries are immutable, so the caches can be shared by all
+ * connections without locking.
+ */
+final class StompStringCache {
+
+    private static final int MAX_CACHED_LENGTH = 256;
+
+    /**
+     * Commands and header names, seeded with the ones defined by the specification.
+     */
+    static final StompStringCache NAMES = new StompStringCache(512,
+        Stomp.Commands.STOMP, Stomp.Commands.CONNECT, Stomp.Commands.SEND, Stomp.Commands.DISCONNECT,
+        Stomp.Commands.SUBSCRIBE, Stomp.Commands.UNSUBSCRIBE, Stomp.Commands.BEGIN, Stomp.Commands.COMMIT,
+        Stomp.Commands.ABORT, Stomp.Commands.ACK, Stomp.Commands.NACK, Stomp.Responses.MESSAGE,
+        Stomp.Headers.RECEIPT_REQUESTED, Stomp.Headers.TRANSACTION, Stomp.Headers.CONTENT_LENGTH,
+        Stomp.Headers.CONTENT_TYPE, Stomp.Headers.TRANSFORMATION, Stomp.Headers.AMQ_MESSAGE_TYPE,
+        Stomp.Headers.Send.DESTINATION, Stomp.Headers.Send.CORRELATION_ID, Stomp.Headers.Send.REPLY_TO,
+        Stomp.Headers.Send.EXPIRATION_TIME, Stomp.Headers.Send.PRIORITY, Stomp.Headers.Send.TYPE,
+        Stomp.Headers.Send.PERSISTENT, Stomp.Headers.Message.MESSAGE_ID, Stomp.Headers.Message.ACK_ID,
+        Stomp.Headers.Message.SUBSCRIPTION, Stomp.Headers.Subscribe.ID, Stomp.Headers.Subscribe.SELECTOR,
+        Stomp.Headers.Subscribe.BROWSER, Stomp.Headers.Connect.LOGIN, Stomp.Headers.Connect.PASSCODE,
+        Stomp.Headers.Connect.CLIENT_ID, Stomp.Headers.Connect.REQUEST_ID, Stomp.Headers.Connect.ACCEPT_VERSION,
+        Stomp.Headers.Connect.HOST, Stomp.Headers.Connect.HEART_BEAT);
+
+    /**
+     * Values of the headers that repeat from frame to frame, destinations in particular.
+     */
+    static final StompStringCache VALUES = new StompStringCache(4096,
+        Stomp.TRUE, Stomp.FALSE, Stomp.TEXT_PLAIN, Stomp.Headers.Subscribe.AckModeValues.AUTO,
+        Stomp.Headers.Subscribe.AckModeValues.CLIENT, Stomp.Headers.Subscribe.AckModeValues.INDIVIDUAL);
+
+    private final Entry[] entries;
+    private final int mask;
+
+    StompStringCache(int size, String... seeds) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("The cache size must be a power of two: " + size);
+        }
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+        for (String seed : seeds) {
+            byte[] bytes = seed.getBytes(StandardCharsets.UTF_8);
+            entries[hash(bytes, 0, bytes.length) & mask] = new Entry(bytes, seed);
+        }
+    }
+
+    /**
+     * @return the String decoded from the given UTF-8 bytes, taken from the cache when the
+     *         same bytes were decoded before.
+     */
+    String get(byte[] data, int offset, int length) {
+        if (length == 0) {
+            return Stomp.EMPTY;
+        }
+        if (length > MAX_CACHED_LENGTH) {
+            return new String(data, offset, length, StandardCharsets.UTF_8);
+        }
+
+        int index = hash(data, offset, length) & mask;
+        Entry entry = entries[index];
+        if (entry != null && Arrays.equals(entry.bytes, 0, entry.bytes.length, data, offset, offset + length)) {
+            return entry.value;
+        }
+
+        String value = new String(data, offset, length, StandardCharsets.UTF_8);
+        entries[index] = new Entry(Arrays.copyOfRange(data, offset, offset + length), value);
+        return value;
+    }
+
+    private static int hash(byte[] data, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + data[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        final byte[] bytes;
+        final String value;
+
+        Entry(byte[] bytes, String value) {
+            this.bytes = bytes;
+            this.value = value;
+        }
+    }
+}
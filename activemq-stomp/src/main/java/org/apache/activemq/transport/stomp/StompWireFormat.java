@@ -20,16 +20,21 @@ import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.activemq.util.ByteArrayInputStream;
 import org.apache.activemq.util.ByteArrayOutputStream;
 import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.DataByteArrayInputStream;
+import org.apache.activemq.util.DataByteArrayOutputStream;
 import org.apache.activemq.wireformat.WireFormat;
 
 /**
@@ -41,9 +46,17 @@ public class StompWireFormat implements WireFormat {
     private static final byte[] NO_DATA = new byte[] {};
     private static final byte[] END_OF_FRAME = new byte[] {0, '\n'};
 
-    private static final int MAX_COMMAND_LENGTH = 1024;
-    private static final int MAX_HEADER_LENGTH = 1024 * 10;
-    private static final int MAX_HEADERS = 1000;
+    static final int MAX_COMMAND_LENGTH = 1024;
+    static final int MAX_HEADER_LENGTH = 1024 * 10;
+    static final int MAX_HEADERS = 1000;
+
+    /**
+     * Headers whose values are resolved through the shared value cache.
+     */
+    private static final Set<String> CACHED_VALUE_HEADERS = new HashSet<String>(Arrays.asList(
+        Stomp.Headers.Send.DESTINATION, Stomp.Headers.Send.REPLY_TO, Stomp.Headers.Send.PERSISTENT,
+        Stomp.Headers.CONTENT_TYPE, Stomp.Headers.TRANSFORMATION, Stomp.Headers.Message.SUBSCRIPTION,
+        Stomp.Headers.Subscribe.ACK_MODE));
 
     public static final int MAX_DATA_LENGTH = 1024 * 1024 * 100;
     public static final long DEFAULT_MAX_FRAME_SIZE = Long.MAX_VALUE;
@@ -58,6 +71,9 @@ public class StompWireFormat implements WireFormat {
     //The current frame size as it is unmarshalled from the stream
     private final AtomicLong frameSize = new AtomicLong();
 
+    //Reused to encode the command and headers of each outbound frame
+    private final DataByteArrayOutputStream headerBuffer = new DataByteArrayOutputStream(1024);
+
     @Override
     public ByteSequence marshal(Object command) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -101,13 +117,71 @@ public class StompWireFormat implements WireFormat {
             return;
         }
 
-        StringBuilder builder = new StringBuilder();
-
-        os.write(marshalHeaders(stomp, builder).toString().getBytes("UTF-8"));
+        synchronized (headerBuffer) {
+            headerBuffer.reset();
+            writeHeaders(stomp, headerBuffer);
+            os.write(headerBuffer.getData(), 0, headerBuffer.size());
+        }
         os.write(stomp.getContent());
         os.write(END_OF_FRAME);
     }
 
+    private void writeHeaders(StompFrame stomp, DataByteArrayOutputStream buffer) {
+        writeUTF8(stomp.getAction(), buffer, false);
+        buffer.write(Stomp.BREAK);
+
+        for (Map.Entry<String, String> entry : stomp.getHeaders().entrySet()) {
+            writeUTF8(entry.getKey(), buffer, false);
+            buffer.write(Stomp.COLON);
+            writeUTF8(entry.getValue(), buffer, !stompVersion.equals(Stomp.V1_0));
+            buffer.write(Stomp.BREAK);
+        }
+
+        // Add a newline to separate the headers from the content.
+        buffer.write(Stomp.BREAK);
+    }
+
+    private void writeUTF8(String value, DataByteArrayOutputStream buffer, boolean escape) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                // not plain ASCII, encode the whole value before escaping it.
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                for (byte b : utf8) {
+                    writeByte(b, buffer, escape);
+                }
+                return;
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            writeByte((byte) value.charAt(i), buffer, escape);
+        }
+    }
+
+    private void writeByte(byte value, DataByteArrayOutputStream buffer, boolean escape) {
+        if (escape) {
+            switch (value) {
+            case Stomp.ESCAPE:
+                buffer.write(Stomp.ESCAPE_ESCAPE_SEQ, 0, Stomp.ESCAPE_ESCAPE_SEQ.length);
+                return;
+            case Stomp.BREAK:
+                buffer.write(Stomp.NEWLINE_ESCAPE_SEQ, 0, Stomp.NEWLINE_ESCAPE_SEQ.length);
+                return;
+            case Stomp.COLON:
+                buffer.write(Stomp.COLON_ESCAPE_SEQ, 0, Stomp.COLON_ESCAPE_SEQ.length);
+                return;
+            case Stomp.CARRIAGE_RETURN:
+                if (stompVersion.equals(Stomp.V1_2)) {
+                    buffer.write(Stomp.CARRIAGE_ESCAPE_SEQ, 0, Stomp.CARRIAGE_ESCAPE_SEQ.length);
+                    return;
+                }
+            default:
+            }
+        }
+        buffer.write(value);
+    }
+
     public String marshalToString(StompFrame stomp) throws IOException {
         if (stomp.getAction().equals(Stomp.Commands.KEEPALIVE)) {
             return String.valueOf((char)Stomp.BREAK);
@@ -183,12 +257,11 @@ public class StompWireFormat implements WireFormat {
         }
     }
 
-    private String readLine(DataInput in, int maxLength, String errorMessage) throws IOException {
-        ByteSequence sequence = readHeaderLine(in, maxLength, errorMessage);
-        return new String(sequence.getData(), sequence.getOffset(), sequence.getLength(), "UTF-8").trim();
-    }
-
     private ByteSequence readHeaderLine(DataInput in, int maxLength, String errorMessage) throws IOException {
+        if (in instanceof DataByteArrayInputStream) {
+            return readHeaderLine((DataByteArrayInputStream) in, maxLength, errorMessage);
+        }
+
         byte b;
         ByteArrayOutputStream baos = new ByteArrayOutputStream(maxLength);
         while ((b = in.readByte()) != '\n') {
@@ -202,10 +275,35 @@ public class StompWireFormat implements WireFormat {
         baos.close();
         ByteSequence line = baos.toByteSequence();
 
+        return stripCarriageReturn(line);
+    }
+
+    /**
+     * Reads a line out of an in memory buffer as a view of that buffer, without copying it.
+     */
+    private ByteSequence readHeaderLine(DataByteArrayInputStream in, int maxLength, String errorMessage) throws IOException {
+        byte[] data = in.getRawData();
+        int start = in.position();
+        int end = start;
+        while (end < data.length && data[end] != '\n') {
+            end++;
+        }
+        if (end == data.length) {
+            throw new EOFException();
+        }
+        if (end - start > maxLength) {
+            throw new ProtocolException(errorMessage, true);
+        }
+
+        in.skipBytes(end - start + 1);
+        return stripCarriageReturn(new ByteSequence(data, start, end - start));
+    }
+
+    private ByteSequence stripCarriageReturn(ByteSequence line) {
         if (stompVersion.equals(Stomp.V1_0) || stompVersion.equals(Stomp.V1_2)) {
             int lineLength = line.getLength();
-            if (lineLength > 0 && line.data[lineLength-1] == '\r') {
-                line.setLength(lineLength-1);
+            if (lineLength > 0 && line.data[line.offset + lineLength - 1] == '\r') {
+                line.setLength(lineLength - 1);
             }
         }
 
@@ -217,14 +315,18 @@ public class StompWireFormat implements WireFormat {
 
         // skip white space to next real action line
         while (true) {
-            action = readLine(in, MAX_COMMAND_LENGTH, "The maximum command length was exceeded");
-            if (action == null) {
-                throw new IOException("connection was closed");
-            } else {
-                action = action.trim();
-                if (action.length() > 0) {
-                    break;
-                }
+            ByteSequence line = readHeaderLine(in, MAX_COMMAND_LENGTH, "The maximum command length was exceeded");
+            int start = line.offset;
+            int end = line.offset + line.length;
+            while (start < end && (line.data[start] & 0xFF) <= ' ') {
+                start++;
+            }
+            while (end > start && (line.data[end - 1] & 0xFF) <= ' ') {
+                end--;
+            }
+            if (end > start) {
+                action = StompStringCache.NAMES.get(line.data, start, end - start);
+                break;
             }
         }
         frameSize.addAndGet(action.length());
@@ -243,34 +345,15 @@ public class StompWireFormat implements WireFormat {
                 frameSize.addAndGet(line.length);
 
                 try {
+                    int end = line.offset + line.length;
+                    int separator = indexOf(line.data, Stomp.COLON, line.offset, end);
+                    int nameEnd = separator == -1 ? end : separator;
+                    int valueStart = separator == -1 ? end : separator + 1;
 
-                    ByteArrayInputStream headerLine = new ByteArrayInputStream(line);
-                    ByteArrayOutputStream stream = new ByteArrayOutputStream(line.length);
-
-                    // First complete the name
-                    int result = -1;
-                    while ((result = headerLine.read()) != -1) {
-                        if (result != ':') {
-                            stream.write(result);
-                        } else {
-                            break;
-                        }
-                    }
-
-                    ByteSequence nameSeq = stream.toByteSequence();
-
-                    String name = new String(nameSeq.getData(), nameSeq.getOffset(), nameSeq.getLength(), "UTF-8");
-                    String value = decodeHeader(headerLine);
-                    if (stompVersion.equals(Stomp.V1_0)) {
-                        value = value.trim();
-                    }
-
+                    String name = StompStringCache.NAMES.get(line.data, line.offset, nameEnd - line.offset);
                     if (!headers.containsKey(name)) {
-                        headers.put(name, value);
+                        headers.put(name, decodeHeader(name, line.data, valueStart, end));
                     }
-
-                    stream.close();
-
                 } catch (Exception e) {
                     throw new ProtocolException("Unable to parser header line [" + line + "]", true);
                 }
@@ -289,6 +372,10 @@ public class StompWireFormat implements WireFormat {
             throw new ProtocolException("Specified content-length is not a valid integer", true);
         }
 
+        if (length < 0) {
+            throw new ProtocolException("Specified content-length is not a valid integer", true);
+        }
+
         if (length > getMaxDataLength()) {
             throw new ProtocolException("The maximum data length was exceeded", true);
         }
@@ -332,47 +419,63 @@ public class StompWireFormat implements WireFormat {
         return result;
     }
 
-    private String decodeHeader(InputStream header) throws IOException {
-        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
-        PushbackInputStream stream = new PushbackInputStream(header);
-
-        int value = -1;
-        while( (value = stream.read()) != -1) {
-            if (value == 92) {
+    private String decodeHeader(String name, byte[] data, int start, int end) {
+        if (indexOf(data, Stomp.ESCAPE, start, end) == -1) {
+            if (stompVersion.equals(Stomp.V1_0)) {
+                while (start < end && (data[start] & 0xFF) <= ' ') {
+                    start++;
+                }
+                while (end > start && (data[end - 1] & 0xFF) <= ' ') {
+                    end--;
+                }
+            }
+            if (CACHED_VALUE_HEADERS.contains(name)) {
+                return StompStringCache.VALUES.get(data, start, end - start);
+            }
+            return new String(data, start, end - start, StandardCharsets.UTF_8);
+        }
 
-                int next = stream.read();
-                if (next != -1) {
-                    switch(next) {
-                    case 110:
-                        decoded.write(Stomp.BREAK);
-                        break;
-                    case 99:
-                        decoded.write(Stomp.COLON);
-                        break;
-                    case 92:
-                        decoded.write(Stomp.ESCAPE);
-                        break;
-                    case 114:
-                        if(stompVersion.equals(Stomp.V1_2)) {
-                            decoded.write(Stomp.CARRIAGE_RETURN);
-                            break;
-                        }
-                    default:
-                        stream.unread(next);
-                        decoded.write(value);
+        byte[] decoded = new byte[end - start];
+        int size = 0;
+        for (int i = start; i < end; i++) {
+            byte value = data[i];
+            if (value == Stomp.ESCAPE && i + 1 < end) {
+                switch (data[i + 1]) {
+                case 'n':
+                    decoded[size++] = Stomp.BREAK;
+                    i++;
+                    continue;
+                case 'c':
+                    decoded[size++] = Stomp.COLON;
+                    i++;
+                    continue;
+                case '\\':
+                    decoded[size++] = Stomp.ESCAPE;
+                    i++;
+                    continue;
+                case 'r':
+                    if (stompVersion.equals(Stomp.V1_2)) {
+                        decoded[size++] = Stomp.CARRIAGE_RETURN;
+                        i++;
+                        continue;
                     }
-                } else {
-                    decoded.write(value);
+                default:
                 }
-
-            } else {
-                decoded.write(value);
             }
+            decoded[size++] = value;
         }
 
-        decoded.close();
+        String result = new String(decoded, 0, size, StandardCharsets.UTF_8);
+        return stompVersion.equals(Stomp.V1_0) ? result.trim() : result;
+    }
 
-        return new String(decoded.toByteArray(), "UTF-8");
+    private static int indexOf(byte[] data, int value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     @Override
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.transport.stomp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.activemq.transport.tcp.TcpTransport;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StompCodecTest {
+
+    private static final String FRAMES =
+        "\n\nSEND\ndestination:/queue/test\nescaped:a\\cb\nescaped:duplicate\n\nhello\u0000\n" +
+        "SEND\r\ndestination:/queue/test\r\ncontent-length:5\r\n\r\nab\u0000de\u0000" +
+        "MESSAGE\ndestination:/topic/test\ncontent-length:0\n\n\u0000\u0000\u0000" +
+        "DISCONNECT\n\n\u0000";
+
+    private final List<Object> consumed = new ArrayList<Object>();
+    private StompWireFormat wireFormat;
+    private TcpTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        wireFormat = new StompWireFormat();
+        transport = mock(TcpTransport.class);
+        when(transport.getWireFormat()).thenReturn(wireFormat);
+        doAnswer(invocation -> consumed.add(invocation.getArgument(0))).when(transport).doConsume(any());
+    }
+
+    @Test
+    public void testParseFramesSplitAcrossReads() throws Exception {
+        byte[] data = FRAMES.getBytes(StandardCharsets.UTF_8);
+
+        for (int readSize = 1; readSize <= data.length; readSize++) {
+            consumed.clear();
+            StompCodec codec = new StompCodec(transport);
+            for (int offset = 0; offset < data.length; offset += readSize) {
+                codec.parse(data, offset, Math.min(readSize, data.length - offset));
+            }
+
+            assertEquals("frames for read size " + readSize, 4, consumed.size());
+
+            StompFrame first = (StompFrame) consumed.get(0);
+            assertEquals(Stomp.Commands.SEND, first.getAction());
+            assertEquals("/queue/test", first.getHeaders().get(Stomp.Headers.Send.DESTINATION));
+            assertEquals("a:b", first.getHeaders().get("escaped"));
+            assertEquals("hello", first.getBody());
+
+            StompFrame second = (StompFrame) consumed.get(1);
+            assertArrayEquals("ab\u0000de".getBytes(StandardCharsets.UTF_8), second.getContent());
+            assertSame(first.getHeaders().get(Stomp.Headers.Send.DESTINATION), second.getHeaders().get(Stomp.Headers.Send.DESTINATION));
+
+            StompFrame third = (StompFrame) consumed.get(2);
+            assertEquals(Stomp.Responses.MESSAGE, third.getAction());
+            assertEquals(0, third.getContent().length);
+
+            assertEquals(Stomp.Commands.DISCONNECT, ((StompFrame) consumed.get(3)).getAction());
+        }
+    }
+
+    @Test
+    public void testMarshalledFrameParsesBack() throws Exception {
+        wireFormat.setStompVersion(Stomp.V1_2);
+
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        headers.put(Stomp.Headers.Send.DESTINATION, "/queue/\u00fcn\u00efcode:\r\n\\");
+        headers.put("plain", "value");
+        StompFrame frame = new StompFrame(Stomp.Commands.SEND, headers, "body".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        wireFormat.marshal(frame, new DataOutputStream(bytes));
+
+        assertEquals(wireFormat.marshalToString(frame) + "\n", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+
+        new StompCodec(transport).parse(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals(1, consumed.size());
+        StompFrame parsed = (StompFrame) consumed.get(0);
+        assertEquals(headers, parsed.getHeaders());
+        assertEquals("body", parsed.getBody());
+    }
+
+    @Test
+    public void testContentLengthBodySpanningReads() throws Exception {
+        byte[] body = new byte[100 * 1024];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(("SEND\ncontent-length:" + body.length + "\n\n").getBytes(StandardCharsets.UTF_8));
+        bytes.write(body);
+        bytes.write(0);
+        byte[] data = bytes.toByteArray();
+
+        StompCodec codec = new StompCodec(transport);
+        for (int offset = 0; offset < data.length; offset += 3000) {
+            codec.parse(data, offset, Math.min(3000, data.length - offset));
+        }
+
+        assertEquals(1, consumed.size());
+        assertArrayEquals(body, ((StompFrame) consumed.get(0)).getContent());
+    }
+
+    @Test
+    public void testMaxDataLengthExceeded() throws Exception {
+        wireFormat.setMaxDataLength(10);
+
+        byte[] data = "SEND\n\n0123456789abcdef\u0000".getBytes(StandardCharsets.UTF_8);
+        new StompCodec(transport).parse(data, 0, data.length);
+
+        assertEquals(1, consumed.size());
+        assertTrue(consumed.get(0) instanceof StompFrameError);
+    }
+
+    @Test
+    public void testNegativeContentLength() throws Exception {
+        byte[] data = "SEND\ncontent-length:-1\n\n\u0000".getBytes(StandardCharsets.UTF_8);
+        new StompCodec(transport).parse(data, 0, data.length);
+
+        assertEquals(1, consumed.size());
+        assertTrue(consumed.get(0) instanceof StompFrameError);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.MessageDispatchBatch;
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.apache.activemq.transport.TransportListener;
+import org.apache.activemq.transport.tcp.TcpTransport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchedDispatchTest {
+
+    private static final int MESSAGE_COUNT = 1000;
+
+    private BrokerService broker;
+    private String connectionUri;
+    private ActiveMQConnection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setUseJmx(false);
+        broker.setPersistent(false);
+        broker.addConnector("tcp://localhost:0?wireFormat.batchedDispatchEnabled=true");
+        broker.start();
+        broker.waitUntilStarted();
+
+        connectionUri = broker.getTransportConnectors().get(0).getPublishableConnectString();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception e) {}
+        }
+
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchedDispatchDeliversAllMessagesInOrder() throws Exception {
+        connection = createConnection(true);
+        final AtomicInteger batches = new AtomicInteger();
+        connection.addTransportListener(new TransportListener() {
+            @Override
+            public void onCommand(Object command) {
+                if (command instanceof MessageDispatchBatch) {
+                    batches.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void onException(IOException error) {
+            }
+
+            @Override
+            public void transportInterupted() {
+            }
+
+            @Override
+            public void transportResumed() {
+            }
+        });
+        connection.start();
+
+        assertTrue(getWireFormat(connection).isBatchedDispatchEnabled());
+        doTestDelivery();
+        assertTrue("Expected some dispatches to be batched", batches.get() > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchedDispatchRequiresBothSides() throws Exception {
+        connection = createConnection(false);
+        connection.start();
+
+        assertFalse(getWireFormat(connection).isBatchedDispatchEnabled());
+        doTestDelivery();
+    }
+
+    private void doTestDelivery() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("batched.dispatch");
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            producer.send(session.createTextMessage("message-" + i));
+        }
+
+        MessageConsumer consumer = session.createConsumer(queue);
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            TextMessage message = (TextMessage) consumer.receive(5000);
+            assertNotNull("Missing message " + i, message);
+            assertEquals("message-" + i, message.getText());
+        }
+        assertNull(consumer.receive(500));
+    }
+
+    private ActiveMQConnection createConnection(boolean batchedDispatch) throws Exception {
+        String uri = connectionUri + "?wireFormat.batchedDispatchEnabled=" + batchedDispatch;
+        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(uri);
+        factory.getPrefetchPolicy().setQueuePrefetch(MESSAGE_COUNT);
+        return (ActiveMQConnection) factory.createConnection();
+    }
+
+    private OpenWireFormat getWireFormat(ActiveMQConnection connection) {
+        return (OpenWireFormat) connection.getTransport().narrow(TcpTransport.class).getWireFormat();
+    }
+}
@@ -177,4 +177,71 @@ public class OptimizedAckTest extends TestSupport {
             }
         }));
     }
+
+    public void testAckBatchSizeBoundsCoalescedAcks() throws Exception {
+        connection.setAckBatchSize(3);
+        connection.start();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("test");
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < 10; i++) {
+            producer.send(session.createTextMessage("Hello" + i));
+        }
+
+        final RegionBroker regionBroker = (RegionBroker) BrokerRegistry.getInstance().findFirst().getRegionBroker();
+        ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+        consumer.getConsumerStats().setEnabled(true);
+
+        assertTrue("prefetch full", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return 10 == regionBroker.getDestinationStatistics().getInflight().getCount();
+            }
+        }));
+
+        for (int i = 0; i < 9; i++) {
+            assertNotNull(consumer.receive(4000));
+        }
+
+        assertTrue("acked in batches of three", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return 1 == regionBroker.getDestinationStatistics().getInflight().getCount();
+            }
+        }));
+        assertEquals(3, consumer.getConsumerStats().getAckCount().getCount());
+        assertEquals(9, consumer.getConsumerStats().getAcknowledgedMessageCount().getCount());
+    }
+
+    public void testAckBatchMaxLatencyFlushesIdleConsumer() throws Exception {
+        connection.setAckBatchMaxLatency(200);
+        connection.start();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("test");
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < 10; i++) {
+            producer.send(session.createTextMessage("Hello" + i));
+        }
+
+        final RegionBroker regionBroker = (RegionBroker) BrokerRegistry.getInstance().findFirst().getRegionBroker();
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        assertTrue("prefetch full", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return 10 == regionBroker.getDestinationStatistics().getInflight().getCount();
+            }
+        }));
+
+        for (int i = 0; i < 2; i++) {
+            assertNotNull(consumer.receive(4000));
+        }
+
+        assertTrue("deferred acks flushed without further consumption", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return 8 == regionBroker.getDestinationStatistics().getInflight().getCount();
+            }
+        }, TimeUnit.SECONDS.toMillis(5), 50));
+    }
 }
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.BrokerFilter;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ProducerBrokerExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProducerBatchSendTest {
+
+    private ActiveMQConnection connection;
+    private BrokerService broker;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setUseJmx(false);
+        broker.setPersistent(false);
+        broker.setPlugins(new BrokerPlugin[] {new BrokerPlugin() {
+            @Override
+            public Broker installPlugin(Broker next) throws Exception {
+                return new BrokerFilter(next) {
+                    @Override
+                    public void send(ProducerBrokerExchange producerExchange, org.apache.activemq.command.Message messageSend) throws Exception {
+                        if (messageSend.getProperty("reject") != null) {
+                            throw new IllegalArgumentException("rejected by test");
+                        }
+                        super.send(producerExchange, messageSend);
+                    }
+                };
+            }
+        }});
+        broker.addConnector("tcp://localhost:0");
+        broker.start();
+        broker.waitUntilStarted();
+
+        String connectionUri = broker.getTransportConnectors().get(0).getPublishableConnectString();
+        connection = (ActiveMQConnection) new ActiveMQConnectionFactory(connectionUri).createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception e) {}
+        }
+
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testBatchIsDeliveredInOrder() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("batch");
+        ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+
+        producer.send(createBatch(session, 100, -1));
+
+        MessageConsumer consumer = session.createConsumer(queue);
+        for (int i = 0; i < 100; i++) {
+            TextMessage message = (TextMessage) consumer.receive(5000);
+            assertNotNull("Missing message " + i, message);
+            assertEquals("message-" + i, message.getText());
+        }
+        assertNull(consumer.receive(500));
+    }
+
+    @Test(timeout = 30000)
+    public void testRejectedBatchIsNotDelivered() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("batch.rejected");
+        ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+
+        try {
+            producer.send(createBatch(session, 10, 5));
+            fail("Batch containing a rejected message should fail");
+        } catch (JMSException expected) {
+        }
+
+        MessageConsumer consumer = session.createConsumer(queue);
+        assertNull(consumer.receive(1000));
+    }
+
+    @Test(timeout = 30000)
+    public void testBatchJoinsSessionTransaction() throws Exception {
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue("batch.transacted");
+        ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+
+        producer.send(createBatch(session, 10, -1));
+
+        Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = consumerSession.createConsumer(queue);
+        assertNull(consumer.receive(500));
+
+        session.commit();
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(consumer.receive(5000));
+        }
+    }
+
+    private List<Message> createBatch(Session session, int count, int rejectIndex) throws JMSException {
+        List<Message> batch = new ArrayList<Message>(count);
+        for (int i = 0; i < count; i++) {
+            TextMessage message = session.createTextMessage("message-" + i);
+            if (i == rejectIndex) {
+                message.setBooleanProperty("reject", true);
+            }
+            batch.add(message);
+        }
+        return batch;
+    }
+}
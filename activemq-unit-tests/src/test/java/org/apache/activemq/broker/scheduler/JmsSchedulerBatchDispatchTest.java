@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ScheduledMessage;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.store.kahadb.scheduler.JobSchedulerStoreImpl;
+import org.junit.Test;
+
+public class JmsSchedulerBatchDispatchTest extends JobSchedulerTestSupport {
+
+    private static final int QUEUES = 4;
+    private static final int MESSAGES_PER_QUEUE = 250;
+
+    @Override
+    protected BrokerService createBroker(boolean delete) throws Exception {
+        BrokerService answer = super.createBroker(delete);
+
+        // small enough that the due jobs are fired, and each destination's messages sent,
+        // in several batches
+        JobSchedulerStoreImpl store = new JobSchedulerStoreImpl();
+        store.setDirectory(new File("target/scheduler"));
+        store.setMaxFireBatchSize(64);
+        answer.setJobSchedulerStore(store);
+        answer.setMaxSchedulerBatchSize(32);
+        return answer;
+    }
+
+    @Test(timeout = 60000)
+    public void testJobsFiringTogetherDeliveredInOrderPerDestination() throws Exception {
+        Connection connection = createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(null);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            for (int i = 0; i < MESSAGES_PER_QUEUE; i++) {
+                for (int q = 0; q < QUEUES; q++) {
+                    TextMessage message = session.createTextMessage("msg-" + i);
+                    message.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, 2000);
+                    producer.send(queue(q), message);
+                }
+            }
+
+            connection.start();
+            for (int q = 0; q < QUEUES; q++) {
+                MessageConsumer consumer = session.createConsumer(queue(q));
+                for (int i = 0; i < MESSAGES_PER_QUEUE; i++) {
+                    TextMessage message = (TextMessage) consumer.receive(10000);
+                    assertNotNull("queue " + q + " message " + i, message);
+                    assertEquals("msg-" + i, message.getText());
+                }
+                assertNull(consumer.receive(200));
+                consumer.close();
+            }
+        } finally {
+            connection.close();
+        }
+
+        assertEquals(0, jobScheduler.getAllJobs().size());
+    }
+
+    private ActiveMQQueue queue(int index) {
+        return new ActiveMQQueue(name.getMethodName() + "." + index);
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ScheduledMessage;
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.Wait;
+import org.junit.Test;
+
+public class JobSchedulerTimeWheelTest extends JobSchedulerTestSupport {
+
+    private static final int COUNT = 2000;
+
+    @Test(timeout = 60000)
+    public void testManyJobsFireNoEarlierThanScheduled() throws Exception {
+        final Map<String, Long> due = new ConcurrentHashMap<>();
+        final Map<String, Long> early = new ConcurrentHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(COUNT);
+        jobScheduler.addListener(new JobListener() {
+            @Override
+            public void scheduledJob(String id, ByteSequence job) {
+                long now = System.currentTimeMillis();
+                Long dueTime = due.get(id);
+                if (dueTime != null && now < dueTime) {
+                    early.put(id, dueTime - now);
+                }
+                latch.countDown();
+            }
+        });
+
+        for (int i = 0; i < COUNT; i++) {
+            String id = "job-" + i;
+            long delay = (i * 7) % 3000;
+            due.put(id, System.currentTimeMillis() + delay);
+            jobScheduler.schedule(id, new ByteSequence(new byte[8]), delay);
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertTrue("jobs fired early: " + early, early.isEmpty());
+        assertTrue(Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return jobScheduler.getAllJobs().isEmpty();
+            }
+        }));
+    }
+
+    @Test(timeout = 60000)
+    public void testRemovedJobsAreNotFired() throws Exception {
+        final Map<String, String> fired = new ConcurrentHashMap<>();
+        jobScheduler.addListener(new JobListener() {
+            @Override
+            public void scheduledJob(String id, ByteSequence job) {
+                fired.put(id, id);
+            }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            jobScheduler.schedule("job-" + i, new ByteSequence(new byte[8]), 1000);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            jobScheduler.remove("job-" + i);
+        }
+
+        assertTrue(Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return fired.size() == 50;
+            }
+        }));
+        Thread.sleep(500);
+        assertEquals(50, fired.size());
+        for (int i = 1; i < 100; i += 2) {
+            assertTrue(fired.containsKey("job-" + i));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testScheduledMessagesDeliveredAfterRestart() throws Exception {
+        Connection connection = createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(destination);
+            for (int i = 0; i < 100; i++) {
+                TextMessage message = session.createTextMessage("msg-" + i);
+                message.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, 3000 + i * 10);
+                producer.send(message);
+            }
+        } finally {
+            connection.close();
+        }
+
+        restartBroker(RestartType.NORMAL);
+
+        connection = createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(destination);
+            for (int i = 0; i < 100; i++) {
+                assertTrue(consumer.receive(10000) != null);
+            }
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.activemq.command;
 
+import java.util.Arrays;
+
 import jakarta.jms.JMSException;
 import jakarta.jms.MessageFormatException;
 import jakarta.jms.MessageNotReadableException;
@@ -23,6 +25,8 @@ import jakarta.jms.MessageNotWriteableException;
 
 import junit.framework.TestCase;
 
+import org.apache.activemq.util.ByteSequence;
+
 /**
  * 
  */
@@ -509,4 +513,30 @@ public class ActiveMQBytesMessageTest extends TestCase {
         } catch (MessageNotReadableException e) {
         }
     }
+
+    public void testGetBodyBytes() throws JMSException {
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        message.writeBytes(new byte[] {1, 2, 3});
+        message.reset();
+
+        ByteSequence body = message.getBodyBytes();
+        assertSame(message.getContent().getData(), body.getData());
+        assertEquals(3, body.getLength());
+        assertEquals(1, message.readByte());
+    }
+
+    public void testGetBodyBytesOfCompressedMessage() throws Exception {
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        message.setDestination(new ActiveMQTopic("test"));
+        message.writeBytes(new byte[] {1, 2, 3});
+        message.storeContent();
+        message.doCompress();
+        message.reset();
+
+        ByteSequence body = message.getBodyBytes();
+        assertTrue(Arrays.equals(new byte[] {1, 2, 3}, Arrays.copyOfRange(body.getData(), body.getOffset(), body.getOffset() + body.getLength())));
+        assertSame(body.getData(), message.getBodyBytes().getData());
+        assertTrue(message.isCompressed());
+        assertEquals(3, message.getBodyLength());
+    }
 }
@@ -156,6 +156,49 @@ public class ActiveMQTextMessageTest extends TestCase {
         assertTrue(method.isAnnotationPresent(Transient.class));
     }
     
+    public void testGetBodyBytesSlicesContent() throws Exception {
+        ActiveMQTextMessage msg = new ActiveMQTextMessage();
+        setContent(msg, "testText");
+
+        ByteSequence body = msg.getBodyBytes();
+        assertSame(msg.getContent().getData(), body.getData());
+        assertEquals(4, body.getOffset());
+        assertEquals("testText", new String(body.getData(), body.getOffset(), body.getLength(), "UTF-8"));
+    }
+
+    public void testGetBodyBytesReEncodesModifiedUTF8() throws Exception {
+        String text = "null\u0000 and \uD83D\uDE00";
+        ActiveMQTextMessage msg = new ActiveMQTextMessage();
+        msg.setDestination(new ActiveMQTopic("test"));
+        setContent(msg, text);
+
+        ByteSequence body = msg.getBodyBytes();
+        assertEquals(text, new String(body.getData(), body.getOffset(), body.getLength(), "UTF-8"));
+        assertSame(body.getData(), msg.getBodyBytes().getData());
+
+        setContent(msg, "changed");
+        body = msg.getBodyBytes();
+        assertEquals("changed", new String(body.getData(), body.getOffset(), body.getLength(), "UTF-8"));
+    }
+
+    public void testGetBodyBytesNotCachedOnQueueMessage() throws Exception {
+        String text = "null\u0000";
+        ActiveMQTextMessage msg = new ActiveMQTextMessage();
+        msg.setDestination(new ActiveMQQueue("test"));
+        setContent(msg, text);
+
+        ByteSequence body = msg.getBodyBytes();
+        assertEquals(text, new String(body.getData(), body.getOffset(), body.getLength(), "UTF-8"));
+        assertNotSame(body.getData(), msg.getBodyBytes().getData());
+    }
+
+    public void testGetBodyBytesWithoutText() throws Exception {
+        ActiveMQTextMessage msg = new ActiveMQTextMessage();
+        assertNull(msg.getBodyBytes());
+        setContent(msg, null);
+        assertNull(msg.getBodyBytes());
+    }
+
     protected void setContent(Message message, String text) throws Exception {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         DataOutputStream dataOut = new DataOutputStream(baos);
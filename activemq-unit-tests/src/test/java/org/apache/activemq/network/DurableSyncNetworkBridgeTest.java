@@ -17,6 +17,7 @@
 package org.apache.activemq.network;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -38,6 +39,8 @@ import org.apache.activemq.broker.BrokerPlugin;
 import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.broker.TransportConnector;
 import org.apache.activemq.broker.region.DestinationStatistics;
+import org.apache.activemq.broker.region.RegionBroker;
+import org.apache.activemq.broker.region.TopicRegion;
 import org.apache.activemq.broker.region.virtual.CompositeTopic;
 import org.apache.activemq.broker.region.virtual.VirtualDestination;
 import org.apache.activemq.command.ActiveMQDestination;
@@ -48,6 +51,7 @@ import org.apache.activemq.plugin.java.JavaRuntimeConfigurationBroker;
 import org.apache.activemq.plugin.java.JavaRuntimeConfigurationPlugin;
 import org.apache.activemq.store.kahadb.KahaDBPersistenceAdapter;
 import org.apache.activemq.store.kahadb.disk.journal.Journal.JournalDiskSyncStrategy;
+import org.apache.activemq.util.SubscriptionKey;
 import org.apache.activemq.util.Wait;
 import org.apache.activemq.util.Wait.Condition;
 import org.junit.After;
@@ -74,6 +78,7 @@ public class DurableSyncNetworkBridgeTest extends DynamicNetworkTestSupport {
     private boolean dynamicOnly = false;
     private boolean forceDurable = false;
     private boolean useVirtualDestSubs = false;
+    private boolean deferOfflineDurableSubscriptions = false;
     private byte remoteBrokerWireFormatVersion = CommandTypes.PROTOCOL_VERSION;
 
     private BrokerService broker1;
@@ -119,6 +124,7 @@ public class DurableSyncNetworkBridgeTest extends DynamicNetworkTestSupport {
         dynamicOnly = false;
         forceDurable = false;
         useVirtualDestSubs = false;
+        deferOfflineDurableSubscriptions = false;
         remoteBrokerWireFormatVersion = CommandTypes.PROTOCOL_VERSION;
         doSetUp(true, true, tempFolder.newFolder(), tempFolder.newFolder());
     }
@@ -167,6 +173,30 @@ public class DurableSyncNetworkBridgeTest extends DynamicNetworkTestSupport {
 
     }
 
+    @Test
+    public void testDeferredSubscriptionKeepsDemandAfterRestart() throws Exception {
+        final ActiveMQTopic topic = new ActiveMQTopic(testTopicName);
+        MessageConsumer sub1 = session1.createDurableSubscriber(topic, subName);
+        sub1.close();
+
+        assertSubscriptionsCount(broker1, topic, 1);
+        assertNCDurableSubsCount(broker2, topic, 1);
+
+        deferOfflineDurableSubscriptions = true;
+        restartBrokers(true);
+        assertBridgeStarted();
+
+        //the subscription is only remembered on restart but still has to bring back the NC sub
+        TopicRegion topicRegion = (TopicRegion) ((RegionBroker) broker1.getRegionBroker()).getTopicRegion();
+        assertTrue(topicRegion.getOfflineDurableSubscriptions().containsKey(new SubscriptionKey(clientId, subName)));
+        assertNCDurableSubsCount(broker2, topic, 1);
+
+        MessageProducer producer = session2.createProducer(topic);
+        producer.send(session2.createTextMessage("test"));
+        sub1 = session1.createDurableSubscriber(topic, subName);
+        assertNotNull(sub1.receive(5000));
+    }
+
     @Test
     public void testRemoveSubscriptionWithBridgeOffline() throws Exception {
         final ActiveMQTopic topic = new ActiveMQTopic(testTopicName);
@@ -806,6 +836,7 @@ public class DurableSyncNetworkBridgeTest extends DynamicNetworkTestSupport {
         brokerService.setPersistenceAdapter(adapter);
         brokerService.setUseVirtualDestSubs(useVirtualDestSubs);
         brokerService.setUseVirtualDestSubsOnCreation(useVirtualDestSubs);
+        brokerService.setDeferOfflineDurableSubscriptions(deferOfflineDurableSubscriptions);
 
         if (startNetworkConnector) {
             brokerService.addNetworkConnector(configureLocalNetworkConnector());
@@ -855,6 +886,7 @@ public class DurableSyncNetworkBridgeTest extends DynamicNetworkTestSupport {
         brokerService.setPersistenceAdapter(adapter);
         brokerService.setUseVirtualDestSubs(useVirtualDestSubs);
         brokerService.setUseVirtualDestSubsOnCreation(useVirtualDestSubs);
+        brokerService.setDeferOfflineDurableSubscriptions(deferOfflineDurableSubscriptions);
 
         if (useVirtualDestSubs) {
             brokerService.setPlugins(new BrokerPlugin[] {new JavaRuntimeConfigurationPlugin()});
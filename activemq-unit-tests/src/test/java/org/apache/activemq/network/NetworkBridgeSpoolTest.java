@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.BrokerFilter;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ProducerBrokerExchange;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.Message;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkBridgeSpoolTest {
+
+    private static final int MESSAGE_COUNT = 50;
+
+    private final CountDownLatch remoteAvailable = new CountDownLatch(1);
+    private BrokerService localBroker;
+    private BrokerService remoteBroker;
+    private TransportConnector localConnector;
+    private TransportConnector remoteConnector;
+    private NetworkConnector networkConnector;
+
+    @Before
+    public void setUp() throws Exception {
+        remoteBroker = new BrokerService();
+        remoteBroker.setBrokerName("remote");
+        remoteBroker.setPersistent(false);
+        remoteBroker.setUseJmx(false);
+        // holds forwarded messages back until the test makes the remote broker available
+        remoteBroker.setPlugins(new BrokerPlugin[] { new BrokerPlugin() {
+            @Override
+            public Broker installPlugin(Broker broker) throws Exception {
+                return new BrokerFilter(broker) {
+                    @Override
+                    public void send(ProducerBrokerExchange producerExchange, Message messageSend) throws Exception {
+                        if (producerExchange.getConnectionContext().isNetworkConnection()
+                                && messageSend.getDestination().isQueue()) {
+                            remoteAvailable.await(30, TimeUnit.SECONDS);
+                            if (messageSend.getProperty("poison") != null) {
+                                throw new IllegalStateException("rejected " + messageSend.getMessageId());
+                            }
+                        }
+                        super.send(producerExchange, messageSend);
+                    }
+                };
+            }
+        }});
+        remoteConnector = remoteBroker.addConnector("tcp://localhost:0");
+        remoteBroker.start();
+        remoteBroker.waitUntilStarted();
+
+        localBroker = new BrokerService();
+        localBroker.setBrokerName("local");
+        localBroker.setDataDirectory("target/activemq-data/NetworkBridgeSpoolTest");
+        localBroker.setDeleteAllMessagesOnStartup(true);
+        localBroker.setUseJmx(false);
+        localConnector = localBroker.addConnector("tcp://localhost:0");
+        networkConnector = localBroker.addNetworkConnector("static:(" + remoteConnector.getConnectUri() + ")");
+        networkConnector.setSpoolForwards(true);
+        networkConnector.setSpoolBatchSize(20);
+        networkConnector.setSpoolMaxDeliveryAttempts(2);
+        localBroker.start();
+        localBroker.waitUntilStarted();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        remoteAvailable.countDown();
+        if (localBroker != null) {
+            localBroker.stop();
+            localBroker.waitUntilStopped();
+        }
+        if (remoteBroker != null) {
+            remoteBroker.stop();
+            remoteBroker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testLocalQueueDrainsIntoSpoolWhileRemoteIsUnavailable() throws Exception {
+        final ActiveMQQueue queue = new ActiveMQQueue("spool.queue");
+        final NetworkBridgeSpool spool = networkConnector.getForwardSpool();
+        assertNotNull(spool);
+
+        Connection remoteConnection = new ActiveMQConnectionFactory(remoteConnector.getConnectUri()).createConnection();
+        Connection localConnection = new ActiveMQConnectionFactory(localConnector.getConnectUri()).createConnection();
+        try {
+            remoteConnection.start();
+            Session remoteSession = remoteConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = remoteSession.createConsumer(queue);
+
+            assertTrue("demand reached the local broker", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    Destination destination = localBroker.getDestination(queue);
+                    return destination != null && destination.getConsumers().size() == 1;
+                }
+            }));
+
+            Session localSession = localConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = localSession.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                producer.send(localSession.createTextMessage("msg-" + i));
+            }
+
+            final Destination localQueue = localBroker.getDestination(queue);
+            assertTrue("local queue drained into the spool", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return localQueue.getDestinationStatistics().getDequeues().getCount() == MESSAGE_COUNT;
+                }
+            }));
+            assertTrue("messages held in the spool", spool.getSize() > 0);
+            assertEquals("messages spooled for the remote broker", spool.getSize(), spool.getSize("remote"));
+
+            remoteAvailable.countDown();
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                TextMessage received = (TextMessage) consumer.receive(5000);
+                assertNotNull(received);
+                assertEquals("msg-" + i, received.getText());
+            }
+            assertTrue("spool drained", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return spool.getSize() == 0;
+                }
+            }));
+        } finally {
+            localConnection.close();
+            remoteConnection.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testPersistentMessagesAreForwardedDirectly() throws Exception {
+        remoteAvailable.countDown();
+        final ActiveMQQueue queue = new ActiveMQQueue("spool.persistent");
+
+        Connection remoteConnection = new ActiveMQConnectionFactory(remoteConnector.getConnectUri()).createConnection();
+        Connection localConnection = new ActiveMQConnectionFactory(localConnector.getConnectUri()).createConnection();
+        try {
+            remoteConnection.start();
+            MessageConsumer consumer = remoteConnection.createSession(false, Session.AUTO_ACKNOWLEDGE).createConsumer(queue);
+            assertTrue("demand reached the local broker", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    Destination destination = localBroker.getDestination(queue);
+                    return destination != null && destination.getConsumers().size() == 1;
+                }
+            }));
+
+            Session localSession = localConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = localSession.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            producer.send(localSession.createTextMessage("direct"));
+
+            assertNotNull(consumer.receive(5000));
+            assertEquals(0, networkConnector.getForwardSpool().getSize());
+        } finally {
+            localConnection.close();
+            remoteConnection.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testRejectedMessageDiscardedAfterMaxDeliveryAttempts() throws Exception {
+        remoteAvailable.countDown();
+        final ActiveMQQueue queue = new ActiveMQQueue("spool.poison");
+        final NetworkBridgeSpool spool = networkConnector.getForwardSpool();
+
+        Connection remoteConnection = new ActiveMQConnectionFactory(remoteConnector.getConnectUri()).createConnection();
+        Connection localConnection = new ActiveMQConnectionFactory(localConnector.getConnectUri()).createConnection();
+        try {
+            remoteConnection.start();
+            MessageConsumer consumer = remoteConnection.createSession(false, Session.AUTO_ACKNOWLEDGE).createConsumer(queue);
+            assertTrue("demand reached the local broker", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    Destination destination = localBroker.getDestination(queue);
+                    return destination != null && destination.getConsumers().size() == 1;
+                }
+            }));
+
+            Session localSession = localConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = localSession.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            TextMessage poison = localSession.createTextMessage("poison");
+            poison.setBooleanProperty("poison", true);
+            producer.send(poison);
+            for (int i = 0; i < 5; i++) {
+                producer.send(localSession.createTextMessage("msg-" + i));
+            }
+
+            for (int i = 0; i < 5; i++) {
+                TextMessage received = (TextMessage) consumer.receive(10000);
+                assertNotNull(received);
+                assertEquals("msg-" + i, received.getText());
+            }
+            assertTrue("poison message discarded", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return spool.getSize() == 0;
+                }
+            }, 30000));
+        } finally {
+            localConnection.close();
+            remoteConnection.close();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.BrokerFilter;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.broker.region.Subscription;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ConsumerInfo;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkDemandAggregationTest {
+
+    private final ActiveMQQueue churnQueue = new ActiveMQQueue("demand.churn");
+    private final ActiveMQQueue stableQueue = new ActiveMQQueue("demand.stable");
+    private final AtomicInteger churnDemand = new AtomicInteger();
+    private BrokerService localBroker;
+    private BrokerService remoteBroker;
+    private TransportConnector localConnector;
+    private TransportConnector remoteConnector;
+
+    @Before
+    public void setUp() throws Exception {
+        remoteBroker = new BrokerService();
+        remoteBroker.setBrokerName("remote");
+        remoteBroker.setPersistent(false);
+        remoteBroker.setUseJmx(false);
+        remoteConnector = remoteBroker.addConnector("tcp://localhost:0");
+        remoteBroker.start();
+        remoteBroker.waitUntilStarted();
+
+        localBroker = new BrokerService();
+        localBroker.setBrokerName("local");
+        localBroker.setPersistent(false);
+        localBroker.setUseJmx(false);
+        localBroker.setPlugins(new BrokerPlugin[] { new BrokerPlugin() {
+            @Override
+            public Broker installPlugin(Broker broker) throws Exception {
+                return new BrokerFilter(broker) {
+                    @Override
+                    public Subscription addConsumer(ConnectionContext context, ConsumerInfo info) throws Exception {
+                        if (context.isNetworkConnection() && churnQueue.equals(info.getDestination())) {
+                            churnDemand.incrementAndGet();
+                        }
+                        return super.addConsumer(context, info);
+                    }
+                };
+            }
+        }});
+        localConnector = localBroker.addConnector("tcp://localhost:0");
+        NetworkConnector networkConnector = localBroker.addNetworkConnector("static:(" + remoteConnector.getConnectUri() + ")");
+        networkConnector.setDemandAggregationWindow(1000);
+        localBroker.start();
+        localBroker.waitUntilStarted();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (localBroker != null) {
+            localBroker.stop();
+            localBroker.waitUntilStopped();
+        }
+        if (remoteBroker != null) {
+            remoteBroker.stop();
+            remoteBroker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testShortLivedConsumersCreateNoDemand() throws Exception {
+        Connection remoteConnection = new ActiveMQConnectionFactory(remoteConnector.getConnectUri()).createConnection();
+        Connection localConnection = new ActiveMQConnectionFactory(localConnector.getConnectUri()).createConnection();
+        try {
+            remoteConnection.start();
+            localConnection.start();
+            Session remoteSession = remoteConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            for (int i = 0; i < 20; i++) {
+                remoteSession.createConsumer(churnQueue).close();
+            }
+            MessageConsumer consumer = remoteSession.createConsumer(stableQueue);
+
+            assertTrue("stable demand applied", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    Destination destination = localBroker.getDestination(stableQueue);
+                    return destination != null && destination.getConsumers().size() == 1;
+                }
+            }));
+            assertEquals("churned consumers cancelled out", 0, churnDemand.get());
+
+            Session localSession = localConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            localSession.createProducer(stableQueue).send(localSession.createTextMessage("forwarded"));
+            assertNotNull(consumer.receive(5000));
+
+            consumer.close();
+            assertTrue("removal applied", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return localBroker.getDestination(stableQueue).getConsumers().isEmpty();
+                }
+            }));
+        } finally {
+            localConnection.close();
+            remoteConnection.close();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.BrokerFilter;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ConsumerBrokerExchange;
+import org.apache.activemq.broker.ProducerBrokerExchange;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.Message;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkForwardAckBatchTest {
+
+    private static final int MESSAGE_COUNT = 95;
+    private static final int ACK_BATCH_SIZE = 10;
+
+    private final AtomicInteger networkAcks = new AtomicInteger();
+    private BrokerService localBroker;
+    private BrokerService remoteBroker;
+    private TransportConnector localConnector;
+    private TransportConnector remoteConnector;
+
+    @Before
+    public void setUp() throws Exception {
+        remoteBroker = new BrokerService();
+        remoteBroker.setBrokerName("remote");
+        remoteBroker.setPersistent(false);
+        remoteBroker.setUseJmx(false);
+        // a slow remote broker keeps forwards outstanding so that acks get coalesced
+        remoteBroker.setPlugins(new BrokerPlugin[] { new BrokerPlugin() {
+            @Override
+            public Broker installPlugin(Broker broker) throws Exception {
+                return new BrokerFilter(broker) {
+                    @Override
+                    public void send(ProducerBrokerExchange producerExchange, Message messageSend) throws Exception {
+                        if (producerExchange.getConnectionContext().isNetworkConnection()) {
+                            Thread.sleep(5);
+                        }
+                        super.send(producerExchange, messageSend);
+                    }
+                };
+            }
+        }});
+        remoteConnector = remoteBroker.addConnector("tcp://localhost:0");
+        remoteBroker.start();
+        remoteBroker.waitUntilStarted();
+
+        localBroker = new BrokerService();
+        localBroker.setBrokerName("local");
+        localBroker.setPersistent(false);
+        localBroker.setUseJmx(false);
+        localBroker.setPlugins(new BrokerPlugin[] { new BrokerPlugin() {
+            @Override
+            public Broker installPlugin(Broker broker) throws Exception {
+                return new BrokerFilter(broker) {
+                    @Override
+                    public void acknowledge(ConsumerBrokerExchange consumerExchange, MessageAck ack) throws Exception {
+                        if (consumerExchange.getConnectionContext().isNetworkConnection()) {
+                            networkAcks.incrementAndGet();
+                        }
+                        super.acknowledge(consumerExchange, ack);
+                    }
+                };
+            }
+        }});
+        localConnector = localBroker.addConnector("tcp://localhost:0");
+        NetworkConnector networkConnector = localBroker.addNetworkConnector("static:(" + remoteConnector.getConnectUri() + ")");
+        networkConnector.setForwardAckBatchSize(ACK_BATCH_SIZE);
+        localBroker.start();
+        localBroker.waitUntilStarted();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (localBroker != null) {
+            localBroker.stop();
+            localBroker.waitUntilStopped();
+        }
+        if (remoteBroker != null) {
+            remoteBroker.stop();
+            remoteBroker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testForwardedMessagesAreAckedCumulatively() throws Exception {
+        final ActiveMQQueue queue = new ActiveMQQueue("forward.ack.batch");
+
+        Connection remoteConnection = new ActiveMQConnectionFactory(remoteConnector.getConnectUri()).createConnection();
+        Connection localConnection = new ActiveMQConnectionFactory(localConnector.getConnectUri()).createConnection();
+        try {
+            remoteConnection.start();
+            Session remoteSession = remoteConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = remoteSession.createConsumer(queue);
+
+            assertTrue("demand reached the local broker", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    Destination destination = localBroker.getDestination(queue);
+                    return destination != null && destination.getConsumers().size() == 1;
+                }
+            }));
+
+            Session localSession = localConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = localSession.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                producer.send(localSession.createTextMessage("msg-" + i));
+            }
+
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                TextMessage received = (TextMessage) consumer.receive(5000);
+                assertNotNull(received);
+                assertEquals("msg-" + i, received.getText());
+            }
+
+            final Destination localQueue = localBroker.getDestination(queue);
+            assertTrue("all forwards acked locally", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return localQueue.getDestinationStatistics().getDequeues().getCount() == MESSAGE_COUNT
+                        && localQueue.getDestinationStatistics().getInflight().getCount() == 0;
+                }
+            }));
+            assertTrue("acks were coalesced: " + networkAcks.get(), networkAcks.get() < MESSAGE_COUNT / 2);
+        } finally {
+            localConnection.close();
+            remoteConnection.close();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelNetworkBridgeTest {
+
+    private static final int BRIDGE_COUNT = 3;
+    private static final int QUEUE_COUNT = 6;
+    private static final int MESSAGES_PER_QUEUE = 20;
+
+    private BrokerService localBroker;
+    private BrokerService remoteBroker;
+    private NetworkConnector networkConnector;
+    private Connection localConnection;
+    private Connection remoteConnection;
+
+    @Before
+    public void setUp() throws Exception {
+        remoteBroker = createBroker("remote");
+        TransportConnector remoteConnector = remoteBroker.addConnector("tcp://localhost:0");
+        remoteBroker.start();
+        remoteBroker.waitUntilStarted();
+
+        localBroker = createBroker("local");
+        TransportConnector localConnector = localBroker.addConnector("tcp://localhost:0");
+        networkConnector = localBroker.addNetworkConnector("static:(" + remoteConnector.getConnectUri() + ")");
+        networkConnector.setName("parallel");
+        networkConnector.setParallelBridgeCount(BRIDGE_COUNT);
+        localBroker.start();
+        localBroker.waitUntilStarted();
+
+        assertTrue("bridge started", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return !networkConnector.activeBridges().isEmpty()
+                    && networkConnector.activeBridges().iterator().next().getRemoteBrokerName() != null;
+            }
+        }));
+
+        localConnection = new ActiveMQConnectionFactory(localConnector.getConnectUri()).createConnection();
+        localConnection.start();
+        remoteConnection = new ActiveMQConnectionFactory(remoteConnector.getConnectUri()).createConnection();
+        remoteConnection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (localConnection != null) {
+            localConnection.close();
+        }
+        if (remoteConnection != null) {
+            remoteConnection.close();
+        }
+        if (localBroker != null) {
+            localBroker.stop();
+            localBroker.waitUntilStopped();
+        }
+        if (remoteBroker != null) {
+            remoteBroker.stop();
+            remoteBroker.waitUntilStopped();
+        }
+    }
+
+    private BrokerService createBroker(String name) {
+        BrokerService broker = new BrokerService();
+        broker.setBrokerName(name);
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        return broker;
+    }
+
+    @Test(timeout = 60000)
+    public void testQueuesAreShardedAndForwardedInOrder() throws Exception {
+        assertEquals(1, networkConnector.activeBridges().size());
+        NetworkBridge bridge = networkConnector.activeBridges().iterator().next();
+        assertTrue(bridge instanceof ParallelNetworkBridge);
+        final List<DemandForwardingBridgeSupport> shards = ((ParallelNetworkBridge) bridge).getShards();
+        assertEquals(BRIDGE_COUNT, shards.size());
+        // the first shard keeps the connector name so existing network durable subs still match
+        assertEquals(networkConnector.getName(), shards.get(0).getBridgeName());
+        assertEquals(networkConnector.getName() + "-1", shards.get(1).getBridgeName());
+
+        Session remoteSession = remoteConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        List<MessageConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i < QUEUE_COUNT; i++) {
+            consumers.add(remoteSession.createConsumer(new ActiveMQQueue("parallel.queue." + i)));
+        }
+
+        assertTrue("each queue has exactly one demand subscription", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                int demand = 0;
+                for (DemandForwardingBridgeSupport shard : shards) {
+                    demand += shard.getLocalSubscriptionMap().size();
+                }
+                return demand == QUEUE_COUNT;
+            }
+        }));
+
+        Set<Integer> usedShards = new HashSet<>();
+        for (DemandForwardingBridgeSupport shard : shards) {
+            if (!shard.getLocalSubscriptionMap().isEmpty()) {
+                usedShards.add(shard.getShardIndex());
+            }
+        }
+        assertTrue("queues spread over more than one shard", usedShards.size() > 1);
+
+        Session localSession = localConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = localSession.createProducer(null);
+        for (int m = 0; m < MESSAGES_PER_QUEUE; m++) {
+            for (int i = 0; i < QUEUE_COUNT; i++) {
+                producer.send(new ActiveMQQueue("parallel.queue." + i), localSession.createTextMessage("q" + i + "-" + m));
+            }
+        }
+
+        for (int i = 0; i < QUEUE_COUNT; i++) {
+            for (int m = 0; m < MESSAGES_PER_QUEUE; m++) {
+                TextMessage received = (TextMessage) consumers.get(i).receive(5000);
+                assertNotNull(received);
+                assertEquals("q" + i + "-" + m, received.getText());
+            }
+        }
+
+        final long expected = QUEUE_COUNT * MESSAGES_PER_QUEUE;
+        final NetworkBridgeStatistics statistics = bridge.getNetworkBridgeStatistics();
+        assertTrue("statistics aggregated over shards", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return statistics.getDequeues().getCount() == expected;
+            }
+        }));
+        long shardTotal = 0;
+        for (DemandForwardingBridgeSupport shard : shards) {
+            shardTotal += shard.getNetworkBridgeStatistics().getDequeues().getCount();
+        }
+        assertEquals(expected, shardTotal);
+    }
+
+    @Test(timeout = 60000)
+    public void testTopicsAreForwardedOnce() throws Exception {
+        ActiveMQTopic topic = new ActiveMQTopic("parallel.topic");
+        Session remoteSession = remoteConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = remoteSession.createConsumer(topic);
+
+        final List<DemandForwardingBridgeSupport> shards =
+            ((ParallelNetworkBridge) networkConnector.activeBridges().iterator().next()).getShards();
+        assertTrue("topic demand on the first shard", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return shards.get(0).getLocalSubscriptionMap().size() == 1;
+            }
+        }));
+
+        Session localSession = localConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        localSession.createProducer(topic).send(localSession.createTextMessage("once"));
+
+        assertNotNull(consumer.receive(5000));
+        assertNull(consumer.receive(500));
+    }
+}
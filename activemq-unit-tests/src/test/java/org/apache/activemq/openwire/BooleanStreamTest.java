@@ -74,6 +74,55 @@ public class BooleanStreamTest extends TestCase {
         });
     }
 
+    public void testResetAllowsReuse() throws Exception {
+        BooleanStream bs = new BooleanStream();
+        for (int i = 0; i < numberOfBytes; i++) {
+            bs.writeBoolean(true);
+        }
+        bs.reset();
+        assertEquals(1, bs.marshalledSize());
+
+        bs.writeBoolean(false);
+        bs.writeBoolean(true);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream ds = new DataOutputStream(buffer);
+        bs.marshal(ds);
+        ds.close();
+
+        bs = new BooleanStream();
+        bs.unmarshal(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+        assertFalse(bs.readBoolean());
+        assertTrue(bs.readBoolean());
+        assertFalse(bs.readBoolean());
+    }
+
+    public void testUnmarshalReusesInstance() throws Exception {
+        BooleanStream written = new BooleanStream();
+        for (int i = 0; i < 1000; i++) {
+            written.writeBoolean(true);
+        }
+        ByteArrayOutputStream longBuffer = new ByteArrayOutputStream();
+        DataOutputStream ds = new DataOutputStream(longBuffer);
+        written.marshal(ds);
+        ds.close();
+
+        written = new BooleanStream();
+        written.writeBoolean(false);
+        written.writeBoolean(true);
+        ByteArrayOutputStream shortBuffer = new ByteArrayOutputStream();
+        ds = new DataOutputStream(shortBuffer);
+        written.marshal(ds);
+        ds.close();
+
+        BooleanStream bs = new BooleanStream();
+        bs.unmarshal(new DataInputStream(new ByteArrayInputStream(longBuffer.toByteArray())));
+        assertTrue(bs.readBoolean());
+        bs.unmarshal(new DataInputStream(new ByteArrayInputStream(shortBuffer.toByteArray())));
+        assertFalse(bs.readBoolean());
+        assertTrue(bs.readBoolean());
+        assertFalse(bs.readBoolean());
+    }
+
     protected void testBooleanStream(int numberOfBytes, BooleanValueSet valueSet) throws Exception {
         for (int i = 0; i < numberOfBytes; i++) {
             try {
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.openwire;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.CommandTypes;
+import org.apache.activemq.command.ConnectionId;
+import org.apache.activemq.command.ConsumerId;
+import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageDispatchBatch;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.ProducerId;
+import org.apache.activemq.command.SessionId;
+import org.junit.Test;
+
+public class MessageDispatchBatchTest {
+
+    @Test
+    public void testTightMarshal() throws Exception {
+        doTestMarshal(true);
+    }
+
+    @Test
+    public void testLooseMarshal() throws Exception {
+        doTestMarshal(false);
+    }
+
+    private void doTestMarshal(boolean tightEncoding) throws Exception {
+        OpenWireFormat wf = new OpenWireFormat(CommandTypes.PROTOCOL_VERSION);
+        wf.setTightEncodingEnabled(tightEncoding);
+
+        SessionId sessionId = new SessionId(new ConnectionId("ID:test-1"), 1);
+        ConsumerId consumerId = new ConsumerId(sessionId, 1);
+        ProducerId producerId = new ProducerId(sessionId, 1);
+        ActiveMQQueue queue = new ActiveMQQueue("test");
+        int size = 10;
+        MessageDispatch[] dispatches = new MessageDispatch[size];
+        for (int i = 0; i < size; i++) {
+            ActiveMQTextMessage message = new ActiveMQTextMessage();
+            message.setMessageId(new MessageId(producerId, i));
+            message.setDestination(queue);
+            message.setText("message-" + i);
+
+            dispatches[i] = new MessageDispatch();
+            dispatches[i].setConsumerId(consumerId);
+            dispatches[i].setDestination(queue);
+            dispatches[i].setMessage(message);
+            dispatches[i].setRedeliveryCounter(i);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream ds = new DataOutputStream(buffer);
+        wf.marshal(new MessageDispatchBatch(consumerId, dispatches), ds);
+        ds.close();
+
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        MessageDispatchBatch actual = (MessageDispatchBatch) wf.unmarshal(dis);
+
+        assertEquals(consumerId, actual.getConsumerId());
+        assertEquals(size, actual.getDispatches().length);
+        for (int i = 0; i < size; i++) {
+            MessageDispatch md = actual.getDispatches()[i];
+            assertEquals(consumerId, md.getConsumerId());
+            assertEquals(i, md.getRedeliveryCounter());
+            assertEquals("message-" + i, ((ActiveMQTextMessage) md.getMessage()).getText());
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.util.DefaultIOExceptionHandler;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JDBCGroupCommitTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int MESSAGES_PER_PRODUCER = 50;
+
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicInteger failCommits = new AtomicInteger();
+    private final AtomicInteger handledIOExceptions = new AtomicInteger();
+    private BrokerService broker;
+    private JDBCPersistenceAdapter persistenceAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        persistenceAdapter = new JDBCPersistenceAdapter();
+        persistenceAdapter.setUseLock(false);
+        persistenceAdapter.setGroupCommit(true);
+        persistenceAdapter.setDataSource(countCommits(persistenceAdapter.getDataSource()));
+        broker.setPersistenceAdapter(persistenceAdapter);
+        broker.setIoExceptionHandler(new DefaultIOExceptionHandler() {
+            @Override
+            public void handle(IOException exception) {
+                handledIOExceptions.incrementAndGet();
+                super.handle(exception);
+            }
+        });
+        broker.setDeleteAllMessagesOnStartup(true);
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testConcurrentSendsShareCommits() throws Exception {
+        final ActiveMQQueue queue = new ActiveMQQueue("group.commit");
+        final ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory("vm://localhost?create=false");
+        commits.set(0);
+
+        sendConcurrently(factory, queue);
+
+        final int total = PRODUCERS * MESSAGES_PER_PRODUCER;
+        assertEquals(total, countStoredMessages());
+        // writes outside of a group run with auto commit, so every commit is a group commit
+        assertTrue("sends were group committed: " + commits.get(), commits.get() > 0 && commits.get() < total);
+
+        Connection connection = factory.createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(queue);
+            Set<String> received = new HashSet<>();
+            for (int i = 0; i < total; i++) {
+                TextMessage message = (TextMessage) consumer.receive(5000);
+                assertNotNull(message);
+                received.add(message.getText());
+            }
+            assertEquals(total, received.size());
+        } finally {
+            connection.close();
+        }
+
+        assertTrue("acks committed", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return countStoredMessages() == 0;
+            }
+        }));
+    }
+
+    @Test(timeout = 120000)
+    public void testFailedGroupCommitRetriedIndividually() throws Exception {
+        final ActiveMQQueue queue = new ActiveMQQueue("group.commit.failure");
+        final ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory("vm://localhost?create=false");
+        failCommits.set(1);
+
+        sendConcurrently(factory, queue);
+
+        assertEquals("a group commit failed", 0, failCommits.get());
+        assertEquals(PRODUCERS * MESSAGES_PER_PRODUCER, countStoredMessages());
+        assertEquals("the retried writes did not reach the IOException handler", 0, handledIOExceptions.get());
+        assertTrue(broker.isStarted());
+    }
+
+    private void sendConcurrently(final ActiveMQConnectionFactory factory, final ActiveMQQueue queue) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producerIndex = p;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Connection connection = factory.createConnection();
+                        try {
+                            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                            MessageProducer producer = session.createProducer(queue);
+                            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+                            for (int i = 0; i < MESSAGES_PER_PRODUCER; i++) {
+                                producer.send(session.createTextMessage(producerIndex + "-" + i));
+                            }
+                        } finally {
+                            connection.close();
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+    }
+
+    private int countStoredMessages() throws Exception {
+        java.sql.Connection connection = persistenceAdapter.getDataSource().getConnection();
+        try {
+            ResultSet result = connection.createStatement().executeQuery("SELECT COUNT(*) FROM ACTIVEMQ_MSGS");
+            result.next();
+            return result.getInt(1);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private DataSource countCommits(final DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result = invokeTarget(dataSource, method, args);
+                if ("getConnection".equals(method.getName())) {
+                    final java.sql.Connection connection = (java.sql.Connection) result;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {java.sql.Connection.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if ("commit".equals(method.getName())) {
+                                commits.incrementAndGet();
+                                if (failCommits.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                                    throw new SQLException("Injected commit failure");
+                                }
+                            }
+                            return invokeTarget(connection, method, args);
+                        }
+                    });
+                }
+                return result;
+            }
+        });
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
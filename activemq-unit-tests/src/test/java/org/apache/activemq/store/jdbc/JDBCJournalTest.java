@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.util.IOHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JDBCJournalTest {
+
+    private static final int MESSAGE_COUNT = 100;
+    private static final File DATA_DIRECTORY = new File("target/activemq-data/JDBCJournalTest");
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("jdbc.journal");
+    private BrokerService broker;
+    private JDBCPersistenceAdapter persistenceAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        IOHelper.deleteChildren(DATA_DIRECTORY);
+        startBroker(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        stopBroker();
+    }
+
+    private void startBroker(boolean deleteAllMessages) throws Exception {
+        broker = new BrokerService();
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.setDataDirectoryFile(DATA_DIRECTORY);
+        persistenceAdapter = new JDBCPersistenceAdapter();
+        persistenceAdapter.setUseLock(false);
+        persistenceAdapter.setJournaled(true);
+        // checkpoints are triggered by the test
+        persistenceAdapter.setJournalCheckpointInterval(0);
+        broker.setPersistenceAdapter(persistenceAdapter);
+        broker.setDeleteAllMessagesOnStartup(deleteAllMessages);
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    private void stopBroker() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+            broker = null;
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testConsumedBeforeCheckpointNeverReachesDatabase() throws Exception {
+        sendMessages(MESSAGE_COUNT);
+        assertEquals(0, countStoredMessages());
+        assertEquals(MESSAGE_COUNT, persistenceAdapter.getJournal().getPendingCount());
+
+        consumeMessages(MESSAGE_COUNT);
+        assertEquals(0, persistenceAdapter.getJournal().getPendingCount());
+
+        persistenceAdapter.getJournal().checkpoint();
+        assertEquals(0, countStoredMessages());
+    }
+
+    @Test(timeout = 60000)
+    public void testCheckpointMovesMessagesToDatabase() throws Exception {
+        sendMessages(MESSAGE_COUNT);
+        persistenceAdapter.getJournal().checkpoint();
+        assertEquals(MESSAGE_COUNT, countStoredMessages());
+        assertEquals(0, persistenceAdapter.getJournal().getPendingCount());
+
+        consumeMessages(MESSAGE_COUNT);
+        assertEquals(0, countStoredMessages());
+    }
+
+    @Test(timeout = 60000)
+    public void testJournalRecoveredIntoDatabaseOnStart() throws Exception {
+        sendMessages(MESSAGE_COUNT);
+        consumeMessages(MESSAGE_COUNT / 2);
+
+        // keep the journal as it was before the orderly shutdown checkpointed it, then lose
+        // the database rows as if the broker had died before the checkpoint
+        File journalDirectory = new File(persistenceAdapter.getDirectory(), "jdbc-journal");
+        File saved = new File(DATA_DIRECTORY, "saved-journal");
+        copyFiles(journalDirectory, saved);
+        stopBroker();
+        deleteStoredMessages();
+        IOHelper.deleteChildren(journalDirectory);
+        copyFiles(saved, journalDirectory);
+
+        startBroker(false);
+        assertEquals(MESSAGE_COUNT / 2, countStoredMessages());
+        Set<String> received = consumeMessages(MESSAGE_COUNT / 2);
+        for (int i = MESSAGE_COUNT / 2; i < MESSAGE_COUNT; i++) {
+            received.remove("msg-" + i);
+        }
+        assertEquals(0, received.size());
+        assertNull(receiveOne());
+    }
+
+    private void sendMessages(int count) throws Exception {
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            for (int i = 0; i < count; i++) {
+                producer.send(session.createTextMessage("msg-" + i));
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private Set<String> consumeMessages(int count) throws Exception {
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false&jms.prefetchPolicy.all=1").createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(queue);
+            Set<String> received = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                TextMessage message = (TextMessage) consumer.receive(5000);
+                assertNotNull(message);
+                received.add(message.getText());
+            }
+            assertEquals(count, received.size());
+            return received;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private TextMessage receiveOne() throws Exception {
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            return (TextMessage) session.createConsumer(queue).receive(1000);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private int countStoredMessages() throws Exception {
+        java.sql.Connection connection = persistenceAdapter.getDataSource().getConnection();
+        try {
+            ResultSet result = connection.createStatement().executeQuery("SELECT COUNT(*) FROM ACTIVEMQ_MSGS");
+            result.next();
+            return result.getInt(1);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void deleteStoredMessages() throws Exception {
+        java.sql.Connection connection = persistenceAdapter.getDataSource().getConnection();
+        try {
+            connection.createStatement().executeUpdate("DELETE FROM ACTIVEMQ_MSGS");
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void copyFiles(File from, File to) throws Exception {
+        to.mkdirs();
+        for (File file : from.listFiles()) {
+            Files.copy(file.toPath(), new File(to, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.ResultSet;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.util.IOHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JDBCPartitionedStoreTest {
+
+    private static final int PARTITIONS = 4;
+    private static final int QUEUES = 6;
+    private static final int MESSAGES_PER_QUEUE = 20;
+    private static final File DATA_DIRECTORY = new File("target/activemq-data/JDBCPartitionedStoreTest");
+
+    private BrokerService broker;
+    private JDBCPersistenceAdapter persistenceAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        IOHelper.deleteChildren(DATA_DIRECTORY);
+        startBroker(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        stopBroker();
+    }
+
+    private void startBroker(boolean deleteAllMessages) throws Exception {
+        broker = new BrokerService();
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.setDataDirectoryFile(DATA_DIRECTORY);
+        persistenceAdapter = new JDBCPersistenceAdapter();
+        persistenceAdapter.setUseLock(false);
+        persistenceAdapter.setCleanupPeriod(0);
+        Statements statements = new Statements();
+        // the embedded database is shared with other tests, keep the layout in its own table
+        statements.setMessageTableName("PARTITIONED_MSGS");
+        statements.setPartitionCount(PARTITIONS);
+        // derby has no native partitions, a scoped delete stands in for the truncate
+        statements.setTruncatePartitionStatement("DELETE FROM %1$s WHERE PARTITION_ID=%2$d");
+        persistenceAdapter.setStatements(statements);
+        broker.setPersistenceAdapter(persistenceAdapter);
+        broker.setDeleteAllMessagesOnStartup(deleteAllMessages);
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    private void stopBroker() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+            broker = null;
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMessagesStoredAndRecoveredByPartition() throws Exception {
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(null);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            for (int q = 0; q < QUEUES; q++) {
+                for (int i = 0; i < MESSAGES_PER_QUEUE; i++) {
+                    producer.send(queue(q), session.createTextMessage(q + "-" + i));
+                }
+            }
+        } finally {
+            connection.close();
+        }
+
+        Statements statements = persistenceAdapter.getStatements();
+        for (int q = 0; q < QUEUES; q++) {
+            assertEquals(MESSAGES_PER_QUEUE, countStoredMessages(queue(q).getQualifiedName(), statements.getPartition(queue(q).getQualifiedName())));
+        }
+
+        stopBroker();
+        startBroker(false);
+
+        connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            for (int q = 0; q < QUEUES; q++) {
+                MessageConsumer consumer = session.createConsumer(queue(q));
+                for (int i = 0; i < MESSAGES_PER_QUEUE; i++) {
+                    TextMessage message = (TextMessage) consumer.receive(5000);
+                    assertNotNull(message);
+                    assertEquals(q + "-" + i, message.getText());
+                }
+                consumer.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testOnlyDrainedPartitionsAreTruncated() throws Exception {
+        ActiveMQQueue queue = queue(0);
+        int partition = persistenceAdapter.getStatements().getPartition(queue.getQualifiedName());
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session.createProducer(queue).send(session.createTextMessage("pending"));
+        } finally {
+            connection.close();
+        }
+
+        assertFalse(truncate(partition));
+        assertEquals(1, countStoredMessages(queue.getQualifiedName(), partition));
+        assertTrue(truncate((partition + 1) % PARTITIONS));
+    }
+
+    private boolean truncate(int partition) throws Exception {
+        TransactionContext c = persistenceAdapter.getTransactionContext();
+        c.begin();
+        try {
+            return persistenceAdapter.getAdapter().doTruncateDrainedPartition(c, partition);
+        } finally {
+            c.commit();
+        }
+    }
+
+    private static ActiveMQQueue queue(int index) {
+        return new ActiveMQQueue("partitioned." + index);
+    }
+
+    private int countStoredMessages(String container, int partition) throws Exception {
+        java.sql.Connection connection = persistenceAdapter.getDataSource().getConnection();
+        try {
+            ResultSet result = connection.createStatement().executeQuery(
+                "SELECT COUNT(*) FROM PARTITIONED_MSGS WHERE CONTAINER='" + container + "' AND PARTITION_ID=" + partition);
+            result.next();
+            return result.getInt(1);
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.util.IOHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JDBCRecoveryFetchAheadTest {
+
+    private static final int MESSAGE_COUNT = 1000;
+    private static final File DATA_DIRECTORY = new File("target/activemq-data/JDBCRecoveryFetchAheadTest");
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("fetch.ahead");
+    private BrokerService broker;
+
+    @Before
+    public void setUp() throws Exception {
+        IOHelper.deleteChildren(DATA_DIRECTORY);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        stopBroker();
+    }
+
+    private void startBroker(boolean deleteAllMessages, boolean prioritized) throws Exception {
+        broker = new BrokerService();
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.setDataDirectoryFile(DATA_DIRECTORY);
+        JDBCPersistenceAdapter persistenceAdapter = new JDBCPersistenceAdapter();
+        persistenceAdapter.setUseLock(false);
+        persistenceAdapter.setRecoveryFetchAhead(true);
+        broker.setPersistenceAdapter(persistenceAdapter);
+        // page every message in from the store
+        PolicyEntry policy = new PolicyEntry();
+        policy.setUseCache(false);
+        policy.setMaxPageSize(50);
+        policy.setPrioritizedMessages(prioritized);
+        PolicyMap policyMap = new PolicyMap();
+        policyMap.setDefaultEntry(policy);
+        broker.setDestinationPolicy(policyMap);
+        broker.setDeleteAllMessagesOnStartup(deleteAllMessages);
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    private void stopBroker() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+            broker = null;
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testBacklogDrainedInOrder() throws Exception {
+        startBroker(true, false);
+        sendMessages(4);
+        stopBroker();
+        startBroker(false, false);
+
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(queue);
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                TextMessage message = (TextMessage) consumer.receive(5000);
+                assertNotNull("message " + i, message);
+                assertEquals("msg-" + i, message.getText());
+            }
+            assertNull(consumer.receive(500));
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testPrioritizedBacklogDrainedByPriority() throws Exception {
+        startBroker(true, true);
+        sendMessages(-1);
+        stopBroker();
+        startBroker(false, true);
+
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(queue);
+            int lastPriority = 9;
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                TextMessage message = (TextMessage) consumer.receive(5000);
+                assertNotNull("message " + i, message);
+                assertEquals(true, message.getJMSPriority() <= lastPriority);
+                lastPriority = message.getJMSPriority();
+            }
+            assertNull(consumer.receive(500));
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void sendMessages(int priority) throws Exception {
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                producer.setPriority(priority >= 0 ? priority : i % 10);
+                producer.send(session.createTextMessage("msg-" + i));
+            }
+        } finally {
+            connection.close();
+        }
+    }
+}
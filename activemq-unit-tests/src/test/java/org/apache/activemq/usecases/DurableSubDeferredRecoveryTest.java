@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.usecases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import jakarta.jms.TopicSubscriber;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.RegionBroker;
+import org.apache.activemq.broker.region.TopicRegion;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DurableSubDeferredRecoveryTest {
+
+    private BrokerService broker;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = createAndStartBroker(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    private BrokerService createAndStartBroker(boolean deleteAllMessages) throws Exception {
+        BrokerService broker = new BrokerService();
+        broker.setDeleteAllMessagesOnStartup(deleteAllMessages);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.setDeferOfflineDurableSubscriptions(true);
+        broker.addConnector("vm://localhost");
+        broker.start();
+        broker.waitUntilStarted();
+        return broker;
+    }
+
+    private void restartBroker() throws Exception {
+        broker.stop();
+        broker.waitUntilStopped();
+        broker = createAndStartBroker(false);
+    }
+
+    @Test(timeout = 60000)
+    public void testMessagesKeptForDeferredSubscription() throws Exception {
+        ActiveMQTopic topic = new ActiveMQTopic("deferred.topic");
+        createDurableSub("client", "sub", topic);
+
+        restartBroker();
+        assertEquals(0, getTopicRegion().getDurableSubscriptions().size());
+        assertEquals(1, getTopicRegion().lookupOfflineSubscriptions("client").size());
+
+        publish(topic, 10);
+
+        Connection connection = createConnection("client");
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            TopicSubscriber subscriber = session.createDurableSubscriber(topic, "sub");
+            for (int i = 0; i < 10; i++) {
+                TextMessage message = (TextMessage) subscriber.receive(5000);
+                assertNotNull(message);
+                assertEquals("message-" + i, message.getText());
+            }
+            assertNull(subscriber.receive(200));
+        } finally {
+            connection.close();
+        }
+        assertEquals(1, getTopicRegion().getDurableSubscriptions().size());
+        assertEquals(0, getTopicRegion().lookupOfflineSubscriptions("client").size());
+    }
+
+    @Test(timeout = 60000)
+    public void testDeferredWildcardSubscriptionOnNewTopic() throws Exception {
+        createDurableSub("client", "sub", new ActiveMQTopic("deferred.>"));
+        publish(new ActiveMQTopic("deferred.a"), 1);
+
+        restartBroker();
+        assertEquals(1, getTopicRegion().lookupOfflineSubscriptions("client").size());
+
+        ActiveMQTopic newTopic = new ActiveMQTopic("deferred.b");
+        publish(newTopic, 1);
+
+        Connection connection = createConnection("client");
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            TopicSubscriber subscriber = session.createDurableSubscriber(new ActiveMQTopic("deferred.>"), "sub");
+            assertNotNull(subscriber.receive(5000));
+            assertNotNull(subscriber.receive(5000));
+            assertNull(subscriber.receive(200));
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testUnsubscribeDeferredSubscription() throws Exception {
+        ActiveMQTopic topic = new ActiveMQTopic("deferred.topic");
+        createDurableSub("client", "sub", topic);
+
+        restartBroker();
+        assertEquals(1, getTopicRegion().lookupOfflineSubscriptions("client").size());
+
+        Connection connection = createConnection("client");
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session.unsubscribe("sub");
+        } finally {
+            connection.close();
+        }
+        assertEquals(0, getTopicRegion().lookupOfflineSubscriptions("client").size());
+        assertEquals(0, getTopicRegion().getDurableSubscriptions().size());
+
+        restartBroker();
+        assertEquals(0, getTopicRegion().lookupOfflineSubscriptions("client").size());
+    }
+
+    private void createDurableSub(String clientId, String name, ActiveMQTopic topic) throws Exception {
+        Connection connection = createConnection(clientId);
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session.createDurableSubscriber(topic, name).close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void publish(ActiveMQTopic topic, int count) throws Exception {
+        Connection connection = createConnection(null);
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(topic);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            for (int i = 0; i < count; i++) {
+                producer.send(session.createTextMessage("message-" + i));
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private Connection createConnection(String clientId) throws Exception {
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        if (clientId != null) {
+            connection.setClientID(clientId);
+        }
+        connection.start();
+        return connection;
+    }
+
+    private TopicRegion getTopicRegion() throws Exception {
+        RegionBroker regionBroker = (RegionBroker) broker.getBroker().getAdaptor(RegionBroker.class);
+        return (TopicRegion) regionBroker.getTopicRegion();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.transport.TransportThreadSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VirtualThreadTransportConnectorTest {
+
+    private BrokerService broker;
+    private TransportConnector connector;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        connector = new TransportConnector();
+        connector.setUri(new URI("tcp://localhost:0"));
+        connector.setVirtualThreadTaskRunner(true);
+        broker.addConnector(connector);
+        broker.start();
+        broker.waitUntilStarted();
+
+        connection = new ActiveMQConnectionFactory(connector.getConnectUri()).createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testAcceptedConnectionsRunOnVirtualThreads() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("VirtualThreadTransportConnectorTest");
+        MessageConsumer consumer = session.createConsumer(queue);
+        MessageProducer producer = session.createProducer(queue);
+
+        for (int i = 0; i < 10; i++) {
+            producer.send(session.createTextMessage("msg-" + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            TextMessage received = (TextMessage) consumer.receive(5000);
+            assertNotNull(received);
+            assertEquals("msg-" + i, received.getText());
+        }
+
+        assertEquals(1, connector.getConnections().size());
+        TransportConnection brokerSide = connector.getConnections().get(0);
+        TransportThreadSupport reader = brokerSide.getTransport().narrow(TransportThreadSupport.class);
+        assertNotNull(reader);
+        assertTrue(reader.isUseVirtualThread());
+    }
+}
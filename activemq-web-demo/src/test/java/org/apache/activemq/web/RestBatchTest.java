@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.Test;
+
+public class RestBatchTest extends JettyTestSupport {
+
+    @Test(timeout = 60 * 1000)
+    public void testConsumeBatchAndAcknowledgeRange() throws Exception {
+        int port = getPort();
+        for (int i = 0; i < 5; i++) {
+            producer.send(session.createTextMessage("test" + i));
+        }
+
+        HttpClient httpClient = new HttpClient();
+        httpClient.start();
+
+        String url = "http://localhost:" + port + "/messages/test?readTimeout=1000&type=queue";
+        ContentResponse response = httpClient.GET(url + "&maximumMessages=3");
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("1-3", response.getHeaders().get("ackRange"));
+        assertEquals(3, countMessages(response.getContentAsString()));
+        assertTrue(response.getContentAsString().contains("<message seq='1'"));
+
+        response = httpClient.POST(url).param("ack", "1-3").send();
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("3 message(s) acknowledged", response.getContentAsString());
+
+        response = httpClient.GET(url);
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("4-5", response.getHeaders().get("ackRange"));
+        assertEquals(2, countMessages(response.getContentAsString()));
+
+        response = httpClient.POST(url).param("ack", "4,5").send();
+        assertEquals("2 message(s) acknowledged", response.getContentAsString());
+
+        response = httpClient.POST(url).param("ack", "5-4").send();
+        assertEquals(HttpStatus.BAD_REQUEST_400, response.getStatus());
+
+        assertEquals(HttpStatus.NO_CONTENT_204, httpClient.GET(url).getStatus());
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testSuspendedRequestsShareConsumer() throws Exception {
+        int port = getPort();
+        HttpClient httpClient = new HttpClient();
+        httpClient.start();
+
+        String url = "http://localhost:" + port + "/messages/test?readTimeout=5000&type=queue";
+        List<StringBuffer> buffers = new ArrayList<>();
+        List<Future<Result>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            StringBuffer buffer = new StringBuffer();
+            buffers.add(buffer);
+            results.add(asyncRequest(httpClient, url, buffer));
+        }
+
+        // Let the requests be suspended before sending.
+        Thread.sleep(1000);
+        for (int i = 0; i < 3; i++) {
+            producer.send(session.createTextMessage("test" + i));
+        }
+
+        int received = 0;
+        for (int i = 0; i < 3; i++) {
+            int status = results.get(i).get().getResponse().getStatus();
+            assertTrue("Unexpected status " + status, status == HttpStatus.OK_200 || status == HttpStatus.NO_CONTENT_204);
+            received += countMessages(buffers.get(i).toString());
+        }
+        assertEquals(3, received);
+    }
+
+    private int countMessages(String content) {
+        int count = 0;
+        for (int index = content.indexOf("<message "); index >= 0; index = content.indexOf("<message ", index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    protected Future<Result> asyncRequest(final HttpClient httpClient, final String url, final StringBuffer buffer) {
+        final CompletableFuture<Result> futureResult = new CompletableFuture<>();
+        httpClient.newRequest(url).send(new BufferingResponseListener() {
+            @Override
+            public void onComplete(Result result) {
+                buffer.append(getContentAsString());
+                futureResult.complete(result);
+            }
+        });
+        return futureResult;
+    }
+}
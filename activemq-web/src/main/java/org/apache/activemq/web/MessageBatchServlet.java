@@ -0,0 +1,609 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageListener;
+import jakarta.jms.ObjectMessage;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.activemq.ActiveMQSession;
+import org.apache.activemq.web.async.AsyncServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A servlet for consuming messages from JMS destinations in batches using HTTP
+ * GET, acknowledging them by ranges using HTTP POST.
+ * <p/>
+ * All the GETs of a user for the same destination, selector and 'group'
+ * parameter share one JMS consumer, whatever the HTTP session they come from.
+ * The consumer's connection is opened with the credentials of the request's
+ * Authorization header, unless the servlet is configured with credentials of
+ * its own, so the broker authorizes every user separately. A GET returns up
+ * to 'maximumMessages' messages at once; when no message is available it is
+ * suspended, without holding a servlet thread, until a message arrives for its
+ * consumer or its 'readTimeout' expires.
+ * <p/>
+ * Each message of a response carries a sequence number unique within its
+ * consumer, and the 'ackRange' response header holds the range of the batch. A
+ * POST with an 'ack' parameter such as <code>1-100,102</code> acknowledges the
+ * listed messages. A POST only acknowledges the messages of the consumer of its
+ * own user, any request of that user may acknowledge the messages any other of
+ * its requests received. Messages not acknowledged within 'ackTimeout' are returned
+ * to a later GET under a new sequence number, so delivery is at least once. A
+ * DELETE closes the consumer, handing its unacknowledged messages back to the
+ * broker. The servlet can be configured with the following init parameters:
+ * <dl>
+ * <dt>defaultReadTimeout</dt>
+ * <dd>The default time in ms to wait for messages. May be overridden by a
+ * request using the 'readTimeout' parameter</dd>
+ * <dt>maximumReadTimeout</dt>
+ * <dd>The maximum value a request may specify for the 'readTimeout' parameter</dd>
+ * <dt>maximumMessages</dt>
+ * <dd>maximum messages to send per response</dd>
+ * <dt>ackTimeout</dt>
+ * <dd>The time in ms after which an unacknowledged message is delivered again</dd>
+ * <dt>consumerIdleTimeout</dt>
+ * <dd>The time in ms after which a consumer nobody polls is closed</dd>
+ * </dl>
+ */
+@SuppressWarnings("serial")
+public class MessageBatchServlet extends MessageServletSupport {
+    private static final Logger LOG = LoggerFactory.getLogger(MessageBatchServlet.class);
+
+    private final String readTimeoutParameter = "readTimeout";
+    private final String readDeadlineRequestAtt = "xamqBatchReadDeadline";
+    private final String maximumMessagesParameter = "maximumMessages";
+    private final String groupParameter = "group";
+    private final String ackParameter = "ack";
+    private long defaultReadTimeout = -1;
+    private long maximumReadTimeout = 20000;
+    private int maximumMessages = 100;
+    private long ackTimeout = 30000;
+    private long consumerIdleTimeout = 300000;
+
+    private final Timer consumerCleanupTimer = new Timer("ActiveMQ Batch Consumer Cleanup Timer", true);
+    private final ConcurrentMap<String, SharedConsumer> consumers = new ConcurrentHashMap<>();
+    private final Map<String, UserClient> clients = new HashMap<>();
+
+    @Override
+    public void init() throws ServletException {
+        ServletConfig servletConfig = getServletConfig();
+        String name = servletConfig.getInitParameter("defaultReadTimeout");
+        if (name != null) {
+            defaultReadTimeout = asLong(name);
+        }
+        name = servletConfig.getInitParameter("maximumReadTimeout");
+        if (name != null) {
+            maximumReadTimeout = asLong(name);
+        }
+        name = servletConfig.getInitParameter("maximumMessages");
+        if (name != null) {
+            maximumMessages = asInt(name);
+        }
+        name = servletConfig.getInitParameter("ackTimeout");
+        if (name != null) {
+            ackTimeout = asLong(name);
+        }
+        name = servletConfig.getInitParameter("consumerIdleTimeout");
+        if (name != null) {
+            consumerIdleTimeout = asLong(name);
+        }
+        consumerCleanupTimer.schedule(new ConsumerCleaner(), 5000, 60000);
+    }
+
+    /**
+     * Returns the next batch of messages of the shared consumer, suspending the
+     * request until messages are available or the read timeout expires.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        final AsyncServletRequest asyncRequest = AsyncServletRequest.getAsyncRequest(request);
+        if (asyncRequest.isExpired()) {
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            return;
+        }
+
+        try {
+            SharedConsumer consumer = getSharedConsumer(request, true);
+            if (consumer == null) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN, "The consumer was created with other credentials of the same user");
+                return;
+            }
+            NavigableMap<Long, Message> batch = consumer.poll(getMaximumMessages(request));
+            if (!batch.isEmpty()) {
+                writeResponse(response, batch);
+                return;
+            }
+
+            long timeout = getReadDeadline(request) - System.currentTimeMillis();
+            if (timeout <= 0) {
+                response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+                return;
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Waiting for messages from: " + consumer + " with timeout: " + timeout);
+            }
+
+            asyncRequest.setTimeoutMs(timeout);
+            asyncRequest.startAsync();
+            if (!consumer.suspend(asyncRequest)) {
+                // Messages arrived since the poll, go and fetch them.
+                asyncRequest.dispatch();
+            }
+        } catch (JMSException e) {
+            throw new ServletException("Could not receive JMS messages: " + e, e);
+        }
+    }
+
+    /**
+     * Acknowledges the ranges of sequence numbers given by the 'ack' parameter.
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        String ranges = request.getParameter(ackParameter);
+        if (ranges == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "No " + ackParameter + " parameter specified");
+            return;
+        }
+
+        try {
+            SharedConsumer consumer = getSharedConsumer(request, false);
+            int acknowledged = consumer != null ? consumer.acknowledge(ranges) : 0;
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().write(acknowledged + " message(s) acknowledged");
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid " + ackParameter + " parameter: " + ranges);
+        } catch (JMSException e) {
+            throw new ServletException("Could not acknowledge JMS messages: " + e, e);
+        }
+    }
+
+    /**
+     * Closes the shared consumer, handing its unacknowledged messages back to
+     * the broker.
+     */
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        try {
+            SharedConsumer consumer = getSharedConsumer(request, false);
+            if (consumer != null) {
+                consumer.close();
+            }
+        } catch (JMSException e) {
+            throw new ServletException("Could not close JMS consumer: " + e, e);
+        }
+    }
+
+    protected void writeResponse(HttpServletResponse response, NavigableMap<Long, Message> batch) throws IOException, JMSException {
+        response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate"); // HTTP 1.1
+        response.setHeader("Pragma", "no-cache"); // HTTP 1.0
+        response.setDateHeader("Expires", 0);
+        response.setHeader("ackRange", batch.firstKey() + "-" + batch.lastKey());
+        response.setContentType("application/xml");
+        response.setStatus(HttpServletResponse.SC_OK);
+
+        PrintWriter writer = response.getWriter();
+        writer.println("<messages>");
+        for (Map.Entry<Long, Message> entry : batch.entrySet()) {
+            writeMessageResponse(writer, entry.getKey(), entry.getValue());
+        }
+        writer.print("</messages>");
+        writer.flush();
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Sent " + batch.size() + " message(s)");
+        }
+    }
+
+    protected void writeMessageResponse(PrintWriter writer, long sequence, Message message) throws JMSException, IOException {
+        writer.print("<message seq='");
+        writer.print(sequence);
+        writer.print("' id='");
+        writer.print(message.getJMSMessageID());
+        writer.print("'");
+        if (message.getJMSDestination() != null) {
+            writer.print(" destination='" + message.getJMSDestination() + "'");
+        }
+        writer.print(">");
+        if (message instanceof TextMessage) {
+            TextMessage textMsg = (TextMessage) message;
+            String txt = textMsg.getText();
+            if (txt != null) {
+                if (txt.startsWith("<?")) {
+                    txt = txt.substring(txt.indexOf("?>") + 2);
+                }
+                writer.print(txt);
+            }
+        } else if (message instanceof ObjectMessage) {
+            ObjectMessage objectMsg = (ObjectMessage) message;
+            Object object = objectMsg.getObject();
+            if (object != null) {
+                writer.print(object.toString());
+            }
+        }
+        writer.println("</message>");
+    }
+
+    /**
+     * @return the consumer shared by the requests of the same user for the same
+     *         destination, selector and group, created when there is none yet if
+     *         create is true. Null if there is none, or if the user's consumer was
+     *         created with other credentials than the ones of the request.
+     */
+    protected SharedConsumer getSharedConsumer(HttpServletRequest request, boolean create) throws JMSException, IOException, ServletException {
+        UserClient user = getUserClient(request);
+        String key = getConsumerKey(user.client, request);
+        SharedConsumer consumer = consumers.get(key);
+        if (consumer == null && create) {
+            synchronized (consumers) {
+                consumer = consumers.get(key);
+                if (consumer == null) {
+                    Destination destination = getDestination(user.client, request);
+                    if (destination == null) {
+                        throw new NoDestinationSuppliedException();
+                    }
+                    consumer = new SharedConsumer(key, user, destination, getSelector(request));
+                    consumers.put(key, consumer);
+                }
+            }
+        }
+        if (consumer == null || consumer.user != user) {
+            return null;
+        }
+        consumer.access();
+        return consumer;
+    }
+
+    protected String getConsumerKey(WebClient client, HttpServletRequest request) throws JMSException, IOException, ServletException {
+        Destination destination = getDestination(client, request);
+        if (destination == null) {
+            throw new NoDestinationSuppliedException();
+        }
+        String userName = client.getUsername();
+        String group = request.getParameter(groupParameter);
+        String selector = getSelector(request);
+        return (userName != null ? userName : "") + "|" + (group != null ? group : "") + "|" + destination + "|" + (selector != null ? selector : "");
+    }
+
+    /**
+     * @return the client whose connection is opened with the credentials of the
+     *         request, shared by all the requests with the same credentials
+     */
+    private UserClient getUserClient(HttpServletRequest request) {
+        WebClient client = WebClient.createWebClient(request);
+        String credentials = client.getUsername() + ":" + client.getPassword();
+        synchronized (clients) {
+            UserClient user = clients.get(credentials);
+            if (user == null || user.client.isClosed()) {
+                user = new UserClient(client);
+                clients.put(credentials, user);
+            }
+            user.access();
+            return user;
+        }
+    }
+
+    /**
+     * @return the number of messages to return at most, which is always > 0 and
+     *         <= maximumMessages
+     */
+    protected int getMaximumMessages(HttpServletRequest request) {
+        String name = request.getParameter(maximumMessagesParameter);
+        if (name != null) {
+            int answer = asInt(name);
+            if (answer > 0 && answer < maximumMessages) {
+                return answer;
+            }
+        }
+        return maximumMessages;
+    }
+
+    /**
+     * @return the deadline for read requests, the timeout being always >= 0 and
+     *         <= maximumReadTimeout to avoid DoS attacks
+     */
+    protected long getReadDeadline(HttpServletRequest request) {
+        Long answer = (Long) request.getAttribute(readDeadlineRequestAtt);
+
+        if (answer == null) {
+            long timeout = defaultReadTimeout;
+            String name = request.getParameter(readTimeoutParameter);
+            if (name != null) {
+                timeout = asLong(name);
+            }
+            if (timeout < 0 || timeout > maximumReadTimeout) {
+                timeout = maximumReadTimeout;
+            }
+
+            answer = System.currentTimeMillis() + timeout;
+            request.setAttribute(readDeadlineRequestAtt, answer);
+        }
+        return answer;
+    }
+
+    @Override
+    public void destroy() {
+        // make sure we cancel the timer
+        consumerCleanupTimer.cancel();
+        for (SharedConsumer consumer : consumers.values()) {
+            try {
+                consumer.close();
+            } catch (JMSException e) {
+                LOG.debug("caught exception closing consumer", e);
+            }
+        }
+        synchronized (clients) {
+            for (UserClient user : clients.values()) {
+                user.client.close();
+            }
+            clients.clear();
+        }
+        super.destroy();
+    }
+
+    /*
+     * A JMS consumer in individual acknowledge mode whose messages are handed
+     * out to the requests polling it.
+     */
+    private final class SharedConsumer implements MessageListener {
+        private final String key;
+        private final UserClient user;
+        private final Session session;
+        private final ArrayDeque<Message> available = new ArrayDeque<>();
+        private final ArrayDeque<AsyncServletRequest> suspended = new ArrayDeque<>();
+        private final NavigableMap<Long, Delivery> unacknowledged = new TreeMap<>();
+        private long nextSequence = 1;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private boolean closed;
+
+        SharedConsumer(String key, UserClient user, Destination destination, String selector) throws JMSException {
+            this.key = key;
+            this.user = user;
+            this.session = user.client.getConnection().createSession(false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+            try {
+                MessageConsumer consumer = session.createConsumer(destination, selector);
+                consumer.setMessageListener(this);
+            } catch (JMSException e) {
+                session.close();
+                throw e;
+            }
+        }
+
+        void access() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        @Override
+        public synchronized void onMessage(Message message) {
+            available.add(message);
+            resumeOne();
+        }
+
+        /**
+         * Takes up to the given number of messages, numbering them and keeping
+         * them until they are acknowledged.
+         */
+        synchronized NavigableMap<Long, Message> poll(int max) {
+            redeliverExpired();
+
+            NavigableMap<Long, Message> batch = new TreeMap<>();
+            Message message;
+            while (batch.size() < max && (message = available.poll()) != null) {
+                long sequence = nextSequence++;
+                unacknowledged.put(sequence, new Delivery(message));
+                batch.put(sequence, message);
+            }
+            return batch;
+        }
+
+        /**
+         * @return false if messages are available already, in which case the
+         *         request is not suspended
+         */
+        synchronized boolean suspend(AsyncServletRequest asyncRequest) {
+            redeliverExpired();
+            if (!available.isEmpty() || closed) {
+                return false;
+            }
+            suspended.removeIf(AsyncServletRequest::isExpired);
+            suspended.add(asyncRequest);
+            return true;
+        }
+
+        synchronized int acknowledge(String ranges) throws JMSException {
+            int count = 0;
+            for (String range : ranges.split(",")) {
+                range = range.trim();
+                if (range.isEmpty()) {
+                    continue;
+                }
+                int separator = range.indexOf('-');
+                long first = Long.parseLong(separator < 0 ? range : range.substring(0, separator).trim());
+                long last = separator < 0 ? first : Long.parseLong(range.substring(separator + 1).trim());
+                if (last < first) {
+                    throw new NumberFormatException("Invalid range: " + range);
+                }
+
+                NavigableMap<Long, Delivery> acknowledged = unacknowledged.subMap(first, true, last, true);
+                for (Delivery delivery : acknowledged.values()) {
+                    delivery.message.acknowledge();
+                    count++;
+                }
+                acknowledged.clear();
+            }
+            access();
+            return count;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return suspended.isEmpty() && now - lastAccess > consumerIdleTimeout;
+        }
+
+        void close() throws JMSException {
+            consumers.remove(key, this);
+            synchronized (this) {
+                closed = true;
+                available.clear();
+                unacknowledged.clear();
+                // Let the suspended requests find out about the close.
+                while (!suspended.isEmpty()) {
+                    resumeOne();
+                }
+            }
+            session.close();
+        }
+
+        /**
+         * Makes the messages delivered longer than ackTimeout ago available
+         * again, ahead of the messages not delivered yet.
+         */
+        private void redeliverExpired() {
+            long expiry = System.currentTimeMillis() - ackTimeout;
+            Iterator<Delivery> it = unacknowledged.values().iterator();
+            ArrayDeque<Message> expired = null;
+            while (it.hasNext()) {
+                Delivery delivery = it.next();
+                if (delivery.time > expiry) {
+                    break;
+                }
+                if (expired == null) {
+                    expired = new ArrayDeque<>();
+                }
+                expired.add(delivery.message);
+                it.remove();
+            }
+            if (expired != null) {
+                LOG.debug("Redelivering {} unacknowledged message(s) of {}", expired.size(), this);
+                while (!expired.isEmpty()) {
+                    available.addFirst(expired.pollLast());
+                }
+            }
+        }
+
+        private void resumeOne() {
+            AsyncServletRequest asyncRequest;
+            while ((asyncRequest = suspended.poll()) != null) {
+                if (asyncRequest.isExpired() || asyncRequest.isDispatched()) {
+                    continue;
+                }
+                try {
+                    asyncRequest.dispatch();
+                    return;
+                } catch (IllegalStateException e) {
+                    // Timed out concurrently, try the next one.
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "SharedConsumer[" + key + "]";
+        }
+    }
+
+    /*
+     * The client holding the connection of the consumers created with the same
+     * credentials.
+     */
+    private final class UserClient {
+        private final WebClient client;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        UserClient(WebClient client) {
+            this.client = client;
+        }
+
+        void access() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        boolean isIdle(long now) {
+            if (now - lastAccess <= consumerIdleTimeout) {
+                return false;
+            }
+            for (SharedConsumer consumer : consumers.values()) {
+                if (consumer.user == this) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Delivery {
+        private final Message message;
+        private final long time = System.currentTimeMillis();
+
+        Delivery(Message message) {
+            this.message = message;
+        }
+    }
+
+    private class ConsumerCleaner extends TimerTask {
+        @Override
+        public void run() {
+            long now = System.currentTimeMillis();
+            for (SharedConsumer consumer : consumers.values()) {
+                if (consumer.isIdle(now)) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Closing idle " + consumer);
+                    }
+                    try {
+                        consumer.close();
+                    } catch (JMSException e) {
+                        LOG.debug("caught exception closing consumer", e);
+                    }
+                }
+            }
+            synchronized (clients) {
+                Iterator<UserClient> it = clients.values().iterator();
+                while (it.hasNext()) {
+                    UserClient user = it.next();
+                    if (user.isIdle(now)) {
+                        it.remove();
+                        user.client.close();
+                    }
+                }
+            }
+        }
+    }
+}